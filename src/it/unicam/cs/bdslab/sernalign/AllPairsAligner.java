@@ -0,0 +1,488 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Aligner of all the pairs of a list of structural sequences, i.e., each
+ * sequence with all the subsequent ones. The pairs can be aligned in
+ * parallel by the threads of a work-stealing pool: the pairs are split in
+ * blocks of consecutive pairs, that are aligned as independent tasks, and
+ * the results are passed to a consumer in the same order in which a
+ * sequential nested loop would produce them.
+ * 
+ * The pairs can also be split in shards of consecutive pairs with about the
+ * same alignment cost (see {@link #shards(List, int)}), that are aligned
+ * independently, e.g., by different processes, with
+ * {@link #alignAll(ResultConsumer, long, long)}.
+ * 
+ * The first sequences of the list can also be a collection of references,
+ * that are aligned with each one of the following sequences, the queries,
+ * instead of aligning all the pairs: the queries are not aligned with each
+ * other and the references are not aligned with each other. The pairs are
+ * aligned in the order of the query and then of the reference.
+ * 
+ * The results of the blocks that are completed before the preceding ones
+ * are kept in a reorder buffer, a queue of the tasks submitted to the pool
+ * that are joined in order. The number of blocks submitted and not yet
+ * consumed is bounded, thus the results in memory do not depend on the
+ * number of pairs.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class AllPairsAligner {
+
+    // number of blocks submitted and not yet consumed, for each thread
+    private static final int BLOCKS_PER_THREAD = 4;
+
+    // bounds of the number of pairs of a block
+    private static final int MIN_BLOCK = 1;
+    private static final int MAX_BLOCK = 256;
+
+    // number of blocks that each thread should align, for load balancing
+    private static final int BLOCKS_PER_THREAD_TARGET = 16;
+
+    /**
+     * Consumer of the results of the alignments.
+     */
+    interface ResultConsumer {
+	/**
+	 * Consume the result of the alignment of a pair of sequences.
+	 * 
+	 * @param i        the index of the first sequence
+	 * @param j        the index of the second sequence, greater than i
+	 *                 or, when aligning queries with references, the
+	 *                 index of the reference, less than the index i of
+	 *                 the query
+	 * @param distance the distance between the two sequences
+	 * @param time     the time taken to align the two sequences, in
+	 *                 nanoseconds
+	 */
+	void accept(int i, int j, int distance, long time);
+    }
+
+    private final List<StructuralSequence> sequences;
+
+    // number of reference sequences, 0 if all the pairs are aligned
+    private final int references;
+
+    private final boolean constraints;
+
+    private final int threads;
+
+    /**
+     * Create an aligner of all the pairs of a list of sequences.
+     * 
+     * @param sequences   the sequences to align
+     * @param constraints flag to indicate if the alignments should respect
+     *                    structural sequences constraints
+     * @param threads     the number of threads aligning the pairs; if 1, the
+     *                    pairs are aligned by the calling thread
+     * @throws IllegalArgumentException if the number of threads is not
+     *                                  positive
+     */
+    AllPairsAligner(List<StructuralSequence> sequences, boolean constraints,
+	    int threads) {
+	this(sequences, 0, constraints, threads);
+    }
+
+    /**
+     * Create an aligner of each query sequence of a list with all the
+     * reference sequences that precede the queries in the list. The
+     * references are shared by all the queries, thus they are read and
+     * built only once.
+     * 
+     * @param sequences   the references followed by the queries
+     * @param references  the number of references at the start of the
+     *                    list; if 0, all the pairs of the list are aligned
+     * @param constraints flag to indicate if the alignments should respect
+     *                    structural sequences constraints
+     * @param threads     the number of threads aligning the pairs; if 1, the
+     *                    pairs are aligned by the calling thread
+     * @throws IllegalArgumentException if the number of threads is not
+     *                                  positive or the number of references
+     *                                  is not valid
+     */
+    AllPairsAligner(List<StructuralSequence> sequences, int references,
+	    boolean constraints, int threads) {
+	if (threads < 1)
+	    throw new IllegalArgumentException(
+		    "The number of threads must be positive: " + threads);
+	if (references < 0 || references > sequences.size())
+	    throw new IllegalArgumentException(
+		    "Invalid number of references: " + references);
+	this.sequences = sequences;
+	this.references = references;
+	this.constraints = constraints;
+	this.threads = threads;
+    }
+
+    /**
+     * Align all the pairs, passing the results to a consumer, in the calling
+     * thread, in the order of the first sequence and then of the second one.
+     * 
+     * @param consumer the consumer of the results
+     */
+    void alignAll(ResultConsumer consumer) {
+	alignAll(consumer, 0);
+    }
+
+    /**
+     * Align the pairs that follow a given number of pairs, in the order of
+     * the first sequence and then of the second one, e.g., to resume an
+     * interrupted computation, passing the results to a consumer in the
+     * calling thread in the same order.
+     * 
+     * @param consumer  the consumer of the results
+     * @param firstPair the number of pairs to skip
+     * @throws IllegalArgumentException if the number of pairs to skip is
+     *                                  negative or greater than the number
+     *                                  of pairs
+     */
+    void alignAll(ResultConsumer consumer, long firstPair) {
+	long pairs = pairs(this.sequences.size(), this.references);
+	if (firstPair < 0 || firstPair > pairs)
+	    throw new IllegalArgumentException(
+		    "Invalid number of pairs to skip: " + firstPair);
+	alignAll(consumer, firstPair, pairs);
+    }
+
+    /**
+     * Align a range of consecutive pairs, in the order of the first sequence
+     * and then of the second one, e.g., a shard of the pairs (see
+     * {@link #shards(List, int)}), passing the results to a consumer in the
+     * calling thread in the same order.
+     * 
+     * @param consumer  the consumer of the results
+     * @param firstPair the number of pairs preceding the range
+     * @param endPair   the number of pairs preceding the first pair after
+     *                  the range
+     * @throws IllegalArgumentException if the range is not a valid range of
+     *                                  pairs
+     */
+    void alignAll(ResultConsumer consumer, long firstPair, long endPair) {
+	if (firstPair < 0 || firstPair > endPair
+		|| endPair > pairs(this.sequences.size(), this.references))
+	    throw new IllegalArgumentException(
+		    "Invalid range of pairs: " + firstPair + "-" + endPair);
+	int[] first = this.references == 0
+		? pair(this.sequences.size(), firstPair)
+		: new int[] {
+			this.references + (int) (firstPair / this.references),
+			(int) (firstPair % this.references) };
+	int i = first[0];
+	int j = first[1];
+	long pairs = endPair - firstPair;
+	if (this.threads == 1) {
+	    for (long k = 0; k < pairs; k++) {
+		long startTimeNano = System.nanoTime();
+		int distance = align(i, j);
+		consumer.accept(i, j, distance,
+			System.nanoTime() - startTimeNano);
+		if (++j == rowEnd()) {
+		    i++;
+		    j = rowStart(i);
+		}
+	    }
+	    return;
+	}
+	ForkJoinPool pool = new ForkJoinPool(this.threads);
+	try {
+	    alignAll(pool, consumer, i, j, pairs);
+	} finally {
+	    pool.shutdownNow();
+	}
+    }
+
+    private void alignAll(ForkJoinPool pool, ResultConsumer consumer, int i,
+	    int j, long pairs) {
+	int blockSize = (int) Math.max(MIN_BLOCK, Math.min(MAX_BLOCK,
+		pairs / ((long) this.threads * BLOCKS_PER_THREAD_TARGET)));
+	int window = this.threads * BLOCKS_PER_THREAD;
+	// the reorder buffer
+	ArrayDeque<ForkJoinTask<Block>> pending = new ArrayDeque<>(window);
+	// (i, j) is the first pair of the next block to submit
+	long remaining = pairs;
+	while (remaining > 0 || !pending.isEmpty()) {
+	    // fill the window
+	    while (remaining > 0 && pending.size() < window) {
+		int size = (int) Math.min(blockSize, remaining);
+		Block block = new Block(i, j, size);
+		pending.add(pool.submit(() -> align(block)));
+		remaining -= size;
+		// move to the first pair of the next block
+		for (int k = 0; k < size; k++)
+		    if (++j == rowEnd()) {
+			i++;
+			j = rowStart(i);
+		    }
+	    }
+	    // consume the oldest block, waiting for it if necessary
+	    Block block = pending.remove().join();
+	    int bi = block.i;
+	    int bj = block.j;
+	    for (int k = 0; k < block.size; k++) {
+		consumer.accept(bi, bj, block.distances[k], block.times[k]);
+		if (++bj == rowEnd()) {
+		    bi++;
+		    bj = rowStart(bi);
+		}
+	    }
+	}
+    }
+
+    /*
+     * Return the index of the second sequence of the first pair of the row
+     * of the sequence i, i.e., of the pairs having i as first sequence.
+     */
+    private int rowStart(int i) {
+	return this.references == 0 ? i + 1 : 0;
+    }
+
+    /*
+     * Return the index following the second sequence of the last pair of
+     * each row.
+     */
+    private int rowEnd() {
+	return this.references == 0 ? this.sequences.size() : this.references;
+    }
+
+    /**
+     * Return the number of pairs of a list of sequences that are aligned.
+     * 
+     * @param n          the number of sequences
+     * @param references the number of reference sequences at the start of
+     *                   the list, that are aligned with each one of the
+     *                   following sequences; if 0, all the pairs are aligned
+     * @return the number of pairs
+     */
+    static long pairs(int n, int references) {
+	return references == 0 ? (long) n * (n - 1) / 2
+		: (long) (n - references) * references;
+    }
+
+    /**
+     * Find a pair of the sequences of a list from the number of pairs
+     * preceding it, in the order in which they are aligned.
+     * 
+     * @param n    the number of sequences
+     * @param pair the number of pairs preceding the pair
+     * @return the indexes i and j of the sequences of the pair, with i less
+     *         than j, or n - 1 and n if the pair follows all the pairs
+     */
+    static int[] pair(int n, long pair) {
+	// find the row of the pair, i.e., its first sequence
+	int i = 0;
+	long skip = pair;
+	while (i < n - 1 && skip >= n - 1 - i) {
+	    skip -= n - 1 - i;
+	    i++;
+	}
+	return new int[] { i, i + 1 + (int) skip };
+    }
+
+    /**
+     * Compute the total number of cells of the alignment matrices of the
+     * first pairs of a list of sequences, in the order in which they are
+     * aligned, i.e., the sum of the products of the sizes of the sequences
+     * of each pair.
+     * 
+     * @param sequences the sequences
+     * @param pairs     the number of pairs
+     * @return the number of cells
+     */
+    static long cells(List<StructuralSequence> sequences, long pairs) {
+	return cells(sequences, 0, pairs);
+    }
+
+    /**
+     * Compute the total number of cells of the alignment matrices of the
+     * first pairs of a list of sequences, in the order in which they are
+     * aligned, aligning the query sequences with the reference ones or, if
+     * there are no references, all the pairs.
+     * 
+     * @param sequences  the sequences
+     * @param references the number of reference sequences at the start of
+     *                   the list, that are aligned with each one of the
+     *                   following sequences; if 0, all the pairs are aligned
+     * @param pairs      the number of pairs
+     * @return the number of cells
+     */
+    static long cells(List<StructuralSequence> sequences, int references,
+	    long pairs) {
+	int n = sequences.size();
+	if (references > 0) {
+	    long referenceSizes = 0;
+	    for (int j = 0; j < references; j++)
+		referenceSizes += sequences.get(j).size();
+	    long cells = 0;
+	    for (int i = references; i < n && pairs > 0; i++) {
+		long size = sequences.get(i).size();
+		if (pairs >= references) {
+		    cells += size * referenceSizes;
+		    pairs -= references;
+		} else {
+		    for (int j = 0; j < pairs; j++)
+			cells += size * sequences.get(j).size();
+		    pairs = 0;
+		}
+	    }
+	    return cells;
+	}
+	// sum of the sizes of the sequences after the current one
+	long following = 0;
+	for (StructuralSequence s : sequences)
+	    following += s.size();
+	long cells = 0;
+	for (int i = 0; i < n - 1 && pairs > 0; i++) {
+	    long size = sequences.get(i).size();
+	    following -= size;
+	    int rowPairs = n - 1 - i;
+	    if (pairs >= rowPairs) {
+		cells += size * following;
+		pairs -= rowPairs;
+	    } else {
+		for (int j = i + 1; j <= i + pairs; j++)
+		    cells += size * sequences.get(j).size();
+		pairs = 0;
+	    }
+	}
+	return cells;
+    }
+
+    /**
+     * Split all the pairs of a list of sequences in shards of consecutive
+     * pairs, in the order in which they are aligned, with about the same
+     * number of cells of the alignment matrices, i.e., about the same
+     * alignment cost, instead of the same number of pairs. The split depends
+     * only on the sizes of the sequences, thus independent processes reading
+     * the same sequences compute the same shards.
+     * 
+     * @param sequences the sequences
+     * @param shards    the number of shards
+     * @return the bounds of the shards: shard k, from 0, is made of the pairs
+     *         from bounds[k] (included) to bounds[k + 1] (excluded), in the
+     *         order in which they are aligned
+     * @throws IllegalArgumentException if the number of shards is not
+     *                                  positive
+     */
+    static long[] shards(List<StructuralSequence> sequences, int shards) {
+	if (shards < 1)
+	    throw new IllegalArgumentException(
+		    "The number of shards must be positive: " + shards);
+	int n = sequences.size();
+	long pairs = (long) n * (n - 1) / 2;
+	long total = cells(sequences, pairs);
+	long[] bounds = new long[shards + 1];
+	bounds[shards] = pairs;
+	// next shard to start, cells of the pairs before the current pair and
+	// number of these pairs
+	int k = 1;
+	long cells = 0;
+	long pair = 0;
+	// sum of the sizes of the sequences after the current one
+	long following = 0;
+	for (StructuralSequence s : sequences)
+	    following += s.size();
+	for (int i = 0; i < n - 1 && k < shards; i++) {
+	    long size = sequences.get(i).size();
+	    following -= size;
+	    if (cells + size * following < target(total, k, shards)) {
+		// the next shard does not start in this row
+		cells += size * following;
+		pair += n - 1 - i;
+		continue;
+	    }
+	    for (int j = i + 1; j < n && k < shards; j++) {
+		// start the shards whose target has been reached
+		while (k < shards && cells >= target(total, k, shards))
+		    bounds[k++] = pair;
+		cells += size * sequences.get(j).size();
+		pair++;
+	    }
+	}
+	// the last shards may contain no pairs
+	while (k < shards)
+	    bounds[k++] = pairs;
+	return bounds;
+    }
+
+    /*
+     * Return the cells preceding shard k of the given number of shards, in
+     * an ideal split of the total number of cells, avoiding overflows.
+     */
+    private static long target(long total, int k, int shards) {
+	return total / shards * k + total % shards * k / shards;
+    }
+
+    /*
+     * Align the pairs of a block and return it with the results.
+     */
+    private Block align(Block block) {
+	int bi = block.i;
+	int bj = block.j;
+	int k = 0;
+	while (k < block.distances.length) {
+	    long startTimeNano = System.nanoTime();
+	    block.distances[k] = align(bi, bj);
+	    block.times[k] = System.nanoTime() - startTimeNano;
+	    k++;
+	    if (++bj == rowEnd()) {
+		bi++;
+		bj = rowStart(bi);
+	    }
+	}
+	block.size = k;
+	return block;
+    }
+
+    private int align(int i, int j) {
+	return new StructuralSequenceAligner(this.sequences.get(i),
+		this.sequences.get(j), this.constraints).getDistance();
+    }
+
+    /*
+     * A block of consecutive pairs, starting from pair (i, j), with the
+     * results of their alignments.
+     */
+    private static class Block {
+	private final int i;
+	private final int j;
+	private final int[] distances;
+	private final long[] times;
+	// number of pairs aligned in the block
+	private int size;
+
+	private Block(int i, int j, int capacity) {
+	    this.i = i;
+	    this.j = j;
+	    this.distances = new int[capacity];
+	    this.times = new long[capacity];
+	}
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the class AllPairsAligner
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class AllPairsAlignerTest {
+
+    private static List<StructuralSequence> readExamples()
+	    throws IOException {
+	File[] files = new File("examples").listFiles(
+		(dir, name) -> name.endsWith(".aas") || name.endsWith(".db"));
+	Arrays.sort(files);
+	List<StructuralSequence> sequences = new ArrayList<>();
+	for (File f : files)
+	    sequences.add(RNASecondaryStructureFileReader
+		    .readStructuralSequence(f.getPath(), null));
+	return sequences;
+    }
+
+    private static List<String> alignAll(List<StructuralSequence> sequences,
+	    int threads) {
+	List<String> results = new ArrayList<>();
+	new AllPairsAligner(sequences, true, threads).alignAll(
+		(i, j, distance, time) -> results.add(i + " " + j + " " + distance));
+	return results;
+    }
+
+    @Test
+    void testParallelOrder() throws IOException {
+	List<StructuralSequence> sequences = readExamples();
+	List<String> expected = alignAll(sequences, 1);
+	int n = sequences.size();
+	assertEquals(n * (n - 1) / 2, expected.size());
+	assertEquals(0 + " " + 1 + " " + new StructuralSequenceAligner(
+		sequences.get(0), sequences.get(1)).getDistance(),
+		expected.get(0));
+	for (int threads = 2; threads <= 5; threads++)
+	    assertEquals(expected, alignAll(sequences, threads));
+    }
+
+    @Test
+    void testResume() throws IOException {
+	List<StructuralSequence> sequences = readExamples();
+	List<String> expected = alignAll(sequences, 1);
+	long cells = 0;
+	int pairs = 0;
+	for (String result : expected) {
+	    assertEquals(cells, AllPairsAligner.cells(sequences, pairs));
+	    String[] ij = result.split(" ");
+	    cells += (long) sequences.get(Integer.parseInt(ij[0])).size()
+		    * sequences.get(Integer.parseInt(ij[1])).size();
+	    pairs++;
+	}
+	assertEquals(cells, AllPairsAligner.cells(sequences, pairs));
+	for (int first : new int[] { 0, 1, sequences.size(), pairs - 1,
+		pairs })
+	    for (int threads = 1; threads <= 3; threads++) {
+		List<String> results = new ArrayList<>();
+		new AllPairsAligner(sequences, true, threads)
+			.alignAll((i, j, distance, time) -> results
+				.add(i + " " + j + " " + distance), first);
+		assertEquals(expected.subList(first, pairs), results);
+	    }
+    }
+
+    @Test
+    void testShards() throws IOException {
+	List<StructuralSequence> sequences = readExamples();
+	List<String> expected = alignAll(sequences, 1);
+	long pairs = expected.size();
+	long total = AllPairsAligner.cells(sequences, pairs);
+	long maxCells = 0;
+	for (StructuralSequence s : sequences)
+	    maxCells = Math.max(maxCells, s.size());
+	maxCells *= maxCells;
+	for (int shards = 1; shards <= 7; shards++) {
+	    long[] bounds = AllPairsAligner.shards(sequences, shards);
+	    assertEquals(shards + 1, bounds.length);
+	    assertEquals(0, bounds[0]);
+	    assertEquals(pairs, bounds[shards]);
+	    List<String> results = new ArrayList<>();
+	    for (int k = 0; k < shards; k++) {
+		// the shards have about the same alignment cost
+		long cells = AllPairsAligner.cells(sequences, bounds[k + 1])
+			- AllPairsAligner.cells(sequences, bounds[k]);
+		assertTrue(Math.abs(cells - total / shards) <= maxCells);
+		new AllPairsAligner(sequences, true, 2).alignAll(
+			(i, j, distance, time) -> results
+				.add(i + " " + j + " " + distance),
+			bounds[k], bounds[k + 1]);
+	    }
+	    assertEquals(expected, results);
+	}
+    }
+
+    @Test
+    void testQueries() throws IOException {
+	List<StructuralSequence> sequences = readExamples();
+	int references = 3;
+	int n = sequences.size();
+	// each query with each reference, in the order of the queries
+	List<String> expected = new ArrayList<>();
+	long cells = 0;
+	for (int i = references; i < n; i++)
+	    for (int j = 0; j < references; j++) {
+		expected.add(i + " " + j + " " + new StructuralSequenceAligner(
+			sequences.get(i), sequences.get(j)).getDistance());
+		assertEquals(cells, AllPairsAligner.cells(sequences,
+			references, expected.size() - 1));
+		cells += (long) sequences.get(i).size()
+			* sequences.get(j).size();
+	    }
+	int pairs = expected.size();
+	assertEquals(pairs, AllPairsAligner.pairs(n, references));
+	assertEquals(cells, AllPairsAligner.cells(sequences, references,
+		pairs));
+	for (int first : new int[] { 0, 1, references + 1, pairs })
+	    for (int threads = 1; threads <= 3; threads++) {
+		List<String> results = new ArrayList<>();
+		new AllPairsAligner(sequences, references, true, threads)
+			.alignAll((i, j, distance, time) -> results
+				.add(i + " " + j + " " + distance), first);
+		assertEquals(expected.subList(first, pairs), results);
+	    }
+	assertThrows(IllegalArgumentException.class,
+		() -> new AllPairsAligner(sequences, n + 1, true, 1));
+    }
+
+    @Test
+    void testInvalidThreads() {
+	assertThrows(IllegalArgumentException.class,
+		() -> new AllPairsAligner(new ArrayList<>(), true, 0));
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validator of the base pairs of RNA secondary structures. The allowed pairs
+ * are kept in a precomputed table indexed by the two nucleotides of a weak
+ * bond. A pair is checked only if its left nucleotide is the left nucleotide
+ * of at least one allowed pair, otherwise it is accepted: in this way non
+ * standard codes are not rejected unless the table mentions them.
+ * 
+ * Validators are immutable and can be shared among threads. Validating a
+ * structure does not allocate any object unless violations are found.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+public class BasePairValidator {
+
+    /**
+     * Validator accepting only the Watson-Crick pairs A-U, U-A, C-G and G-C.
+     */
+    public static final BasePairValidator WATSON_CRICK = new BasePairValidator(
+	    "AU", "UA", "CG", "GC");
+
+    /**
+     * Validator accepting the Watson-Crick pairs and the wobble pairs G-U and
+     * U-G. It is the default validator of
+     * {@link RNASecondaryStructure#checkBasePairs()}.
+     */
+    public static final BasePairValidator WATSON_CRICK_WOBBLE = new BasePairValidator(
+	    "AU", "UA", "CG", "GC", "GU", "UG");
+
+    // size of the tables for the nucleotides, only ASCII codes are checked
+    private static final int CODES = 128;
+
+    /*
+     * allowed pairs: allowed[l * CODES + r] is true if the pair l-r is
+     * allowed; checked[l] is true if l is the left nucleotide of at least one
+     * allowed pair
+     */
+    private final boolean[] allowed;
+    private final boolean[] checked;
+
+    /*
+     * the same tables restricted to the codes of the standard bases of a
+     * PackedNucleotideSequence, to check them without decoding characters
+     */
+    private final boolean[] standardAllowed;
+    private final boolean[] standardChecked;
+
+    /**
+     * Create a validator accepting the given base pairs.
+     * 
+     * @param pairs the allowed pairs, each one given as a string of two
+     *              nucleotides, the left one and the right one
+     * @throws IllegalArgumentException if a pair is not made of two ASCII
+     *                                  characters
+     */
+    public BasePairValidator(String... pairs) {
+	this.allowed = new boolean[CODES * CODES];
+	this.checked = new boolean[CODES];
+	for (String pair : pairs) {
+	    if (pair.length() != 2 || pair.charAt(0) >= CODES
+		    || pair.charAt(1) >= CODES)
+		throw new IllegalArgumentException(
+			"Base pair " + pair + " is not made of two nucleotides");
+	    this.allowed[pair.charAt(0) * CODES + pair.charAt(1)] = true;
+	    this.checked[pair.charAt(0)] = true;
+	}
+	this.standardAllowed = new boolean[16];
+	this.standardChecked = new boolean[4];
+	char[] bases = { 'A', 'C', 'G', 'U' };
+	for (int l = 0; l < 4; l++) {
+	    this.standardChecked[l] = this.checked[bases[l]];
+	    for (int r = 0; r < 4; r++)
+		this.standardAllowed[(l << 2) | r] = this.allowed[bases[l]
+			* CODES + bases[r]];
+	}
+    }
+
+    /**
+     * Create a validator from a textual specification: "wc" for
+     * {@link #WATSON_CRICK}, "wobble" for {@link #WATSON_CRICK_WOBBLE},
+     * otherwise a comma-separated list of allowed pairs, e.g.,
+     * "AU,UA,CG,GC,GU,UG".
+     * 
+     * @param specification the specification of the allowed pairs
+     * @return the corresponding validator
+     * @throws IllegalArgumentException if the specification contains a pair
+     *                                  that is not made of two nucleotides
+     */
+    public static BasePairValidator valueOf(String specification) {
+	String spec = specification.trim();
+	if (spec.equalsIgnoreCase("wc"))
+	    return WATSON_CRICK;
+	if (spec.equalsIgnoreCase("wobble"))
+	    return WATSON_CRICK_WOBBLE;
+	String[] pairs = spec.split(",");
+	for (int i = 0; i < pairs.length; i++)
+	    pairs[i] = pairs[i].trim();
+	return new BasePairValidator(pairs);
+    }
+
+    /**
+     * Determine if a pair of nucleotides is accepted by this validator.
+     * 
+     * @param left  the left nucleotide
+     * @param right the right nucleotide
+     * @return true if the pair is allowed or if the left nucleotide is not
+     *         checked by this validator
+     */
+    public boolean isAllowed(char left, char right) {
+	if (left >= CODES || !this.checked[left])
+	    return true;
+	return right < CODES && this.allowed[left * CODES + right];
+    }
+
+    /**
+     * Check the weak bonds of a structure, if it has a sequence.
+     * 
+     * @param s the structure to check
+     * @throws RNAInputFileParserException at the first weak bond whose pair
+     *                                     is not allowed
+     */
+    public void check(RNASecondaryStructure s) {
+	int[] first = new int[1];
+	if (scan(s, first, true) > 0)
+	    throw new RNAInputFileParserException(message(s, first[0]));
+    }
+
+    /**
+     * Count the weak bonds of a structure whose pair is not allowed.
+     * 
+     * @param s the structure to check
+     * @return the number of weak bonds that are not allowed, 0 if the
+     *         structure has no sequence
+     */
+    public int countViolations(RNASecondaryStructure s) {
+	return scan(s, null, false);
+    }
+
+    /**
+     * Collect all the weak bonds of a structure whose pair is not allowed.
+     * 
+     * @param s the structure to check
+     * @return the list of the messages describing the weak bonds that are
+     *         not allowed, in the order of the bonds; the list is empty if
+     *         the structure has no sequence
+     */
+    public List<String> findViolations(RNASecondaryStructure s) {
+	int count = scan(s, null, false);
+	List<String> messages = new ArrayList<String>(count);
+	if (count > 0) {
+	    int[] violations = new int[count];
+	    scan(s, violations, false);
+	    for (int k : violations)
+		messages.add(message(s, k));
+	}
+	return messages;
+    }
+
+    /*
+     * Scan all the bonds of the structure in one pass and count the ones
+     * that are not allowed, storing their indexes in the given array, if not
+     * null, as long as there is room. If stopAtFirst is true the scan ends at
+     * the first violation.
+     */
+    private int scan(RNASecondaryStructure s, int[] violations,
+	    boolean stopAtFirst) {
+	PackedNucleotideSequence sequence = s.sequence;
+	if (sequence == null)
+	    return 0;
+	int[] lefts = s.lefts;
+	int[] rights = s.rights;
+	int count = 0;
+	for (int k = 0; k < s.numberOfBonds; k++) {
+	    // indexes of the sequence start from 0
+	    int code1 = sequence.codeAt(lefts[k] - 1);
+	    int code2 = sequence.codeAt(rights[k] - 1);
+	    boolean ok;
+	    if (code1 != PackedNucleotideSequence.NON_STANDARD
+		    && code2 != PackedNucleotideSequence.NON_STANDARD)
+		ok = !this.standardChecked[code1]
+			|| this.standardAllowed[(code1 << 2) | code2];
+	    else
+		ok = isAllowed(sequence.charAt(lefts[k] - 1),
+			sequence.charAt(rights[k] - 1));
+	    if (!ok) {
+		if (violations != null && count < violations.length)
+		    violations[count] = k;
+		count++;
+		if (stopAtFirst)
+		    break;
+	    }
+	}
+	return count;
+    }
+
+    /*
+     * Describe the k-th bond of the structure as a violation.
+     */
+    private static String message(RNASecondaryStructure s, int k) {
+	int left = s.lefts[k];
+	int right = s.rights[k];
+	return "Base pair not allowed in RNA: " + s.sequence.charAt(left - 1)
+		+ "-" + s.sequence.charAt(right - 1) + " at weak bond (" + left
+		+ ", " + right + ")";
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the class BasePairValidator
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class BasePairValidatorTest {
+
+    // standard bases, lower case and other codes accepted by the grammar
+    private static final String CODES = "ACGUacguNnTRY-";
+
+    /*
+     * Read a structure with a sequence from a text in memory.
+     */
+    private static RNASecondaryStructure structure(String text)
+	    throws IOException {
+	return RNASecondaryStructureFileReader.readStructure(text, "text",
+		null, true);
+    }
+
+    /*
+     * The check of the base pairs before the validators: the pairs with a
+     * non standard left base are accepted, the other ones only if they are
+     * Watson-Crick or wobble pairs.
+     */
+    private static boolean oldCheck(char left, char right) {
+	int code1 = PackedNucleotideSequence.code(left);
+	if (code1 == PackedNucleotideSequence.NON_STANDARD)
+	    return true;
+	switch ("" + left + right) {
+	case "AU":
+	case "UA":
+	case "CG":
+	case "GC":
+	case "GU":
+	case "UG":
+	    return true;
+	default:
+	    return false;
+	}
+    }
+
+    @Test
+    void testDefaultAsOldCheck() throws IOException {
+	for (char left : CODES.toCharArray())
+	    for (char right : CODES.toCharArray()) {
+		String pair = left + "-" + right;
+		boolean allowed = oldCheck(left, right);
+		assertEquals(allowed, BasePairValidator.WATSON_CRICK_WOBBLE
+			.isAllowed(left, right), pair);
+		RNASecondaryStructure s = structure(
+			left + "AAA" + right + "\n(...)");
+		BasePairValidator v = BasePairValidator.WATSON_CRICK_WOBBLE;
+		assertEquals(allowed ? 0 : 1, v.countViolations(s), pair);
+		if (allowed)
+		    s.checkBasePairs();
+		else {
+		    RNAInputFileParserException e = assertThrows(
+			    RNAInputFileParserException.class,
+			    () -> s.checkBasePairs(), pair);
+		    assertEquals("Base pair not allowed in RNA: " + pair
+			    + " at weak bond (1, 5)", e.getMessage());
+		}
+	    }
+    }
+
+    @Test
+    void testPredefined() {
+	BasePairValidator wc = BasePairValidator.WATSON_CRICK;
+	assertTrue(wc.isAllowed('A', 'U'));
+	assertTrue(wc.isAllowed('G', 'C'));
+	assertFalse(wc.isAllowed('G', 'U'));
+	assertFalse(wc.isAllowed('U', 'G'));
+	assertTrue(BasePairValidator.WATSON_CRICK_WOBBLE.isAllowed('G', 'U'));
+	// codes that are never left bases of an allowed pair are accepted
+	assertTrue(wc.isAllowed('N', 'A'));
+	assertTrue(wc.isAllowed('a', 'a'));
+	assertFalse(wc.isAllowed('A', 'u'));
+	assertTrue(wc.isAllowed('\u00e9', 'A'));
+	assertFalse(wc.isAllowed('A', '\u00e9'));
+    }
+
+    @Test
+    void testValueOf() {
+	assertSame(BasePairValidator.WATSON_CRICK,
+		BasePairValidator.valueOf("wc"));
+	assertSame(BasePairValidator.WATSON_CRICK_WOBBLE,
+		BasePairValidator.valueOf(" WOBBLE "));
+	BasePairValidator custom = BasePairValidator.valueOf(" AU , UA,GN ");
+	assertTrue(custom.isAllowed('A', 'U'));
+	assertTrue(custom.isAllowed('U', 'A'));
+	assertTrue(custom.isAllowed('G', 'N'));
+	assertFalse(custom.isAllowed('G', 'C'));
+	assertFalse(custom.isAllowed('A', 'A'));
+	// C is not checked
+	assertTrue(custom.isAllowed('C', 'A'));
+	assertThrows(IllegalArgumentException.class,
+		() -> BasePairValidator.valueOf("AU,AUG"));
+	assertThrows(IllegalArgumentException.class,
+		() -> BasePairValidator.valueOf("AU,,UA"));
+	assertThrows(IllegalArgumentException.class,
+		() -> new BasePairValidator("A\u00e9"));
+    }
+
+    @Test
+    void testNonStandardCodes() throws IOException {
+	BasePairValidator v = new BasePairValidator("aU", "NN", "AG");
+	assertTrue(v.isAllowed('a', 'U'));
+	assertFalse(v.isAllowed('a', 'u'));
+	assertTrue(v.isAllowed('N', 'N'));
+	assertFalse(v.isAllowed('N', 'A'));
+	// standard bases, checked on the codes of the packed sequence
+	assertTrue(v.isAllowed('A', 'G'));
+	assertFalse(v.isAllowed('A', 'U'));
+	assertTrue(v.isAllowed('G', 'A'));
+	RNASecondaryStructure s = structure("aNAGNAAAAANANGNU\n"
+		+ "((((((....))))))");
+	// bonds a-U, N-N, A-G and G-N are allowed, N-A and A-N are not
+	assertEquals(2, v.countViolations(s));
+    }
+
+    @Test
+    void testViolations() throws IOException {
+	RNASecondaryStructure s = structure("GAAUAAAAGGCC\n((((....))))");
+	BasePairValidator v = BasePairValidator.WATSON_CRICK_WOBBLE;
+	List<String> expected = new ArrayList<>();
+	for (WeakBond b : s.getBonds()) {
+	    char left = s.getSequence().charAt(b.getLeft() - 1);
+	    char right = s.getSequence().charAt(b.getRight() - 1);
+	    if (!v.isAllowed(left, right))
+		expected.add("Base pair not allowed in RNA: " + left + "-"
+			+ right + " at weak bond (" + b.getLeft() + ", "
+			+ b.getRight() + ")");
+	}
+	// G-C, A-C, A-G and U-G: two violations
+	assertEquals(2, expected.size());
+	assertEquals(2, v.countViolations(s));
+	assertEquals(expected, v.findViolations(s));
+	RNAInputFileParserException e = assertThrows(
+		RNAInputFileParserException.class, () -> v.check(s));
+	assertEquals(expected.get(0), e.getMessage());
+	assertEquals(0, BasePairValidator.WATSON_CRICK
+		.countViolations(structure("GACAAAAGUC\n(((....)))")));
+	// without a sequence nothing is checked
+	s.dropSequence();
+	assertEquals(0, v.countViolations(s));
+	assertTrue(v.findViolations(s).isEmpty());
+	v.check(s);
+    }
+}
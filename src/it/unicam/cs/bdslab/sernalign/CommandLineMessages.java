@@ -67,8 +67,11 @@ public interface CommandLineMessages {
 	    + VERSION
 	    + " - Compare all the RNA secondary structures files in a given "
 	    + "input folder by computing the SERNA Distance between all possible "
-	    + "pairs. All the files are expected to be in one of the recognised "
-	    + "formats (see SERNAlign help). The output is given as two "
+	    + "pairs or, with option --query, between each query structure and "
+	    + "each structure of the input folder. All the files are expected to be in one of the recognised "
+	    + "formats (see SERNAlign help); a file can contain many structures "
+	    + "as FASTA-like records or concatenated CT records. The output is "
+	    + "given as two "
 	    + "comma-separated values files describing the processed "
 	    + "structures and containing the SERNA Distance calculated "
 	    + "for each pair of processed structures. By default the "
@@ -90,7 +93,42 @@ public interface CommandLineMessages {
 	    + "stucts.csv cmpr.csv \n\nProcesses all the files "
 	    + "in folder \"Eukaryota23S\" as above but produce the description"
 	    + " of processed structures in file \"structs.csv\" and comparison "
-	    + "results in file \"cmpr.csv\".\n\n";
+	    + "results in file \"cmpr.csv\".\n\n" + LAUNCH_COMMAND_WB
+	    + " -f Eukaryota23S -t 8\n\nProcesses all the files in folder "
+	    + "\"Eukaryota23S\" as above, aligning the pairs of structures with "
+	    + "8 threads. The output files are the same as with one thread, "
+	    + "except for the execution times.\n\n" + LAUNCH_COMMAND_WB
+	    + " -f Eukaryota23S --workers 4\n\nProcesses all the files in "
+	    + "folder \"Eukaryota23S\" as above, aligning the pairs of "
+	    + "structures with 4 worker processes, each one with its own heap, "
+	    + "that get batches of pairs as soon as they are idle. The output "
+	    + "files are the same as with one thread, except for the execution "
+	    + "times.\n\n" + LAUNCH_COMMAND_WB
+	    + " -f Eukaryota23S --resume\n\nResumes an interrupted run on "
+	    + "folder \"Eukaryota23S\" from its last checkpoint, saved every "
+	    + "60 seconds in file \"SERNAlignComparisonResults.csv.checkpoint\", "
+	    + "after checking that the input files are unchanged. The output "
+	    + "files are the same as in an uninterrupted run, except for the "
+	    + "execution times.\n\n" + LAUNCH_COMMAND_WB
+	    + " -f Eukaryota23S --shard 2/4\n\nCompares only the second of "
+	    + "four shards of the pairs of structures, with about the same "
+	    + "alignment cost, writing the output files with the shard added "
+	    + "to their names. The shards can be computed by independent "
+	    + "processes.\n\n" + LAUNCH_COMMAND_WB
+	    + " -f Eukaryota23S --merge 4\n\nMerges the output files of the "
+	    + "four shards into the output files, in the same order as in a "
+	    + "run that is not split.\n\n" + LAUNCH_COMMAND_WB
+	    + " -f Eukaryota23S --matrix distances.bin\n\nProcesses all the "
+	    + "files in folder \"Eukaryota23S\" as above and writes also the "
+	    + "distances of all the pairs in the binary distance matrix file "
+	    + "\"distances.bin\", that can be read with random access without "
+	    + "loading it.\n\n" + LAUNCH_COMMAND_WB
+	    + " -f Eukaryota23S --query queries\n\nCompares each structure of "
+	    + "the files in folder \"queries\", or in a single file or archive, "
+	    + "with all the structures of the files in folder \"Eukaryota23S\", "
+	    + "that are read only once, without comparing the queries with "
+	    + "each other or the structures of \"Eukaryota23S\" with each "
+	    + "other.\n\n";
 
     public static String COPYRIGHT = "*********************************************\nSERNAling Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini, "
 	    + "Emanuela Merelli - BioShape and Data Science Lab at the University of Camerino,"
@@ -0,0 +1,359 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reader of a binary file containing the SERNA distances between all the
+ * pairs of a list of structures, written by the workbench with option
+ * --matrix. The distances are looked up directly in the memory-mapped file,
+ * in constant time, without loading the whole file.
+ * 
+ * The file starts with a header containing the names of the structures and
+ * is followed by the distances of the upper triangle of the matrix, without
+ * the diagonal, row by row, i.e., in the order in which the pairs are
+ * compared, each one stored as an unsigned integer of 1, 2 or 4 bytes, the
+ * smallest width that can hold the distances of the structures.
+ * 
+ * The header contains, in order, the magic bytes "SERNAMTX", the version of
+ * the format, the width of the distances in bytes and the number n of
+ * structures, as ints, an int equal to 0 and the range of the pairs
+ * contained in the file, as two longs: the number of pairs preceding the
+ * first one and the number of pairs preceding the first one after the
+ * range. The range is 0 to n(n - 1)/2 unless the file is the output of a
+ * shard (see {@link WorkbenchShards}). The names of the structures follow,
+ * each one as an int containing the number of bytes of the name in UTF-8
+ * and these bytes, and zero bytes up to a multiple of 8 bytes. All the
+ * values are big-endian.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+public class DistanceMatrix implements Closeable {
+
+    // size of the mapped segments of the distances, a multiple of the widths
+    static final int SEGMENT_SIZE = 1 << 30;
+
+    private static final byte[] MAGIC = "SERNAMTX"
+	    .getBytes(StandardCharsets.US_ASCII);
+
+    private static final int VERSION = 1;
+
+    // size of the fixed part of the header
+    private static final int FIXED_HEADER_SIZE = 40;
+
+    private final Header header;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer[] segments;
+
+    private DistanceMatrix(Header header, FileChannel channel,
+	    MappedByteBuffer[] segments) {
+	this.header = header;
+	this.channel = channel;
+	this.segments = segments;
+    }
+
+    /**
+     * Open a distance matrix file, mapping its distances in memory.
+     * 
+     * @param fileName the name of the file
+     * @return the distance matrix
+     * @throws IOException if the file cannot be read or is not a distance
+     *                     matrix file
+     */
+    public static DistanceMatrix open(String fileName) throws IOException {
+	FileChannel channel = FileChannel.open(Paths.get(fileName),
+		StandardOpenOption.READ);
+	try {
+	    Header header = Header.read(channel);
+	    if (channel.size() != header.getFileSize())
+		throw new IOException("The distance matrix " + fileName
+			+ " has " + channel.size() + " bytes instead of "
+			+ header.getFileSize());
+	    return new DistanceMatrix(header, channel,
+		    map(channel, header, FileChannel.MapMode.READ_ONLY));
+	} catch (IOException | RuntimeException e) {
+	    channel.close();
+	    throw e;
+	}
+    }
+
+    /**
+     * @return the number of structures
+     */
+    public int size() {
+	return this.header.names.size();
+    }
+
+    /**
+     * @param i the index of a structure, from 0
+     * @return the name of the structure
+     * @throws IndexOutOfBoundsException if the index is not valid
+     */
+    public String getName(int i) {
+	return this.header.names.get(i);
+    }
+
+    /**
+     * Return the SERNA distance between two structures, 0 if they are the
+     * same structure.
+     * 
+     * @param i the index of the first structure, from 0
+     * @param j the index of the second structure, from 0
+     * @return the distance between the two structures
+     * @throws IndexOutOfBoundsException if an index is not valid or the pair
+     *                                   is not contained in the file, i.e.,
+     *                                   the file is the output of a shard
+     */
+    public int getDistance(int i, int j) {
+	int n = size();
+	if (i < 0 || i >= n || j < 0 || j >= n)
+	    throw new IndexOutOfBoundsException(
+		    "Invalid pair of structures: " + i + ", " + j);
+	if (i == j)
+	    return 0;
+	long pair = i < j ? pair(n, i, j) : pair(n, j, i);
+	if (pair < this.header.first || pair >= this.header.end)
+	    throw new IndexOutOfBoundsException("The pair " + i + ", " + j
+		    + " is not contained in the distance matrix");
+	long offset = (pair - this.header.first) * this.header.width;
+	ByteBuffer segment = this.segments[(int) (offset / SEGMENT_SIZE)];
+	int position = (int) (offset % SEGMENT_SIZE);
+	switch (this.header.width) {
+	case 1:
+	    return segment.get(position) & 0xFF;
+	case 2:
+	    return segment.getShort(position) & 0xFFFF;
+	default:
+	    return segment.getInt(position);
+	}
+    }
+
+    /**
+     * Close the file. The distances cannot be read after closing.
+     */
+    @Override
+    public void close() throws IOException {
+	this.channel.close();
+    }
+
+    /**
+     * Return the number of pairs preceding a pair, in the order in which the
+     * pairs are compared.
+     * 
+     * @param n the number of structures
+     * @param i the index of the first structure of the pair
+     * @param j the index of the second structure of the pair, greater than i
+     * @return the number of pairs preceding the pair
+     */
+    static long pair(int n, int i, int j) {
+	return (long) i * n - (long) i * (i + 1) / 2 + (j - i - 1);
+    }
+
+    /**
+     * Return the smallest width, in bytes, of the unsigned integers that can
+     * hold the given distance.
+     * 
+     * @param maxDistance the maximum distance
+     * @return 1, 2 or 4
+     */
+    static int width(int maxDistance) {
+	if (maxDistance <= 0xFF)
+	    return 1;
+	return maxDistance <= 0xFFFF ? 2 : 4;
+    }
+
+    /*
+     * Map the distances of a file in segments.
+     */
+    static MappedByteBuffer[] map(FileChannel channel, Header header,
+	    FileChannel.MapMode mode) throws IOException {
+	long size = header.getFileSize() - header.dataOffset;
+	MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size
+		+ SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+	for (int s = 0; s < segments.length; s++) {
+	    long start = (long) s * SEGMENT_SIZE;
+	    segments[s] = channel.map(mode, header.dataOffset + start,
+		    Math.min(SEGMENT_SIZE, size - start));
+	}
+	return segments;
+    }
+
+    /**
+     * The header of a distance matrix file.
+     */
+    static class Header {
+	private final List<String> names;
+	private final int width;
+	private final long first;
+	private final long end;
+	// position of the distances in the file
+	private final long dataOffset;
+
+	/**
+	 * Create the header of a distance matrix file.
+	 * 
+	 * @param names the names of the structures
+	 * @param width the width of the distances, in bytes
+	 * @param first the number of pairs preceding the first pair contained
+	 *              in the file
+	 * @param end   the number of pairs preceding the first pair after the
+	 *              ones contained in the file
+	 */
+	Header(List<String> names, int width, long first, long end) {
+	    this.names = names;
+	    this.width = width;
+	    this.first = first;
+	    this.end = end;
+	    long size = FIXED_HEADER_SIZE;
+	    for (String name : names)
+		size += 4 + name.getBytes(StandardCharsets.UTF_8).length;
+	    this.dataOffset = (size + 7) / 8 * 8;
+	}
+
+	/**
+	 * @return the names of the structures
+	 */
+	List<String> getNames() {
+	    return this.names;
+	}
+
+	/**
+	 * @return the width of the distances, in bytes
+	 */
+	int getWidth() {
+	    return this.width;
+	}
+
+	/**
+	 * @return the number of pairs preceding the first pair contained in
+	 *         the file
+	 */
+	long getFirst() {
+	    return this.first;
+	}
+
+	/**
+	 * @return the number of pairs preceding the first pair after the ones
+	 *         contained in the file
+	 */
+	long getEnd() {
+	    return this.end;
+	}
+
+	/**
+	 * @return the position of the distances in the file
+	 */
+	long getDataOffset() {
+	    return this.dataOffset;
+	}
+
+	/**
+	 * @return the size of the file
+	 */
+	long getFileSize() {
+	    return this.dataOffset + (this.end - this.first) * this.width;
+	}
+
+	/**
+	 * @return the bytes of this header
+	 */
+	ByteBuffer encode() {
+	    ByteBuffer b = ByteBuffer.allocate((int) this.dataOffset);
+	    b.put(MAGIC).putInt(VERSION).putInt(this.width)
+		    .putInt(this.names.size()).putInt(0).putLong(this.first)
+		    .putLong(this.end);
+	    for (String name : this.names) {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		b.putInt(bytes.length).put(bytes);
+	    }
+	    b.clear();
+	    return b;
+	}
+
+	/**
+	 * Read the header at the beginning of a distance matrix file.
+	 * 
+	 * @param channel the channel of the file
+	 * @return the header
+	 * @throws IOException if the file cannot be read or is not a distance
+	 *                     matrix file
+	 */
+	static Header read(FileChannel channel) throws IOException {
+	    ByteBuffer b = ByteBuffer.allocate(FIXED_HEADER_SIZE);
+	    readFully(channel, b, 0);
+	    byte[] magic = new byte[MAGIC.length];
+	    b.get(magic);
+	    if (!Arrays.equals(magic, MAGIC))
+		throw new IOException("Not a distance matrix file");
+	    int version = b.getInt();
+	    if (version != VERSION)
+		throw new IOException(
+			"Unsupported distance matrix version: " + version);
+	    int width = b.getInt();
+	    int n = b.getInt();
+	    b.getInt();
+	    long first = b.getLong();
+	    long end = b.getLong();
+	    if (width != 1 && width != 2 && width != 4 || n < 0 || first < 0
+		    || first > end || end > (long) n * (n - 1) / 2)
+		throw new IOException("Invalid distance matrix header");
+	    List<String> names = new ArrayList<>(n);
+	    long position = FIXED_HEADER_SIZE;
+	    ByteBuffer length = ByteBuffer.allocate(4);
+	    for (int k = 0; k < n; k++) {
+		length.clear();
+		readFully(channel, length, position);
+		int size = length.getInt(0);
+		if (size < 0 || position + 4 + size > channel.size())
+		    throw new IOException("Invalid distance matrix header");
+		ByteBuffer name = ByteBuffer.allocate(size);
+		readFully(channel, name, position + 4);
+		names.add(new String(name.array(), StandardCharsets.UTF_8));
+		position += 4 + size;
+	    }
+	    return new Header(names, width, first, end);
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer b,
+		long position) throws IOException {
+	    while (b.hasRemaining())
+		if (channel.read(b, position + b.position()) < 0)
+		    throw new IOException("Truncated distance matrix header");
+	    b.flip();
+	}
+    }
+}
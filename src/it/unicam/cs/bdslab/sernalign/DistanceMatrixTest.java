@@ -0,0 +1,105 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the classes DistanceMatrix and DistanceMatrixWriter
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class DistanceMatrixTest {
+
+    @Test
+    void testWriteAndRead() throws IOException {
+	File[] files = new File("examples").listFiles(
+		(dir, name) -> name.endsWith(".aas") || name.endsWith(".db"));
+	Arrays.sort(files);
+	List<String> names = new ArrayList<>();
+	List<StructuralSequence> sequences = new ArrayList<>();
+	for (File f : files) {
+	    names.add(f.getName());
+	    sequences.add(RNASecondaryStructureFileReader
+		    .readStructuralSequence(f.getPath(), null));
+	}
+	int n = sequences.size();
+	Path dir = Files.createTempDirectory("matrix");
+	String fileName = dir.resolve("m.bin").toString();
+	try (DistanceMatrixWriter writer = new DistanceMatrixWriter(fileName,
+		names, sequences, 0, (long) n * (n - 1) / 2, false)) {
+	    new AllPairsAligner(sequences, true, 2).alignAll(
+		    (i, j, distance, time) -> writer.put(i, j, distance));
+	}
+	try (DistanceMatrix matrix = DistanceMatrix.open(fileName)) {
+	    assertEquals(n, matrix.size());
+	    for (int i = 0; i < n; i++) {
+		assertEquals(names.get(i), matrix.getName(i));
+		assertEquals(0, matrix.getDistance(i, i));
+		for (int j = i + 1; j < n; j++) {
+		    int distance = new StructuralSequenceAligner(
+			    sequences.get(i), sequences.get(j)).getDistance();
+		    assertEquals(distance, matrix.getDistance(i, j));
+		    assertEquals(distance, matrix.getDistance(j, i));
+		}
+	    }
+	    assertThrows(IndexOutOfBoundsException.class,
+		    () -> matrix.getDistance(0, n));
+	}
+	// a different range cannot be resumed
+	assertThrows(IOException.class, () -> new DistanceMatrixWriter(
+		fileName, names, sequences, 1, (long) n * (n - 1) / 2, true));
+	Files.delete(Paths.get(fileName));
+	Files.delete(dir);
+    }
+
+    @Test
+    void testWidth() {
+	assertEquals(1, DistanceMatrix.width(255));
+	assertEquals(2, DistanceMatrix.width(256));
+	assertEquals(2, DistanceMatrix.width(65535));
+	assertEquals(4, DistanceMatrix.width(65536));
+    }
+
+    @Test
+    void testPair() {
+	int n = 5;
+	long pair = 0;
+	for (int i = 0; i < n; i++)
+	    for (int j = i + 1; j < n; j++)
+		assertEquals(pair++, DistanceMatrix.pair(n, i, j));
+    }
+}
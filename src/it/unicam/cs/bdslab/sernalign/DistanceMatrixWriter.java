@@ -0,0 +1,184 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writer of a binary distance matrix file (see {@link DistanceMatrix}). The
+ * file is created with its final size and the distances are written in the
+ * memory-mapped file, in any order.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class DistanceMatrixWriter implements Closeable {
+
+    private final DistanceMatrix.Header header;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Create a distance matrix file for a range of the pairs of a list of
+     * structures or, to resume writing it, open an existing one, checking
+     * that it has been created for the same structures and range.
+     * 
+     * @param fileName  the name of the file
+     * @param names     the names of the structures
+     * @param sequences the structural sequences of the structures, to choose
+     *                  the width of the distances
+     * @param first     the number of pairs preceding the first pair of the
+     *                  range
+     * @param end       the number of pairs preceding the first pair after
+     *                  the range
+     * @param resume    flag to indicate if an existing file is opened to
+     *                  resume writing it
+     * @throws IOException if the file cannot be created or, when resuming,
+     *                     is not the distance matrix of the same structures
+     *                     and range
+     */
+    DistanceMatrixWriter(String fileName, List<String> names,
+	    List<StructuralSequence> sequences, long first, long end,
+	    boolean resume) throws IOException {
+	this.header = new DistanceMatrix.Header(names,
+		DistanceMatrix.width(maxDistance(sequences)), first, end);
+	if (resume) {
+	    this.channel = FileChannel.open(Paths.get(fileName),
+		    StandardOpenOption.READ, StandardOpenOption.WRITE);
+	    DistanceMatrix.Header h;
+	    try {
+		h = DistanceMatrix.Header.read(this.channel);
+	    } catch (IOException e) {
+		this.channel.close();
+		throw e;
+	    }
+	    if (!h.getNames().equals(names)
+		    || h.getWidth() != this.header.getWidth()
+		    || h.getFirst() != first || h.getEnd() != end
+		    || this.channel.size() != this.header.getFileSize()) {
+		this.channel.close();
+		throw new IOException("The distance matrix " + fileName
+			+ " does not match the structures of the run");
+	    }
+	} else {
+	    this.channel = FileChannel.open(Paths.get(fileName),
+		    StandardOpenOption.CREATE, StandardOpenOption.READ,
+		    StandardOpenOption.WRITE,
+		    StandardOpenOption.TRUNCATE_EXISTING);
+	    ByteBuffer bytes = this.header.encode();
+	    while (bytes.hasRemaining())
+		this.channel.write(bytes, bytes.position());
+	}
+	this.segments = DistanceMatrix.map(this.channel, this.header,
+		FileChannel.MapMode.READ_WRITE);
+    }
+
+    /**
+     * Return an upper bound of the SERNA distance between two structural
+     * sequences of a list: the sum of the two largest sizes. Since the
+     * values of a structural sequence respect the structural sequences
+     * constraints, deleting all the values of the longer sequence and then
+     * inserting all the values of the other one, or the opposite, is always
+     * an alignment respecting the constraints.
+     * 
+     * @param sequences the structural sequences
+     * @return the upper bound of the distances
+     */
+    static int maxDistance(List<StructuralSequence> sequences) {
+	long first = 0;
+	long second = 0;
+	for (StructuralSequence s : sequences)
+	    if (s.size() > first) {
+		second = first;
+		first = s.size();
+	    } else if (s.size() > second)
+		second = s.size();
+	return (int) Math.min(Integer.MAX_VALUE, first + second);
+    }
+
+    /**
+     * Write the distance between two structures.
+     * 
+     * @param i        the index of the first structure
+     * @param j        the index of the second structure, greater than i
+     * @param distance the distance between the two structures
+     * @throws IllegalArgumentException if the pair is not in the range of
+     *                                  the file or the distance is not in
+     *                                  the range of the width of the file
+     */
+    void put(int i, int j, int distance) {
+	long pair = DistanceMatrix.pair(this.header.getNames().size(), i, j);
+	if (i >= j || pair < this.header.getFirst()
+		|| pair >= this.header.getEnd())
+	    throw new IllegalArgumentException(
+		    "Pair not in the distance matrix: " + i + ", " + j);
+	int width = this.header.getWidth();
+	if (distance < 0 || width < 4 && distance >= 1 << (8 * width))
+	    throw new IllegalArgumentException("The distance " + distance
+		    + " does not fit in " + width + " bytes");
+	long offset = (pair - this.header.getFirst()) * width;
+	MappedByteBuffer segment = this.segments[(int) (offset
+		/ DistanceMatrix.SEGMENT_SIZE)];
+	int position = (int) (offset % DistanceMatrix.SEGMENT_SIZE);
+	switch (width) {
+	case 1:
+	    segment.put(position, (byte) distance);
+	    break;
+	case 2:
+	    segment.putShort(position, (short) distance);
+	    break;
+	default:
+	    segment.putInt(position, distance);
+	}
+    }
+
+    /**
+     * Force the distances written so far to the storage device, e.g.,
+     * before saving a checkpoint.
+     * 
+     * @throws IOException if the file cannot be written
+     */
+    void force() throws IOException {
+	for (MappedByteBuffer segment : this.segments)
+	    segment.force();
+	this.channel.force(true);
+    }
+
+    /**
+     * Force the distances to the storage device and close the file.
+     */
+    @Override
+    public void close() throws IOException {
+	force();
+	this.channel.close();
+    }
+}
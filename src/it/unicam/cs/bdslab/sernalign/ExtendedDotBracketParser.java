@@ -0,0 +1,255 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.util.Arrays;
+
+/**
+ * Parser of a structure in Extended Dot-Bracket Notation (EDBN) that is fed
+ * one character at a time, e.g., with the characters of the EDBN tokens
+ * produced by a lexer, and adds the resulting weak bonds to a secondary
+ * structure. The opening positions of each bracket type, i.e., ( [ { < and
+ * the upper case letters, are kept in a stack of int values; all the stacks
+ * share a single array that links each position to the one below it.
+ * 
+ * The errors are reported when the bonds are added to the structure, with
+ * the same messages and the same precedence of the HashMap-based parser
+ * used before: the first closing character without an opening one or,
+ * otherwise, the open brackets of the first type in the iteration order of
+ * a HashMap keyed by the opening characters.
+ * 
+ * A parser can be reused for many structures by resetting it.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class ExtendedDotBracketParser {
+
+    // number of bracket types: ( [ { < and the 26 upper case letters
+    private static final int TYPES = 30;
+
+    // opening character of each bracket type
+    private static final char[] OPENING = new char[TYPES];
+
+    /*
+     * bracket type of each ASCII character, encoded as type + 1 for opening
+     * characters and -(type + 1) for closing characters; 0 for the other
+     * characters, e.g., '.'
+     */
+    private static final byte[] BRACKETS = new byte[128];
+
+    static {
+	String openings = "([{<";
+	String closings = ")]}>";
+	for (int t = 0; t < 4; t++)
+	    setType(t, openings.charAt(t), closings.charAt(t));
+	for (char c = 'A'; c <= 'Z'; c++)
+	    setType(4 + c - 'A', c, Character.toLowerCase(c));
+    }
+
+    private static void setType(int type, char opening, char closing) {
+	OPENING[type] = opening;
+	BRACKETS[opening] = (byte) (type + 1);
+	BRACKETS[closing] = (byte) -(type + 1);
+    }
+
+    // number of characters parsed so far
+    private int length;
+
+    // top position of the stack of each type, -1 if the stack is empty
+    private final int[] top;
+
+    // size of the stack of each type
+    private final int[] depth;
+
+    // position below each open position in the stack of its type
+    private int[] below;
+
+    /*
+     * order in which the bracket types have been first opened, -1 for the
+     * types never opened, and number of types opened
+     */
+    private final int[] firstOpened;
+    private int opened;
+
+    // bonds found so far, in the order of their closing positions
+    private int[] lefts;
+    private int[] rights;
+    private int numberOfBonds;
+
+    // position of the first closing character without an opening one, or -1
+    private int unmatched;
+
+    /**
+     * Create a parser.
+     * 
+     * @param capacity the expected length of the structure
+     */
+    ExtendedDotBracketParser(int capacity) {
+	this.top = new int[TYPES];
+	this.depth = new int[TYPES];
+	this.firstOpened = new int[TYPES];
+	this.below = new int[Math.max(16, capacity)];
+	this.lefts = new int[8];
+	this.rights = new int[8];
+	reset();
+    }
+
+    /**
+     * Prepare this parser to parse a new structure.
+     */
+    void reset() {
+	this.length = 0;
+	Arrays.fill(this.top, -1);
+	Arrays.fill(this.depth, 0);
+	Arrays.fill(this.firstOpened, -1);
+	this.opened = 0;
+	this.numberOfBonds = 0;
+	this.unmatched = -1;
+    }
+
+    /**
+     * @return the number of characters parsed so far
+     */
+    int length() {
+	return this.length;
+    }
+
+    /**
+     * Parse the next character of the structure.
+     * 
+     * @param c the character
+     */
+    void append(char c) {
+	int i = this.length++;
+	if (this.unmatched != -1 || c >= BRACKETS.length)
+	    // an error has been found, only count the characters
+	    return;
+	int code = BRACKETS[c];
+	if (code > 0) {
+	    // push the position on the stack of its type
+	    int type = code - 1;
+	    if (i >= this.below.length)
+		this.below = Arrays.copyOf(this.below,
+			Math.max(i + 1, 2 * this.below.length));
+	    this.below[i] = this.top[type];
+	    this.top[type] = i;
+	    this.depth[type]++;
+	    if (this.firstOpened[type] == -1)
+		this.firstOpened[type] = this.opened++;
+	} else if (code < 0) {
+	    // pop the matching position from the stack of its type
+	    int type = -code - 1;
+	    if (this.top[type] == -1) {
+		this.unmatched = i;
+		return;
+	    }
+	    int left = this.top[type];
+	    this.top[type] = this.below[left];
+	    this.depth[type]--;
+	    if (this.numberOfBonds == this.lefts.length) {
+		this.lefts = Arrays.copyOf(this.lefts, 2 * this.numberOfBonds);
+		this.rights = Arrays.copyOf(this.rights, 2 * this.numberOfBonds);
+	    }
+	    this.lefts[this.numberOfBonds] = left + 1;
+	    this.rights[this.numberOfBonds] = i + 1;
+	    this.numberOfBonds++;
+	}
+    }
+
+    /**
+     * Parse the next characters of the structure.
+     * 
+     * @param s the characters
+     */
+    void append(CharSequence s) {
+	for (int i = 0; i < s.length(); i++)
+	    append(s.charAt(i));
+    }
+
+    /**
+     * Add the bonds of the parsed structure to a secondary structure, in the
+     * order of their right indexes.
+     * 
+     * @param s the secondary structure
+     * @throws RNAInputFileParserException if the parsed structure contains
+     *                                     errors or a bond cannot be added
+     *                                     to the secondary structure
+     */
+    void addBonds(RNASecondaryStructure s) {
+	if (this.unmatched != -1)
+	    throw new RNAInputFileParserException(
+		    "Extended dot-bracket notation parsing: closing character at position "
+			    + (this.unmatched + 1)
+			    + " does not have a corresponding opening character");
+	int type = firstOpenType();
+	if (type != -1) {
+	    // list the open positions from the bottom of the stack
+	    int[] positions = new int[this.depth[type]];
+	    int i = this.top[type];
+	    for (int k = positions.length - 1; k >= 0; k--) {
+		positions[k] = i;
+		i = this.below[i];
+	    }
+	    StringBuilder msg = new StringBuilder(
+		    "Extended dot-bracket notation parsing: ");
+	    msg.append(positions.length)
+		    .append(" missing closing occurrence(s) of ")
+		    .append(OPENING[type])
+		    .append(" symbol, left opening symbol(s) at position(s) ");
+	    for (int position : positions)
+		msg.append(position + 1).append(' ');
+	    throw new RNAInputFileParserException(msg.toString());
+	}
+	for (int k = 0; k < this.numberOfBonds; k++)
+	    s.addBond(this.lefts[k], this.rights[k]);
+    }
+
+    /*
+     * Return the bracket type with open positions that a HashMap keyed by the
+     * opening characters, with the default capacity and load factor, would
+     * visit first, or -1 if all the brackets are closed. The capacity of the
+     * map depends on the number of types opened; the map visits its buckets
+     * in order and, in each bucket, the keys in insertion order.
+     */
+    private int firstOpenType() {
+	int capacity = 16;
+	while (this.opened > capacity * 3 / 4)
+	    capacity *= 2;
+	int first = -1;
+	for (int t = 0; t < TYPES; t++) {
+	    if (this.depth[t] == 0)
+		continue;
+	    if (first == -1)
+		first = t;
+	    else {
+		int bucket = OPENING[t] & (capacity - 1);
+		int firstBucket = OPENING[first] & (capacity - 1);
+		if (bucket < firstBucket || bucket == firstBucket
+			&& this.firstOpened[t] < this.firstOpened[first])
+		    first = t;
+	    }
+	}
+	return first;
+    }
+}
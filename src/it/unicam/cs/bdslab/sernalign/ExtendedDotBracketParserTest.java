@@ -0,0 +1,86 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the class ExtendedDotBracketParser
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class ExtendedDotBracketParserTest {
+
+    @Test
+    void testAddBonds() {
+	ExtendedDotBracketParser parser = new ExtendedDotBracketParser(0);
+	parser.append("((.[[.)).A<]]");
+	parser.append(">..a");
+	RNASecondaryStructure s = new RNASecondaryStructure();
+	s.size = parser.length();
+	parser.addBonds(s);
+	assertEquals(17, s.getSize());
+	assertEquals(6, s.getNumberOfBonds());
+	int[] lefts = { 2, 1, 5, 4, 11, 10 };
+	int[] rights = { 7, 8, 12, 13, 14, 17 };
+	for (int k = 0; k < lefts.length; k++) {
+	    assertEquals(lefts[k], s.getBondLeft(k));
+	    assertEquals(rights[k], s.getBondRight(k));
+	}
+    }
+
+    @Test
+    void testUnmatchedClosing() {
+	ExtendedDotBracketParser parser = new ExtendedDotBracketParser(0);
+	parser.append("(.)).((");
+	assertEquals(7, parser.length());
+	RNAInputFileParserException e = assertThrows(
+		RNAInputFileParserException.class,
+		() -> parser.addBonds(new RNASecondaryStructure()));
+	assertEquals(
+		"Extended dot-bracket notation parsing: closing character at position 4 does not have a corresponding opening character",
+		e.getMessage());
+    }
+
+    @Test
+    void testMissingClosing() {
+	ExtendedDotBracketParser parser = new ExtendedDotBracketParser(0);
+	// '(' comes before '[' in the buckets of a HashMap of capacity 16
+	parser.append("[[.((.)");
+	RNAInputFileParserException e = assertThrows(
+		RNAInputFileParserException.class,
+		() -> parser.addBonds(new RNASecondaryStructure()));
+	assertEquals("Extended dot-bracket notation parsing: "
+		+ "1 missing closing occurrence(s) of ( symbol, "
+		+ "left opening symbol(s) at position(s) 4 ", e.getMessage());
+	parser.reset();
+	parser.append("((..))");
+	RNASecondaryStructure s = new RNASecondaryStructure();
+	parser.addBonds(s);
+	assertEquals(2, s.getNumberOfBonds());
+    }
+}
@@ -0,0 +1,282 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streaming writer of a sequence of flat JSON objects, each written as soon
+ * as it is complete, so that the memory used does not depend on the number
+ * of objects. The objects are written either as the elements of a JSON
+ * array, one per line, or in JSON Lines format, i.e., one object per line
+ * without enclosing array and separators.
+ * 
+ * The names and the string values of the fields are escaped as required by
+ * JSON. Fields that are written many times with the same values can be
+ * serialised once with a fragment writer (see {@link #fragment(Appendable)})
+ * and then written with {@link #fields(CharSequence)}.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class JsonWriter implements Closeable {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Appendable out;
+
+    // flag to indicate if the objects are written in JSON Lines format
+    private final boolean lines;
+
+    // flag to indicate if only the fields of the objects are written
+    private final boolean fragment;
+
+    // number of objects written so far
+    private long objects;
+
+    // number of fields of the current object, -1 outside of an object
+    private int fields = -1;
+
+    /**
+     * Create a writer and, if the objects are written as a JSON array, write
+     * the opening bracket.
+     * 
+     * @param out   the destination of the objects, closed by
+     *              {@link #close()} if it is {@link Closeable}
+     * @param lines flag to indicate if the objects are written in JSON Lines
+     *              format instead of as a JSON array
+     * @throws IOException if the destination cannot be written
+     */
+    JsonWriter(Appendable out, boolean lines) throws IOException {
+	this(out, lines, false);
+	if (!lines)
+	    out.append("[\n");
+    }
+
+    private JsonWriter(Appendable out, boolean lines, boolean fragment) {
+	this.out = out;
+	this.lines = lines;
+	this.fragment = fragment;
+    }
+
+    /**
+     * Create a writer that continues a sequence of objects already written,
+     * e.g., to resume writing a file from a checkpoint. If the objects are
+     * written as a JSON array, the opening bracket has already been written.
+     * 
+     * @param out     the destination of the objects, positioned after the
+     *                last object written
+     * @param lines   flag to indicate if the objects are written in JSON
+     *                Lines format instead of as a JSON array
+     * @param objects the number of objects already written
+     * @return the writer
+     */
+    static JsonWriter resume(Appendable out, boolean lines, long objects) {
+	JsonWriter writer = new JsonWriter(out, lines, false);
+	writer.objects = objects;
+	return writer;
+    }
+
+    /**
+     * Create a writer that writes only the fields of its objects, without
+     * braces and separators between the objects, e.g., to serialise once
+     * some fields that will be written in many objects with
+     * {@link #fields(CharSequence)}.
+     * 
+     * @param out the destination of the fields
+     * @return the writer
+     */
+    static JsonWriter fragment(Appendable out) {
+	return new JsonWriter(out, true, true);
+    }
+
+    /**
+     * Start a new object.
+     * 
+     * @return this writer
+     * @throws IOException           if the destination cannot be written
+     * @throws IllegalStateException if the previous object has not been
+     *                               ended
+     */
+    JsonWriter beginObject() throws IOException {
+	if (this.fields != -1)
+	    throw new IllegalStateException(
+		    "The previous object has not been ended");
+	if (!this.fragment) {
+	    if (!this.lines && this.objects > 0)
+		this.out.append(",\n");
+	    this.out.append("{ ");
+	}
+	this.fields = 0;
+	return this;
+    }
+
+    /**
+     * Write a field with a string value, or null if the value is null.
+     * 
+     * @param name  the name of the field
+     * @param value the value of the field
+     * @return this writer
+     * @throws IOException if the destination cannot be written
+     */
+    JsonWriter field(String name, Object value) throws IOException {
+	fieldName(name);
+	if (value == null)
+	    this.out.append("null");
+	else
+	    quote(this.out, value.toString());
+	return this;
+    }
+
+    /**
+     * Write a field with a numeric value.
+     * 
+     * @param name  the name of the field
+     * @param value the value of the field
+     * @return this writer
+     * @throws IOException if the destination cannot be written
+     */
+    JsonWriter field(String name, long value) throws IOException {
+	fieldName(name);
+	if (this.out instanceof OutputWriter)
+	    ((OutputWriter) this.out).appendNumber(value);
+	else
+	    this.out.append(Long.toString(value));
+	return this;
+    }
+
+    /**
+     * Write fields already serialised by a fragment writer.
+     * 
+     * @param fields the serialised fields, not empty
+     * @return this writer
+     * @throws IOException if the destination cannot be written
+     */
+    JsonWriter fields(CharSequence fields) throws IOException {
+	if (this.fields == -1)
+	    throw new IllegalStateException("No object has been started");
+	if (this.fields > 0)
+	    this.out.append(", ");
+	this.out.append(fields);
+	this.fields++;
+	return this;
+    }
+
+    /**
+     * End the current object.
+     * 
+     * @throws IOException           if the destination cannot be written
+     * @throws IllegalStateException if no object has been started
+     */
+    void endObject() throws IOException {
+	if (this.fields == -1)
+	    throw new IllegalStateException("No object has been started");
+	if (!this.fragment) {
+	    this.out.append(" }");
+	    if (this.lines)
+		this.out.append('\n');
+	}
+	this.fields = -1;
+	this.objects++;
+    }
+
+    /**
+     * @return the number of objects written so far
+     */
+    long getObjects() {
+	return this.objects;
+    }
+
+    /**
+     * Terminate the array, if the objects are written as a JSON array, and
+     * close the destination.
+     * 
+     * @throws IOException if the destination cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+	if (!this.lines && !this.fragment)
+	    this.out.append(this.objects > 0 ? "\n]\n" : "]\n");
+	if (this.out instanceof Closeable)
+	    ((Closeable) this.out).close();
+    }
+
+    private void fieldName(String name) throws IOException {
+	if (this.fields == -1)
+	    throw new IllegalStateException("No object has been started");
+	if (this.fields > 0)
+	    this.out.append(", ");
+	quote(this.out, name);
+	this.out.append(": ");
+	this.fields++;
+    }
+
+    /**
+     * Write a string as a JSON string literal, escaping the quotes, the
+     * backslashes and the control characters.
+     * 
+     * @param out the destination
+     * @param s   the string
+     * @throws IOException if the destination cannot be written
+     */
+    static void quote(Appendable out, CharSequence s) throws IOException {
+	out.append('"');
+	int start = 0;
+	for (int i = 0; i < s.length(); i++) {
+	    char c = s.charAt(i);
+	    if (c >= ' ' && c != '"' && c != '\\')
+		continue;
+	    // write the characters that need no escape at once
+	    out.append(s, start, i);
+	    start = i + 1;
+	    switch (c) {
+	    case '"':
+		out.append("\\\"");
+		break;
+	    case '\\':
+		out.append("\\\\");
+		break;
+	    case '\n':
+		out.append("\\n");
+		break;
+	    case '\r':
+		out.append("\\r");
+		break;
+	    case '\t':
+		out.append("\\t");
+		break;
+	    case '\b':
+		out.append("\\b");
+		break;
+	    case '\f':
+		out.append("\\f");
+		break;
+	    default:
+		out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+	    }
+	}
+	out.append(s, start, s.length());
+	out.append('"');
+    }
+}
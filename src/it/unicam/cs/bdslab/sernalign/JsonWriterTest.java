@@ -0,0 +1,86 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the class JsonWriter
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class JsonWriterTest {
+
+    @Test
+    void testArray() throws IOException {
+	StringBuilder out = new StringBuilder();
+	JsonWriter w = new JsonWriter(out, false);
+	w.beginObject().field("Num", 1).field("FileName", "a.db").endObject();
+	w.beginObject().field("Num", 2).field("Format", null).endObject();
+	w.close();
+	assertEquals("[\n{ \"Num\": 1, \"FileName\": \"a.db\" },\n"
+		+ "{ \"Num\": 2, \"Format\": null }\n]\n", out.toString());
+    }
+
+    @Test
+    void testEmptyArray() throws IOException {
+	StringBuilder out = new StringBuilder();
+	new JsonWriter(out, false).close();
+	assertEquals("[\n]\n", out.toString());
+    }
+
+    @Test
+    void testLines() throws IOException {
+	StringBuilder out = new StringBuilder();
+	JsonWriter w = new JsonWriter(out, true);
+	w.beginObject().field("Num", 1).endObject();
+	w.beginObject().field("Num", 2).endObject();
+	w.close();
+	assertEquals("{ \"Num\": 1 }\n{ \"Num\": 2 }\n", out.toString());
+    }
+
+    @Test
+    void testFragment() throws IOException {
+	StringBuilder fragment = new StringBuilder();
+	JsonWriter.fragment(fragment).beginObject().field("File1", "a.db")
+		.field("Size1", 120).endObject();
+	StringBuilder out = new StringBuilder();
+	JsonWriter w = new JsonWriter(out, true);
+	w.beginObject().fields(fragment).field("Distance", 3).endObject();
+	w.close();
+	assertEquals("{ \"File1\": \"a.db\", \"Size1\": 120, "
+		+ "\"Distance\": 3 }\n", out.toString());
+    }
+
+    @Test
+    void testEscape() throws IOException {
+	StringBuilder out = new StringBuilder();
+	JsonWriter.quote(out, "a\"b\\c\nd\u0001e");
+	assertEquals("\"a\\\"b\\\\c\\nd\\u0001e\"", out.toString());
+    }
+}
@@ -26,6 +26,9 @@ import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -44,6 +47,9 @@ import org.apache.commons.cli.ParseException;
  */
 public class MainComparator {
 
+    // input name denoting the standard input
+    private static final String STANDARD_INPUT = "-";
+
     public static void main(String[] args) {
 	// Use Apache Commons CLI 1.4
 	// create Options object for Command Line Definition
@@ -100,26 +106,25 @@ public class MainComparator {
 	if (cmd.hasOption("s")) {
 	    // Determine input file
 	    String inputFile = cmd.getOptionValue("s");
-	    // Parse the input file for the secondary structure
-	    RNASecondaryStructure secondaryStructure = null;
-	    try {
-		secondaryStructure = RNASecondaryStructureFileReader
-			.readStructure(inputFile, false);
-	    } catch (IOException e) {
-		System.err.println("Input File " + inputFile + " ERROR:"
-			+ e.getMessage());
-		System.exit(3);
-	    } catch (RNAInputFileParserException e) {
-		System.err.println("Input File " + inputFile + " ERROR: "
-			+ e.getMessage());
-		System.exit(2);
-	    }
-
-	    // Construct the SRNSSequence
-	    StructuralSequence a = new StructuralSequence(secondaryStructure);
-	    // SRNSATree a = new SRNSATree(secondaryStructure);
+	    // Parse the input file for the secondary structures
+	    List<String> names = new ArrayList<String>();
+	    List<RNASecondaryStructure> secondaryStructures = readStructures(
+		    inputFile, names, false);
 
-	    String output = a.printStructuralSequence();
+	    // Construct the structural sequences
+	    StringBuilder sb = new StringBuilder();
+	    for (int k = 0; k < secondaryStructures.size(); k++) {
+		StructuralSequence a = new StructuralSequence(
+			secondaryStructures.get(k));
+		// SRNSATree a = new SRNSATree(secondaryStructure);
+		if (names.get(k) != null)
+		    // name the structures of a multi-record file
+		    sb.append(">" + names.get(k) + "\n");
+		sb.append(a.printStructuralSequence());
+		if (k < secondaryStructures.size() - 1)
+		    sb.append("\n");
+	    }
+	    String output = sb.toString();
 
 	    // Write Output on proper file or on standard output
 	    if (cmd.hasOption("o")) {
@@ -146,40 +151,24 @@ public class MainComparator {
 	if (cmd.hasOption("a")) {
 	    // Get input file names
 	    String[] inputFiles = cmd.getOptionValues("a");
+	    if (isStandardInput(fileName(inputFiles[0]))
+		    && isStandardInput(fileName(inputFiles[1]))) {
+		System.err.println("ERROR: only one of the structures to align "
+			+ "can be read from the standard input");
+		System.exit(1);
+	    }
 
 	    // Parse the first input file for the secondary structure
-	    RNASecondaryStructure secondaryStructure1 = null;
-	    try {
-		secondaryStructure1 = RNASecondaryStructureFileReader
-			.readStructure(inputFiles[0], false);
-	    } catch (IOException e) {
-		System.err.println("Input File " + inputFiles[0] + " ERROR:"
-			+ e.getMessage());
-		System.exit(3);
-	    } catch (RNAInputFileParserException e) {
-		System.err.println("Input File " + inputFiles[0] + " ERROR: "
-			+ e.getMessage());
-		System.exit(2);
-	    }
+	    RNASecondaryStructure secondaryStructure1 = readStructures(
+		    inputFiles[0], null, true).get(0);
 	    // Construct structural RNA tree 1
 
 	    StructuralSequence s1 = new StructuralSequence(
 		    secondaryStructure1);
 
 	    // Parse the second input file for the secondary structure
-	    RNASecondaryStructure secondaryStructure2 = null;
-	    try {
-		secondaryStructure2 = RNASecondaryStructureFileReader
-			.readStructure(inputFiles[1], false);
-	    } catch (IOException e) {
-		System.err.println("Input File " + inputFiles[1] + " ERROR:"
-			+ e.getMessage());
-		System.exit(3);
-	    } catch (RNAInputFileParserException e) {
-		System.err.println("Input File " + inputFiles[1] + " ERROR: "
-			+ e.getMessage());
-		System.exit(2);
-	    }
+	    RNASecondaryStructure secondaryStructure2 = readStructures(
+		    inputFiles[1], null, true).get(0);
 	    // Construct structural sequence 2
 	    StructuralSequence s2 = new StructuralSequence(
 		    secondaryStructure2);
@@ -252,11 +241,13 @@ public class MainComparator {
 	// define command line options
 	Option o2 = Option.builder("s").desc(
 		"Produce the structural sequence corresponding to the given "
-			+ "structure")
+			+ "structure, use - to read it from standard input")
 		.longOpt("struct").hasArg().argName("input-file").build();
 	options.addOption(o2);
 	Option o3 = Option.builder("a").desc(
-		"Align two given structures producing an alignment and distance")
+		"Align two given structures producing an alignment and "
+			+ "distance, use - to read one of them from standard "
+			+ "input")
 		.longOpt("align").hasArgs().numberOfArgs(2)
 		.argName("input-file1 input-file2").build();
 	options.addOption(o3);
@@ -282,4 +273,98 @@ public class MainComparator {
 			false,
 			"Do not use constraints for the alignment (works only with option -a)");
     }
+
+    /*
+     * Read the secondary structures in an input file. The input is the name
+     * of a file, possibly compressed or in an archive (see RNAInputFiles)
+     * and possibly containing many records (see
+     * RNASecondaryStructureRecordReader), or the name of a multi-record file
+     * followed by '#' and the name of one of its records. The name "-"
+     * denotes the standard input, that can be followed by '#' as well. The
+     * names of the records are added to the given list, if not null, or null
+     * for a file containing a single structure. If single is true the input
+     * must contain exactly one structure. The program is terminated upon
+     * errors.
+     */
+    private static List<RNASecondaryStructure> readStructures(String input,
+	    List<String> names, boolean single) {
+	String fileName = fileName(input);
+	// the selected record of a multi-record file, if any
+	String recordName = fileName.length() < input.length()
+		? input.substring(fileName.length() + 1)
+		: null;
+	List<RNASecondaryStructure> secondaryStructures = new ArrayList<RNASecondaryStructure>();
+	try (RNASecondaryStructureRecordReader records = isStandardInput(
+		fileName)
+			? RNASecondaryStructureFileReader.openRecords(
+				Channels.newChannel(System.in), fileName, null,
+				false)
+			: RNASecondaryStructureFileReader.openRecords(fileName,
+				null, false)) {
+	    while (records.hasNext()) {
+		RNASecondaryStructure secondaryStructure = null;
+		try {
+		    secondaryStructure = records.next();
+		} catch (RNAInputFileParserException e) {
+		    if (recordName != null
+			    && !recordName.equals(records.getRecordName()))
+			// not the selected record
+			continue;
+		    System.err.println("Input File "
+			    + (records.isMultiRecord()
+				    ? fileName + "#" + records.getRecordName()
+				    : input)
+			    + " ERROR: " + e.getMessage());
+		    System.exit(2);
+		}
+		if (recordName != null
+			&& !recordName.equals(records.getRecordName()))
+		    continue;
+		if (single && !secondaryStructures.isEmpty()) {
+		    System.err.println("Input File " + input
+			    + " ERROR: the file contains more than one "
+			    + "structure, select one with " + input
+			    + "#<record name>");
+		    System.exit(2);
+		}
+		secondaryStructures.add(secondaryStructure);
+		if (names != null)
+		    names.add(records.isMultiRecord() ? records.getRecordName()
+			    : null);
+		if (recordName != null)
+		    // the selected record has been found
+		    break;
+	    }
+	} catch (IOException e) {
+	    System.err.println("Input File " + input + " ERROR:"
+		    + e.getMessage());
+	    System.exit(3);
+	}
+	if (secondaryStructures.isEmpty()) {
+	    System.err.println("Input File " + input
+		    + " ERROR: no structure found");
+	    System.exit(2);
+	}
+	return secondaryStructures;
+    }
+
+    /*
+     * Return the name of the file of an input, without the name of the
+     * selected record, if any (see readStructures).
+     */
+    private static String fileName(String input) {
+	int hash = input.lastIndexOf('#');
+	if (hash > 0 && !RNAInputFiles.exists(input)
+		&& (RNAInputFiles.exists(input.substring(0, hash))
+			|| isStandardInput(input.substring(0, hash))))
+	    return input.substring(0, hash);
+	return input;
+    }
+
+    /*
+     * Return true if the given input name denotes the standard input.
+     */
+    private static boolean isStandardInput(String input) {
+	return STANDARD_INPUT.equals(input);
+    }
 }
@@ -0,0 +1,303 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writer of text output files that encodes the characters in UTF-8 into a
+ * large buffer and writes the buffer to a channel only when it is full, so
+ * that writing many short rows costs few system calls. Numbers are written
+ * directly as digits in the buffer, without creating intermediate strings.
+ * 
+ * A writer is not thread safe.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class OutputWriter implements Appendable, Flushable, Closeable {
+
+    /**
+     * Default capacity of the buffer, in bytes.
+     */
+    static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator()
+	    .getBytes(StandardCharsets.US_ASCII);
+
+    // the digits of Long.MIN_VALUE, that has no positive counterpart
+    private static final String MIN_VALUE = Long.toString(Long.MIN_VALUE);
+
+    private final WritableByteChannel channel;
+
+    private final byte[] buffer;
+
+    // number of bytes in the buffer
+    private int count;
+
+    // position in the channel of the first byte of the buffer
+    private long position;
+
+    // the high surrogate waiting for the low one, or 0
+    private char highSurrogate;
+
+    /**
+     * Create a writer on a channel.
+     * 
+     * @param channel  the channel, closed when the writer is closed
+     * @param capacity the capacity of the buffer, in bytes, at least 32
+     */
+    OutputWriter(WritableByteChannel channel, int capacity) {
+	this(channel, capacity, 0);
+    }
+
+    private OutputWriter(WritableByteChannel channel, int capacity,
+	    long position) {
+	this.channel = channel;
+	this.buffer = new byte[Math.max(32, capacity)];
+	this.position = position;
+    }
+
+    /**
+     * Create a writer on a new file, or on an existing file whose content is
+     * replaced, with a buffer of the default capacity.
+     * 
+     * @param fileName the name of the file
+     * @return the writer
+     * @throws IOException if the file cannot be created or opened
+     */
+    static OutputWriter open(String fileName) throws IOException {
+	return new OutputWriter(FileChannel.open(Paths.get(fileName),
+		StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+		StandardOpenOption.TRUNCATE_EXISTING), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a writer that continues an existing file from a given position,
+     * discarding the content of the file after the position, e.g., to
+     * resume writing the file from a checkpoint.
+     * 
+     * @param fileName the name of the file
+     * @param position the position, in bytes, from which the file is
+     *                 continued
+     * @return the writer
+     * @throws IOException if the file cannot be opened or is shorter than
+     *                     the position
+     */
+    static OutputWriter openAt(String fileName, long position)
+	    throws IOException {
+	FileChannel channel = FileChannel.open(Paths.get(fileName),
+		StandardOpenOption.WRITE);
+	try {
+	    if (channel.size() < position)
+		throw new IOException("File " + fileName + " has "
+			+ channel.size() + " bytes, expected at least "
+			+ position);
+	    channel.truncate(position);
+	    channel.position(position);
+	} catch (IOException e) {
+	    channel.close();
+	    throw e;
+	}
+	return new OutputWriter(channel, DEFAULT_CAPACITY, position);
+    }
+
+    /**
+     * @return the number of bytes written so far, including the bytes still
+     *         in the buffer and the bytes that preceded the initial position
+     *         of a continued file
+     */
+    long position() {
+	return this.position + this.count;
+    }
+
+    /**
+     * Write the content of the buffer to the channel and force the content
+     * of the file to the storage device, if the channel is a file channel.
+     * 
+     * @throws IOException if the channel cannot be written
+     */
+    void sync() throws IOException {
+	flushBuffer();
+	if (this.channel instanceof FileChannel)
+	    ((FileChannel) this.channel).force(false);
+    }
+
+    @Override
+    public OutputWriter append(CharSequence s) throws IOException {
+	return append(s, 0, s.length());
+    }
+
+    @Override
+    public OutputWriter append(CharSequence s, int start, int end)
+	    throws IOException {
+	for (int i = start; i < end; i++) {
+	    char c = s.charAt(i);
+	    if (c < 0x80 && this.highSurrogate == 0) {
+		// fast path for ASCII characters
+		if (this.count == this.buffer.length)
+		    flushBuffer();
+		this.buffer[this.count++] = (byte) c;
+	    } else
+		append(c);
+	}
+	return this;
+    }
+
+    @Override
+    public OutputWriter append(char c) throws IOException {
+	if (this.highSurrogate != 0) {
+	    char high = this.highSurrogate;
+	    this.highSurrogate = 0;
+	    if (Character.isLowSurrogate(c)) {
+		int codePoint = Character.toCodePoint(high, c);
+		ensure(4);
+		put(0xF0 | codePoint >> 18);
+		put(0x80 | codePoint >> 12 & 0x3F);
+		put(0x80 | codePoint >> 6 & 0x3F);
+		put(0x80 | codePoint & 0x3F);
+		return this;
+	    }
+	    // unpaired high surrogate
+	    append('?');
+	}
+	ensure(3);
+	if (c < 0x80)
+	    put(c);
+	else if (c < 0x800) {
+	    put(0xC0 | c >> 6);
+	    put(0x80 | c & 0x3F);
+	} else if (Character.isHighSurrogate(c))
+	    this.highSurrogate = c;
+	else if (Character.isLowSurrogate(c))
+	    // unpaired low surrogate
+	    put('?');
+	else {
+	    put(0xE0 | c >> 12);
+	    put(0x80 | c >> 6 & 0x3F);
+	    put(0x80 | c & 0x3F);
+	}
+	return this;
+    }
+
+    /**
+     * Write the decimal representation of a number.
+     * 
+     * @param value the number
+     * @return this writer
+     * @throws IOException if the channel cannot be written
+     */
+    OutputWriter appendNumber(long value) throws IOException {
+	if (value == Long.MIN_VALUE)
+	    return append(MIN_VALUE);
+	ensure(20);
+	if (value < 0) {
+	    put('-');
+	    value = -value;
+	}
+	// write the digits from the last one
+	int end = this.count + digits(value);
+	int i = end;
+	do {
+	    this.buffer[--i] = (byte) ('0' + value % 10);
+	    value /= 10;
+	} while (value != 0);
+	this.count = end;
+	return this;
+    }
+
+    /**
+     * Write the line separator of the platform.
+     * 
+     * @return this writer
+     * @throws IOException if the channel cannot be written
+     */
+    OutputWriter newLine() throws IOException {
+	ensure(LINE_SEPARATOR.length);
+	for (byte b : LINE_SEPARATOR)
+	    this.buffer[this.count++] = b;
+	return this;
+    }
+
+    /**
+     * Write the content of the buffer to the channel.
+     * 
+     * @throws IOException if the channel cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+	flushBuffer();
+    }
+
+    /**
+     * Write the content of the buffer to the channel and close the channel.
+     * 
+     * @throws IOException if the channel cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+	try {
+	    if (this.highSurrogate != 0) {
+		this.highSurrogate = 0;
+		append('?');
+	    }
+	    flushBuffer();
+	} finally {
+	    this.channel.close();
+	}
+    }
+
+    private static int digits(long value) {
+	int n = 1;
+	while (value >= 10) {
+	    value /= 10;
+	    n++;
+	}
+	return n;
+    }
+
+    private void put(int b) {
+	this.buffer[this.count++] = (byte) b;
+    }
+
+    private void ensure(int bytes) throws IOException {
+	if (this.count + bytes > this.buffer.length)
+	    flushBuffer();
+    }
+
+    private void flushBuffer() throws IOException {
+	ByteBuffer b = ByteBuffer.wrap(this.buffer, 0, this.count);
+	while (b.hasRemaining())
+	    this.channel.write(b);
+	this.position += this.count;
+	this.count = 0;
+    }
+}
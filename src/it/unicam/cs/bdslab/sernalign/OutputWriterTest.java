@@ -0,0 +1,62 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the class OutputWriter
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class OutputWriterTest {
+
+    @Test
+    void testNumbersAndText() throws IOException {
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	// a small buffer, flushed many times
+	OutputWriter w = new OutputWriter(Channels.newChannel(bytes), 16);
+	StringBuilder expected = new StringBuilder();
+	long[] values = { 0, 7, -7, 10, 1234567890123L, Long.MAX_VALUE,
+		Long.MIN_VALUE };
+	for (long v : values) {
+	    w.appendNumber(v).append(',');
+	    expected.append(v).append(',');
+	}
+	// ASCII, two, three and four bytes characters
+	String text = "\"CRW_5S\u00e8\u20ac\ud83d\ude00.db\"";
+	w.append(text).newLine();
+	expected.append(text).append(System.lineSeparator());
+	w.close();
+	assertEquals(expected.toString(),
+		new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,267 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.util.Arrays;
+
+/**
+ * Compact representation of a primary sequence of nucleotides. The standard
+ * bases A, C, G and U are stored with 2 bits each; any other code (IUPAC
+ * codes, lower case letters or non-standard codes) is stored in a sorted
+ * list of exceptions. A String with the sequence is created only when it is
+ * explicitly requested with {@link #toString()}.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+public class PackedNucleotideSequence implements CharSequence {
+
+    /**
+     * Code of the standard bases, as returned by {@link #codeAt(int)}.
+     */
+    public static final int A = 0, C = 1, G = 2, U = 3;
+
+    /**
+     * Code returned by {@link #codeAt(int)} for a position that does not
+     * contain a standard base.
+     */
+    public static final int NON_STANDARD = -1;
+
+    // characters of the standard bases, indexed by their code
+    private static final char[] BASES = { 'A', 'C', 'G', 'U' };
+
+    // length of the sequence
+    private final int length;
+
+    // standard bases, 32 for each long, position i at bits 2*(i%32)
+    private final long[] bases;
+
+    /*
+     * one bit for each position, set if the position contains an exception;
+     * null if there are no exceptions
+     */
+    private final long[] exceptionMask;
+
+    // sorted positions of the exceptions and their codes
+    private final int[] exceptionPositions;
+    private final char[] exceptionCodes;
+
+    private PackedNucleotideSequence(int length, long[] bases,
+	    long[] exceptionMask, int[] exceptionPositions,
+	    char[] exceptionCodes) {
+	this.length = length;
+	this.bases = bases;
+	this.exceptionMask = exceptionMask;
+	this.exceptionPositions = exceptionPositions;
+	this.exceptionCodes = exceptionCodes;
+    }
+
+    /**
+     * Pack a given sequence of nucleotides.
+     * 
+     * @param nucleotides the sequence to pack
+     * @return the packed sequence
+     */
+    public static PackedNucleotideSequence valueOf(CharSequence nucleotides) {
+	return new Builder(nucleotides.length()).append(nucleotides).build();
+    }
+
+    /**
+     * Determine the code of a nucleotide.
+     * 
+     * @param c the nucleotide
+     * @return the code of c if it is a standard base, {@link #NON_STANDARD}
+     *         otherwise
+     */
+    public static int code(char c) {
+	switch (c) {
+	case 'A':
+	    return A;
+	case 'C':
+	    return C;
+	case 'G':
+	    return G;
+	case 'U':
+	    return U;
+	default:
+	    return NON_STANDARD;
+	}
+    }
+
+    @Override
+    public int length() {
+	return this.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+	int code = codeAt(index);
+	if (code != NON_STANDARD)
+	    return BASES[code];
+	return this.exceptionCodes[Arrays.binarySearch(this.exceptionPositions,
+		index)];
+    }
+
+    /**
+     * Return the code of the nucleotide in a given position.
+     * 
+     * @param index the position, starting from 0
+     * @return the code of the standard base in the given position or
+     *         {@link #NON_STANDARD} if the position contains any other code
+     * @throws IndexOutOfBoundsException if the index is not a position of
+     *                                   this sequence
+     */
+    public int codeAt(int index) {
+	if (index < 0 || index >= this.length)
+	    throw new IndexOutOfBoundsException("Index " + index
+		    + " out of sequence of length " + this.length);
+	if (this.exceptionMask != null
+		&& (this.exceptionMask[index >>> 6] & (1L << index)) != 0)
+	    return NON_STANDARD;
+	return (int) (this.bases[index >>> 5] >>> ((index & 31) << 1)) & 3;
+    }
+
+    /**
+     * @return the number of positions that do not contain a standard base
+     */
+    public int getNumberOfExceptions() {
+	return this.exceptionPositions.length;
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+	if (start < 0 || end > this.length || start > end)
+	    throw new IndexOutOfBoundsException(
+		    "Subsequence [" + start + ", " + end
+			    + ") out of sequence of length " + this.length);
+	char[] chars = new char[end - start];
+	for (int i = start; i < end; i++)
+	    chars[i - start] = charAt(i);
+	return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+	return subSequence(0, this.length).toString();
+    }
+
+    /**
+     * Builder of a packed sequence by appending nucleotides.
+     */
+    public static class Builder {
+	private int length;
+	private long[] bases;
+	private int numberOfExceptions;
+	private int[] exceptionPositions;
+	private char[] exceptionCodes;
+
+	/**
+	 * Create an empty builder.
+	 */
+	public Builder() {
+	    this(64);
+	}
+
+	/**
+	 * Create an empty builder with room for a given number of nucleotides.
+	 * 
+	 * @param capacity the expected length of the sequence
+	 */
+	public Builder(int capacity) {
+	    this.length = 0;
+	    this.bases = new long[Math.max(1, (capacity + 31) >>> 5)];
+	    this.numberOfExceptions = 0;
+	    this.exceptionPositions = new int[4];
+	    this.exceptionCodes = new char[4];
+	}
+
+	/**
+	 * @return the number of nucleotides appended so far
+	 */
+	public int length() {
+	    return this.length;
+	}
+
+	/**
+	 * Append a nucleotide to the sequence.
+	 * 
+	 * @param c the nucleotide
+	 * @return this builder
+	 */
+	public Builder append(char c) {
+	    if ((this.length >>> 5) == this.bases.length)
+		this.bases = Arrays.copyOf(this.bases, 2 * this.bases.length);
+	    int code = code(c);
+	    if (code == NON_STANDARD) {
+		if (this.numberOfExceptions == this.exceptionPositions.length) {
+		    this.exceptionPositions = Arrays.copyOf(
+			    this.exceptionPositions,
+			    2 * this.numberOfExceptions);
+		    this.exceptionCodes = Arrays.copyOf(this.exceptionCodes,
+			    2 * this.numberOfExceptions);
+		}
+		this.exceptionPositions[this.numberOfExceptions] = this.length;
+		this.exceptionCodes[this.numberOfExceptions] = c;
+		this.numberOfExceptions++;
+	    } else {
+		int shift = (this.length & 31) << 1;
+		this.bases[this.length >>> 5] |= ((long) code) << shift;
+	    }
+	    this.length++;
+	    return this;
+	}
+
+	/**
+	 * Append a sequence of nucleotides to the sequence.
+	 * 
+	 * @param nucleotides the nucleotides to append
+	 * @return this builder
+	 */
+	public Builder append(CharSequence nucleotides) {
+	    for (int i = 0; i < nucleotides.length(); i++)
+		append(nucleotides.charAt(i));
+	    return this;
+	}
+
+	/**
+	 * @return the packed sequence containing the nucleotides appended so
+	 *         far
+	 */
+	public PackedNucleotideSequence build() {
+	    long[] mask = null;
+	    if (this.numberOfExceptions > 0) {
+		mask = new long[(this.length + 63) >>> 6];
+		for (int k = 0; k < this.numberOfExceptions; k++) {
+		    int position = this.exceptionPositions[k];
+		    mask[position >>> 6] |= 1L << position;
+		}
+	    }
+	    return new PackedNucleotideSequence(this.length,
+		    Arrays.copyOf(this.bases, (this.length + 31) >>> 5), mask,
+		    Arrays.copyOf(this.exceptionPositions,
+			    this.numberOfExceptions),
+		    Arrays.copyOf(this.exceptionCodes,
+			    this.numberOfExceptions));
+	}
+    }
+}
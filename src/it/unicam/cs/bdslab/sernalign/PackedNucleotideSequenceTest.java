@@ -0,0 +1,69 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the class PackedNucleotideSequence
+ * 
+ * @author Luca Tesei
+ *
+ */
+class PackedNucleotideSequenceTest {
+
+    @Test
+    void testStandardBases() {
+	String s = "ACGUUGCAACGUACGUACGUACGUACGUACGUACGUA";
+	PackedNucleotideSequence p = PackedNucleotideSequence.valueOf(s);
+	assertEquals(s.length(), p.length());
+	assertEquals(0, p.getNumberOfExceptions());
+	assertEquals(s, p.toString());
+	assertEquals(PackedNucleotideSequence.G, p.codeAt(2));
+	assertEquals("UUGC", p.subSequence(3, 7).toString());
+    }
+
+    @Test
+    void testExceptions() {
+	String s = "ACNGu-UPRA";
+	PackedNucleotideSequence p = PackedNucleotideSequence.valueOf(s);
+	assertEquals(5, p.getNumberOfExceptions());
+	assertEquals(s, p.toString());
+	assertEquals('u', p.charAt(4));
+	assertEquals(PackedNucleotideSequence.NON_STANDARD, p.codeAt(2));
+	assertEquals(PackedNucleotideSequence.U, p.codeAt(6));
+    }
+
+    @Test
+    void testDropSequence() throws IOException {
+	RNASecondaryStructure s = RNASecondaryStructureFileReader
+		.readStructure("test/seq1.aas.txt", false, false);
+	assertEquals(null, s.getSequence());
+	assertEquals(5, s.getSize());
+    }
+
+}
@@ -0,0 +1,254 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A stage of a pipeline, i.e., a platform thread that takes the items put
+ * by the previous stage from a bounded queue and processes them in order.
+ * When the queue is full the previous stage waits, thus a slow stage slows
+ * down the stages before it instead of accumulating items in memory.
+ * 
+ * Each stage counts the items processed, the time spent processing them
+ * and the time the previous stage has been blocked on the full queue (see
+ * {@link Statistics}).
+ * 
+ * If the processing of an item fails, the remaining items are discarded,
+ * so that the previous stage is never blocked, and the failure is thrown by
+ * {@link #await()}.
+ * 
+ * @author Luca Tesei
+ * 
+ * @param <T> the type of the items processed by the stage
+ */
+class PipelineStage<T> {
+
+    /**
+     * Processor of the items of a stage.
+     * 
+     * @param <T> the type of the items
+     */
+    interface Processor<T> {
+	/**
+	 * Process an item.
+	 * 
+	 * @param item the item to process
+	 * @throws Exception if the item cannot be processed
+	 */
+	void process(T item) throws Exception;
+    }
+
+    /**
+     * Counters of the work done by a stage of a pipeline.
+     */
+    static class Statistics {
+	private final String name;
+	private final long startTimeNano;
+	private long endTimeNano;
+	private long items;
+	private long busyTimeNano;
+	private long blockedTimeNano;
+
+	/**
+	 * Create the counters of a stage that starts now.
+	 * 
+	 * @param name the name of the stage
+	 */
+	Statistics(String name) {
+	    this.name = name;
+	    this.startTimeNano = System.nanoTime();
+	}
+
+	/**
+	 * Count an item.
+	 * 
+	 * @param timeNano the time taken to process the item, in nanoseconds
+	 */
+	synchronized void count(long timeNano) {
+	    this.items++;
+	    this.busyTimeNano += timeNano;
+	}
+
+	/**
+	 * Add time spent waiting for the next stage to accept an item.
+	 * 
+	 * @param timeNano the time, in nanoseconds
+	 */
+	synchronized void blocked(long timeNano) {
+	    this.blockedTimeNano += timeNano;
+	}
+
+	/**
+	 * Record the end of the stage.
+	 */
+	synchronized void end() {
+	    this.endTimeNano = System.nanoTime();
+	}
+
+	/**
+	 * @return the number of items processed
+	 */
+	synchronized long getItems() {
+	    return this.items;
+	}
+
+	/**
+	 * @return a one-line description of the counters
+	 */
+	@Override
+	public synchronized String toString() {
+	    long elapsed = (this.endTimeNano == 0 ? System.nanoTime()
+		    : this.endTimeNano) - this.startTimeNano;
+	    return String.format(
+		    "%s: %d items in %.3f s (%.1f items/s), busy %.3f s, "
+			    + "blocked by the next stage %.3f s",
+		    this.name, this.items, elapsed / 1e9,
+		    elapsed == 0 ? 0.0 : this.items * 1e9 / elapsed,
+		    this.busyTimeNano / 1e9, this.blockedTimeNano / 1e9);
+	}
+    }
+
+    // marker of the end of the items
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> queue;
+
+    private final Processor<T> processor;
+
+    private final Statistics statistics;
+
+    private final Thread thread;
+
+    // the first failure of the processor, if any
+    private volatile Throwable failure;
+
+    /**
+     * Create and start a stage.
+     * 
+     * @param name      the name of the stage and of its thread
+     * @param capacity  the capacity of the queue of the stage
+     * @param processor the processor of the items
+     */
+    PipelineStage(String name, int capacity, Processor<T> processor) {
+	this.queue = new ArrayBlockingQueue<>(capacity);
+	this.processor = processor;
+	this.statistics = new Statistics(name);
+	this.thread = new Thread(this::run, name);
+	this.thread.setDaemon(true);
+	this.thread.start();
+    }
+
+    /**
+     * Put an item in the queue of this stage, waiting if the queue is full.
+     * 
+     * @param item  the item
+     * @param stats the counters of the stage putting the item, to which the
+     *              time spent waiting is added
+     */
+    void put(T item, Statistics stats) {
+	enqueue(item, stats);
+    }
+
+    /**
+     * Signal that no more items will be put and wait for this stage to
+     * process all the items.
+     * 
+     * @param stats the counters of the stage putting the items
+     * @throws RuntimeException if the processing of an item failed, with
+     *                          the failure as cause or the failure itself
+     *                          if it is unchecked
+     */
+    void await(Statistics stats) {
+	enqueue(END, stats);
+	boolean interrupted = false;
+	while (this.thread.isAlive())
+	    try {
+		this.thread.join();
+	    } catch (InterruptedException e) {
+		interrupted = true;
+	    }
+	if (interrupted)
+	    Thread.currentThread().interrupt();
+	Throwable t = this.failure;
+	if (t instanceof RuntimeException)
+	    throw (RuntimeException) t;
+	if (t instanceof Error)
+	    throw (Error) t;
+	if (t != null)
+	    throw new RuntimeException(t);
+    }
+
+    /**
+     * @return the counters of this stage
+     */
+    Statistics getStatistics() {
+	return this.statistics;
+    }
+
+    private void enqueue(Object item, Statistics stats) {
+	if (this.queue.offer(item))
+	    return;
+	// the queue is full: wait for the stage
+	long startTimeNano = System.nanoTime();
+	boolean interrupted = false;
+	while (true)
+	    try {
+		this.queue.put(item);
+		break;
+	    } catch (InterruptedException e) {
+		interrupted = true;
+	    }
+	if (interrupted)
+	    Thread.currentThread().interrupt();
+	if (stats != null)
+	    stats.blocked(System.nanoTime() - startTimeNano);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void run() {
+	try {
+	    while (true) {
+		Object item = this.queue.take();
+		if (item == END)
+		    break;
+		if (this.failure != null)
+		    // discard the remaining items
+		    continue;
+		long startTimeNano = System.nanoTime();
+		try {
+		    this.processor.process((T) item);
+		} catch (Throwable t) {
+		    this.failure = t;
+		    continue;
+		}
+		this.statistics.count(System.nanoTime() - startTimeNano);
+	    }
+	} catch (InterruptedException e) {
+	    this.failure = e;
+	} finally {
+	    this.statistics.end();
+	}
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the class PipelineStage
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class PipelineStageTest {
+
+    @Test
+    void testOrderAndBackPressure() {
+	List<Integer> processed = new ArrayList<>();
+	PipelineStage.Statistics producer = new PipelineStage.Statistics(
+		"producer");
+	PipelineStage<Integer> stage = new PipelineStage<>("consumer", 2,
+		i -> {
+		    Thread.sleep(1);
+		    processed.add(i);
+		});
+	List<Integer> expected = new ArrayList<>();
+	for (int i = 0; i < 50; i++) {
+	    stage.put(i, producer);
+	    expected.add(i);
+	}
+	stage.await(producer);
+	assertEquals(expected, processed);
+	assertEquals(50, stage.getStatistics().getItems());
+    }
+
+    @Test
+    void testFailure() {
+	PipelineStage<Integer> stage = new PipelineStage<>("consumer", 1,
+		i -> {
+		    if (i == 3)
+			throw new IllegalStateException("item " + i);
+		});
+	for (int i = 0; i < 10; i++)
+	    stage.put(i, null);
+	IllegalStateException e = assertThrows(IllegalStateException.class,
+		() -> stage.await(null));
+	assertEquals("item 3", e.getMessage());
+	assertEquals(3, stage.getStatistics().getItems());
+    }
+}
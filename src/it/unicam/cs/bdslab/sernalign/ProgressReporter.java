@@ -0,0 +1,223 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reporter of the progress of the comparison of many pairs of structures.
+ * A daemon thread prints, at a fixed interval, a line with the number of
+ * pairs compared so far, the throughput in pairs and in alignment matrix
+ * cells per second, the estimated time to completion and the heap usage.
+ * 
+ * The estimated time is computed from the number of cells, because the
+ * time taken to align a pair is proportional to the product of the lengths
+ * of the two structural sequences.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class ProgressReporter implements Closeable {
+
+    private static final long MIB = 1024 * 1024;
+
+    private final PrintStream out;
+
+    private final long totalPairs;
+
+    private final long totalCells;
+
+    private final long intervalMillis;
+
+    private final long startTimeNano;
+
+    // pairs and cells already compared when the reporter was created
+    private final long initialPairs;
+
+    private final long initialCells;
+
+    private final AtomicLong pairs;
+
+    private final AtomicLong cells;
+
+    private final Thread thread;
+
+    // flag to indicate if the reporter has been closed
+    private boolean closed;
+
+    /**
+     * Create a reporter and start printing the progress.
+     * 
+     * @param out            the stream on which the progress is printed
+     * @param totalPairs     the number of pairs to compare
+     * @param totalCells     the total number of cells of the alignment
+     *                       matrices of the pairs
+     * @param intervalMillis the interval between two progress lines, in
+     *                       milliseconds
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    ProgressReporter(PrintStream out, long totalPairs, long totalCells,
+	    long intervalMillis) {
+	this(out, totalPairs, totalCells, 0, 0, intervalMillis);
+    }
+
+    /**
+     * Create a reporter of a computation that has been resumed, with some
+     * pairs already compared, and start printing the progress. The
+     * throughput and the estimated time are computed on the pairs compared
+     * after the creation of the reporter.
+     * 
+     * @param out            the stream on which the progress is printed
+     * @param totalPairs     the number of pairs to compare
+     * @param totalCells     the total number of cells of the alignment
+     *                       matrices of the pairs
+     * @param donePairs      the number of pairs already compared
+     * @param doneCells      the number of cells of the alignment matrices of
+     *                       the pairs already compared
+     * @param intervalMillis the interval between two progress lines, in
+     *                       milliseconds
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    ProgressReporter(PrintStream out, long totalPairs, long totalCells,
+	    long donePairs, long doneCells, long intervalMillis) {
+	if (intervalMillis <= 0)
+	    throw new IllegalArgumentException(
+		    "The progress interval must be positive: "
+			    + intervalMillis);
+	this.out = out;
+	this.totalPairs = totalPairs;
+	this.totalCells = totalCells;
+	this.intervalMillis = intervalMillis;
+	this.initialPairs = donePairs;
+	this.initialCells = doneCells;
+	this.pairs = new AtomicLong(donePairs);
+	this.cells = new AtomicLong(doneCells);
+	this.startTimeNano = System.nanoTime();
+	this.thread = new Thread(this::run, "progress");
+	this.thread.setDaemon(true);
+	this.thread.start();
+    }
+
+    /**
+     * Count a compared pair.
+     * 
+     * @param cells the number of cells of the alignment matrix of the pair
+     */
+    void pairDone(long cells) {
+	this.pairs.incrementAndGet();
+	this.cells.addAndGet(cells);
+    }
+
+    /**
+     * @return the number of pairs compared so far
+     */
+    long getPairs() {
+	return this.pairs.get();
+    }
+
+    /**
+     * Stop the periodic printing and print the final progress line.
+     */
+    @Override
+    public void close() {
+	synchronized (this) {
+	    if (this.closed)
+		return;
+	    this.closed = true;
+	    notifyAll();
+	}
+	boolean interrupted = false;
+	while (this.thread.isAlive())
+	    try {
+		this.thread.join();
+	    } catch (InterruptedException e) {
+		interrupted = true;
+	    }
+	if (interrupted)
+	    Thread.currentThread().interrupt();
+	this.out.println(line());
+    }
+
+    private void run() {
+	long next = System.currentTimeMillis() + this.intervalMillis;
+	synchronized (this) {
+	    while (!this.closed) {
+		long wait = next - System.currentTimeMillis();
+		if (wait > 0) {
+		    try {
+			wait(wait);
+		    } catch (InterruptedException e) {
+			return;
+		    }
+		    continue;
+		}
+		this.out.println(line());
+		next += this.intervalMillis;
+	    }
+	}
+    }
+
+    /**
+     * @return the line describing the current progress
+     */
+    String line() {
+	long pairs = this.pairs.get();
+	long cells = this.cells.get();
+	double seconds = (System.nanoTime() - this.startTimeNano) / 1e9;
+	double pairsPerSecond = seconds > 0
+		? (pairs - this.initialPairs) / seconds
+		: 0;
+	double cellsPerSecond = seconds > 0
+		? (cells - this.initialCells) / seconds
+		: 0;
+	Runtime runtime = Runtime.getRuntime();
+	long used = runtime.totalMemory() - runtime.freeMemory();
+	StringBuilder line = new StringBuilder();
+	line.append(String.format(Locale.ROOT,
+		"Progress: %d/%d pairs (%.1f%%), %.1f pairs/s, %.3g cells/s",
+		pairs, this.totalPairs,
+		this.totalPairs > 0 ? pairs * 100.0 / this.totalPairs : 100.0,
+		pairsPerSecond, cellsPerSecond));
+	if (pairs < this.totalPairs)
+	    line.append(", ETA ").append(cellsPerSecond > 0
+		    ? formatTime((long) ((this.totalCells - cells)
+			    / cellsPerSecond))
+		    : "unknown");
+	else
+	    line.append(", elapsed ").append(formatTime((long) seconds));
+	line.append(String.format(Locale.ROOT, ", heap %d/%d MiB", used / MIB,
+		runtime.maxMemory() / MIB));
+	return line.toString();
+    }
+
+    /*
+     * Format a number of seconds as hours:minutes:seconds.
+     */
+    static String formatTime(long seconds) {
+	return String.format(Locale.ROOT, "%d:%02d:%02d", seconds / 3600,
+		seconds / 60 % 60, seconds % 60);
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the class ProgressReporter
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class ProgressReporterTest {
+
+    @Test
+    void testFormatTime() {
+	assertEquals("0:00:00", ProgressReporter.formatTime(0));
+	assertEquals("0:01:05", ProgressReporter.formatTime(65));
+	assertEquals("27:46:40", ProgressReporter.formatTime(100000));
+    }
+
+    @Test
+    void testFinalLine() {
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	PrintStream out = new PrintStream(bytes);
+	ProgressReporter progress = new ProgressReporter(out, 2, 20, 60000);
+	progress.pairDone(10);
+	assertTrue(progress.line().startsWith("Progress: 1/2 pairs (50.0%)"));
+	assertTrue(progress.line().contains("ETA"));
+	progress.pairDone(10);
+	progress.close();
+	String printed = bytes.toString();
+	assertTrue(printed.startsWith("Progress: 2/2 pairs (100.0%)"));
+	assertTrue(printed.contains("elapsed"));
+	assertEquals(2, progress.getPairs());
+    }
+}
@@ -0,0 +1,474 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Container class for the static methods to read input files that are
+ * compressed or stored in archives, without extracting them on disk.
+ * 
+ * The supported containers are recognised by the extension of the file
+ * name, ignoring case:
+ * 
+ * - ".gz": a file compressed with gzip, read as the file it contains;
+ * 
+ * - ".zip", ".tar", ".tar.gz" and ".tgz": archives whose entries are named
+ * as "archive!/entry", where entry is the path of the entry in the archive,
+ * e.g., "structures.zip!/16S/CRW_16S_A_C_1.db".
+ * 
+ * The content of the entries is decompressed while it is read. Zip archives
+ * are accessed randomly; tar archives are read sequentially, thus the
+ * entries of a tar archive should be read all together with
+ * {@link #forEachEntry(String, EntryProcessor)}.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+public class RNAInputFiles {
+
+    /**
+     * Separator between the name of an archive and the name of an entry.
+     */
+    public static final String ENTRY_SEPARATOR = "!/";
+
+    // size of the blocks of a tar archive
+    private static final int TAR_BLOCK = 512;
+
+    /**
+     * Processor of the entries of an archive.
+     */
+    public interface EntryProcessor {
+	/**
+	 * Process an entry of an archive.
+	 * 
+	 * @param name  the name of the entry, in the form "archive!/entry"
+	 * @param input the content of the entry, valid only during the call
+	 * @throws IOException if the entry cannot be read
+	 */
+	void process(String name, InputStream input) throws IOException;
+    }
+
+    /**
+     * Determine if a file name denotes an archive.
+     * 
+     * @param fileName the name of the file
+     * @return true if the file is a zip or tar archive, possibly compressed
+     */
+    public static boolean isArchive(String fileName) {
+	return isZip(fileName) || isTar(fileName);
+    }
+
+    /**
+     * Determine if a name denotes an input that must be read with
+     * {@link #open(String)}, i.e., decompressed or extracted from an archive.
+     * 
+     * @param name the name of the input
+     * @return true if the name denotes an entry of an archive, an archive or
+     *         a file compressed with gzip
+     */
+    public static boolean isCompressed(String name) {
+	return name.contains(ENTRY_SEPARATOR) || endsWith(name, ".gz")
+		|| isArchive(name);
+    }
+
+    /**
+     * Determine if an input exists.
+     * 
+     * @param name the name of the input, possibly an entry of an archive
+     * @return true if the file, or the archive and its entry, exist
+     */
+    public static boolean exists(String name) {
+	int separator = name.indexOf(ENTRY_SEPARATOR);
+	if (separator < 0)
+	    return new File(name).exists();
+	String archive = name.substring(0, separator);
+	if (!new File(archive).isFile())
+	    return false;
+	try {
+	    open(name).close();
+	    return true;
+	} catch (IOException e) {
+	    return false;
+	}
+    }
+
+    /**
+     * Open an input for reading its content, decompressing it if needed.
+     * 
+     * @param name the name of the input, possibly an entry of an archive or
+     *             a file compressed with gzip
+     * @return a stream with the content of the input
+     * @throws IOException if the input cannot be read or if the name denotes
+     *                     an archive and not one of its entries
+     */
+    public static InputStream open(String name) throws IOException {
+	int separator = name.indexOf(ENTRY_SEPARATOR);
+	if (separator < 0) {
+	    if (isArchive(name))
+		throw new IOException("File " + name
+			+ " is an archive, select one of its entries as " + name
+			+ ENTRY_SEPARATOR + "<entry>");
+	    InputStream input = new FileInputStream(name);
+	    if (endsWith(name, ".gz"))
+		return gunzip(input);
+	    return input;
+	}
+	String archive = name.substring(0, separator);
+	String entry = name.substring(separator + ENTRY_SEPARATOR.length());
+	if (isZip(archive)) {
+	    ZipFile zip = new ZipFile(archive);
+	    ZipEntry zipEntry = zip.getEntry(entry);
+	    if (zipEntry == null || zipEntry.isDirectory()) {
+		zip.close();
+		throw new IOException("Entry " + entry
+			+ " not found in archive " + archive);
+	    }
+	    InputStream input;
+	    try {
+		input = zip.getInputStream(zipEntry);
+	    } catch (IOException e) {
+		zip.close();
+		throw e;
+	    }
+	    // closing the entry closes the archive
+	    return new FilterInputStream(input) {
+		@Override
+		public void close() throws IOException {
+		    super.close();
+		    zip.close();
+		}
+	    };
+	}
+	if (isTar(archive)) {
+	    TarReader tar = new TarReader(openTar(archive));
+	    try {
+		String tarEntry;
+		while ((tarEntry = tar.next()) != null)
+		    if (tarEntry.equals(entry))
+			// closing the entry closes the archive
+			return new FilterInputStream(tar.entry()) {
+			    @Override
+			    public void close() throws IOException {
+				tar.close();
+			    }
+			};
+	    } catch (IOException e) {
+		tar.close();
+		throw e;
+	    }
+	    tar.close();
+	    throw new IOException(
+		    "Entry " + entry + " not found in archive " + archive);
+	}
+	throw new IOException("File " + archive + " is not an archive");
+    }
+
+    /**
+     * Read all the regular entries of an archive, in the order in which they
+     * are stored. Directories and links are skipped.
+     * 
+     * @param archive   the name of the archive
+     * @param processor the processor called on each entry
+     * @throws IOException if the archive cannot be read or the processor
+     *                     throws it
+     */
+    public static void forEachEntry(String archive, EntryProcessor processor)
+	    throws IOException {
+	if (isZip(archive)) {
+	    try (ZipFile zip = new ZipFile(archive)) {
+		Enumeration<? extends ZipEntry> entries = zip.entries();
+		while (entries.hasMoreElements()) {
+		    ZipEntry zipEntry = entries.nextElement();
+		    if (zipEntry.isDirectory())
+			continue;
+		    try (InputStream input = zip.getInputStream(zipEntry)) {
+			processor.process(archive + ENTRY_SEPARATOR
+				+ zipEntry.getName(), input);
+		    }
+		}
+	    }
+	} else if (isTar(archive)) {
+	    try (TarReader tar = new TarReader(openTar(archive))) {
+		String entry;
+		while ((entry = tar.next()) != null)
+		    processor.process(archive + ENTRY_SEPARATOR + entry,
+			    tar.entry());
+	    }
+	} else
+	    throw new IOException("File " + archive + " is not an archive");
+    }
+
+    private static boolean isZip(String fileName) {
+	return endsWith(fileName, ".zip");
+    }
+
+    private static boolean isTar(String fileName) {
+	return endsWith(fileName, ".tar") || endsWith(fileName, ".tar.gz")
+		|| endsWith(fileName, ".tgz");
+    }
+
+    private static boolean endsWith(String name, String extension) {
+	return name.regionMatches(true, name.length() - extension.length(),
+		extension, 0, extension.length());
+    }
+
+    private static InputStream openTar(String archive) throws IOException {
+	InputStream input = new FileInputStream(archive);
+	if (endsWith(archive, ".gz") || endsWith(archive, ".tgz"))
+	    return gunzip(input);
+	return new BufferedInputStream(input, 1 << 16);
+    }
+
+    private static InputStream gunzip(InputStream input) throws IOException {
+	try {
+	    return new GZIPInputStream(input, 1 << 16);
+	} catch (IOException e) {
+	    input.close();
+	    throw e;
+	}
+    }
+
+    /*
+     * Sequential reader of the entries of a tar archive, in the ustar
+     * format with the GNU and POSIX extensions for long names.
+     */
+    private static final class TarReader implements Closeable {
+	private final InputStream input;
+	private final byte[] header;
+
+	// bytes of the current entry not yet read and padding after them
+	private long remaining;
+	private long padding;
+
+	private TarReader(InputStream input) {
+	    this.input = input;
+	    this.header = new byte[TAR_BLOCK];
+	    this.remaining = 0;
+	    this.padding = 0;
+	}
+
+	/*
+	 * Move to the next regular file of the archive and return its name,
+	 * or null if there are no more entries.
+	 */
+	private String next() throws IOException {
+	    String longName = null;
+	    while (true) {
+		skip(this.remaining + this.padding);
+		this.remaining = 0;
+		this.padding = 0;
+		if (!readBlock())
+		    return null;
+		long size = number(124, 12);
+		byte type = this.header[156];
+		this.remaining = size;
+		this.padding = (TAR_BLOCK - size % TAR_BLOCK) % TAR_BLOCK;
+		if (type == 'L') {
+		    // GNU long name of the next entry
+		    longName = cString(readData(), 0, (int) size);
+		    continue;
+		}
+		if (type == 'x') {
+		    // POSIX extended header, possibly with the path
+		    String path = paxPath(readData());
+		    if (path != null)
+			longName = path;
+		    continue;
+		}
+		if (type != '0' && type != 0 && type != '7') {
+		    // not a regular file
+		    longName = null;
+		    continue;
+		}
+		String name = longName;
+		if (name == null) {
+		    name = cString(this.header, 0, 100);
+		    String prefix = "";
+		    if (cString(this.header, 257, 5).equals("ustar"))
+			prefix = cString(this.header, 345, 155);
+		    if (!prefix.isEmpty())
+			name = prefix + "/" + name;
+		}
+		return name;
+	    }
+	}
+
+	/*
+	 * Return a stream with the content of the current entry; closing it
+	 * does not close the archive.
+	 */
+	private InputStream entry() {
+	    return new InputStream() {
+		@Override
+		public int read() throws IOException {
+		    if (TarReader.this.remaining == 0)
+			return -1;
+		    int c = TarReader.this.input.read();
+		    if (c < 0)
+			throw new EOFException("Truncated tar archive");
+		    TarReader.this.remaining--;
+		    return c;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+		    if (TarReader.this.remaining == 0)
+			return -1;
+		    int n = TarReader.this.input.read(b, off,
+			    (int) Math.min(len, TarReader.this.remaining));
+		    if (n < 0)
+			throw new EOFException("Truncated tar archive");
+		    TarReader.this.remaining -= n;
+		    return n;
+		}
+	    };
+	}
+
+	@Override
+	public void close() throws IOException {
+	    this.input.close();
+	}
+
+	/*
+	 * Read the next header block, returning false at the end of the
+	 * archive, marked by a block of zeros or by the end of the input.
+	 */
+	private boolean readBlock() throws IOException {
+	    int n = 0;
+	    while (n < TAR_BLOCK) {
+		int r = this.input.read(this.header, n, TAR_BLOCK - n);
+		if (r < 0) {
+		    if (n == 0)
+			return false;
+		    throw new EOFException("Truncated tar archive");
+		}
+		n += r;
+	    }
+	    for (byte b : this.header)
+		if (b != 0)
+		    return true;
+	    return false;
+	}
+
+	/*
+	 * Read the whole content of the current entry.
+	 */
+	private byte[] readData() throws IOException {
+	    if (this.remaining > Integer.MAX_VALUE)
+		throw new IOException("Tar header too large");
+	    byte[] data = new byte[(int) this.remaining];
+	    int n = 0;
+	    while (n < data.length) {
+		int r = this.input.read(data, n, data.length - n);
+		if (r < 0)
+		    throw new EOFException("Truncated tar archive");
+		n += r;
+	    }
+	    this.remaining = 0;
+	    return data;
+	}
+
+	private void skip(long n) throws IOException {
+	    while (n > 0) {
+		long skipped = this.input.skip(n);
+		if (skipped <= 0) {
+		    if (this.input.read() < 0)
+			throw new EOFException("Truncated tar archive");
+		    skipped = 1;
+		}
+		n -= skipped;
+	    }
+	}
+
+	/*
+	 * Decode a numeric field, in octal or in the base-256 GNU extension.
+	 */
+	private long number(int offset, int length) {
+	    long value = 0;
+	    if ((this.header[offset] & 0x80) != 0) {
+		for (int i = offset + 1; i < offset + length; i++)
+		    value = (value << 8) | (this.header[i] & 0xff);
+		return value;
+	    }
+	    int i = offset;
+	    while (i < offset + length && this.header[i] == ' ')
+		i++;
+	    for (; i < offset + length; i++) {
+		byte c = this.header[i];
+		if (c < '0' || c > '7')
+		    break;
+		value = (value << 3) | (c - '0');
+	    }
+	    return value;
+	}
+
+	/*
+	 * Return the value of the record "path" of a POSIX extended header,
+	 * or null if there is none. Records have the form "length key=value\n".
+	 */
+	private static String paxPath(byte[] data) {
+	    int i = 0;
+	    while (i < data.length) {
+		int space = i;
+		while (space < data.length && data[space] != ' ')
+		    space++;
+		int length;
+		try {
+		    length = Integer.parseInt(new String(data, i, space - i,
+			    StandardCharsets.US_ASCII));
+		} catch (NumberFormatException e) {
+		    return null;
+		}
+		if (length <= 0 || i + length > data.length)
+		    return null;
+		String record = new String(data, space + 1,
+			i + length - space - 2, StandardCharsets.UTF_8);
+		if (record.startsWith("path="))
+		    return record.substring(5);
+		i += length;
+	    }
+	    return null;
+	}
+
+	private static String cString(byte[] bytes, int offset, int length) {
+	    int end = offset;
+	    while (end < offset + length && bytes[end] != 0)
+		end++;
+	    return new String(bytes, offset, end - offset,
+		    StandardCharsets.UTF_8);
+	}
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the class RNAInputFiles
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class RNAInputFilesTest {
+
+    private static final String STRUCTURE = "GGGAAACCC\n(((...)))\n";
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void testGzip() throws IOException {
+	String name = this.folder.resolve("s.db.gz").toString();
+	try (OutputStream out = new GZIPOutputStream(
+		new FileOutputStream(name))) {
+	    out.write(STRUCTURE.getBytes(StandardCharsets.US_ASCII));
+	}
+	RNASecondaryStructure s = RNASecondaryStructureFileReader
+		.readStructure(name, false);
+	assertEquals("GGGAAACCC", s.getSequence());
+	assertEquals(3, s.getNumberOfBonds());
+    }
+
+    @Test
+    void testZip() throws IOException {
+	String name = this.folder.resolve("s.zip").toString();
+	try (ZipOutputStream out = new ZipOutputStream(
+		new FileOutputStream(name))) {
+	    out.putNextEntry(new ZipEntry("dir/"));
+	    out.putNextEntry(new ZipEntry("dir/s1.db"));
+	    out.write(STRUCTURE.getBytes(StandardCharsets.US_ASCII));
+	    out.putNextEntry(new ZipEntry("s2.db"));
+	    out.write("((..))".getBytes(StandardCharsets.US_ASCII));
+	}
+	assertTrue(RNAInputFiles.isArchive(name));
+	assertTrue(RNAInputFiles.exists(name + "!/dir/s1.db"));
+	assertFalse(RNAInputFiles.exists(name + "!/s3.db"));
+	RNASecondaryStructure s = RNASecondaryStructureFileReader
+		.readStructure(name + "!/s2.db", false);
+	assertEquals(6, s.getSize());
+	List<String> entries = new ArrayList<String>();
+	RNAInputFiles.forEachEntry(name, (entry, input) -> entries.add(entry));
+	assertEquals(2, entries.size());
+	assertEquals(name + "!/dir/s1.db", entries.get(0));
+	assertThrows(IOException.class,
+		() -> RNASecondaryStructureFileReader.readStructure(name, false));
+    }
+
+}
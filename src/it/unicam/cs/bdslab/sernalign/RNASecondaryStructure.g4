@@ -40,7 +40,7 @@
 grammar RNASecondaryStructure;
 
 @header {
-	package it.unicam.cs.bdslab.aspralign;
+	package it.unicam.cs.bdslab.sernalign;
 }
 
 rna
@@ -52,8 +52,7 @@ rna
 
 sequence
 :
-	NUCLEOTIDES sequence # sequenceContinue
-	| NUCLEOTIDES # sequenceEnd
+	NUCLEOTIDES+
 ;
 
 structure
@@ -64,14 +63,15 @@ structure
 
 edbns
 :
-	EDBN edbns # edbnsContinue
-	| EDBN # edbnsEnd
+	EDBN+
 ;
 
 bonds
 :
-	bond ';' bonds # bondsContinue
-	| bond # bondsEnd
+	bond
+	(
+		';' bond
+	)*
 ;
 
 bond
@@ -88,8 +88,7 @@ bpseq
 
 bpseqinfo
 :
-	bpseqline bpseqinfo # bpseqSeq
-	| bpseqline # bpseqLast
+	bpseqline+
 ;
 
 bpseqline
@@ -107,8 +106,7 @@ ct
 
 ctinfo
 :
-	ctline ctinfo # ctSeq
-	| ctline # ctLast
+	ctline+
 ;
 
 ctline
@@ -133,6 +131,14 @@ ctline
 	) INDEX INDEX # ctLineBond
 ;
 
+// Entry point for files detected as EDBN or AAS, while bpseq and ct are
+// the entry points for BPSEQ and CT files
+
+edbnOrAas
+:
+	sequence? structure
+;
+
 // Tokens
 
 LINE1BPSEQCT
@@ -22,9 +22,11 @@
  */
 package it.unicam.cs.bdslab.sernalign;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Representation of an RNA secondary structure with any kind of pseudoknot.
@@ -32,6 +34,10 @@ import java.util.List;
  * weak bonds given as pairs of positions in the primary sequence. Positions
  * start at 1 and end at the length of the primary sequence.
  * 
+ * The weak bonds are stored by columns in arrays of primitive integers, so
+ * that large collections of structures can be kept in memory and the bonds
+ * can be scanned without dereferencing one object for each bond.
+ * 
  * @author Luca Tesei
  *
  */
@@ -41,12 +47,26 @@ public class RNASecondaryStructure {
     /*
      * primary structure, when null this secondary structure has only the
      * structure representation. It can be used to generate the structural RNA
-     * tree and it can be aligned with another structure.
+     * tree and it can be aligned with another structure. The nucleotides are
+     * packed, the String is created only on request.
+     */
+    protected PackedNucleotideSequence sequence;
+
+    // true if the sequence has been dropped after fixing the size
+    protected boolean sequenceDropped;
+
+    /*
+     * weak bonds of this structure stored by columns: the k-th bond is
+     * (lefts[k], rights[k]) for 0 <= k < numberOfBonds. When the structure
+     * is finalised the bonds are in their natural order and the arrays have
+     * exactly numberOfBonds elements.
      */
-    protected String sequence;
+    protected int[] lefts;
+    protected int[] rights;
+    protected int numberOfBonds;
 
-    // list of the weak bonds of this structure
-    protected List<WeakBond> bonds;
+    // true if the bonds are known to be in their natural order
+    private boolean ordered;
 
     /*
      * length of the sequence; if this structure has no sequence a
@@ -62,31 +82,91 @@ public class RNASecondaryStructure {
      * otherwise, i.e., if p[i] = j and i > j, there is a weak bond (j,i);
      * always p[i] != i. No more than one pointer for each position is allowed
      * in RNA secondary structures, so one array is sufficient to represent
-     * all weak bonds.
+     * all weak bonds. The array is filled while the bonds are added, so it
+     * is also used as an occupancy table to check in constant time that the
+     * indexes of a new bond are not already used by another bond; it may be
+     * longer than needed until the structure is finalised.
      */
     protected int[] p;
 
     // Description taken from the file, if any
     protected String description;
 
+    // format of the file from which the structure has been read, if any
+    protected RNASecondaryStructureFormat format;
+
+    /*
+     * crossing statistics of the weak bonds, computed when the structure is
+     * finalised or, lazily, when requested; -1 means not computed
+     */
+    protected long crossingPairs;
+    protected int pseudoknotOrder;
+
     /**
      * Create an empty secondary structure.
      */
     public RNASecondaryStructure() {
 	this.sequence = null;
+	this.sequenceDropped = false;
 	this.size = -1;
-	this.bonds = new ArrayList<WeakBond>();
+	this.lefts = new int[8];
+	this.rights = new int[8];
+	this.numberOfBonds = 0;
+	this.ordered = true;
 	this.p = null;
 	this.description = "";
+	this.format = null;
+	this.crossingPairs = -1;
+	this.pseudoknotOrder = -1;
     }
 
     /**
-     * @return the sequence
+     * Return the primary sequence of this structure. The String is created
+     * at each call from the packed representation of the sequence.
+     * 
+     * @return the sequence, or null if this structure has no sequence
      */
     public String getSequence() {
+	return sequence == null ? null : sequence.toString();
+    }
+
+    /**
+     * @return the packed primary sequence of this structure, or null if this
+     *         structure has no sequence
+     */
+    public PackedNucleotideSequence getPackedSequence() {
 	return sequence;
     }
 
+    /**
+     * Remove the primary sequence from this structure to save memory. The
+     * size of the structure remains the length of the sequence. The base
+     * pairs of the structure cannot be checked anymore.
+     */
+    public void dropSequence() {
+	if (this.sequence != null) {
+	    this.sequence = null;
+	    this.sequenceDropped = true;
+	}
+    }
+
+    /**
+     * Drop the weak bonds of this structure, to save memory when only the
+     * size, the number of bonds and the crossing statistics are needed
+     * after building its structural sequence. After the call the bonds
+     * cannot be retrieved and no bond can be added to this structure.
+     */
+    public void dropBonds() {
+	if (this.lefts != null) {
+	    // cache the crossing statistics, computed on the bonds
+	    if (this.crossingPairs == -1)
+		computeCrossingStatistics();
+	    this.lefts = null;
+	    this.rights = null;
+	    this.p = null;
+	}
+    }
+
     /**
      * @return the size
      */
@@ -95,10 +175,54 @@ public class RNASecondaryStructure {
     }
 
     /**
+     * Return the bonds of this structure as a read-only view on the stored
+     * indexes. The WeakBond objects are created when they are retrieved from
+     * the list, so the methods {@link #getNumberOfBonds()},
+     * {@link #getBondLeft(int)} and {@link #getBondRight(int)} should be
+     * preferred to scan the bonds of large structures.
+     * 
      * @return the bonds
      */
     public List<WeakBond> getBonds() {
-	return bonds;
+	return new BondsView();
+    }
+
+    /**
+     * @return the number of weak bonds of this structure
+     */
+    public int getNumberOfBonds() {
+	return numberOfBonds;
+    }
+
+    /**
+     * @param k the index of a bond, starting from 0
+     * @return the left index of the k-th bond of this structure
+     * @throws IndexOutOfBoundsException if k is not a correct index of a bond
+     * @throws IllegalStateException     if the bonds have been dropped
+     */
+    public int getBondLeft(int k) {
+	checkBondIndex(k);
+	return lefts[k];
+    }
+
+    /**
+     * @param k the index of a bond, starting from 0
+     * @return the right index of the k-th bond of this structure
+     * @throws IndexOutOfBoundsException if k is not a correct index of a bond
+     * @throws IllegalStateException     if the bonds have been dropped
+     */
+    public int getBondRight(int k) {
+	checkBondIndex(k);
+	return rights[k];
+    }
+
+    private void checkBondIndex(int k) {
+	if (this.lefts == null)
+	    throw new IllegalStateException(
+		    "The bonds of this structure have been dropped");
+	if (k < 0 || k >= numberOfBonds)
+	    throw new IndexOutOfBoundsException(
+		    "Bond index " + k + " out of " + numberOfBonds + " bonds");
     }
 
     /**
@@ -108,6 +232,14 @@ public class RNASecondaryStructure {
 	return description;
     }
 
+    /**
+     * @return the format of the file from which this structure has been
+     *         read, or null if this structure has not been read from a file
+     */
+    public RNASecondaryStructureFormat getFormat() {
+	return format;
+    }
+
     /**
      * Add a bond to this structure.
      * 
@@ -118,42 +250,167 @@ public class RNASecondaryStructure {
      *                                     the limits of the structure
      */
     public void addBond(WeakBond b) {
-	// check if the indexes of the new bond are already present in the
-	// current
-	// list of bonds
-	for (WeakBond wb : this.bonds)
-	    if (b.getLeft() == wb.getLeft())
-		throw new RNAInputFileParserException(
-			"Weak Bond " + "left index " + b.getLeft()
-				+ " is equal to " + "bond (" + wb.getLeft()
-				+ ", " + wb.getRight() + ") left " + "index");
-	    else if (b.getLeft() == wb.getRight())
-		throw new RNAInputFileParserException("Weak Bond left index "
-			+ b.getLeft() + " is equal to bond (" + wb.getLeft()
-			+ ", " + wb.getRight() + ") right index");
-	    else if (b.getRight() == wb.getLeft())
-		throw new RNAInputFileParserException("Weak Bond right index "
-			+ b.getRight() + " is equal to bond (" + wb.getLeft()
-			+ ", " + wb.getRight() + ") left index");
-	    else if (b.getRight() == wb.getRight())
-		throw new RNAInputFileParserException("Weak Bond right index "
-			+ b.getRight() + " is equal to bond (" + wb.getLeft()
-			+ ", " + wb.getRight() + ") right index");
+	addBond(b.getLeft(), b.getRight());
+    }
+
+    /*
+     * Add the weak bond (left, right) to the structure without creating a
+     * WeakBond object, with the same checks of the constructor of WeakBond
+     * and of addBond(WeakBond).
+     */
+    void addBond(int left, int right) {
+	WeakBond.checkIndexes(left, right);
+	// check if the indexes of the new bond are already used by other bonds
+	checkFreePositions(left, right);
 	// check or increase right limit
-	if (this.sequence != null) {
-	    // the size is fixed to the length of the sequence
-	    if (b.getRight() > this.size)
-		throw new RNAInputFileParserException("Weak Bond right index "
-			+ b.getRight()
-			+ " is greater than the structure size " + this.size);
-	} else
-	// the size could increase by adding bonds because
-	// in this structure the sequence was not set
-	if (b.getRight() > this.size)
-	    // update size
-	    this.size = b.getRight();
+	checkRightLimit(right);
 	// checks done: add the bond
-	this.bonds.add(b);
+	reserve(right);
+	this.p[left] = right;
+	this.p[right] = left;
+	appendBond(left, right);
+	updateSize(right);
+	this.crossingPairs = -1;
+    }
+
+    /**
+     * Add a batch of bonds to this structure. The whole batch is validated in
+     * one pass, with the same checks and error messages of
+     * {@link #addBond(WeakBond)} applied in the order of the batch. If a bond
+     * is not correct none of the bonds of the batch is added.
+     * 
+     * @param newBonds the new bonds to add
+     * 
+     * @throws RNAInputFileParserException if the indexes of a bond are not
+     *                                     correct w.r.t. the other bonds or
+     *                                     the limits of the structure
+     */
+    public void addBonds(Collection<WeakBond> newBonds) {
+	// determine the maximum right index to reserve the occupancy table
+	// only once
+	int maxRight = 0;
+	for (WeakBond b : newBonds)
+	    if (b.getRight() > maxRight)
+		maxRight = b.getRight();
+	reserve(maxRight);
+	// check and mark the bonds in the given order
+	int marked = 0;
+	try {
+	    for (WeakBond b : newBonds) {
+		checkFreePositions(b.getLeft(), b.getRight());
+		checkRightLimit(b.getRight());
+		this.p[b.getLeft()] = b.getRight();
+		this.p[b.getRight()] = b.getLeft();
+		marked++;
+	    }
+	} catch (RNAInputFileParserException e) {
+	    // undo the marks of the bonds of this batch already checked
+	    for (WeakBond b : newBonds) {
+		if (marked == 0)
+		    break;
+		this.p[b.getLeft()] = 0;
+		this.p[b.getRight()] = 0;
+		marked--;
+	    }
+	    throw e;
+	}
+	// checks done: add the bonds
+	for (WeakBond b : newBonds)
+	    appendBond(b.getLeft(), b.getRight());
+	updateSize(maxRight);
+	this.crossingPairs = -1;
+    }
+
+    /*
+     * Check, using the occupancy table p, that the indexes of a new bond
+     * (left, right) are not already used by a bond of this structure.
+     */
+    private void checkFreePositions(int left, int right) {
+	if (this.p == null)
+	    // no bonds yet
+	    return;
+	if (left < this.p.length && this.p[left] != 0)
+	    throw new RNAInputFileParserException(
+		    usedPositionMessage("left", left, this.p[left]));
+	if (right < this.p.length && this.p[right] != 0)
+	    throw new RNAInputFileParserException(
+		    usedPositionMessage("right", right, this.p[right]));
+    }
+
+    /*
+     * Build the message for an index of a new bond, playing the given role,
+     * that is already used by the bond (index, partner).
+     */
+    private static String usedPositionMessage(String role, int index,
+	    int partner) {
+	if (index < partner)
+	    return "Weak Bond " + role + " index " + index + " is equal to bond ("
+		    + index + ", " + partner + ") left index";
+	else
+	    return "Weak Bond " + role + " index " + index + " is equal to bond ("
+		    + partner + ", " + index + ") right index";
+    }
+
+    /*
+     * Check the right index of a new bond against the size of this
+     * structure, only if the size is fixed by the sequence.
+     */
+    private void checkRightLimit(int right) {
+	if (hasFixedSize() && right > this.size)
+	    throw new RNAInputFileParserException("Weak Bond right index "
+		    + right + " is greater than the structure size "
+		    + this.size);
+    }
+
+    /*
+     * Append a bond to the columns, growing them if needed.
+     */
+    private void appendBond(int left, int right) {
+	if (this.numberOfBonds == this.lefts.length) {
+	    int length = Math.max(8, 2 * this.numberOfBonds);
+	    this.lefts = Arrays.copyOf(this.lefts, length);
+	    this.rights = Arrays.copyOf(this.rights, length);
+	}
+	if (this.numberOfBonds > 0
+		&& right < this.rights[this.numberOfBonds - 1])
+	    this.ordered = false;
+	this.lefts[this.numberOfBonds] = left;
+	this.rights[this.numberOfBonds] = right;
+	this.numberOfBonds++;
+    }
+
+    /*
+     * The size could increase by adding bonds if in this structure the
+     * sequence was not set.
+     */
+    private void updateSize(int right) {
+	if (!hasFixedSize() && right > this.size)
+	    this.size = right;
+    }
+
+    /*
+     * The size is fixed if the sequence has been set.
+     */
+    private boolean hasFixedSize() {
+	return this.sequence != null || this.sequenceDropped;
+    }
+
+    /*
+     * Make the occupancy table p able to contain the given index. The table
+     * is allocated with the size of the sequence, if known, and grows by
+     * doubling otherwise.
+     */
+    private void reserve(int index) {
+	if (this.p != null && index < this.p.length)
+	    return;
+	int length = index + 1;
+	if (hasFixedSize() && this.size + 1 > length)
+	    length = this.size + 1;
+	if (this.p == null)
+	    this.p = new int[length];
+	else
+	    this.p = Arrays.copyOf(this.p,
+		    Math.max(length, 2 * this.p.length));
     }
 
     /**
@@ -165,24 +422,50 @@ public class RNASecondaryStructure {
      *                                     of the structure size
      */
     protected void finalise() {
-	// order the bonds, using their natural order
-	Collections.sort(this.bonds);
 	// check size
 	if (this.size == -1)
 	    throw new RNAInputFileParserException(
 		    "Error in determining the size of the secondary structure");
-	// create the array p
-	this.p = new int[this.size + 1]; // position 0 is not used
-	// initialise the array p
-	//System.out.println("This size " + this.size);
-	//System.out.println("P length " + p.length);
-	for (WeakBond b : this.bonds) {
-	    //System.out.println("left " + b.getLeft());
-	    //System.out.println("right " + b.getRight());
-	    p[b.getLeft()] = b.getRight();
-	    
-	    p[b.getRight()] = b.getLeft();
-	}
+	// check that the bonds, added when the size was not yet fixed, are
+	// within the limits of the structure
+	for (int k = 0; k < this.numberOfBonds; k++)
+	    if (this.rights[k] > this.size)
+		throw new RNAInputFileParserException("Weak Bond right index "
+			+ this.rights[k] + " is greater than the structure size "
+			+ this.size);
+	// the array p has been filled while adding the bonds, fit it to the
+	// size of the structure; position 0 is not used
+	if (this.p == null)
+	    this.p = new int[this.size + 1];
+	else if (this.p.length != this.size + 1)
+	    this.p = Arrays.copyOf(this.p, this.size + 1);
+	// order the bonds, using their natural order, and fit the columns to
+	// the number of bonds
+	this.ordered = false;
+	orderBonds();
+	// cache the crossing statistics, used by the reports
+	computeCrossingStatistics();
+    }
+
+    /*
+     * Put the bonds in their natural order, i.e., by increasing right index.
+     * The order is obtained in linear time by scanning the array p.
+     */
+    void orderBonds() {
+	if (this.ordered)
+	    return;
+	int[] newLefts = new int[this.numberOfBonds];
+	int[] newRights = new int[this.numberOfBonds];
+	int k = 0;
+	for (int i = 1; i < this.p.length; i++)
+	    if (this.p[i] != 0 && this.p[i] < i) {
+		newLefts[k] = this.p[i];
+		newRights[k] = i;
+		k++;
+	    }
+	this.lefts = newLefts;
+	this.rights = newRights;
+	this.ordered = true;
     }
 
     /**
@@ -193,76 +476,147 @@ public class RNASecondaryStructure {
      * 
      */
     public boolean isPseudoknotted() {
-	for (int i = 0; i < this.bonds.size(); i++)
-	    for (int j = i + 1; j < this.bonds.size(); j++)
-		if (this.bonds.get(i).crossesWith(this.bonds.get(j)))
-		    return true;
-	return false;
+	return getNumberOfCrossingPairs() > 0;
+    }
+
+    /**
+     * Determine the number of pairs of crossing weak bonds in this structure.
+     * 
+     * @return the number of pairs of WeakBonds that cross each other
+     */
+    public long getNumberOfCrossingPairs() {
+	if (this.crossingPairs == -1)
+	    computeCrossingStatistics();
+	return this.crossingPairs;
+    }
+
+    /**
+     * Determine the pseudoknot order of this structure, that is the number
+     * of bracket types, besides the first one, that are needed to write the
+     * structure in extended dot-bracket notation when each weak bond, taken
+     * from left to right, is assigned to the first type in which it does not
+     * cross any other weak bond.
+     * 
+     * @return the pseudoknot order of this structure, 0 if the structure is
+     *         not pseudoknotted
+     */
+    public int getPseudoknotOrder() {
+	if (this.crossingPairs == -1)
+	    computeCrossingStatistics();
+	return this.pseudoknotOrder;
+    }
+
+    /*
+     * Compute the crossing statistics scanning the array p. A stack-based
+     * scan determines in O(n) if there are crossing bonds; only in this case
+     * the crossing pairs are counted in O(n log n) with a Fenwick tree over
+     * the right indexes of the open bonds and the bonds are assigned greedily
+     * to bracket types, each one represented by a stack of right indexes.
+     */
+    private void computeCrossingStatistics() {
+	this.crossingPairs = 0;
+	this.pseudoknotOrder = 0;
+	if (this.p == null)
+	    // no bonds
+	    return;
+	int n = this.p.length - 1;
+	// stack of the left indexes of the open bonds
+	int[] stack = new int[n + 1];
+	int top = 0;
+	boolean crossing = false;
+	for (int i = 1; i <= n && !crossing; i++)
+	    if (this.p[i] > i)
+		stack[top++] = i;
+	    else if (this.p[i] != 0) {
+		if (top > 0 && stack[top - 1] == this.p[i])
+		    top--;
+		else
+		    // the bond closed at i crosses the bond on top of the stack
+		    crossing = true;
+	    }
+	if (!crossing)
+	    return;
+	// count the crossing pairs: when bond (i,j) is opened it crosses all
+	// the bonds still open whose right index is less than j
+	long[] tree = new long[n + 1];
+	for (int i = 1; i <= n; i++)
+	    if (this.p[i] > i) {
+		for (int k = this.p[i] - 1; k > 0; k -= k & -k)
+		    this.crossingPairs += tree[k];
+		for (int k = this.p[i]; k <= n; k += k & -k)
+		    tree[k]++;
+	    } else if (this.p[i] != 0)
+		for (int k = i; k <= n; k += k & -k)
+		    tree[k]--;
+	// assign the bonds to bracket types: bracketTop[t] is the right index
+	// on top of the stack of type t, below[j] the one below right index j
+	int[] bracketTop = new int[4];
+	int[] below = new int[n + 1];
+	int types = 0;
+	for (int i = 1; i <= n; i++) {
+	    if (this.p[i] <= i)
+		continue;
+	    int t = 0;
+	    for (; t < types; t++) {
+		// remove the bonds of this type already closed
+		while (bracketTop[t] != 0 && bracketTop[t] < i)
+		    bracketTop[t] = below[bracketTop[t]];
+		if (bracketTop[t] == 0 || bracketTop[t] > this.p[i])
+		    break;
+	    }
+	    if (t == types) {
+		// a new bracket type is needed
+		if (types == bracketTop.length)
+		    bracketTop = Arrays.copyOf(bracketTop, 2 * types);
+		types++;
+	    }
+	    below[this.p[i]] = bracketTop[t];
+	    bracketTop[t] = this.p[i];
+	}
+	this.pseudoknotOrder = types - 1;
     }
 
     /**
      * Check if all the weak bonds in this structure are Watson-Crick or
-     * wobble pairs, only if this structure has a sequence specified.
+     * wobble pairs, only if this structure has a sequence specified. Pairs
+     * whose left nucleotide is not a standard base are not checked.
      * 
      * @throws RNAInputFileParserException if at least one of the weak bonds
      *                                     in this structure are not
      *                                     Watson-Crick or wobble pairs
      */
     public void checkBasePairs() {
-	// check if this structure has a sequence
-	if (this.sequence == null)
-	    // do nothing
-	    return;
-	// check all the pairs
-	for (WeakBond b : this.bonds) {
-	    // base pair check
-	    int index1 = b.getLeft() - 1; // adjustment of indexes wrt the
-					  // zero-starting indexes of strings
-	    int index2 = b.getRight() - 1;
-	    switch (this.sequence.charAt(index1)) {
-	    case 'A':
-		if (this.sequence.charAt(index2) != 'U')
-		    throw new RNAInputFileParserException(
-			    "Base pair not allowed in RNA: "
-				    + this.sequence.charAt(index1) + "-"
-				    + this.sequence.charAt(index2)
-				    + " at weak bond (" + b.getLeft() + ", "
-				    + b.getRight() + ")");
-		else
-		    break;
-	    case 'U':
-		if (this.sequence.charAt(index2) != 'A'
-			&& this.sequence.charAt(index2) != 'G')
-		    throw new RNAInputFileParserException(
-			    "Base pair not allowed in RNA: "
-				    + this.sequence.charAt(index1) + "-"
-				    + this.sequence.charAt(index2)
-				    + " at weak bond (" + b.getLeft() + ", "
-				    + b.getRight() + ")");
-		else
-		    break;
-	    case 'C':
-		if (this.sequence.charAt(index2) != 'G')
-		    throw new RNAInputFileParserException(
-			    "Base pair not allowed in RNA: "
-				    + this.sequence.charAt(index1) + "-"
-				    + this.sequence.charAt(index2)
-				    + " at weak bond (" + b.getLeft() + ", "
-				    + b.getRight() + ")");
-		else
-		    break;
-	    case 'G':
-		if (this.sequence.charAt(index2) != 'C'
-			&& this.sequence.charAt(index2) != 'U')
-		    throw new RNAInputFileParserException(
-			    "Base pair not allowed in RNA: "
-				    + this.sequence.charAt(index1) + "-"
-				    + this.sequence.charAt(index2)
-				    + " at weak bond (" + b.getLeft() + ", "
-				    + b.getRight() + ")");
-		else
-		    break;
-	    }
+	checkBasePairs(BasePairValidator.WATSON_CRICK_WOBBLE);
+    }
+
+    /**
+     * Check if all the weak bonds in this structure are allowed by a given
+     * validator, only if this structure has a sequence specified.
+     * 
+     * @param validator the validator of the base pairs
+     * @throws RNAInputFileParserException if at least one of the weak bonds
+     *                                     in this structure is not allowed
+     *                                     by the validator
+     */
+    public void checkBasePairs(BasePairValidator validator) {
+	validator.check(this);
+    }
+
+    /*
+     * Read-only list of the bonds of this structure backed by the columns.
+     */
+    private class BondsView extends AbstractList<WeakBond>
+	    implements RandomAccess {
+
+	@Override
+	public WeakBond get(int index) {
+	    checkBondIndex(index);
+	    return new WeakBond(lefts[index], rights[index]);
+	}
+
+	@Override
+	public int size() {
+	    return numberOfBonds;
 	}
     }
 }
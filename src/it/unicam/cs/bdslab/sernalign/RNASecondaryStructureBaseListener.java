@@ -93,8 +93,8 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void enterSequenceContinue(
-	    RNASecondaryStructureParser.SequenceContinueContext ctx) {
+    public void enterSequence(
+	    RNASecondaryStructureParser.SequenceContext ctx) {
     }
 
     /**
@@ -105,32 +105,8 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void exitSequenceContinue(
-	    RNASecondaryStructureParser.SequenceContinueContext ctx) {
-    }
-
-    /**
-     * {@inheritDoc}
-     *
-     * <p>
-     * The default implementation does nothing.
-     * </p>
-     */
-    @Override
-    public void enterSequenceEnd(
-	    RNASecondaryStructureParser.SequenceEndContext ctx) {
-    }
-
-    /**
-     * {@inheritDoc}
-     *
-     * <p>
-     * The default implementation does nothing.
-     * </p>
-     */
-    @Override
-    public void exitSequenceEnd(
-	    RNASecondaryStructureParser.SequenceEndContext ctx) {
+    public void exitSequence(
+	    RNASecondaryStructureParser.SequenceContext ctx) {
     }
 
     /**
@@ -185,56 +161,7 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void enterEdbnsContinue(
-	    RNASecondaryStructureParser.EdbnsContinueContext ctx) {
-    }
-
-    /**
-     * {@inheritDoc}
-     *
-     * <p>
-     * The default implementation does nothing.
-     * </p>
-     */
-    @Override
-    public void exitEdbnsContinue(
-	    RNASecondaryStructureParser.EdbnsContinueContext ctx) {
-    }
-
-    /**
-     * {@inheritDoc}
-     *
-     * <p>
-     * The default implementation does nothing.
-     * </p>
-     */
-    @Override
-    public void enterEdbnsEnd(
-	    RNASecondaryStructureParser.EdbnsEndContext ctx) {
-    }
-
-    /**
-     * {@inheritDoc}
-     *
-     * <p>
-     * The default implementation does nothing.
-     * </p>
-     */
-    @Override
-    public void exitEdbnsEnd(
-	    RNASecondaryStructureParser.EdbnsEndContext ctx) {
-    }
-
-    /**
-     * {@inheritDoc}
-     *
-     * <p>
-     * The default implementation does nothing.
-     * </p>
-     */
-    @Override
-    public void enterBondsContinue(
-	    RNASecondaryStructureParser.BondsContinueContext ctx) {
+    public void enterEdbns(RNASecondaryStructureParser.EdbnsContext ctx) {
     }
 
     /**
@@ -245,8 +172,7 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void exitBondsContinue(
-	    RNASecondaryStructureParser.BondsContinueContext ctx) {
+    public void exitEdbns(RNASecondaryStructureParser.EdbnsContext ctx) {
     }
 
     /**
@@ -257,8 +183,7 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void enterBondsEnd(
-	    RNASecondaryStructureParser.BondsEndContext ctx) {
+    public void enterBonds(RNASecondaryStructureParser.BondsContext ctx) {
     }
 
     /**
@@ -269,8 +194,7 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void exitBondsEnd(
-	    RNASecondaryStructureParser.BondsEndContext ctx) {
+    public void exitBonds(RNASecondaryStructureParser.BondsContext ctx) {
     }
 
     /**
@@ -325,32 +249,8 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void enterBpseqSeq(
-	    RNASecondaryStructureParser.BpseqSeqContext ctx) {
-    }
-
-    /**
-     * {@inheritDoc}
-     *
-     * <p>
-     * The default implementation does nothing.
-     * </p>
-     */
-    @Override
-    public void exitBpseqSeq(
-	    RNASecondaryStructureParser.BpseqSeqContext ctx) {
-    }
-
-    /**
-     * {@inheritDoc}
-     *
-     * <p>
-     * The default implementation does nothing.
-     * </p>
-     */
-    @Override
-    public void enterBpseqLast(
-	    RNASecondaryStructureParser.BpseqLastContext ctx) {
+    public void enterBpseqinfo(
+	    RNASecondaryStructureParser.BpseqinfoContext ctx) {
     }
 
     /**
@@ -361,8 +261,8 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void exitBpseqLast(
-	    RNASecondaryStructureParser.BpseqLastContext ctx) {
+    public void exitBpseqinfo(
+	    RNASecondaryStructureParser.BpseqinfoContext ctx) {
     }
 
     /**
@@ -443,7 +343,7 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void enterCtSeq(RNASecondaryStructureParser.CtSeqContext ctx) {
+    public void enterCtinfo(RNASecondaryStructureParser.CtinfoContext ctx) {
     }
 
     /**
@@ -454,7 +354,7 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void exitCtSeq(RNASecondaryStructureParser.CtSeqContext ctx) {
+    public void exitCtinfo(RNASecondaryStructureParser.CtinfoContext ctx) {
     }
 
     /**
@@ -465,7 +365,8 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void enterCtLast(RNASecondaryStructureParser.CtLastContext ctx) {
+    public void enterCtLineUnpaired(
+	    RNASecondaryStructureParser.CtLineUnpairedContext ctx) {
     }
 
     /**
@@ -476,7 +377,8 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void exitCtLast(RNASecondaryStructureParser.CtLastContext ctx) {
+    public void exitCtLineUnpaired(
+	    RNASecondaryStructureParser.CtLineUnpairedContext ctx) {
     }
 
     /**
@@ -487,8 +389,8 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void enterCtLineUnpaired(
-	    RNASecondaryStructureParser.CtLineUnpairedContext ctx) {
+    public void enterCtLineBond(
+	    RNASecondaryStructureParser.CtLineBondContext ctx) {
     }
 
     /**
@@ -499,8 +401,8 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void exitCtLineUnpaired(
-	    RNASecondaryStructureParser.CtLineUnpairedContext ctx) {
+    public void exitCtLineBond(
+	    RNASecondaryStructureParser.CtLineBondContext ctx) {
     }
 
     /**
@@ -511,8 +413,8 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void enterCtLineBond(
-	    RNASecondaryStructureParser.CtLineBondContext ctx) {
+    public void enterEdbnOrAas(
+	    RNASecondaryStructureParser.EdbnOrAasContext ctx) {
     }
 
     /**
@@ -523,8 +425,8 @@ public class RNASecondaryStructureBaseListener
      * </p>
      */
     @Override
-    public void exitCtLineBond(
-	    RNASecondaryStructureParser.CtLineBondContext ctx) {
+    public void exitEdbnOrAas(
+	    RNASecondaryStructureParser.EdbnOrAasContext ctx) {
     }
 
     /**
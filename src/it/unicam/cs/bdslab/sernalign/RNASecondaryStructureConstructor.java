@@ -22,31 +22,26 @@
  */
 package it.unicam.cs.bdslab.sernalign;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Set;
-import java.util.Stack;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.TerminalNode;
 
-import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.BondsContinueContext;
-import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.BondsEndContext;
+import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.BondContext;
 import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.BpseqContext;
-import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.BpseqFormatContext;
 import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.BpseqLineBondContext;
 import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.BpseqLineUnpairedContext;
 import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.CtContext;
-import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.CtFormatContext;
 import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.CtLineBondContext;
 import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.CtLineUnpairedContext;
-import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.EdbnOrAasFormatContext;
-import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.EdbnsContinueContext;
-import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.EdbnsEndContext;
-import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.SequenceContinueContext;
-import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.SequenceEndContext;
+import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.EdbnsContext;
+import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.RnaAasContext;
+import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.RnaEdbnContext;
+import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.SequenceContext;
 
 /**
  * Construct an RNASecondaryStructure object while visiting an
- * RNASecondaryStructure Parse Tree generated with ANTLR 4.
+ * RNASecondaryStructure Parse Tree generated with ANTLR 4. The tree can be
+ * produced by the rule rna, for a file of any format, or directly by the
+ * entry rule of the format of the file, i.e., edbnOrAas, bpseq or ct.
  * 
  * @author Luca Tesei
  *
@@ -54,14 +49,24 @@ import it.unicam.cs.bdslab.sernalign.RNASecondaryStructureParser.SequenceEndCont
 public class RNASecondaryStructureConstructor
 	extends RNASecondaryStructureBaseListener {
     private RNASecondaryStructure s;
-    private StringBuffer sequenceBuffer;
-    private StringBuffer edbnsBuffer;
+    private PackedNucleotideSequence.Builder sequenceBuffer;
+    private final ExtendedDotBracketParser edbnParser;
     private StringBuffer descriptionBuffer;
 
     public RNASecondaryStructureConstructor() {
+	this.edbnParser = new ExtendedDotBracketParser(0);
+	reset();
+    }
+
+    /**
+     * Prepare this constructor to build a new structure while visiting
+     * another parse tree. The structure built during the previous visit is
+     * not affected.
+     */
+    public void reset() {
 	this.s = new RNASecondaryStructure();
-	this.sequenceBuffer = new StringBuffer();
-	this.edbnsBuffer = new StringBuffer();
+	this.sequenceBuffer = new PackedNucleotideSequence.Builder();
+	this.edbnParser.reset();
 	this.descriptionBuffer = new StringBuffer();
     }
 
@@ -73,219 +78,78 @@ public class RNASecondaryStructureConstructor
     }
 
     @Override
-    public void enterSequenceContinue(SequenceContinueContext ctx) {
-	/*
-	 * add this line of nucleotides to the already existing sequence
-	 * because of the right recursion of the parse tree
-	 */
-	this.sequenceBuffer.append(ctx.NUCLEOTIDES().getText());
-    }
-
-    @Override
-    public void enterSequenceEnd(SequenceEndContext ctx) {
-	/*
-	 * add this line of nucleotides to the already existing sequence
-	 * because of the right recursion of the parse tree and the call to
-	 * the exit method
-	 */
-	this.sequenceBuffer.append(ctx.NUCLEOTIDES().getText());
+    public void enterSequence(SequenceContext ctx) {
+	// add all the lines of nucleotides to the sequence
+	for (TerminalNode nucleotides : ctx.NUCLEOTIDES())
+	    this.sequenceBuffer.append(nucleotides.getText());
 	// assign the whole sequence to the RNASecondaryStructure
-	this.s.sequence = this.sequenceBuffer.toString();
+	this.s.sequence = this.sequenceBuffer.build();
 	// set the size of the structure to the length of the sequence
 	this.s.size = this.s.sequence.length();
     }
 
     @Override
-    public void enterEdbnsContinue(EdbnsContinueContext ctx) {
-	String edbn = ctx.EDBN().getText();
-	/*
-	 * Control if this part of string has been classified wrongly as EDBN
-	 * while originally it was a nucleotide part with non-recognised
-	 * codes; in this case throw an exception
-	 */
-	if (edbn.indexOf(".") == -1) {
-	    // there are no dots, check if there is at least one bracket
-	    if (edbn.indexOf("(") == -1 && edbn.indexOf(")") == -1
-		    && edbn.indexOf("[") == -1 && edbn.indexOf("]") == -1
-		    && edbn.indexOf("{") == -1 && edbn.indexOf("}") == -1) {
-		// there are no brackets, check if the string is very short
-		if (edbn.length() >= 5) {
-		    // ok, it is not considered edbn, the exception is thrown
-		    String m = "Line " + ctx.start.getLine() + " Character "
-			    + (ctx.start.getCharPositionInLine() + 1) + ": "
-			    + "unrecognised nucleotide code in " + edbn;
-		    throw new RNAInputFileParserException(m);
+    public void enterEdbns(EdbnsContext ctx) {
+	for (TerminalNode edbnNode : ctx.EDBN()) {
+	    String edbn = edbnNode.getText();
+	    /*
+	     * Control if this part of string has been classified wrongly as
+	     * EDBN while originally it was a nucleotide part with
+	     * non-recognised codes; in this case throw an exception
+	     */
+	    if (edbn.indexOf(".") == -1) {
+		// there are no dots, check if there is at least one bracket
+		if (edbn.indexOf("(") == -1 && edbn.indexOf(")") == -1
+			&& edbn.indexOf("[") == -1 && edbn.indexOf("]") == -1
+			&& edbn.indexOf("{") == -1 && edbn.indexOf("}") == -1) {
+		    // there are no brackets, check if the string is very short
+		    if (edbn.length() >= 5) {
+			// ok, it is not considered edbn, the exception is thrown
+			Token start = edbnNode.getSymbol();
+			String m = "Line " + start.getLine() + " Character "
+				+ (start.getCharPositionInLine() + 1) + ": "
+				+ "unrecognised nucleotide code in " + edbn;
+			throw new RNAInputFileParserException(m);
+		    }
 		}
 	    }
+	    // parse this line of edbn after the already existing ones
+	    this.edbnParser.append(edbn);
 	}
-	/*
-	 * add this line of edbn to the already existing ones because of the
-	 * right recursion of the parse tree
-	 */
-	this.edbnsBuffer.append(edbn);
-    }
-
-    @Override
-    public void enterEdbnsEnd(EdbnsEndContext ctx) {
-	String edbn = ctx.EDBN().getText();
-	/*
-	 * Control if this part of string has been classified wrongly as EDBN
-	 * while originally it was a nucleotide part with non-recognised
-	 * codes; in this case throw an exception
-	 */
-	if (edbn.indexOf(".") == -1) {
-	    // there are no dots, check if there is at least one bracket
-	    if (edbn.indexOf("(") == -1 && edbn.indexOf(")") == -1
-		    && edbn.indexOf("[") == -1 && edbn.indexOf("]") == -1
-		    && edbn.indexOf("{") == -1 && edbn.indexOf("}") == -1) {
-		// there are no brackets, check if the string is very short
-		if (edbn.length() >= 5) {
-		    // ok, it is not considered edbn, the exception is thrown
-		    String m = "Line " + ctx.start.getLine() + " Character "
-			    + (ctx.start.getCharPositionInLine() + 1) + ": "
-			    + "unrecognised nucleotide code in " + edbn;
-		    throw new RNAInputFileParserException(m);
-		}
-	    }
-	}
-	/*
-	 * add this line of edbn to the already existing ones because of the
-	 * right recursion of the parse tree
-	 */
-	this.edbnsBuffer.append(edbn);
 	// check length of edbns wrt the size of the structure
 	if (this.s.sequence == null)
 	    // set the size of the structure using the length of the edbns
-	    this.s.size = this.edbnsBuffer.length();
+	    this.s.size = this.edbnParser.length();
 	else // the structure has a sequence, check if the length are the same
-	if (this.edbnsBuffer.length() != this.s.size)
+	if (this.edbnParser.length() != this.s.size)
 	    throw new RNAInputFileParserException(
 		    "Extended Dot-Bracket Notation Structure is of length "
-			    + this.edbnsBuffer.length()
+			    + this.edbnParser.length()
 			    + " while the sequence of nucleotides is of length "
 			    + this.s.size);
-	// parse edbn and create weak bonds in the structure
-	List<WeakBond> bonds = parseEDBN(this.edbnsBuffer.toString());
-	// add all the bonds to the structure
-	for (WeakBond wb : bonds)
-	    this.s.addBond(wb);
-    }
-
-    /*
-     * Parse an Extended Dot-Bracket Notation string and transform it into a
-     * list of weak bonds.
-     * 
-     * @param extendedDotBracketNotation the string of extended dot-bracket
-     * notation to convert
-     * 
-     * @return a list of the bonds in the given extended dot-bracket notation
-     * 
-     * @throws RNAInputFileParserException if the extended dot-bracket
-     * notation contains errors
-     */
-    private static List<WeakBond> parseEDBN(
-	    String extendedDotBracketNotation) {
-	List<WeakBond> bonds = new ArrayList<WeakBond>();
-	/*
-	 * Parse the edbn string using stacks to push opening symbols and
-	 * match them with closing ones
-	 */
-	HashMap<Character, Stack<Integer>> stacks = new HashMap<>();
-	for (int i = 0; i < extendedDotBracketNotation.length(); i++) {
-	    char c = extendedDotBracketNotation.charAt(i);
-	    Character oc = new Character(c);
-	    if (isOpeningChar(c)) {
-		if (!stacks.containsKey(oc))
-		    stacks.put(oc, new Stack<Integer>());
-		stacks.get(oc).push(new Integer(i));
-	    }
-	    if (isClosingChar(c)) {
-		Character opening = new Character(getCorrespondingOpening(c));
-		if (stacks.get(opening) == null
-			|| stacks.get(opening).isEmpty()) {
-		    throw new RNAInputFileParserException(
-			    "Extended dot-bracket notation parsing: closing character at position "
-				    + (i + 1)
-				    + " does not have a corresponding opening character");
-		}
-		int leftPosition = stacks.get(opening).pop().intValue();
-		// add this weak bond to bonds
-		bonds.add(new WeakBond(leftPosition + 1, i + 1));
-	    }
-	    // skip the "."
-	}
-	// check mismatched closing symbols
-	Set<Character> ks = stacks.keySet();
-	for (Character c : ks)
-	    if (!stacks.get(c).isEmpty()) {
-		String msg = "Extended dot-bracket notation parsing: "
-			+ stacks.get(c).size()
-			+ " missing closing occurrence(s) of " + c
-			+ " symbol, left opening symbol(s) at position(s) ";
-		for (Integer i : stacks.get(c))
-		    msg = msg + (i.intValue() + 1) + " ";
-		throw new RNAInputFileParserException(msg);
-	    }
-	// return
-	return bonds;
-    }
-
-    /*
-     * Determine if the given character is a correct opening character of an
-     * extended dot-bracket notation string.
-     */
-    private static boolean isOpeningChar(char c) {
-	return c == '(' || c == '[' || c == '{' || c == '<'
-		|| Character.isUpperCase(c);
-    }
-
-    /*
-     * Determine if the given character is a correct closing character of an
-     * extended dot-bracket notation string.
-     */
-    private static boolean isClosingChar(char c) {
-	return c == ')' || c == ']' || c == '}' || c == '>'
-		|| Character.isLowerCase(c);
-    }
-
-    /*
-     * Given a closing character of an extended dot-bracket notation string,
-     * returns the corresponding opening character.
-     */
-    private static char getCorrespondingOpening(char c) {
-	switch (c) {
-	case ')':
-	    return '(';
-	case ']':
-	    return '[';
-	case '}':
-	    return '{';
-	case '>':
-	    return '<';
-	default:
-	    return Character.toUpperCase(c);
-	}
+	// add all the weak bonds of the edbns to the structure
+	this.edbnParser.addBonds(this.s);
     }
 
     @Override
-    public void enterBondsContinue(BondsContinueContext ctx) {
+    public void enterBond(BondContext ctx) {
 	// take the bond and add it to the structure
-	int left = Integer.parseInt(ctx.bond().INDEX(0).getText());
-	int right = Integer.parseInt(ctx.bond().INDEX(1).getText());
+	int left = Integer.parseInt(ctx.INDEX(0).getText());
+	int right = Integer.parseInt(ctx.INDEX(1).getText());
 	this.s.addBond(new WeakBond(left, right));
     }
 
     @Override
-    public void enterBondsEnd(BondsEndContext ctx) {
-	// take the bond and add it to the structure
-	int left = Integer.parseInt(ctx.bond().INDEX(0).getText());
-	int right = Integer.parseInt(ctx.bond().INDEX(1).getText());
-	this.s.addBond(new WeakBond(left, right));
+    public void exitRnaEdbn(RnaEdbnContext ctx) {
+	// everything has been added to the structure, finalise it
+	this.s.format = RNASecondaryStructureFormat.EDBN;
+	this.s.finalise();
     }
 
     @Override
-    public void exitEdbnOrAasFormat(EdbnOrAasFormatContext ctx) {
+    public void exitRnaAas(RnaAasContext ctx) {
 	// everything has been added to the structure, finalise it
+	this.s.format = RNASecondaryStructureFormat.AAS;
 	this.s.finalise();
     }
 
@@ -324,11 +188,12 @@ public class RNASecondaryStructureConstructor
     }
 
     @Override
-    public void exitBpseqFormat(BpseqFormatContext ctx) {
+    public void exitBpseq(BpseqContext ctx) {
+	this.s.format = RNASecondaryStructureFormat.BPSEQ;
 	// assign the whole sequence description to the RNASecondaryStructure
 	this.s.description = this.descriptionBuffer.toString();
 	// assign the whole sequence to the RNASecondaryStructure
-	this.s.sequence = this.sequenceBuffer.toString();
+	this.s.sequence = this.sequenceBuffer.build();
 	// set the size of the structure to the length of the sequence
 	this.s.size = this.s.sequence.length();
 	// everything has been added to the structure, finalise it
@@ -372,12 +237,13 @@ public class RNASecondaryStructureConstructor
     }
 
     @Override
-    public void exitCtFormat(CtFormatContext ctx) {
+    public void exitCt(CtContext ctx) {
+	this.s.format = RNASecondaryStructureFormat.CT;
 	// assign the whole sequence description to the RNASecondaryStructure
 	this.s.description = this.descriptionBuffer.toString();
 	//System.out.println("Description " + this.s.description);
 	// assign the whole sequence to the RNASecondaryStructure
-	this.s.sequence = this.sequenceBuffer.toString();
+	this.s.sequence = this.sequenceBuffer.build();
 	//System.out.println("Sequence " + this.s.sequence);
 	// set the size of the structure to the length of the sequence
 	this.s.size = this.s.sequence.length();
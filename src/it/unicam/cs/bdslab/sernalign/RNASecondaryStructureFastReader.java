@@ -0,0 +1,641 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Hand-written single-pass reader of RNA secondary structures in the formats
+ * of the grammar RNASecondaryStructure.g4: (extended) dot-bracket notation
+ * and arc annotated sequence, both with an optional sequence of nucleotides,
+ * BPSEQ and CT, with comments and optional header lines.
+ * 
+ * The reader works directly on the bytes of the input, without creating a
+ * character stream, tokens or a parse tree. Its tokenizer reproduces the
+ * longest-match rules of the ANTLR lexer, so that the same input is split
+ * in the same tokens. It is deliberately conservative: whenever the input
+ * contains something that it does not recognise (lexical or syntax errors,
+ * non-ASCII characters outside comments and header lines, trailing text
+ * after the structure, semantic errors in the structure) it gives up and
+ * returns null. In this case the input must be read with ANTLR, that will
+ * produce the structure or the error messages. Thus, the results of the two
+ * readers are always the same.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+public class RNASecondaryStructureFastReader {
+
+    // token types, with the names of the corresponding ANTLR tokens
+    private static final int EOF = 0;
+    private static final int LINE1BPSEQCT = 1;
+    private static final int LINE2BPSEQCT = 2;
+    private static final int LINE3BPSEQCT = 3;
+    private static final int LINE4BPSEQCT = 4;
+    private static final int LINE5CT = 5;
+    private static final int INDEX = 6;
+    private static final int ZERO = 7;
+    private static final int IUPAC_CODE = 8;
+    private static final int NUCLEOTIDES = 9;
+    private static final int EDBN = 10;
+    private static final int OPEN = 11;
+    private static final int CLOSE = 12;
+    private static final int COMMA = 13;
+    private static final int SEMICOLON = 14;
+
+    // initial words of the header lines, indexed by token type - 1
+    private static final byte[][] HEADERS = { ascii("Filename"),
+	    ascii("Organism"), ascii("Accession"), ascii("Citation") };
+
+    // keywords of the fifth line of CT files
+    private static final byte[][] KEYWORDS = { ascii("ENERGY"),
+	    ascii("Energy"), ascii("dG") };
+
+    // character classes of the lexer, for ASCII characters
+    private static final boolean[] IUPAC_CHARS = charClass(
+	    "ACGUacguTtRrYysSWwKkMmBbDdHhVvNn-");
+    private static final boolean[] NUCLEOTIDE_CHARS = charClass(
+	    "ACGUacguTtRrYysSWwKkMmBbDdHhVvNn-\"?]~[_+=/47POI");
+    private static final boolean[] EDBN_CHARS = charClass(
+	    ".()[]{}<>abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ");
+
+    /*
+     * Exception used internally to give up reading; it is never seen by the
+     * callers of this class
+     */
+    private static final class UnsupportedInputException
+	    extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	UnsupportedInputException() {
+	    super(null, null, false, false);
+	}
+    }
+
+    private static final UnsupportedInputException UNSUPPORTED = new UnsupportedInputException();
+
+    // the input and its limits
+    private final ByteBuffer in;
+    private final int limit;
+
+    // if false the nucleotides are only counted to determine the size
+    private final boolean keepSequence;
+
+    // position of the next character to read
+    private int pos;
+
+    /*
+     * current line: its first character, the position of the '\n' that ends
+     * it (limit if there is none) and the position of the last occurrence of
+     * a keyword of LINE5CT in it (-1 if there is none or if the line does not
+     * end with '\n')
+     */
+    private int lineStart;
+    private int lineEnd;
+    private int lastKeyword;
+
+    // current token: its type and its limits in the input
+    private int type;
+    private int start;
+    private int end;
+
+    private RNASecondaryStructureFastReader(ByteBuffer in,
+	    boolean keepSequence) {
+	this.in = in;
+	this.limit = in.limit();
+	this.keepSequence = keepSequence;
+	this.pos = in.position();
+	this.lineStart = -1;
+	this.lineEnd = -1;
+	this.lastKeyword = -1;
+    }
+
+    /**
+     * Read a secondary structure from the bytes of a buffer, between its
+     * current position and its limit. The position of the buffer is not
+     * changed.
+     * 
+     * @param buffer the content of a file containing one secondary structure
+     * @return the secondary structure, finalised, or null if the content must
+     *         be read with ANTLR, because it contains errors or something
+     *         that this reader does not handle
+     */
+    public static RNASecondaryStructure read(ByteBuffer buffer) {
+	return read(buffer, true);
+    }
+
+    /**
+     * Read a secondary structure from the bytes of a buffer, between its
+     * current position and its limit, possibly without building its primary
+     * sequence. The position of the buffer is not changed.
+     * 
+     * @param buffer       the content of a file containing one secondary
+     *                     structure
+     * @param keepSequence if false the nucleotides are only counted and the
+     *                     returned structure is the same as the one returned
+     *                     by {@link #read(ByteBuffer)} after dropping its
+     *                     sequence (see
+     *                     {@link RNASecondaryStructure#dropSequence()})
+     * @return the secondary structure, finalised, or null if the content must
+     *         be read with ANTLR, because it contains errors or something
+     *         that this reader does not handle
+     */
+    public static RNASecondaryStructure read(ByteBuffer buffer,
+	    boolean keepSequence) {
+	try {
+	    return new RNASecondaryStructureFastReader(buffer.duplicate(),
+		    keepSequence).parse();
+	} catch (RuntimeException e) {
+	    /*
+	     * unsupported input or an error in the structure: ANTLR will
+	     * read it again and report the error in the usual way
+	     */
+	    return null;
+	}
+    }
+
+    /*
+     * Parse the rule rna of the grammar.
+     */
+    private RNASecondaryStructure parse() {
+	next();
+	switch (this.type) {
+	case NUCLEOTIDES:
+	case EDBN:
+	case OPEN:
+	    return parseEdbnOrAas();
+	case LINE1BPSEQCT:
+	    String header = parseHeader();
+	    if (this.type == LINE5CT)
+		return parseCt(header + "\n");
+	    return parseBpseq(header);
+	case LINE5CT:
+	    return parseCt("");
+	case INDEX:
+	    return parseBpseq("");
+	default:
+	    throw UNSUPPORTED;
+	}
+    }
+
+    /*
+     * Parse an optional sequence followed by a structure in (extended)
+     * dot-bracket notation or as a list of bonds.
+     */
+    private RNASecondaryStructure parseEdbnOrAas() {
+	RNASecondaryStructure s = new RNASecondaryStructure();
+	if (this.type == NUCLEOTIDES) {
+	    PackedNucleotideSequence.Builder sequence = newSequence(2);
+	    int length = 0;
+	    while (this.type == NUCLEOTIDES) {
+		if (sequence != null)
+		    for (int i = this.start; i < this.end; i++)
+			sequence.append((char) this.in.get(i));
+		length += this.end - this.start;
+		next();
+	    }
+	    setSequence(s, sequence, length);
+	}
+	if (this.type == EDBN) {
+	    s.format = RNASecondaryStructureFormat.EDBN;
+	    ExtendedDotBracketParser edbns = new ExtendedDotBracketParser(
+		    this.limit - this.start);
+	    while (this.type == EDBN) {
+		if (!isEdbn())
+		    // unrecognised nucleotide code, let ANTLR report it
+		    throw UNSUPPORTED;
+		for (int i = this.start; i < this.end; i++)
+		    edbns.append((char) this.in.get(i));
+		next();
+	    }
+	    expect(EOF);
+	    if (s.size == -1)
+		s.size = edbns.length();
+	    else if (edbns.length() != s.size)
+		throw UNSUPPORTED;
+	    edbns.addBonds(s);
+	} else if (this.type == OPEN) {
+	    s.format = RNASecondaryStructureFormat.AAS;
+	    for (;;) {
+		next();
+		int left = index();
+		next();
+		expect(COMMA);
+		next();
+		int right = index();
+		next();
+		expect(CLOSE);
+		s.addBond(left, right);
+		next();
+		if (this.type != SEMICOLON)
+		    break;
+		next();
+		expect(OPEN);
+	    }
+	    expect(EOF);
+	} else
+	    throw UNSUPPORTED;
+	s.finalise();
+	return s;
+    }
+
+    /*
+     * Check if the current EDBN token is accepted as a structure, with the
+     * same criterion of RNASecondaryStructureConstructor: it must contain a
+     * dot or a bracket, or be shorter than 5 characters.
+     */
+    private boolean isEdbn() {
+	if (this.end - this.start < 5)
+	    return true;
+	for (int i = this.start; i < this.end; i++)
+	    switch (this.in.get(i)) {
+	    case '.':
+	    case '(':
+	    case ')':
+	    case '[':
+	    case ']':
+	    case '{':
+	    case '}':
+		return true;
+	    default:
+		break;
+	    }
+	return false;
+    }
+
+    /*
+     * Parse the four header lines of BPSEQ and CT files, the first one being
+     * the current token, and return them trimmed and separated by newlines.
+     */
+    private String parseHeader() {
+	StringBuilder header = new StringBuilder();
+	for (int line = LINE1BPSEQCT; line <= LINE4BPSEQCT; line++) {
+	    expect(line);
+	    if (line > LINE1BPSEQCT)
+		header.append("\n");
+	    header.append(text().trim());
+	    next();
+	}
+	return header.toString();
+    }
+
+    /*
+     * Parse the lines of a BPSEQ file, after the optional header.
+     */
+    private RNASecondaryStructure parseBpseq(String description) {
+	RNASecondaryStructure s = new RNASecondaryStructure();
+	s.format = RNASecondaryStructureFormat.BPSEQ;
+	PackedNucleotideSequence.Builder sequence = newSequence(6);
+	int length = 0;
+	do {
+	    int left = index();
+	    next();
+	    expect(IUPAC_CODE);
+	    if (sequence != null)
+		sequence.append((char) this.in.get(this.start));
+	    length++;
+	    next();
+	    if (this.type == INDEX) {
+		int right = index();
+		if (left < right)
+		    s.addBond(left, right);
+	    } else
+		expect(ZERO);
+	    next();
+	} while (this.type == INDEX);
+	expect(EOF);
+	return complete(s, sequence, length, description);
+    }
+
+    /*
+     * Parse the fifth header line and the lines of a CT file, given the
+     * first four lines of the header, if any.
+     */
+    private RNASecondaryStructure parseCt(String header) {
+	expect(LINE5CT);
+	String description = header + text().trim();
+	next();
+	RNASecondaryStructure s = new RNASecondaryStructure();
+	s.format = RNASecondaryStructureFormat.CT;
+	PackedNucleotideSequence.Builder sequence = newSequence(20);
+	int length = 0;
+	do {
+	    int left = index();
+	    next();
+	    expect(IUPAC_CODE);
+	    if (sequence != null)
+		sequence.append((char) this.in.get(this.start));
+	    length++;
+	    // previous and next nucleotides, not used
+	    for (int field = 0; field < 2; field++) {
+		next();
+		if (this.type != INDEX)
+		    expect(ZERO);
+	    }
+	    next();
+	    if (this.type == INDEX) {
+		int right = index();
+		if (left < right)
+		    s.addBond(left, right);
+	    } else
+		expect(ZERO);
+	    // natural numbering, not used
+	    next();
+	    expect(INDEX);
+	    next();
+	} while (this.type == INDEX);
+	expect(EOF);
+	return complete(s, sequence, length, description);
+    }
+
+    /*
+     * Assign description and sequence to a structure read from a BPSEQ or CT
+     * file and finalise it.
+     */
+    private static RNASecondaryStructure complete(RNASecondaryStructure s,
+	    PackedNucleotideSequence.Builder sequence, int length,
+	    String description) {
+	s.description = description;
+	setSequence(s, sequence, length);
+	s.finalise();
+	return s;
+    }
+
+    /*
+     * Create the builder of the sequence, with a capacity estimated from the
+     * remaining input and the given number of bytes per nucleotide, or
+     * return null if the sequence is not kept.
+     */
+    private PackedNucleotideSequence.Builder newSequence(int bytesPerBase) {
+	if (!this.keepSequence)
+	    return null;
+	return new PackedNucleotideSequence.Builder(
+		(this.limit - this.start) / bytesPerBase);
+    }
+
+    /*
+     * Assign the sequence of the given length to a structure, or only its
+     * length, as it happens when the sequence is dropped, if the builder is
+     * null.
+     */
+    private static void setSequence(RNASecondaryStructure s,
+	    PackedNucleotideSequence.Builder sequence, int length) {
+	if (sequence != null)
+	    s.sequence = sequence.build();
+	else
+	    s.sequenceDropped = true;
+	s.size = length;
+    }
+
+    /*
+     * Give up if the current token is not of the given type.
+     */
+    private void expect(int tokenType) {
+	if (this.type != tokenType)
+	    throw UNSUPPORTED;
+    }
+
+    /*
+     * Return the value of the current token, that must be an INDEX; give up
+     * if it does not fit an int, as Integer.parseInt would fail.
+     */
+    private int index() {
+	expect(INDEX);
+	long value = 0;
+	for (int i = this.start; i < this.end; i++) {
+	    value = 10 * value + (this.in.get(i) - '0');
+	    if (value > Integer.MAX_VALUE)
+		throw UNSUPPORTED;
+	}
+	return (int) value;
+    }
+
+    /*
+     * Return the text of the current token, decoded as ANTLR does.
+     */
+    private String text() {
+	byte[] bytes = new byte[this.end - this.start];
+	for (int i = this.start; i < this.end; i++)
+	    bytes[i - this.start] = this.in.get(i);
+	return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /*
+     * Read the next token, skipping white space and comments, and store it
+     * in the fields type, start and end.
+     */
+    private void next() {
+	for (;;) {
+	    while (this.pos < this.limit && isWhiteSpace(this.in.get(this.pos)))
+		this.pos++;
+	    if (this.pos >= this.limit) {
+		this.type = EOF;
+		this.start = this.end = this.limit;
+		return;
+	    }
+	    if (this.pos > this.lineEnd)
+		scanLine();
+	    this.start = this.pos;
+	    int header = header();
+	    if (header != 0) {
+		/*
+		 * a header line; if the line contains also a keyword and the
+		 * header word is not at the beginning of the line ANTLR may
+		 * match LINE5CT starting from the preceding white space
+		 */
+		if (this.lineEnd == this.limit || (this.lastKeyword >= 0
+			&& this.start != this.lineStart))
+		    throw UNSUPPORTED;
+		restOfLine(header);
+		return;
+	    }
+	    if (this.start <= this.lastKeyword) {
+		restOfLine(LINE5CT);
+		return;
+	    }
+	    byte c = this.in.get(this.pos);
+	    if (c == '#') {
+		// comment, that must be terminated by a newline
+		if (this.lineEnd == this.limit)
+		    throw UNSUPPORTED;
+		this.pos = this.lineEnd + 1;
+		continue;
+	    }
+	    if (c < 0)
+		// not an ASCII character
+		throw UNSUPPORTED;
+	    if (c >= '0' && c <= '9') {
+		int i = this.pos + 1;
+		if (c != '0')
+		    while (i < this.limit && isDigit(this.in.get(i)))
+			i++;
+		// the number must be separated from the following token
+		if (i < this.limit && !isSeparator(this.in.get(i)))
+		    throw UNSUPPORTED;
+		token(c == '0' ? ZERO : INDEX, i);
+		return;
+	    }
+	    if (c == ',') {
+		token(COMMA, this.pos + 1);
+		return;
+	    }
+	    if (c == ';') {
+		token(SEMICOLON, this.pos + 1);
+		return;
+	    }
+	    int edbn = run(EDBN_CHARS);
+	    if (c == '(' || c == ')') {
+		/*
+		 * a single bracket is the literal token of the grammar, since
+		 * it is defined before EDBN
+		 */
+		if (edbn == 1)
+		    token(c == '(' ? OPEN : CLOSE, this.pos + 1);
+		else
+		    token(EDBN, this.pos + edbn);
+		return;
+	    }
+	    int nucleotides = run(NUCLEOTIDE_CHARS);
+	    if (nucleotides == 0 && edbn == 0)
+		// a lexical error
+		throw UNSUPPORTED;
+	    if (nucleotides >= edbn) {
+		// on ties IUPAC_CODE and NUCLEOTIDES are defined before EDBN
+		if (nucleotides == 1 && IUPAC_CHARS[c])
+		    token(IUPAC_CODE, this.pos + 1);
+		else
+		    token(NUCLEOTIDES, this.pos + nucleotides);
+	    } else
+		token(EDBN, this.pos + edbn);
+	    return;
+	}
+    }
+
+    /*
+     * Set the current token, from the current position to the given end.
+     */
+    private void token(int tokenType, int tokenEnd) {
+	this.type = tokenType;
+	this.end = tokenEnd;
+	this.pos = tokenEnd;
+    }
+
+    /*
+     * Set the current token as the rest of the current line, including the
+     * newline.
+     */
+    private void restOfLine(int tokenType) {
+	token(tokenType, this.lineEnd + 1);
+    }
+
+    /*
+     * Determine the limits of the line containing the current position and
+     * the position of the last keyword of LINE5CT in it.
+     */
+    private void scanLine() {
+	int i = this.pos;
+	while (i > this.lineEnd + 1 && this.in.get(i - 1) != '\n')
+	    i--;
+	this.lineStart = i;
+	this.lastKeyword = -1;
+	for (i = this.pos; i < this.limit && this.in.get(i) != '\n'; i++) {
+	    byte c = this.in.get(i);
+	    if (c == '\r' && i + 1 < this.limit && this.in.get(i + 1) != '\n')
+		// a carriage return that does not end the line
+		throw UNSUPPORTED;
+	    for (byte[] keyword : KEYWORDS)
+		if (c == keyword[0] && matches(i, keyword))
+		    this.lastKeyword = i;
+	}
+	this.lineEnd = i;
+	if (this.lineEnd == this.limit)
+	    // LINE5CT must be terminated by a newline
+	    this.lastKeyword = -1;
+    }
+
+    /*
+     * Return the type of the header line starting at the current position,
+     * 0 if there is no header word.
+     */
+    private int header() {
+	for (int k = 0; k < HEADERS.length; k++)
+	    if (matches(this.pos, HEADERS[k]))
+		return LINE1BPSEQCT + k;
+	return 0;
+    }
+
+    /*
+     * Determine if the given word occurs in the input at the given position.
+     */
+    private boolean matches(int position, byte[] word) {
+	if (position + word.length > this.limit)
+	    return false;
+	for (int k = 0; k < word.length; k++)
+	    if (this.in.get(position + k) != word[k])
+		return false;
+	return true;
+    }
+
+    /*
+     * Return the length of the longest run of characters of the given class
+     * starting at the current position.
+     */
+    private int run(boolean[] charClass) {
+	int i = this.pos;
+	while (i < this.limit) {
+	    byte c = this.in.get(i);
+	    if (c < 0 || !charClass[c])
+		break;
+	    i++;
+	}
+	return i - this.pos;
+    }
+
+    private static boolean isWhiteSpace(byte c) {
+	return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private static boolean isDigit(byte c) {
+	return c >= '0' && c <= '9';
+    }
+
+    /*
+     * Characters that can follow a number without being part of the same
+     * token or of a token that could be longer.
+     */
+    private static boolean isSeparator(byte c) {
+	return isWhiteSpace(c) || c == ',' || c == ')' || c == ';' || c == '#';
+    }
+
+    private static boolean[] charClass(String chars) {
+	boolean[] charClass = new boolean[128];
+	for (int i = 0; i < chars.length(); i++)
+	    charClass[chars.charAt(i)] = true;
+	return charClass;
+    }
+
+    private static byte[] ascii(String s) {
+	return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
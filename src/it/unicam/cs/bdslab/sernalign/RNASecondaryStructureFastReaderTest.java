@@ -0,0 +1,130 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the class RNASecondaryStructureFastReader, comparing its results
+ * with the ones of ANTLR
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class RNASecondaryStructureFastReaderTest {
+
+    // malformed inputs in each format, that ANTLR rejects
+    private static final String[] MALFORMED = {
+	    // EDBN
+	    "((...)", "(...))", "GGGAAACCC\n(((...))", "GGGAAACCC\n((..x..))",
+	    // bond list
+	    "(1,8);(2,7", "(1,8)(2,7)", "ACGUACGU\n(1,8);(2,)", "(1,2);(1,3)",
+	    "(3,2)",
+	    // BPSEQ
+	    "1 G 4\n2 A 0\n3 C 1\n", "1 G x\n2 A 0\n3 C 0\n",
+	    "1 G 0\n2 A\n3 C 0\n",
+	    "1 G 3\nA 0\n3 C 1\n",
+	    // CT
+	    "3 dG = 0.0\n1 G 0 2 3 1\n2 A 1 3 0 2\n3 C 2 4 1\n",
+	    "3 ENERGY = 0.0\n1 G 0 2 3 1\n2 A 1 3 0 2\nC 2 4 1 3\n" };
+
+    /*
+     * List the files of the test and examples folders and of their
+     * subfolders.
+     */
+    private static List<File> listFiles(File folder) {
+	List<File> files = new ArrayList<>();
+	for (File f : folder.listFiles())
+	    if (f.isDirectory())
+		files.addAll(listFiles(f));
+	    else
+		files.add(f);
+	Collections.sort(files);
+	return files;
+    }
+
+    @Test
+    void testSameResultsAsAntlr() throws IOException {
+	RNASecondaryStructureReader reader = new RNASecondaryStructureReader();
+	List<File> files = listFiles(new File("test"));
+	files.addAll(listFiles(new File("examples")));
+	int read = 0;
+	for (File f : files) {
+	    ByteBuffer content = ByteBuffer
+		    .wrap(Files.readAllBytes(f.toPath()));
+	    RNASecondaryStructure expected;
+	    try {
+		expected = reader.readWithAntlr(content, f.getPath());
+	    } catch (RNAInputFileParserException e) {
+		// not a structure, the fast reader must give up
+		assertNull(RNASecondaryStructureFastReader.read(content),
+			f.getPath());
+		continue;
+	    }
+	    RNASecondaryStructure s = RNASecondaryStructureFastReader
+		    .read(content);
+	    assertNotNull(s, f.getPath());
+	    assertEquals(expected.getSize(), s.getSize(), f.getPath());
+	    assertEquals(expected.getBonds(), s.getBonds(), f.getPath());
+	    assertEquals(expected.getSequence(), s.getSequence(), f.getPath());
+	    assertEquals(expected.getDescription(), s.getDescription(),
+		    f.getPath());
+	    // the content has not been consumed
+	    assertEquals(0, content.position());
+	    read++;
+	}
+	assertEquals(true, read > 0);
+    }
+
+    @Test
+    void testMalformedInputs() throws IOException {
+	RNASecondaryStructureReader reader = new RNASecondaryStructureReader();
+	for (String text : MALFORMED) {
+	    ByteBuffer content = ByteBuffer
+		    .wrap(text.getBytes(StandardCharsets.UTF_8));
+	    assertNull(RNASecondaryStructureFastReader.read(content), text);
+	    // the structure is read with ANTLR, with its error messages
+	    RNAInputFileParserException expected = assertThrows(
+		    RNAInputFileParserException.class,
+		    () -> reader.readWithAntlr(content, "text"), text);
+	    RNAInputFileParserException e = assertThrows(
+		    RNAInputFileParserException.class,
+		    () -> reader.read(content, "text", null, true), text);
+	    assertEquals(expected.getMessage(), e.getMessage(), text);
+	}
+    }
+}
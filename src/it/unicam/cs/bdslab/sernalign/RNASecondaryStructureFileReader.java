@@ -23,22 +23,34 @@
 package it.unicam.cs.bdslab.sernalign;
 
 import java.io.IOException;
-
-import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * Container class for the static method to read an RNA secondary structure
- * from a file using ANTLR 4.
+ * from a file using ANTLR 4. Files are first given to the hand-written
+ * {@link RNASecondaryStructureFastReader}; ANTLR is used only for the files
+ * that it does not handle, e.g., files containing errors.
+ * 
+ * Files compressed with gzip and entries of archives, named as
+ * "archive!/entry", are read directly (see {@link RNAInputFiles}).
+ * Structures can also be read from streams, channels, readers and texts in
+ * memory, e.g., from the standard input, without writing them to a file.
+ * 
+ * Each thread reads with its own {@link RNASecondaryStructureReader}, that
+ * is reused for all the files read by the thread and parses with SLL
+ * prediction first.
  * 
  * @author Luca Tesei
  *
  */
 public class RNASecondaryStructureFileReader {
 
+    // the reader of each thread
+    private static final ThreadLocal<RNASecondaryStructureReader> READER = ThreadLocal
+	    .withInitial(() -> new RNASecondaryStructureReader(true));
+
     /**
      * Use ANTLR 4 and the grammar defined for RNA Secondary Structures to
      * read a secondary structure from a file.
@@ -54,36 +66,231 @@ public class RNASecondaryStructureFileReader {
      */
     public static RNASecondaryStructure readStructure(String fileName,
 	    boolean basePairsCheck) throws IOException {
-	// create a CharStream that reads from the input file
-	CharStream input = CharStreams.fromFileName(fileName);
-	// create a lexer that feeds off of input CharStream
-	RNASecondaryStructureLexer lexer = new RNASecondaryStructureLexer(
-		input);
-	// create a buffer of tokens pulled from the lexer
-	CommonTokenStream tokens = new CommonTokenStream(lexer);
-	// create a parser that feeds off the tokens buffer
-	RNASecondaryStructureParser structureParser = new RNASecondaryStructureParser(
-		tokens);
-	// remove default error listeners
-	structureParser.removeErrorListeners();
-	// add an error listener that throws an RNAInputFileParserException
-	// upon syntax errors
-	structureParser.addErrorListener(
-		new RNASecondaryStructureFileReaderErrorListener());
-	// begin parsing at rna rule
-	ParseTree tree = structureParser.rna();
-	// Create a generic parse tree walker that can trigger callbacks
-	ParseTreeWalker walker = new ParseTreeWalker();
-	// Create the specialised listener for the RNA secondary structure
-	RNASecondaryStructureConstructor constructor = new RNASecondaryStructureConstructor();
-	// Walk the tree created during the parse, trigger callbacks
-	walker.walk(constructor, tree);
-	// Get the parsed secondary structure
-	RNASecondaryStructure secondaryStructure = constructor.getS();
-	// check base pairs if needed
-	if (basePairsCheck)
-	    secondaryStructure.checkBasePairs();
-	// Return the structure
-	return secondaryStructure;
+	return readStructure(fileName, basePairsCheck, true);
+    }
+
+    /**
+     * Use ANTLR 4 and the grammar defined for RNA Secondary Structures to
+     * read a secondary structure from a file, possibly dropping the primary
+     * sequence after parsing and checking it.
+     * 
+     * @param fileName       the name of the file to read
+     * @param basePairsCheck flag to indicate if the base pairs should be
+     *                       checked
+     * @param keepSequence   flag to indicate if the primary sequence should
+     *                       be kept in the returned structure; if false the
+     *                       sequence is dropped (see
+     *                       {@link RNASecondaryStructure#dropSequence()})
+     * @throws IOException                 if the specified file cannot be
+     *                                     read
+     * @throws RNAInputFileParserException if the file contains lexical or
+     *                                     syntax errors in the definition of
+     *                                     the secondary structure
+     */
+    public static RNASecondaryStructure readStructure(String fileName,
+	    boolean basePairsCheck, boolean keepSequence) throws IOException {
+	return readStructure(fileName,
+		basePairsCheck ? BasePairValidator.WATSON_CRICK_WOBBLE : null,
+		keepSequence);
+    }
+
+    /**
+     * Use ANTLR 4 and the grammar defined for RNA Secondary Structures to
+     * read a secondary structure from a file, checking its base pairs with a
+     * given validator and possibly dropping the primary sequence after
+     * parsing and checking it.
+     * 
+     * @param fileName     the name of the file to read
+     * @param validator    the validator of the base pairs, or null if the
+     *                     base pairs should not be checked
+     * @param keepSequence flag to indicate if the primary sequence should be
+     *                     kept in the returned structure
+     * @throws IOException                 if the specified file cannot be
+     *                                     read
+     * @throws RNAInputFileParserException if the file contains lexical or
+     *                                     syntax errors in the definition of
+     *                                     the secondary structure or a base
+     *                                     pair not allowed by the validator
+     */
+    public static RNASecondaryStructure readStructure(String fileName,
+	    BasePairValidator validator, boolean keepSequence)
+	    throws IOException {
+	return READER.get().read(fileName, validator, keepSequence);
+    }
+
+    /**
+     * Use ANTLR 4 and the grammar defined for RNA Secondary Structures to
+     * read a secondary structure from all the bytes of a stream, e.g., the
+     * standard input, checking its base pairs with a given validator and
+     * possibly dropping the primary sequence after parsing and checking it.
+     * The stream is not closed.
+     * 
+     * @param input        the stream to read
+     * @param sourceName   the name of the source of the structure, e.g.,
+     *                     the name of the file it comes from
+     * @param validator    the validator of the base pairs, or null if the
+     *                     base pairs should not be checked
+     * @param keepSequence flag to indicate if the primary sequence should be
+     *                     kept in the returned structure
+     * @throws IOException                 if the stream cannot be read
+     * @throws RNAInputFileParserException if the structure contains lexical
+     *                                     or syntax errors or a base pair
+     *                                     not allowed by the validator
+     */
+    public static RNASecondaryStructure readStructure(InputStream input,
+	    String sourceName, BasePairValidator validator,
+	    boolean keepSequence) throws IOException {
+	return READER.get().read(input, sourceName, validator, keepSequence);
+    }
+
+    /**
+     * Use ANTLR 4 and the grammar defined for RNA Secondary Structures to
+     * read a secondary structure from all the bytes of a channel, checking
+     * its base pairs with a given validator and possibly dropping the
+     * primary sequence after parsing and checking it. The channel is not
+     * closed.
+     * 
+     * @param channel      the channel to read
+     * @param sourceName   the name of the source of the structure, e.g.,
+     *                     the name of the file it comes from
+     * @param validator    the validator of the base pairs, or null if the
+     *                     base pairs should not be checked
+     * @param keepSequence flag to indicate if the primary sequence should be
+     *                     kept in the returned structure
+     * @throws IOException                 if the channel cannot be read
+     * @throws RNAInputFileParserException if the structure contains lexical
+     *                                     or syntax errors or a base pair
+     *                                     not allowed by the validator
+     */
+    public static RNASecondaryStructure readStructure(
+	    ReadableByteChannel channel, String sourceName,
+	    BasePairValidator validator, boolean keepSequence)
+	    throws IOException {
+	return READER.get().read(channel, sourceName, validator, keepSequence);
+    }
+
+    /**
+     * Use ANTLR 4 and the grammar defined for RNA Secondary Structures to
+     * read a secondary structure from all the characters of a reader,
+     * checking its base pairs with a given validator and possibly dropping
+     * the primary sequence after parsing and checking it. The reader is not
+     * closed.
+     * 
+     * @param reader       the reader to read
+     * @param sourceName   the name of the source of the structure, e.g.,
+     *                     the name of the file it comes from
+     * @param validator    the validator of the base pairs, or null if the
+     *                     base pairs should not be checked
+     * @param keepSequence flag to indicate if the primary sequence should be
+     *                     kept in the returned structure
+     * @throws IOException                 if the reader cannot be read
+     * @throws RNAInputFileParserException if the structure contains lexical
+     *                                     or syntax errors or a base pair
+     *                                     not allowed by the validator
+     */
+    public static RNASecondaryStructure readStructure(Reader reader,
+	    String sourceName, BasePairValidator validator,
+	    boolean keepSequence) throws IOException {
+	return READER.get().read(reader, sourceName, validator, keepSequence);
+    }
+
+    /**
+     * Use ANTLR 4 and the grammar defined for RNA Secondary Structures to
+     * read a secondary structure from a text in memory, checking its base
+     * pairs with a given validator and possibly dropping the primary
+     * sequence after parsing and checking it.
+     * 
+     * @param text         the text containing the structure
+     * @param sourceName   the name of the source of the structure, e.g.,
+     *                     the name of the file it comes from
+     * @param validator    the validator of the base pairs, or null if the
+     *                     base pairs should not be checked
+     * @param keepSequence flag to indicate if the primary sequence should be
+     *                     kept in the returned structure
+     * @throws IOException                 if the text cannot be decoded
+     * @throws RNAInputFileParserException if the structure contains lexical
+     *                                     or syntax errors or a base pair
+     *                                     not allowed by the validator
+     */
+    public static RNASecondaryStructure readStructure(CharSequence text,
+	    String sourceName, BasePairValidator validator,
+	    boolean keepSequence) throws IOException {
+	return READER.get().read(text, sourceName, validator, keepSequence);
+    }
+
+    /**
+     * Read a secondary structure from a file and return its structural
+     * sequence. The primary sequence is not built and the weak bonds are
+     * dropped after building the structural sequence: the structure returned
+     * by {@link StructuralSequence#getSecondaryStructure()} retains only its
+     * size, number of bonds, description and crossing statistics (see
+     * {@link RNASecondaryStructure#dropBonds()}).
+     * 
+     * @param fileName  the name of the file to read
+     * @param validator the validator of the base pairs, or null if the base
+     *                  pairs should not be checked
+     * @return the structural sequence of the secondary structure in the file
+     * @throws IOException                 if the specified file cannot be
+     *                                     read
+     * @throws RNAInputFileParserException if the file contains lexical or
+     *                                     syntax errors in the definition of
+     *                                     the secondary structure or a base
+     *                                     pair not allowed by the validator
+     */
+    public static StructuralSequence readStructuralSequence(String fileName,
+	    BasePairValidator validator) throws IOException {
+	RNASecondaryStructure secondaryStructure = readStructure(fileName,
+		validator, false);
+	StructuralSequence structuralSequence = new StructuralSequence(
+		secondaryStructure);
+	secondaryStructure.dropBonds();
+	return structuralSequence;
+    }
+
+    /**
+     * Open a file that may contain many secondary structures, to read them
+     * one at a time (see {@link RNASecondaryStructureRecordReader}). The
+     * records are read with the reader of the calling thread, thus the
+     * returned record reader must be used by the calling thread only.
+     * 
+     * @param fileName     the name of the file to read
+     * @param validator    the validator of the base pairs, or null if the
+     *                     base pairs should not be checked
+     * @param keepSequence flag to indicate if the primary sequence should be
+     *                     kept in the returned structures
+     * @return a record reader positioned on the first record of the file
+     * @throws IOException if the specified file cannot be read
+     */
+    public static RNASecondaryStructureRecordReader openRecords(
+	    String fileName, BasePairValidator validator, boolean keepSequence)
+	    throws IOException {
+	return new RNASecondaryStructureRecordReader(READER.get(), fileName,
+		validator, keepSequence);
+    }
+
+    /**
+     * Read the secondary structures contained in the bytes read from a
+     * channel one at a time (see {@link RNASecondaryStructureRecordReader}),
+     * e.g., the content of an entry of an archive. The records are read with
+     * the reader of the calling thread, thus the returned record reader must
+     * be used by the calling thread only.
+     * 
+     * @param channel      the channel to read, closed when the record reader
+     *                     is closed
+     * @param sourceName   the name of the source of the bytes, e.g., the
+     *                     name of the file they come from
+     * @param validator    the validator of the base pairs, or null if the
+     *                     base pairs should not be checked
+     * @param keepSequence flag to indicate if the primary sequence should be
+     *                     kept in the returned structures
+     * @return a record reader positioned on the first record
+     * @throws IOException if the channel cannot be read
+     */
+    public static RNASecondaryStructureRecordReader openRecords(
+	    ReadableByteChannel channel, String sourceName,
+	    BasePairValidator validator, boolean keepSequence)
+	    throws IOException {
+	return new RNASecondaryStructureRecordReader(READER.get(), channel,
+		sourceName, validator, keepSequence);
     }
 }
@@ -0,0 +1,204 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the class RNASecondaryStructureFileReader
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class RNASecondaryStructureFileReaderTest {
+
+    /*
+     * structures read one after the other by the same reader: errors,
+     * structures that are not handled by the fast reader and structures
+     * whose format is detected wrongly, thus the parse from the entry rule
+     * of the format bails out and is retried from rna with LL
+     */
+    private static final String[] SEQUENCE = { "GGGAAACCC\n(((...))",
+	    "4GGAAACC\n((....))", "1 G 4\n2 A 0\n3 C 1\n",
+	    "(((...)))\nGGGAAACCC", "GGGAAACCC\n(1,9);(2,8);",
+	    "4GGAAACC\n((....)))", "7GAAACCC\n((....))",
+	    "GGGAAACCC\n(((...)))", "(1,2);(1,3)", "4GGAAACC\n((....))" };
+
+    @Test
+    void testReadFromMemory() throws IOException {
+	String fileName = "test/CRW_5S_A_C_20.db";
+	RNASecondaryStructure expected = RNASecondaryStructureFileReader
+		.readStructure(fileName, false);
+	byte[] bytes = Files.readAllBytes(Paths.get(fileName));
+	String text = new String(bytes, StandardCharsets.UTF_8);
+	RNASecondaryStructure[] read = {
+		RNASecondaryStructureFileReader.readStructure(
+			new ByteArrayInputStream(bytes), fileName, null, true),
+		RNASecondaryStructureFileReader.readStructure(
+			Channels.newChannel(new ByteArrayInputStream(bytes)),
+			fileName, null, true),
+		RNASecondaryStructureFileReader.readStructure(
+			new StringReader(text), fileName, null, true),
+		RNASecondaryStructureFileReader.readStructure(text, fileName,
+			null, true) };
+	for (RNASecondaryStructure s : read) {
+	    assertEquals(expected.getSequence(), s.getSequence());
+	    assertEquals(expected.getSize(), s.getSize());
+	    assertEquals(expected.getBonds(), s.getBonds());
+	}
+    }
+
+    @Test
+    void testReaderReuse() throws IOException {
+	// the sequence of nucleotides begins with a digit, like BPSEQ lines
+	assertEquals(RNASecondaryStructureFormat.BPSEQ,
+		RNASecondaryStructureFormat.detect(ByteBuffer.wrap(
+			SEQUENCE[1].getBytes(StandardCharsets.US_ASCII))));
+	RNASecondaryStructureReader reader = new RNASecondaryStructureReader(
+		true);
+	for (String text : SEQUENCE) {
+	    // the result of a new reader parsing with LL from rna only
+	    String expected = read(() -> new RNASecondaryStructureReader()
+		    .readWithAntlr(ByteBuffer.wrap(
+			    text.getBytes(StandardCharsets.US_ASCII)),
+			    "text"));
+	    assertEquals(expected, read(() -> reader.read(
+		    new ByteArrayInputStream(
+			    text.getBytes(StandardCharsets.US_ASCII)),
+		    "text", null, true)), text);
+	    // the reader of this thread
+	    assertEquals(expected, read(() -> RNASecondaryStructureFileReader
+		    .readStructure(text, "text", null, true)), text);
+	}
+	// a file after an error
+	String fileName = "test/CRW_5S_A_C_20.db";
+	String expected = read(() -> new RNASecondaryStructureReader()
+		.read(fileName, null, true));
+	assertEquals(expected, read(() -> reader.read(fileName, null, true)));
+	assertEquals(expected, read(() -> RNASecondaryStructureFileReader
+		.readStructure(fileName, null, true)));
+    }
+
+    @Test
+    void testLargeStructures() throws Throwable {
+	/*
+	 * nested bonds, in short lines where allowed: the lexer looks for the
+	 * keywords of the CT header line up to the end of the line at each
+	 * token
+	 */
+	int bonds = 20000;
+	int size = 2 * bonds + 3;
+	StringBuilder sequence = new StringBuilder();
+	StringBuilder edbn = new StringBuilder();
+	for (int i = 1; i <= size; i++) {
+	    sequence.append(i <= bonds ? 'G' : i > size - bonds ? 'C' : 'A');
+	    edbn.append(i <= bonds ? '(' : i > size - bonds ? ')' : '.');
+	    if (i % 50 == 0) {
+		sequence.append('\n');
+		edbn.append('\n');
+	    }
+	}
+	StringBuilder list = new StringBuilder();
+	StringBuilder bpseq = new StringBuilder();
+	StringBuilder ct = new StringBuilder(size + " dG = 0.0 large\n");
+	for (int i = 1; i <= size; i++) {
+	    int j = i <= bonds ? size - i + 1 : i > size - bonds ? size - i + 1
+		    : 0;
+	    char c = i <= bonds ? 'G' : i > size - bonds ? 'C' : 'A';
+	    if (i > 1 && i <= bonds)
+		list.append(i % 10 == 1 ? ";\n" : ";");
+	    if (i <= bonds)
+		list.append("(" + i + "," + j + ")");
+	    bpseq.append(i + " " + c + " " + j + "\n");
+	    ct.append(i + " " + c + " " + (i - 1) + " " + (i + 1) % (size + 1)
+		    + " " + j + " " + i + "\n");
+	}
+	String[] texts = { sequence + "\n" + edbn, sequence + "\n" + list,
+		bpseq.toString(), ct.toString() };
+	/*
+	 * parse with ANTLR in a thread with a small stack, that is enough
+	 * because the parse trees of the sequences of nucleotides, EDBN
+	 * tokens, bonds and lines are not deep
+	 */
+	Throwable[] error = new Throwable[1];
+	Thread thread = new Thread(null, () -> {
+	    try {
+		RNASecondaryStructureReader reader = new RNASecondaryStructureReader();
+		for (String text : texts) {
+		    RNASecondaryStructure s = reader.readWithAntlr(
+			    ByteBuffer.wrap(
+				    text.getBytes(StandardCharsets.US_ASCII)),
+			    "large");
+		    assertEquals(size, s.getSize());
+		    assertEquals(bonds, s.getNumberOfBonds());
+		    assertEquals(1, s.getBondLeft(bonds - 1));
+		    assertEquals(size, s.getBondRight(bonds - 1));
+		    if (s.getSequence() != null)
+			assertEquals(sequence.toString().replace("\n", ""),
+				s.getSequence());
+		}
+	    } catch (Throwable e) {
+		error[0] = e;
+	    }
+	}, "large", 1 << 18);
+	thread.start();
+	thread.join();
+	if (error[0] != null)
+	    throw error[0];
+    }
+
+    @Test
+    void testReadErrorFromMemory() {
+	assertThrows(RNAInputFileParserException.class,
+		() -> RNASecondaryStructureFileReader.readStructure("((..)",
+			"text", null, false));
+    }
+
+    private interface Read {
+	RNASecondaryStructure read() throws IOException;
+    }
+
+    /*
+     * Describe the structure read or the error message.
+     */
+    private static String read(Read read) throws IOException {
+	try {
+	    RNASecondaryStructure s = read.read();
+	    return s.getSize() + " " + s.getBonds() + " " + s.getSequence();
+	} catch (RNAInputFileParserException e) {
+	    return e.getMessage();
+	}
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The formats of the files containing an RNA secondary structure. The format
+ * of a file can be detected cheaply on its bytes with
+ * {@link #detect(ByteBuffer)}, looking only at its first significant lines,
+ * so that the file can be parsed directly with the parse entry point of its
+ * format.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+public enum RNASecondaryStructureFormat {
+    /**
+     * Extended Dot-Bracket Notation, with or without the sequence.
+     */
+    EDBN,
+    /**
+     * Arc Annotated Sequence, with or without the sequence.
+     */
+    AAS,
+    /**
+     * BPSEQ format, with or without header.
+     */
+    BPSEQ,
+    /**
+     * CT format, with or without header.
+     */
+    CT;
+
+    // keywords of the CT header line
+    private static final byte[][] KEYWORDS = { ascii("ENERGY"),
+	    ascii("Energy"), ascii("dG") };
+
+    // the first word of the first line of the BPSEQ and CT headers
+    private static final byte[] FILENAME = ascii("Filename");
+
+    // number of header lines before the CT header line
+    private static final int HEADER_LINES = 4;
+
+    /**
+     * Detect the format of the structure contained in the bytes of a buffer,
+     * between its current position and its limit, looking at its first
+     * significant lines, i.e., lines that are not blank and are not
+     * comments. The position of the buffer is not changed.
+     * 
+     * The format is only a guess, made to choose the parse entry point: if
+     * the content is not correct for the detected format it must be parsed
+     * as a file of unknown format.
+     * 
+     * @param content the bytes containing one secondary structure
+     * @return the format of the structure, or null if the content has no
+     *         significant lines
+     */
+    public static RNASecondaryStructureFormat detect(ByteBuffer content) {
+	int limit = content.limit();
+	int pos = content.position();
+	// number of lines of the BPSEQ/CT header seen so far
+	int headerLines = 0;
+	// true if a line of nucleotides has been seen
+	boolean nucleotides = false;
+	while (pos < limit) {
+	    // find the limits of the current line
+	    int start = pos;
+	    int end = start;
+	    while (end < limit && content.get(end) != '\n')
+		end++;
+	    pos = end + 1;
+	    // skip leading white space
+	    while (start < end && isWhiteSpace(content.get(start)))
+		start++;
+	    if (start == end || content.get(start) == '#')
+		// blank line or comment
+		continue;
+	    if (headerLines == 0 && matches(content, start, end, FILENAME)) {
+		// BPSEQ or CT header, the fifth line tells them apart
+		headerLines = 1;
+		continue;
+	    }
+	    if (headerLines > 0 && headerLines < HEADER_LINES) {
+		headerLines++;
+		continue;
+	    }
+	    if (containsKeyword(content, start, end))
+		return CT;
+	    if (headerLines > 0)
+		return BPSEQ;
+	    byte c = content.get(start);
+	    if (isDigit(c))
+		return BPSEQ;
+	    if (c == '(') {
+		// a bond of an AAS or a bracket of an EDBN
+		int next = start + 1;
+		while (next < end && isWhiteSpace(content.get(next)))
+		    next++;
+		return next < end && isDigit(content.get(next)) ? AAS : EDBN;
+	    }
+	    if (containsStructureChar(content, start, end))
+		return EDBN;
+	    // a line of nucleotides or a short structure, look at the next
+	    // line
+	    nucleotides = true;
+	}
+	if (headerLines > 0)
+	    // an incomplete header
+	    return BPSEQ;
+	return nucleotides ? EDBN : null;
+    }
+
+    /*
+     * Check if a line contains one of the keywords of the CT header line.
+     */
+    private static boolean containsKeyword(ByteBuffer content, int start,
+	    int end) {
+	for (int i = start; i < end; i++)
+	    for (byte[] keyword : KEYWORDS)
+		if (matches(content, i, end, keyword))
+		    return true;
+	return false;
+    }
+
+    /*
+     * Check if a line contains a character that can only be part of a
+     * structure in dot-bracket notation.
+     */
+    private static boolean containsStructureChar(ByteBuffer content,
+	    int start, int end) {
+	for (int i = start; i < end; i++)
+	    switch (content.get(i)) {
+	    case '.':
+	    case '(':
+	    case ')':
+	    case '{':
+	    case '}':
+	    case '<':
+	    case '>':
+		return true;
+	    default:
+		break;
+	    }
+	return false;
+    }
+
+    /*
+     * Check if the bytes starting at a given position match a word.
+     */
+    private static boolean matches(ByteBuffer content, int start, int end,
+	    byte[] word) {
+	if (end - start < word.length)
+	    return false;
+	for (int k = 0; k < word.length; k++)
+	    if (content.get(start + k) != word[k])
+		return false;
+	return true;
+    }
+
+    private static boolean isWhiteSpace(byte c) {
+	return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    private static boolean isDigit(byte c) {
+	return c >= '0' && c <= '9';
+    }
+
+    private static byte[] ascii(String s) {
+	byte[] bytes = new byte[s.length()];
+	for (int i = 0; i < s.length(); i++)
+	    bytes[i] = (byte) s.charAt(i);
+	return bytes;
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the enum RNASecondaryStructureFormat
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class RNASecondaryStructureFormatTest {
+
+    private static RNASecondaryStructureFormat detect(String text) {
+	return RNASecondaryStructureFormat
+		.detect(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testDetect() {
+	assertEquals(RNASecondaryStructureFormat.EDBN,
+		detect("# comment\nACGU\n((..))\n"));
+	assertEquals(RNASecondaryStructureFormat.EDBN, detect("((..))"));
+	assertEquals(RNASecondaryStructureFormat.AAS,
+		detect("ACGUACGU\n(1,4);(5,8)\n"));
+	assertEquals(RNASecondaryStructureFormat.AAS, detect("( 1, 4)"));
+	assertEquals(RNASecondaryStructureFormat.BPSEQ,
+		detect("1 G 3\n2 A 0\n3 C 1\n"));
+	assertEquals(RNASecondaryStructureFormat.BPSEQ,
+		detect("Filename: x\nOrganism: y\nAccession Number: z\n"
+			+ "Citation and related information\n1 G 3\n"));
+	assertEquals(RNASecondaryStructureFormat.CT,
+		detect("Filename: x\nOrganism: y\nAccession Number: z\n"
+			+ "Citation and related information\n"
+			+ " 3 dG = 0.00\n1 G 0 2 3 1\n"));
+	assertEquals(RNASecondaryStructureFormat.CT,
+		detect("3 ENERGY = -1.0 x\n1 G 0 2 3 1\n"));
+	assertNull(detect("# only a comment\n\n"));
+    }
+
+    @Test
+    void testFormatOfReadStructures() throws IOException {
+	assertEquals(RNASecondaryStructureFormat.EDBN,
+		RNASecondaryStructureFileReader
+			.readStructure("test/CRW_5S_A_C_20.db", false)
+			.getFormat());
+	assertEquals(RNASecondaryStructureFormat.AAS,
+		RNASecondaryStructureFileReader
+			.readStructure("test/seq1.aas.txt", false).getFormat());
+    }
+}
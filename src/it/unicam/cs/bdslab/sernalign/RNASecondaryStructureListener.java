@@ -60,38 +60,20 @@ public interface RNASecondaryStructureListener extends ParseTreeListener {
     void exitCtFormat(RNASecondaryStructureParser.CtFormatContext ctx);
 
     /**
-     * Enter a parse tree produced by the {@code sequenceContinue} labeled
-     * alternative in {@link RNASecondaryStructureParser#sequence}.
-     * 
-     * @param ctx the parse tree
-     */
-    void enterSequenceContinue(
-	    RNASecondaryStructureParser.SequenceContinueContext ctx);
-
-    /**
-     * Exit a parse tree produced by the {@code sequenceContinue} labeled
-     * alternative in {@link RNASecondaryStructureParser#sequence}.
-     * 
-     * @param ctx the parse tree
-     */
-    void exitSequenceContinue(
-	    RNASecondaryStructureParser.SequenceContinueContext ctx);
-
-    /**
-     * Enter a parse tree produced by the {@code sequenceEnd} labeled
-     * alternative in {@link RNASecondaryStructureParser#sequence}.
+     * Enter a parse tree produced by
+     * {@link RNASecondaryStructureParser#sequence}.
      * 
      * @param ctx the parse tree
      */
-    void enterSequenceEnd(RNASecondaryStructureParser.SequenceEndContext ctx);
+    void enterSequence(RNASecondaryStructureParser.SequenceContext ctx);
 
     /**
-     * Exit a parse tree produced by the {@code sequenceEnd} labeled
-     * alternative in {@link RNASecondaryStructureParser#sequence}.
+     * Exit a parse tree produced by
+     * {@link RNASecondaryStructureParser#sequence}.
      * 
      * @param ctx the parse tree
      */
-    void exitSequenceEnd(RNASecondaryStructureParser.SequenceEndContext ctx);
+    void exitSequence(RNASecondaryStructureParser.SequenceContext ctx);
 
     /**
      * Enter a parse tree produced by the {@code rnaEdbn} labeled alternative
@@ -126,72 +108,36 @@ public interface RNASecondaryStructureListener extends ParseTreeListener {
     void exitRnaAas(RNASecondaryStructureParser.RnaAasContext ctx);
 
     /**
-     * Enter a parse tree produced by the {@code edbnsContinue} labeled
-     * alternative in {@link RNASecondaryStructureParser#edbns}.
-     * 
-     * @param ctx the parse tree
-     */
-    void enterEdbnsContinue(
-	    RNASecondaryStructureParser.EdbnsContinueContext ctx);
-
-    /**
-     * Exit a parse tree produced by the {@code edbnsContinue} labeled
-     * alternative in {@link RNASecondaryStructureParser#edbns}.
-     * 
-     * @param ctx the parse tree
-     */
-    void exitEdbnsContinue(
-	    RNASecondaryStructureParser.EdbnsContinueContext ctx);
-
-    /**
-     * Enter a parse tree produced by the {@code edbnsEnd} labeled alternative
-     * in {@link RNASecondaryStructureParser#edbns}.
-     * 
-     * @param ctx the parse tree
-     */
-    void enterEdbnsEnd(RNASecondaryStructureParser.EdbnsEndContext ctx);
-
-    /**
-     * Exit a parse tree produced by the {@code edbnsEnd} labeled alternative
-     * in {@link RNASecondaryStructureParser#edbns}.
-     * 
-     * @param ctx the parse tree
-     */
-    void exitEdbnsEnd(RNASecondaryStructureParser.EdbnsEndContext ctx);
-
-    /**
-     * Enter a parse tree produced by the {@code bondsContinue} labeled
-     * alternative in {@link RNASecondaryStructureParser#bonds}.
+     * Enter a parse tree produced by
+     * {@link RNASecondaryStructureParser#edbns}.
      * 
      * @param ctx the parse tree
      */
-    void enterBondsContinue(
-	    RNASecondaryStructureParser.BondsContinueContext ctx);
+    void enterEdbns(RNASecondaryStructureParser.EdbnsContext ctx);
 
     /**
-     * Exit a parse tree produced by the {@code bondsContinue} labeled
-     * alternative in {@link RNASecondaryStructureParser#bonds}.
+     * Exit a parse tree produced by
+     * {@link RNASecondaryStructureParser#edbns}.
      * 
      * @param ctx the parse tree
      */
-    void exitBondsContinue(
-	    RNASecondaryStructureParser.BondsContinueContext ctx);
+    void exitEdbns(RNASecondaryStructureParser.EdbnsContext ctx);
 
     /**
-     * Enter a parse tree produced by the {@code bondsEnd} labeled alternative
-     * in {@link RNASecondaryStructureParser#bonds}.
+     * Enter a parse tree produced by
+     * {@link RNASecondaryStructureParser#bonds}.
      * 
      * @param ctx the parse tree
      */
-    void enterBondsEnd(RNASecondaryStructureParser.BondsEndContext ctx);
+    void enterBonds(RNASecondaryStructureParser.BondsContext ctx);
 
     /**
-     * Exit a parse tree produced by the {@code bondsEnd} labeled alternative
-     * in {@link RNASecondaryStructureParser#bonds}.
+     * Exit a parse tree produced by
+     * {@link RNASecondaryStructureParser#bonds}.
      * 
      * @param ctx the parse tree
      */
-    void exitBondsEnd(RNASecondaryStructureParser.BondsEndContext ctx);
+    void exitBonds(RNASecondaryStructureParser.BondsContext ctx);
 
     /**
      * Enter a parse tree produced by
@@ -225,36 +171,20 @@ public interface RNASecondaryStructureListener extends ParseTreeListener {
     void exitBpseq(RNASecondaryStructureParser.BpseqContext ctx);
 
     /**
-     * Enter a parse tree produced by the {@code bpseqSeq} labeled alternative
-     * in {@link RNASecondaryStructureParser#bpseqinfo}.
-     * 
-     * @param ctx the parse tree
-     */
-    void enterBpseqSeq(RNASecondaryStructureParser.BpseqSeqContext ctx);
-
-    /**
-     * Exit a parse tree produced by the {@code bpseqSeq} labeled alternative
-     * in {@link RNASecondaryStructureParser#bpseqinfo}.
-     * 
-     * @param ctx the parse tree
-     */
-    void exitBpseqSeq(RNASecondaryStructureParser.BpseqSeqContext ctx);
-
-    /**
-     * Enter a parse tree produced by the {@code bpseqLast} labeled
-     * alternative in {@link RNASecondaryStructureParser#bpseqinfo}.
+     * Enter a parse tree produced by
+     * {@link RNASecondaryStructureParser#bpseqinfo}.
      * 
      * @param ctx the parse tree
      */
-    void enterBpseqLast(RNASecondaryStructureParser.BpseqLastContext ctx);
+    void enterBpseqinfo(RNASecondaryStructureParser.BpseqinfoContext ctx);
 
     /**
-     * Exit a parse tree produced by the {@code bpseqLast} labeled alternative
-     * in {@link RNASecondaryStructureParser#bpseqinfo}.
+     * Exit a parse tree produced by
+     * {@link RNASecondaryStructureParser#bpseqinfo}.
      * 
      * @param ctx the parse tree
      */
-    void exitBpseqLast(RNASecondaryStructureParser.BpseqLastContext ctx);
+    void exitBpseqinfo(RNASecondaryStructureParser.BpseqinfoContext ctx);
 
     /**
      * Enter a parse tree produced by the {@code bpseqLineUnpaired} labeled
@@ -307,36 +237,20 @@ public interface RNASecondaryStructureListener extends ParseTreeListener {
     void exitCt(RNASecondaryStructureParser.CtContext ctx);
 
     /**
-     * Enter a parse tree produced by the {@code ctSeq} labeled alternative in
-     * {@link RNASecondaryStructureParser#ctinfo}.
-     * 
-     * @param ctx the parse tree
-     */
-    void enterCtSeq(RNASecondaryStructureParser.CtSeqContext ctx);
-
-    /**
-     * Exit a parse tree produced by the {@code ctSeq} labeled alternative in
+     * Enter a parse tree produced by
      * {@link RNASecondaryStructureParser#ctinfo}.
      * 
      * @param ctx the parse tree
      */
-    void exitCtSeq(RNASecondaryStructureParser.CtSeqContext ctx);
+    void enterCtinfo(RNASecondaryStructureParser.CtinfoContext ctx);
 
     /**
-     * Enter a parse tree produced by the {@code ctLast} labeled alternative
-     * in {@link RNASecondaryStructureParser#ctinfo}.
-     * 
-     * @param ctx the parse tree
-     */
-    void enterCtLast(RNASecondaryStructureParser.CtLastContext ctx);
-
-    /**
-     * Exit a parse tree produced by the {@code ctLast} labeled alternative in
+     * Exit a parse tree produced by
      * {@link RNASecondaryStructureParser#ctinfo}.
      * 
      * @param ctx the parse tree
      */
-    void exitCtLast(RNASecondaryStructureParser.CtLastContext ctx);
+    void exitCtinfo(RNASecondaryStructureParser.CtinfoContext ctx);
 
     /**
      * Enter a parse tree produced by the {@code ctLineUnpaired} labeled
@@ -371,4 +285,20 @@ public interface RNASecondaryStructureListener extends ParseTreeListener {
      * @param ctx the parse tree
      */
     void exitCtLineBond(RNASecondaryStructureParser.CtLineBondContext ctx);
+
+    /**
+     * Enter a parse tree produced by
+     * {@link RNASecondaryStructureParser#edbnOrAas}.
+     * 
+     * @param ctx the parse tree
+     */
+    void enterEdbnOrAas(RNASecondaryStructureParser.EdbnOrAasContext ctx);
+
+    /**
+     * Exit a parse tree produced by
+     * {@link RNASecondaryStructureParser#edbnOrAas}.
+     * 
+     * @param ctx the parse tree
+     */
+    void exitEdbnOrAas(RNASecondaryStructureParser.EdbnOrAasContext ctx);
 }
\ No newline at end of file
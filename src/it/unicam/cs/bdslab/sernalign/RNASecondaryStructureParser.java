@@ -37,12 +37,13 @@ public class RNASecondaryStructureParser extends Parser {
     public static final int RULE_rna = 0, RULE_sequence = 1,
 	    RULE_structure = 2, RULE_edbns = 3, RULE_bonds = 4, RULE_bond = 5,
 	    RULE_bpseq = 6, RULE_bpseqinfo = 7, RULE_bpseqline = 8,
-	    RULE_ct = 9, RULE_ctinfo = 10, RULE_ctline = 11;
+	    RULE_ct = 9, RULE_ctinfo = 10, RULE_ctline = 11,
+	    RULE_edbnOrAas = 12;
 
     private static String[] makeRuleNames() {
 	return new String[] { "rna", "sequence", "structure", "edbns",
 		"bonds", "bond", "bpseq", "bpseqinfo", "bpseqline", "ct",
-		"ctinfo", "ctline" };
+		"ctinfo", "ctline", "edbnOrAas" };
     }
 
     public static final String[] ruleNames = makeRuleNames();
@@ -220,37 +221,37 @@ public class RNASecondaryStructureParser extends Parser {
 	enterRule(_localctx, 0, RULE_rna);
 	int _la;
 	try {
-	    setState(30);
+	    setState(32);
 	    _errHandler.sync(this);
 	    switch (getInterpreter().adaptivePredict(_input, 1, _ctx)) {
 	    case 1:
 		_localctx = new EdbnOrAasFormatContext(_localctx);
 		enterOuterAlt(_localctx, 1); {
-		setState(25);
+		setState(27);
 		_errHandler.sync(this);
 		_la = _input.LA(1);
 		if (_la == NUCLEOTIDES) {
 		    {
-			setState(24);
+			setState(26);
 			sequence();
 		    }
 		}
 
-		setState(27);
+		setState(29);
 		structure();
 	    }
 		break;
 	    case 2:
 		_localctx = new BpseqFormatContext(_localctx);
 		enterOuterAlt(_localctx, 2); {
-		setState(28);
+		setState(30);
 		bpseq();
 	    }
 		break;
 	    case 3:
 		_localctx = new CtFormatContext(_localctx);
 		enterOuterAlt(_localctx, 3); {
-		setState(29);
+		setState(31);
 		ct();
 	    }
 		break;
@@ -266,98 +267,58 @@ public class RNASecondaryStructureParser extends Parser {
     }
 
     public static class SequenceContext extends ParserRuleContext {
-	public SequenceContext(ParserRuleContext parent, int invokingState) {
-	    super(parent, invokingState);
-	}
-
-	@Override
-	public int getRuleIndex() {
-	    return RULE_sequence;
-	}
-
-	public SequenceContext() {
-	}
-
-	public void copyFrom(SequenceContext ctx) {
-	    super.copyFrom(ctx);
-	}
-    }
-
-    public static class SequenceContinueContext extends SequenceContext {
-	public TerminalNode NUCLEOTIDES() {
-	    return getToken(RNASecondaryStructureParser.NUCLEOTIDES, 0);
-	}
-
-	public SequenceContext sequence() {
-	    return getRuleContext(SequenceContext.class, 0);
+	public List<TerminalNode> NUCLEOTIDES() {
+	    return getTokens(RNASecondaryStructureParser.NUCLEOTIDES);
 	}
 
-	public SequenceContinueContext(SequenceContext ctx) {
-	    copyFrom(ctx);
+	public TerminalNode NUCLEOTIDES(int i) {
+	    return getToken(RNASecondaryStructureParser.NUCLEOTIDES, i);
 	}
 
-	@Override
-	public void enterRule(ParseTreeListener listener) {
-	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener)
-			.enterSequenceContinue(this);
+	public SequenceContext(ParserRuleContext parent, int invokingState) {
+	    super(parent, invokingState);
 	}
 
 	@Override
-	public void exitRule(ParseTreeListener listener) {
-	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener)
-			.exitSequenceContinue(this);
-	}
-    }
-
-    public static class SequenceEndContext extends SequenceContext {
-	public TerminalNode NUCLEOTIDES() {
-	    return getToken(RNASecondaryStructureParser.NUCLEOTIDES, 0);
-	}
-
-	public SequenceEndContext(SequenceContext ctx) {
-	    copyFrom(ctx);
+	public int getRuleIndex() {
+	    return RULE_sequence;
 	}
 
 	@Override
 	public void enterRule(ParseTreeListener listener) {
 	    if (listener instanceof RNASecondaryStructureListener)
 		((RNASecondaryStructureListener) listener)
-			.enterSequenceEnd(this);
+			.enterSequence(this);
 	}
 
 	@Override
 	public void exitRule(ParseTreeListener listener) {
 	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener)
-			.exitSequenceEnd(this);
+		((RNASecondaryStructureListener) listener).exitSequence(this);
 	}
     }
 
     public final SequenceContext sequence() throws RecognitionException {
 	SequenceContext _localctx = new SequenceContext(_ctx, getState());
 	enterRule(_localctx, 2, RULE_sequence);
+	int _la;
 	try {
-	    setState(35);
-	    _errHandler.sync(this);
-	    switch (getInterpreter().adaptivePredict(_input, 2, _ctx)) {
-	    case 1:
-		_localctx = new SequenceContinueContext(_localctx);
-		enterOuterAlt(_localctx, 1); {
-		setState(32);
-		match(NUCLEOTIDES);
-		setState(33);
-		sequence();
-	    }
-		break;
-	    case 2:
-		_localctx = new SequenceEndContext(_localctx);
-		enterOuterAlt(_localctx, 2); {
-		setState(34);
-		match(NUCLEOTIDES);
-	    }
-		break;
+	    enterOuterAlt(_localctx, 1);
+	    {
+		setState(35);
+		_errHandler.sync(this);
+		_la = _input.LA(1);
+		do {
+		    {
+			{
+			    setState(34);
+			    match(NUCLEOTIDES);
+			}
+		    }
+		    setState(37);
+		    _errHandler.sync(this);
+		    _la = _input.LA(1);
+		} while (_la == NUCLEOTIDES);
 	    }
 	} catch (RecognitionException re) {
 	    _localctx.exception = re;
@@ -435,20 +396,20 @@ public class RNASecondaryStructureParser extends Parser {
 	StructureContext _localctx = new StructureContext(_ctx, getState());
 	enterRule(_localctx, 4, RULE_structure);
 	try {
-	    setState(39);
+	    setState(41);
 	    _errHandler.sync(this);
 	    switch (_input.LA(1)) {
 	    case EDBN:
 		_localctx = new RnaEdbnContext(_localctx);
 		enterOuterAlt(_localctx, 1); {
-		setState(37);
+		setState(39);
 		edbns();
 	    }
 		break;
 	    case T__1:
 		_localctx = new RnaAasContext(_localctx);
 		enterOuterAlt(_localctx, 2); {
-		setState(38);
+		setState(40);
 		bonds();
 	    }
 		break;
@@ -466,97 +427,57 @@ public class RNASecondaryStructureParser extends Parser {
     }
 
     public static class EdbnsContext extends ParserRuleContext {
-	public EdbnsContext(ParserRuleContext parent, int invokingState) {
-	    super(parent, invokingState);
-	}
-
-	@Override
-	public int getRuleIndex() {
-	    return RULE_edbns;
+	public List<TerminalNode> EDBN() {
+	    return getTokens(RNASecondaryStructureParser.EDBN);
 	}
 
-	public EdbnsContext() {
-	}
-
-	public void copyFrom(EdbnsContext ctx) {
-	    super.copyFrom(ctx);
-	}
-    }
-
-    public static class EdbnsContinueContext extends EdbnsContext {
-	public TerminalNode EDBN() {
-	    return getToken(RNASecondaryStructureParser.EDBN, 0);
+	public TerminalNode EDBN(int i) {
+	    return getToken(RNASecondaryStructureParser.EDBN, i);
 	}
 
-	public EdbnsContext edbns() {
-	    return getRuleContext(EdbnsContext.class, 0);
-	}
-
-	public EdbnsContinueContext(EdbnsContext ctx) {
-	    copyFrom(ctx);
-	}
-
-	@Override
-	public void enterRule(ParseTreeListener listener) {
-	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener)
-			.enterEdbnsContinue(this);
+	public EdbnsContext(ParserRuleContext parent, int invokingState) {
+	    super(parent, invokingState);
 	}
 
 	@Override
-	public void exitRule(ParseTreeListener listener) {
-	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener)
-			.exitEdbnsContinue(this);
-	}
-    }
-
-    public static class EdbnsEndContext extends EdbnsContext {
-	public TerminalNode EDBN() {
-	    return getToken(RNASecondaryStructureParser.EDBN, 0);
-	}
-
-	public EdbnsEndContext(EdbnsContext ctx) {
-	    copyFrom(ctx);
+	public int getRuleIndex() {
+	    return RULE_edbns;
 	}
 
 	@Override
 	public void enterRule(ParseTreeListener listener) {
 	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener)
-			.enterEdbnsEnd(this);
+		((RNASecondaryStructureListener) listener).enterEdbns(this);
 	}
 
 	@Override
 	public void exitRule(ParseTreeListener listener) {
 	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener).exitEdbnsEnd(this);
+		((RNASecondaryStructureListener) listener).exitEdbns(this);
 	}
     }
 
     public final EdbnsContext edbns() throws RecognitionException {
 	EdbnsContext _localctx = new EdbnsContext(_ctx, getState());
 	enterRule(_localctx, 6, RULE_edbns);
+	int _la;
 	try {
-	    setState(44);
-	    _errHandler.sync(this);
-	    switch (getInterpreter().adaptivePredict(_input, 4, _ctx)) {
-	    case 1:
-		_localctx = new EdbnsContinueContext(_localctx);
-		enterOuterAlt(_localctx, 1); {
-		setState(41);
-		match(EDBN);
-		setState(42);
-		edbns();
-	    }
-		break;
-	    case 2:
-		_localctx = new EdbnsEndContext(_localctx);
-		enterOuterAlt(_localctx, 2); {
-		setState(43);
-		match(EDBN);
-	    }
-		break;
+	    enterOuterAlt(_localctx, 1);
+	    {
+		setState(44);
+		_errHandler.sync(this);
+		_la = _input.LA(1);
+		do {
+		    {
+			{
+			    setState(43);
+			    match(EDBN);
+			}
+		    }
+		    setState(46);
+		    _errHandler.sync(this);
+		    _la = _input.LA(1);
+		} while (_la == EDBN);
 	    }
 	} catch (RecognitionException re) {
 	    _localctx.exception = re;
@@ -569,99 +490,61 @@ public class RNASecondaryStructureParser extends Parser {
     }
 
     public static class BondsContext extends ParserRuleContext {
-	public BondsContext(ParserRuleContext parent, int invokingState) {
-	    super(parent, invokingState);
+	public List<BondContext> bond() {
+	    return getRuleContexts(BondContext.class);
 	}
 
-	@Override
-	public int getRuleIndex() {
-	    return RULE_bonds;
+	public BondContext bond(int i) {
+	    return getRuleContext(BondContext.class, i);
 	}
 
-	public BondsContext() {
-	}
-
-	public void copyFrom(BondsContext ctx) {
-	    super.copyFrom(ctx);
-	}
-    }
-
-    public static class BondsEndContext extends BondsContext {
-	public BondContext bond() {
-	    return getRuleContext(BondContext.class, 0);
-	}
-
-	public BondsEndContext(BondsContext ctx) {
-	    copyFrom(ctx);
-	}
-
-	@Override
-	public void enterRule(ParseTreeListener listener) {
-	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener)
-			.enterBondsEnd(this);
+	public BondsContext(ParserRuleContext parent, int invokingState) {
+	    super(parent, invokingState);
 	}
 
 	@Override
-	public void exitRule(ParseTreeListener listener) {
-	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener).exitBondsEnd(this);
-	}
-    }
-
-    public static class BondsContinueContext extends BondsContext {
-	public BondContext bond() {
-	    return getRuleContext(BondContext.class, 0);
-	}
-
-	public BondsContext bonds() {
-	    return getRuleContext(BondsContext.class, 0);
-	}
-
-	public BondsContinueContext(BondsContext ctx) {
-	    copyFrom(ctx);
+	public int getRuleIndex() {
+	    return RULE_bonds;
 	}
 
 	@Override
 	public void enterRule(ParseTreeListener listener) {
 	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener)
-			.enterBondsContinue(this);
+		((RNASecondaryStructureListener) listener).enterBonds(this);
 	}
 
 	@Override
 	public void exitRule(ParseTreeListener listener) {
 	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener)
-			.exitBondsContinue(this);
+		((RNASecondaryStructureListener) listener).exitBonds(this);
 	}
     }
 
     public final BondsContext bonds() throws RecognitionException {
 	BondsContext _localctx = new BondsContext(_ctx, getState());
 	enterRule(_localctx, 8, RULE_bonds);
+	int _la;
 	try {
-	    setState(51);
-	    _errHandler.sync(this);
-	    switch (getInterpreter().adaptivePredict(_input, 5, _ctx)) {
-	    case 1:
-		_localctx = new BondsContinueContext(_localctx);
-		enterOuterAlt(_localctx, 1); {
-		setState(46);
-		bond();
-		setState(47);
-		match(T__0);
+	    enterOuterAlt(_localctx, 1);
+	    {
 		setState(48);
-		bonds();
-	    }
-		break;
-	    case 2:
-		_localctx = new BondsEndContext(_localctx);
-		enterOuterAlt(_localctx, 2); {
-		setState(50);
 		bond();
-	    }
-		break;
+		setState(53);
+		_errHandler.sync(this);
+		_la = _input.LA(1);
+		while (_la == T__0) {
+		    {
+			{
+			    setState(49);
+			    match(T__0);
+			    setState(50);
+			    bond();
+			}
+		    }
+		    setState(55);
+		    _errHandler.sync(this);
+		    _la = _input.LA(1);
+		}
 	    }
 	} catch (RecognitionException re) {
 	    _localctx.exception = re;
@@ -710,15 +593,15 @@ public class RNASecondaryStructureParser extends Parser {
 	try {
 	    enterOuterAlt(_localctx, 1);
 	    {
-		setState(53);
+		setState(56);
 		match(T__1);
-		setState(54);
+		setState(57);
 		match(INDEX);
-		setState(55);
+		setState(58);
 		match(T__2);
-		setState(56);
+		setState(59);
 		match(INDEX);
-		setState(57);
+		setState(60);
 		match(T__3);
 	    }
 	} catch (RecognitionException re) {
@@ -781,23 +664,23 @@ public class RNASecondaryStructureParser extends Parser {
 	try {
 	    enterOuterAlt(_localctx, 1);
 	    {
-		setState(63);
+		setState(66);
 		_errHandler.sync(this);
 		_la = _input.LA(1);
 		if (_la == LINE1BPSEQCT) {
 		    {
-			setState(59);
+			setState(62);
 			match(LINE1BPSEQCT);
-			setState(60);
+			setState(63);
 			match(LINE2BPSEQCT);
-			setState(61);
+			setState(64);
 			match(LINE3BPSEQCT);
-			setState(62);
+			setState(65);
 			match(LINE4BPSEQCT);
 		    }
 		}
 
-		setState(65);
+		setState(68);
 		bpseqinfo();
 	    }
 	} catch (RecognitionException re) {
@@ -811,97 +694,59 @@ public class RNASecondaryStructureParser extends Parser {
     }
 
     public static class BpseqinfoContext extends ParserRuleContext {
-	public BpseqinfoContext(ParserRuleContext parent, int invokingState) {
-	    super(parent, invokingState);
+	public List<BpseqlineContext> bpseqline() {
+	    return getRuleContexts(BpseqlineContext.class);
 	}
 
-	@Override
-	public int getRuleIndex() {
-	    return RULE_bpseqinfo;
+	public BpseqlineContext bpseqline(int i) {
+	    return getRuleContext(BpseqlineContext.class, i);
 	}
 
-	public BpseqinfoContext() {
-	}
-
-	public void copyFrom(BpseqinfoContext ctx) {
-	    super.copyFrom(ctx);
-	}
-    }
-
-    public static class BpseqSeqContext extends BpseqinfoContext {
-	public BpseqlineContext bpseqline() {
-	    return getRuleContext(BpseqlineContext.class, 0);
-	}
-
-	public BpseqinfoContext bpseqinfo() {
-	    return getRuleContext(BpseqinfoContext.class, 0);
-	}
-
-	public BpseqSeqContext(BpseqinfoContext ctx) {
-	    copyFrom(ctx);
-	}
-
-	@Override
-	public void enterRule(ParseTreeListener listener) {
-	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener)
-			.enterBpseqSeq(this);
+	public BpseqinfoContext(ParserRuleContext parent, int invokingState) {
+	    super(parent, invokingState);
 	}
 
 	@Override
-	public void exitRule(ParseTreeListener listener) {
-	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener).exitBpseqSeq(this);
-	}
-    }
-
-    public static class BpseqLastContext extends BpseqinfoContext {
-	public BpseqlineContext bpseqline() {
-	    return getRuleContext(BpseqlineContext.class, 0);
-	}
-
-	public BpseqLastContext(BpseqinfoContext ctx) {
-	    copyFrom(ctx);
+	public int getRuleIndex() {
+	    return RULE_bpseqinfo;
 	}
 
 	@Override
 	public void enterRule(ParseTreeListener listener) {
 	    if (listener instanceof RNASecondaryStructureListener)
 		((RNASecondaryStructureListener) listener)
-			.enterBpseqLast(this);
+			.enterBpseqinfo(this);
 	}
 
 	@Override
 	public void exitRule(ParseTreeListener listener) {
 	    if (listener instanceof RNASecondaryStructureListener)
 		((RNASecondaryStructureListener) listener)
-			.exitBpseqLast(this);
+			.exitBpseqinfo(this);
 	}
     }
 
     public final BpseqinfoContext bpseqinfo() throws RecognitionException {
 	BpseqinfoContext _localctx = new BpseqinfoContext(_ctx, getState());
 	enterRule(_localctx, 14, RULE_bpseqinfo);
+	int _la;
 	try {
-	    setState(71);
-	    _errHandler.sync(this);
-	    switch (getInterpreter().adaptivePredict(_input, 7, _ctx)) {
-	    case 1:
-		_localctx = new BpseqSeqContext(_localctx);
-		enterOuterAlt(_localctx, 1); {
-		setState(67);
-		bpseqline();
-		setState(68);
-		bpseqinfo();
-	    }
-		break;
-	    case 2:
-		_localctx = new BpseqLastContext(_localctx);
-		enterOuterAlt(_localctx, 2); {
-		setState(70);
-		bpseqline();
-	    }
-		break;
+	    enterOuterAlt(_localctx, 1);
+	    {
+		setState(71);
+		_errHandler.sync(this);
+		_la = _input.LA(1);
+		do {
+		    {
+			{
+			    setState(70);
+			    bpseqline();
+			}
+		    }
+		    setState(73);
+		    _errHandler.sync(this);
+		    _la = _input.LA(1);
+		} while (_la == INDEX);
 	    }
 	} catch (RecognitionException re) {
 	    _localctx.exception = re;
@@ -999,28 +844,28 @@ public class RNASecondaryStructureParser extends Parser {
 	BpseqlineContext _localctx = new BpseqlineContext(_ctx, getState());
 	enterRule(_localctx, 16, RULE_bpseqline);
 	try {
-	    setState(79);
+	    setState(81);
 	    _errHandler.sync(this);
 	    switch (getInterpreter().adaptivePredict(_input, 8, _ctx)) {
 	    case 1:
 		_localctx = new BpseqLineUnpairedContext(_localctx);
 		enterOuterAlt(_localctx, 1); {
-		setState(73);
+		setState(75);
 		match(INDEX);
-		setState(74);
+		setState(76);
 		match(IUPAC_CODE);
-		setState(75);
+		setState(77);
 		match(ZERO);
 	    }
 		break;
 	    case 2:
 		_localctx = new BpseqLineBondContext(_localctx);
 		enterOuterAlt(_localctx, 2); {
-		setState(76);
+		setState(78);
 		match(INDEX);
-		setState(77);
+		setState(79);
 		match(IUPAC_CODE);
-		setState(78);
+		setState(80);
 		match(INDEX);
 	    }
 		break;
@@ -1089,25 +934,25 @@ public class RNASecondaryStructureParser extends Parser {
 	try {
 	    enterOuterAlt(_localctx, 1);
 	    {
-		setState(85);
+		setState(87);
 		_errHandler.sync(this);
 		_la = _input.LA(1);
 		if (_la == LINE1BPSEQCT) {
 		    {
-			setState(81);
+			setState(83);
 			match(LINE1BPSEQCT);
-			setState(82);
+			setState(84);
 			match(LINE2BPSEQCT);
-			setState(83);
+			setState(85);
 			match(LINE3BPSEQCT);
-			setState(84);
+			setState(86);
 			match(LINE4BPSEQCT);
 		    }
 		}
 
-		setState(87);
+		setState(89);
 		match(LINE5CT);
-		setState(88);
+		setState(90);
 		ctinfo();
 	    }
 	} catch (RecognitionException re) {
@@ -1121,94 +966,57 @@ public class RNASecondaryStructureParser extends Parser {
     }
 
     public static class CtinfoContext extends ParserRuleContext {
-	public CtinfoContext(ParserRuleContext parent, int invokingState) {
-	    super(parent, invokingState);
-	}
-
-	@Override
-	public int getRuleIndex() {
-	    return RULE_ctinfo;
-	}
-
-	public CtinfoContext() {
+	public List<CtlineContext> ctline() {
+	    return getRuleContexts(CtlineContext.class);
 	}
 
-	public void copyFrom(CtinfoContext ctx) {
-	    super.copyFrom(ctx);
-	}
-    }
-
-    public static class CtLastContext extends CtinfoContext {
-	public CtlineContext ctline() {
-	    return getRuleContext(CtlineContext.class, 0);
-	}
-
-	public CtLastContext(CtinfoContext ctx) {
-	    copyFrom(ctx);
+	public CtlineContext ctline(int i) {
+	    return getRuleContext(CtlineContext.class, i);
 	}
 
-	@Override
-	public void enterRule(ParseTreeListener listener) {
-	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener).enterCtLast(this);
+	public CtinfoContext(ParserRuleContext parent, int invokingState) {
+	    super(parent, invokingState);
 	}
 
 	@Override
-	public void exitRule(ParseTreeListener listener) {
-	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener).exitCtLast(this);
-	}
-    }
-
-    public static class CtSeqContext extends CtinfoContext {
-	public CtlineContext ctline() {
-	    return getRuleContext(CtlineContext.class, 0);
-	}
-
-	public CtinfoContext ctinfo() {
-	    return getRuleContext(CtinfoContext.class, 0);
-	}
-
-	public CtSeqContext(CtinfoContext ctx) {
-	    copyFrom(ctx);
+	public int getRuleIndex() {
+	    return RULE_ctinfo;
 	}
 
 	@Override
 	public void enterRule(ParseTreeListener listener) {
 	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener).enterCtSeq(this);
+		((RNASecondaryStructureListener) listener).enterCtinfo(this);
 	}
 
 	@Override
 	public void exitRule(ParseTreeListener listener) {
 	    if (listener instanceof RNASecondaryStructureListener)
-		((RNASecondaryStructureListener) listener).exitCtSeq(this);
+		((RNASecondaryStructureListener) listener).exitCtinfo(this);
 	}
     }
 
     public final CtinfoContext ctinfo() throws RecognitionException {
 	CtinfoContext _localctx = new CtinfoContext(_ctx, getState());
 	enterRule(_localctx, 20, RULE_ctinfo);
+	int _la;
 	try {
-	    setState(94);
-	    _errHandler.sync(this);
-	    switch (getInterpreter().adaptivePredict(_input, 10, _ctx)) {
-	    case 1:
-		_localctx = new CtSeqContext(_localctx);
-		enterOuterAlt(_localctx, 1); {
-		setState(90);
-		ctline();
-		setState(91);
-		ctinfo();
-	    }
-		break;
-	    case 2:
-		_localctx = new CtLastContext(_localctx);
-		enterOuterAlt(_localctx, 2); {
+	    enterOuterAlt(_localctx, 1);
+	    {
 		setState(93);
-		ctline();
-	    }
-		break;
+		_errHandler.sync(this);
+		_la = _input.LA(1);
+		do {
+		    {
+			{
+			    setState(92);
+			    ctline();
+			}
+		    }
+		    setState(95);
+		    _errHandler.sync(this);
+		    _la = _input.LA(1);
+		} while (_la == INDEX);
 	    }
 	} catch (RecognitionException re) {
 	    _localctx.exception = re;
@@ -1323,17 +1131,17 @@ public class RNASecondaryStructureParser extends Parser {
 	enterRule(_localctx, 22, RULE_ctline);
 	int _la;
 	try {
-	    setState(108);
+	    setState(109);
 	    _errHandler.sync(this);
 	    switch (getInterpreter().adaptivePredict(_input, 11, _ctx)) {
 	    case 1:
 		_localctx = new CtLineUnpairedContext(_localctx);
 		enterOuterAlt(_localctx, 1); {
-		setState(96);
-		match(INDEX);
 		setState(97);
-		match(IUPAC_CODE);
+		match(INDEX);
 		setState(98);
+		match(IUPAC_CODE);
+		setState(99);
 		_la = _input.LA(1);
 		if (!(_la == INDEX || _la == ZERO)) {
 		    _errHandler.recoverInline(this);
@@ -1343,7 +1151,7 @@ public class RNASecondaryStructureParser extends Parser {
 		    _errHandler.reportMatch(this);
 		    consume();
 		}
-		setState(99);
+		setState(100);
 		_la = _input.LA(1);
 		if (!(_la == INDEX || _la == ZERO)) {
 		    _errHandler.recoverInline(this);
@@ -1353,20 +1161,20 @@ public class RNASecondaryStructureParser extends Parser {
 		    _errHandler.reportMatch(this);
 		    consume();
 		}
-		setState(100);
-		match(ZERO);
 		setState(101);
+		match(ZERO);
+		setState(102);
 		match(INDEX);
 	    }
 		break;
 	    case 2:
 		_localctx = new CtLineBondContext(_localctx);
 		enterOuterAlt(_localctx, 2); {
-		setState(102);
-		match(INDEX);
 		setState(103);
-		match(IUPAC_CODE);
+		match(INDEX);
 		setState(104);
+		match(IUPAC_CODE);
+		setState(105);
 		_la = _input.LA(1);
 		if (!(_la == INDEX || _la == ZERO)) {
 		    _errHandler.recoverInline(this);
@@ -1376,7 +1184,7 @@ public class RNASecondaryStructureParser extends Parser {
 		    _errHandler.reportMatch(this);
 		    consume();
 		}
-		setState(105);
+		setState(106);
 		_la = _input.LA(1);
 		if (!(_la == INDEX || _la == ZERO)) {
 		    _errHandler.recoverInline(this);
@@ -1386,10 +1194,10 @@ public class RNASecondaryStructureParser extends Parser {
 		    _errHandler.reportMatch(this);
 		    consume();
 		}
-		setState(106);
-		match(INDEX);
 		setState(107);
 		match(INDEX);
+		setState(108);
+		match(INDEX);
 	    }
 		break;
 	    }
@@ -1403,33 +1211,95 @@ public class RNASecondaryStructureParser extends Parser {
 	return _localctx;
     }
 
-    public static final String _serializedATN = "\3\u608b\ua72a\u8133\ub9ed\u417c\u3be7\u7786\u5964\3\22q\4\2\t\2\4\3\t"
+    public static class EdbnOrAasContext extends ParserRuleContext {
+	public StructureContext structure() {
+	    return getRuleContext(StructureContext.class, 0);
+	}
+
+	public SequenceContext sequence() {
+	    return getRuleContext(SequenceContext.class, 0);
+	}
+
+	public EdbnOrAasContext(ParserRuleContext parent, int invokingState) {
+	    super(parent, invokingState);
+	}
+
+	@Override
+	public int getRuleIndex() {
+	    return RULE_edbnOrAas;
+	}
+
+	@Override
+	public void enterRule(ParseTreeListener listener) {
+	    if (listener instanceof RNASecondaryStructureListener)
+		((RNASecondaryStructureListener) listener).enterEdbnOrAas(this);
+	}
+
+	@Override
+	public void exitRule(ParseTreeListener listener) {
+	    if (listener instanceof RNASecondaryStructureListener)
+		((RNASecondaryStructureListener) listener).exitEdbnOrAas(this);
+	}
+    }
+
+    public final EdbnOrAasContext edbnOrAas() throws RecognitionException {
+	EdbnOrAasContext _localctx = new EdbnOrAasContext(_ctx, getState());
+	enterRule(_localctx, 24, RULE_edbnOrAas);
+	int _la;
+	try {
+	    enterOuterAlt(_localctx, 1);
+	    {
+		setState(112);
+		_errHandler.sync(this);
+		_la = _input.LA(1);
+		if (_la == NUCLEOTIDES) {
+		    {
+			setState(111);
+			sequence();
+		    }
+		}
+
+		setState(114);
+		structure();
+	    }
+	} catch (RecognitionException re) {
+	    _localctx.exception = re;
+	    _errHandler.reportError(this, re);
+	    _errHandler.recover(this, re);
+	} finally {
+	    exitRule();
+	}
+	return _localctx;
+    }
+
+    public static final String _serializedATN = "\3\u608b\ua72a\u8133\ub9ed\u417c\u3be7\u7786\u5964\3\22w\4\2\t\2\4\3\t"
 	    + "\3\4\4\t\4\4\5\t\5\4\6\t\6\4\7\t\7\4\b\t\b\4\t\t\t\4\n\t\n\4\13\t\13\4"
-	    + "\f\t\f\4\r\t\r\3\2\5\2\34\n\2\3\2\3\2\3\2\5\2!\n\2\3\3\3\3\3\3\5\3&\n"
-	    + "\3\3\4\3\4\5\4*\n\4\3\5\3\5\3\5\5\5/\n\5\3\6\3\6\3\6\3\6\3\6\5\6\66\n"
-	    + "\6\3\7\3\7\3\7\3\7\3\7\3\7\3\b\3\b\3\b\3\b\5\bB\n\b\3\b\3\b\3\t\3\t\3"
-	    + "\t\3\t\5\tJ\n\t\3\n\3\n\3\n\3\n\3\n\3\n\5\nR\n\n\3\13\3\13\3\13\3\13\5"
-	    + "\13X\n\13\3\13\3\13\3\13\3\f\3\f\3\f\3\f\5\fa\n\f\3\r\3\r\3\r\3\r\3\r"
-	    + "\3\r\3\r\3\r\3\r\3\r\3\r\3\r\5\ro\n\r\3\r\2\2\16\2\4\6\b\n\f\16\20\22"
-	    + "\24\26\30\2\3\3\2\f\r\2q\2 \3\2\2\2\4%\3\2\2\2\6)\3\2\2\2\b.\3\2\2\2\n"
-	    + "\65\3\2\2\2\f\67\3\2\2\2\16A\3\2\2\2\20I\3\2\2\2\22Q\3\2\2\2\24W\3\2\2"
-	    + "\2\26`\3\2\2\2\30n\3\2\2\2\32\34\5\4\3\2\33\32\3\2\2\2\33\34\3\2\2\2\34"
-	    + "\35\3\2\2\2\35!\5\6\4\2\36!\5\16\b\2\37!\5\24\13\2 \33\3\2\2\2 \36\3\2"
-	    + "\2\2 \37\3\2\2\2!\3\3\2\2\2\"#\7\17\2\2#&\5\4\3\2$&\7\17\2\2%\"\3\2\2"
-	    + "\2%$\3\2\2\2&\5\3\2\2\2\'*\5\b\5\2(*\5\n\6\2)\'\3\2\2\2)(\3\2\2\2*\7\3"
-	    + "\2\2\2+,\7\20\2\2,/\5\b\5\2-/\7\20\2\2.+\3\2\2\2.-\3\2\2\2/\t\3\2\2\2"
-	    + "\60\61\5\f\7\2\61\62\7\3\2\2\62\63\5\n\6\2\63\66\3\2\2\2\64\66\5\f\7\2"
-	    + "\65\60\3\2\2\2\65\64\3\2\2\2\66\13\3\2\2\2\678\7\4\2\289\7\f\2\29:\7\5"
-	    + "\2\2:;\7\f\2\2;<\7\6\2\2<\r\3\2\2\2=>\7\7\2\2>?\7\b\2\2?@\7\t\2\2@B\7"
-	    + "\n\2\2A=\3\2\2\2AB\3\2\2\2BC\3\2\2\2CD\5\20\t\2D\17\3\2\2\2EF\5\22\n\2"
-	    + "FG\5\20\t\2GJ\3\2\2\2HJ\5\22\n\2IE\3\2\2\2IH\3\2\2\2J\21\3\2\2\2KL\7\f"
-	    + "\2\2LM\7\16\2\2MR\7\r\2\2NO\7\f\2\2OP\7\16\2\2PR\7\f\2\2QK\3\2\2\2QN\3"
-	    + "\2\2\2R\23\3\2\2\2ST\7\7\2\2TU\7\b\2\2UV\7\t\2\2VX\7\n\2\2WS\3\2\2\2W"
-	    + "X\3\2\2\2XY\3\2\2\2YZ\7\13\2\2Z[\5\26\f\2[\25\3\2\2\2\\]\5\30\r\2]^\5"
-	    + "\26\f\2^a\3\2\2\2_a\5\30\r\2`\\\3\2\2\2`_\3\2\2\2a\27\3\2\2\2bc\7\f\2"
-	    + "\2cd\7\16\2\2de\t\2\2\2ef\t\2\2\2fg\7\r\2\2go\7\f\2\2hi\7\f\2\2ij\7\16"
-	    + "\2\2jk\t\2\2\2kl\t\2\2\2lm\7\f\2\2mo\7\f\2\2nb\3\2\2\2nh\3\2\2\2o\31\3"
-	    + "\2\2\2\16\33 %).\65AIQW`n";
+	    + "\f\t\f\4\r\t\r\4\16\t\16\3\2\5\2\36\n\2\3\2\3\2\3\2\5\2#\n\2\3\3\6\3&"
+	    + "\n\3\r\3\16\3\'\3\4\3\4\5\4,\n\4\3\5\6\5/\n\5\r\5\16\5\60\3\6\3\6\3\6"
+	    + "\7\6\66\n\6\f\6\16\69\13\6\3\7\3\7\3\7\3\7\3\7\3\7\3\b\3\b\3\b\3\b\5\b"
+	    + "E\n\b\3\b\3\b\3\t\6\tJ\n\t\r\t\16\tK\3\n\3\n\3\n\3\n\3\n\3\n\5\nT\n\n"
+	    + "\3\13\3\13\3\13\3\13\5\13Z\n\13\3\13\3\13\3\13\3\f\6\f`\n\f\r\f\16\fa"
+	    + "\3\r\3\r\3\r\3\r\3\r\3\r\3\r\3\r\3\r\3\r\3\r\3\r\5\rp\n\r\3\16\5\16s\n"
+	    + "\16\3\16\3\16\3\16\2\2\17\2\4\6\b\n\f\16\20\22\24\26\30\32\2\3\3\2\f\r"
+	    + "\2w\2\"\3\2\2\2\4%\3\2\2\2\6+\3\2\2\2\b.\3\2\2\2\n\62\3\2\2\2\f:\3\2\2"
+	    + "\2\16D\3\2\2\2\20I\3\2\2\2\22S\3\2\2\2\24Y\3\2\2\2\26_\3\2\2\2\30o\3\2"
+	    + "\2\2\32r\3\2\2\2\34\36\5\4\3\2\35\34\3\2\2\2\35\36\3\2\2\2\36\37\3\2\2"
+	    + "\2\37#\5\6\4\2 #\5\16\b\2!#\5\24\13\2\"\35\3\2\2\2\" \3\2\2\2\"!\3\2\2"
+	    + "\2#\3\3\2\2\2$&\7\17\2\2%$\3\2\2\2&\'\3\2\2\2\'%\3\2\2\2\'(\3\2\2\2(\5"
+	    + "\3\2\2\2),\5\b\5\2*,\5\n\6\2+)\3\2\2\2+*\3\2\2\2,\7\3\2\2\2-/\7\20\2\2"
+	    + ".-\3\2\2\2/\60\3\2\2\2\60.\3\2\2\2\60\61\3\2\2\2\61\t\3\2\2\2\62\67\5"
+	    + "\f\7\2\63\64\7\3\2\2\64\66\5\f\7\2\65\63\3\2\2\2\669\3\2\2\2\67\65\3\2"
+	    + "\2\2\678\3\2\2\28\13\3\2\2\29\67\3\2\2\2:;\7\4\2\2;<\7\f\2\2<=\7\5\2\2"
+	    + "=>\7\f\2\2>?\7\6\2\2?\r\3\2\2\2@A\7\7\2\2AB\7\b\2\2BC\7\t\2\2CE\7\n\2"
+	    + "\2D@\3\2\2\2DE\3\2\2\2EF\3\2\2\2FG\5\20\t\2G\17\3\2\2\2HJ\5\22\n\2IH\3"
+	    + "\2\2\2JK\3\2\2\2KI\3\2\2\2KL\3\2\2\2L\21\3\2\2\2MN\7\f\2\2NO\7\16\2\2O"
+	    + "T\7\r\2\2PQ\7\f\2\2QR\7\16\2\2RT\7\f\2\2SM\3\2\2\2SP\3\2\2\2T\23\3\2\2"
+	    + "\2UV\7\7\2\2VW\7\b\2\2WX\7\t\2\2XZ\7\n\2\2YU\3\2\2\2YZ\3\2\2\2Z[\3\2\2"
+	    + "\2[\\\7\13\2\2\\]\5\26\f\2]\25\3\2\2\2^`\5\30\r\2_^\3\2\2\2`a\3\2\2\2a"
+	    + "_\3\2\2\2ab\3\2\2\2b\27\3\2\2\2cd\7\f\2\2de\7\16\2\2ef\t\2\2\2fg\t\2\2"
+	    + "\2gh\7\r\2\2hp\7\f\2\2ij\7\f\2\2jk\7\16\2\2kl\t\2\2\2lm\t\2\2\2mn\7\f"
+	    + "\2\2np\7\f\2\2oc\3\2\2\2oi\3\2\2\2p\31\3\2\2\2qs\5\4\3\2rq\3\2\2\2rs\3"
+	    + "\2\2\2st\3\2\2\2tu\5\6\4\2u\33\3\2\2\2\17\35\"\'+\60\67DKSYaor";
     public static final ATN _ATN = new ATNDeserializer()
 	    .deserialize(_serializedATN.toCharArray());
     static {
@@ -0,0 +1,468 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+/**
+ * Reader of RNA secondary structures from files that can be reused to read
+ * many files. The ANTLR 4 lexer, token stream, parser and listener are
+ * created once and reset on each new file, so that reading a batch of files
+ * does not pay their setup cost for every file. The DFA and prediction
+ * caches of ANTLR are shared by all the parsers and stay warm between the
+ * files.
+ * 
+ * Large files are mapped into memory and parsed directly on their bytes.
+ * Files compressed with gzip and entries of archives are decompressed while
+ * reading them (see {@link RNAInputFiles}).
+ * Each file is first given to {@link RNASecondaryStructureFastReader}; ANTLR
+ * is used only for the files that it does not handle, e.g., files containing
+ * errors. The format of these files is detected on their bytes (see
+ * {@link RNASecondaryStructureFormat#detect(java.nio.ByteBuffer)}) and ANTLR
+ * parses them starting from the rule of their format, instead of predicting
+ * it with the whole grammar. Optionally, ANTLR parses with the faster SLL
+ * prediction mode first. If any of these shortcuts fails the file is parsed
+ * again with the full LL mode from the rule rna: the result and the error
+ * messages are the same as with LL only.
+ * 
+ * A reader is not thread-safe: each thread must use its own reader.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+public class RNASecondaryStructureReader {
+
+    /*
+     * files of at least this size are mapped into memory instead of being
+     * read into a buffer
+     */
+    static final long MAPPING_THRESHOLD = 1 << 20;
+
+    private final RNASecondaryStructureLexer lexer;
+    private final CommonTokenStream tokens;
+    private final RNASecondaryStructureParser parser;
+    private final RNASecondaryStructureFileReaderErrorListener errorListener;
+    private final RNASecondaryStructureConstructor constructor;
+
+    // error strategies for the SLL and LL stages
+    private final ANTLRErrorStrategy bailStrategy;
+    private final ANTLRErrorStrategy defaultStrategy;
+
+    // flag to use SLL prediction first, with fallback to LL
+    private boolean twoStagePrediction;
+
+    /**
+     * Create a reader that uses the LL prediction mode only.
+     */
+    public RNASecondaryStructureReader() {
+	this(false);
+    }
+
+    /**
+     * Create a reader.
+     * 
+     * @param twoStagePrediction if true ANTLR parses with SLL prediction
+     *                           first and falls back to LL only if SLL fails
+     */
+    public RNASecondaryStructureReader(boolean twoStagePrediction) {
+	// the input stream is given to the lexer for each file
+	this.lexer = new RNASecondaryStructureLexer(null);
+	this.tokens = new CommonTokenStream(this.lexer);
+	this.parser = new RNASecondaryStructureParser(this.tokens);
+	this.errorListener = new RNASecondaryStructureFileReaderErrorListener();
+	this.constructor = new RNASecondaryStructureConstructor();
+	this.bailStrategy = new BailErrorStrategy();
+	this.defaultStrategy = new DefaultErrorStrategy();
+	this.twoStagePrediction = twoStagePrediction;
+    }
+
+    /**
+     * @return true if ANTLR parses with SLL prediction first and falls back
+     *         to LL only if SLL fails
+     */
+    public boolean isTwoStagePrediction() {
+	return twoStagePrediction;
+    }
+
+    /**
+     * @param twoStagePrediction if true ANTLR parses with SLL prediction
+     *                           first and falls back to LL only if SLL fails
+     */
+    public void setTwoStagePrediction(boolean twoStagePrediction) {
+	this.twoStagePrediction = twoStagePrediction;
+    }
+
+    /**
+     * Read a secondary structure from a file, checking its base pairs with a
+     * given validator and possibly dropping the primary sequence after
+     * parsing and checking it.
+     * 
+     * @param fileName     the name of the file to read
+     * @param validator    the validator of the base pairs, or null if the
+     *                     base pairs should not be checked
+     * @param keepSequence flag to indicate if the primary sequence should be
+     *                     kept in the returned structure
+     * @return the secondary structure in the file
+     * @throws IOException                 if the specified file cannot be
+     *                                     read
+     * @throws RNAInputFileParserException if the file contains lexical or
+     *                                     syntax errors in the definition of
+     *                                     the secondary structure or a base
+     *                                     pair not allowed by the validator
+     */
+    public RNASecondaryStructure read(String fileName,
+	    BasePairValidator validator, boolean keepSequence)
+	    throws IOException {
+	if (RNAInputFiles.isCompressed(fileName))
+	    // decompress or extract the whole content
+	    try (InputStream input = RNAInputFiles.open(fileName)) {
+		return read(input, fileName, validator, keepSequence);
+	    }
+	try (FileChannel channel = FileChannel.open(Paths.get(fileName))) {
+	    long size = channel.size();
+	    ByteBuffer content;
+	    if (size >= MAPPING_THRESHOLD) {
+		// map the file, its bytes are parsed without copying them
+		if (size > Integer.MAX_VALUE)
+		    throw new IOException("File " + fileName + " is too large");
+		content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+	    } else {
+		// read the whole file
+		content = ByteBuffer.allocate((int) size);
+		while (content.hasRemaining())
+		    if (channel.read(content) < 0)
+			break;
+		content.flip();
+	    }
+	    return read(content, fileName, validator, keepSequence);
+	}
+    }
+
+    /**
+     * Read a secondary structure from all the bytes of a stream, e.g., the
+     * standard input, checking its base pairs with a given validator and
+     * possibly dropping the primary sequence after parsing and checking it.
+     * The stream is not closed.
+     * 
+     * @param input        the stream containing one secondary structure
+     * @param sourceName   the name of the source of the bytes, e.g., the
+     *                     name of the file they come from
+     * @param validator    the validator of the base pairs, or null if the
+     *                     base pairs should not be checked
+     * @param keepSequence flag to indicate if the primary sequence should be
+     *                     kept in the returned structure
+     * @return the secondary structure in the stream
+     * @throws IOException                 if the stream cannot be read
+     * @throws RNAInputFileParserException if the content contains lexical or
+     *                                     syntax errors in the definition of
+     *                                     the secondary structure or a base
+     *                                     pair not allowed by the validator
+     */
+    public RNASecondaryStructure read(InputStream input, String sourceName,
+	    BasePairValidator validator, boolean keepSequence)
+	    throws IOException {
+	return read(ByteBuffer.wrap(readAll(input)), sourceName, validator,
+		keepSequence);
+    }
+
+    /**
+     * Read a secondary structure from all the bytes of a channel, checking
+     * its base pairs with a given validator and possibly dropping the
+     * primary sequence after parsing and checking it. The channel is not
+     * closed.
+     * 
+     * @param channel      the channel containing one secondary structure
+     * @param sourceName   the name of the source of the bytes, e.g., the
+     *                     name of the file they come from
+     * @param validator    the validator of the base pairs, or null if the
+     *                     base pairs should not be checked
+     * @param keepSequence flag to indicate if the primary sequence should be
+     *                     kept in the returned structure
+     * @return the secondary structure in the channel
+     * @throws IOException                 if the channel cannot be read
+     * @throws RNAInputFileParserException if the content contains lexical or
+     *                                     syntax errors in the definition of
+     *                                     the secondary structure or a base
+     *                                     pair not allowed by the validator
+     */
+    public RNASecondaryStructure read(ReadableByteChannel channel,
+	    String sourceName, BasePairValidator validator,
+	    boolean keepSequence) throws IOException {
+	ByteBuffer content = ByteBuffer.allocate(1 << 16);
+	while (channel.read(content) >= 0)
+	    if (!content.hasRemaining()) {
+		// grow the buffer
+		ByteBuffer larger = ByteBuffer.allocate(2 * content.capacity());
+		content.flip();
+		larger.put(content);
+		content = larger;
+	    }
+	content.flip();
+	return read(content, sourceName, validator, keepSequence);
+    }
+
+    /**
+     * Read a secondary structure from all the characters of a reader,
+     * checking its base pairs with a given validator and possibly dropping
+     * the primary sequence after parsing and checking it. The reader is not
+     * closed.
+     * 
+     * @param reader       the reader of the characters containing one
+     *                     secondary structure
+     * @param sourceName   the name of the source of the characters, e.g.,
+     *                     the name of the file they come from
+     * @param validator    the validator of the base pairs, or null if the
+     *                     base pairs should not be checked
+     * @param keepSequence flag to indicate if the primary sequence should be
+     *                     kept in the returned structure
+     * @return the secondary structure read
+     * @throws IOException                 if the reader cannot be read
+     * @throws RNAInputFileParserException if the content contains lexical or
+     *                                     syntax errors in the definition of
+     *                                     the secondary structure or a base
+     *                                     pair not allowed by the validator
+     */
+    public RNASecondaryStructure read(Reader reader, String sourceName,
+	    BasePairValidator validator, boolean keepSequence)
+	    throws IOException {
+	StringBuilder text = new StringBuilder();
+	char[] chunk = new char[1 << 14];
+	int n;
+	while ((n = reader.read(chunk)) >= 0)
+	    text.append(chunk, 0, n);
+	return read(text, sourceName, validator, keepSequence);
+    }
+
+    /**
+     * Read a secondary structure from a text, e.g., the output of a folding
+     * tool kept in memory, checking its base pairs with a given validator
+     * and possibly dropping the primary sequence after parsing and checking
+     * it.
+     * 
+     * @param text         the text containing one secondary structure
+     * @param sourceName   the name of the source of the text, used in the
+     *                     error messages
+     * @param validator    the validator of the base pairs, or null if the
+     *                     base pairs should not be checked
+     * @param keepSequence flag to indicate if the primary sequence should be
+     *                     kept in the returned structure
+     * @return the secondary structure in the text
+     * @throws IOException                 if the text cannot be decoded
+     * @throws RNAInputFileParserException if the text contains lexical or
+     *                                     syntax errors in the definition of
+     *                                     the secondary structure or a base
+     *                                     pair not allowed by the validator
+     */
+    public RNASecondaryStructure read(CharSequence text, String sourceName,
+	    BasePairValidator validator, boolean keepSequence)
+	    throws IOException {
+	return read(StandardCharsets.UTF_8.encode(CharBuffer.wrap(text)),
+		sourceName, validator, keepSequence);
+    }
+
+    /**
+     * Read a secondary structure from the bytes of a buffer, between its
+     * current position and its limit, checking its base pairs with a given
+     * validator and possibly dropping the primary sequence after parsing and
+     * checking it. The position of the buffer is not changed.
+     * 
+     * @param content      the bytes containing one secondary structure
+     * @param sourceName   the name of the source of the bytes, e.g., the
+     *                     name of the file they come from
+     * @param validator    the validator of the base pairs, or null if the
+     *                     base pairs should not be checked
+     * @param keepSequence flag to indicate if the primary sequence should be
+     *                     kept in the returned structure
+     * @return the secondary structure in the buffer
+     * @throws IOException                 if the content cannot be decoded
+     * @throws RNAInputFileParserException if the content contains lexical or
+     *                                     syntax errors in the definition of
+     *                                     the secondary structure or a base
+     *                                     pair not allowed by the validator
+     */
+    public RNASecondaryStructure read(ByteBuffer content, String sourceName,
+	    BasePairValidator validator, boolean keepSequence)
+	    throws IOException {
+	// try the fast reader first, that does not build the sequence if it is
+	// not needed
+	RNASecondaryStructure secondaryStructure = RNASecondaryStructureFastReader
+		.read(content, keepSequence || validator != null);
+	if (secondaryStructure == null)
+	    // not handled by the fast reader, use ANTLR on the same content
+	    // starting from the entry rule of its format
+	    secondaryStructure = parse(content, sourceName,
+		    RNASecondaryStructureFormat.detect(content));
+	// check base pairs if needed
+	if (validator != null)
+	    secondaryStructure.checkBasePairs(validator);
+	// drop the sequence if not needed
+	if (!keepSequence)
+	    secondaryStructure.dropSequence();
+	// Return the structure
+	return secondaryStructure;
+    }
+
+    /**
+     * Read a secondary structure from the bytes of a buffer with ANTLR only,
+     * parsing with the LL prediction mode from the rule rna as if the format
+     * were not known, without the fast reader and the other shortcuts, e.g.,
+     * to check that the shortcuts give the same results. The position of the
+     * buffer is not changed.
+     * 
+     * @param content    the bytes containing one secondary structure
+     * @param sourceName the name of the source of the bytes
+     * @return the secondary structure in the buffer
+     * @throws IOException                 if the content cannot be decoded
+     * @throws RNAInputFileParserException if the content contains lexical or
+     *                                     syntax errors in the definition of
+     *                                     the secondary structure
+     */
+    RNASecondaryStructure readWithAntlr(ByteBuffer content, String sourceName)
+	    throws IOException {
+	boolean twoStage = this.twoStagePrediction;
+	this.twoStagePrediction = false;
+	try {
+	    return parse(content, sourceName, null);
+	} finally {
+	    this.twoStagePrediction = twoStage;
+	}
+    }
+
+    /*
+     * Read all the bytes of a stream.
+     */
+    private static byte[] readAll(InputStream input) throws IOException {
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	byte[] chunk = new byte[1 << 16];
+	int n;
+	while ((n = input.read(chunk)) >= 0)
+	    bytes.write(chunk, 0, n);
+	return bytes.toByteArray();
+    }
+
+    /*
+     * Parse the content of a buffer with ANTLR and return the structure. If
+     * the format of the content is known the parse starts from its entry
+     * rule, without errors reporting; if this fails the content is parsed
+     * again from the rule rna, as a file of unknown format.
+     */
+    private RNASecondaryStructure parse(ByteBuffer content, String sourceName,
+	    RNASecondaryStructureFormat format) throws IOException {
+	int length = content.remaining();
+	ByteArrayInputStream bytes;
+	if (content.hasArray())
+	    bytes = new ByteArrayInputStream(content.array(),
+		    content.arrayOffset() + content.position(), length);
+	else {
+	    byte[] copy = new byte[length];
+	    content.duplicate().get(copy);
+	    bytes = new ByteArrayInputStream(copy);
+	}
+	// create a CharStream that reads from the content
+	CharStream input = CharStreams.fromChannel(Channels.newChannel(bytes),
+		StandardCharsets.UTF_8, 4096, CodingErrorAction.REPLACE,
+		sourceName, length);
+	// reset lexer, tokens buffer and parser on the new input
+	this.lexer.setInputStream(input);
+	this.tokens.setTokenSource(this.lexer);
+	this.parser.setTokenStream(this.tokens);
+	ParseTree tree;
+	if (this.twoStagePrediction || format != null) {
+	    // try the entry rule of the format, or rna, with SLL if enabled,
+	    // without error reporting and giving up at the first error
+	    this.parser.getInterpreter()
+		    .setPredictionMode(this.twoStagePrediction
+			    ? PredictionMode.SLL
+			    : PredictionMode.LL);
+	    this.parser.removeErrorListeners();
+	    this.parser.setErrorHandler(this.bailStrategy);
+	    try {
+		tree = parseEntry(format);
+	    } catch (ParseCancellationException e) {
+		// parse again the same tokens from rna with LL
+		this.tokens.seek(0);
+		this.parser.reset();
+		tree = parseLL();
+	    }
+	} else
+	    tree = parseLL();
+	// Walk the tree created during the parse, trigger callbacks
+	this.constructor.reset();
+	ParseTreeWalker.DEFAULT.walk(this.constructor, tree);
+	// Return the parsed secondary structure
+	return this.constructor.getS();
+    }
+
+    /*
+     * Parse the current tokens from the entry rule of the given format, or
+     * from rna if the format is not known.
+     */
+    private ParseTree parseEntry(RNASecondaryStructureFormat format) {
+	if (format == null)
+	    return this.parser.rna();
+	switch (format) {
+	case BPSEQ:
+	    return this.parser.bpseq();
+	case CT:
+	    return this.parser.ct();
+	default:
+	    return this.parser.edbnOrAas();
+	}
+    }
+
+    /*
+     * Parse the current tokens with LL prediction, throwing an
+     * RNAInputFileParserException upon syntax errors.
+     */
+    private ParseTree parseLL() {
+	this.parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+	this.parser.removeErrorListeners();
+	this.parser.addErrorListener(this.errorListener);
+	this.parser.setErrorHandler(this.defaultStrategy);
+	// begin parsing at rna rule
+	return this.parser.rna();
+    }
+}
@@ -0,0 +1,537 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.NoSuchElementException;
+
+/**
+ * Reader of the secondary structures contained in a file that may contain
+ * many structures, one after the other. The supported multi-record formats
+ * are:
+ * 
+ * - FASTA-like files, in which each record starts with a line beginning with
+ * '>' and containing the name of the structure, followed by the structure in
+ * any of the formats accepted for a single structure, e.g., a sequence and a
+ * structure in dot-bracket notation;
+ * 
+ * - concatenated CT files, in which each record starts with a CT header line
+ * containing the length of the structure and one of the keywords ENERGY,
+ * Energy or dG, followed by the lines of the structure.
+ * 
+ * Any other file is read as a file containing a single structure, as done by
+ * {@link RNASecondaryStructureFileReader}. Files compressed with gzip and
+ * entries of archives are decompressed while reading them (see
+ * {@link RNAInputFiles}).
+ * 
+ * The structures are read one at a time: the file is read through a buffer
+ * that holds the current record only, so that the memory needed does not
+ * depend on the number of records in the file. Large files are mapped into
+ * memory, one window at a time, and the records are located and parsed
+ * directly on the bytes of the windows, without copying or decoding them.
+ * Each record is read by a {@link RNASecondaryStructureReader}. An error in
+ * a record does not prevent reading the following ones.
+ * 
+ * A record reader is not thread-safe.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+public class RNASecondaryStructureRecordReader implements Closeable {
+
+    // kinds of files
+    private static final int SINGLE = 0;
+    private static final int FASTA = 1;
+    private static final int CT = 2;
+
+    // initial capacity of the buffer, it grows if a record does not fit
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    // size of the windows of a mapped file, larger if a record does not fit
+    private static final int WINDOW_SIZE = 1 << 26;
+
+    // keywords of the CT header line
+    private static final byte[][] KEYWORDS = { ascii("ENERGY"),
+	    ascii("Energy"), ascii("dG") };
+
+    private final String sourceName;
+    private final RNASecondaryStructureReader reader;
+    private final BasePairValidator validator;
+    private final boolean keepSequence;
+    private final ReadableByteChannel channel;
+
+    /*
+     * the file channel, its size and the position in the file of the
+     * current window, if the file is mapped into memory; fileChannel is null
+     * if the file is read through the channel into a buffer
+     */
+    private final FileChannel fileChannel;
+    private final long fileSize;
+    private long windowStart;
+
+    // size of the windows of a mapped file
+    private final int windowSize;
+
+    /*
+     * the bytes read and not yet consumed are between the position and the
+     * limit of the buffer, the position is always at the start of a record;
+     * for a mapped file the buffer is the current window
+     */
+    private ByteBuffer buffer;
+    private boolean endOfInput;
+
+    // the kind of the file
+    private final int kind;
+
+    // number, name and first line of the last record read
+    private int recordNumber;
+    private String recordName;
+    private int recordLine;
+
+    // line of the file at the position of the buffer
+    private int line;
+
+    /**
+     * Open a file to read the structures it contains.
+     * 
+     * @param reader       the reader used for each record
+     * @param fileName     the name of the file to read
+     * @param validator    the validator of the base pairs, or null if the
+     *                     base pairs should not be checked
+     * @param keepSequence flag to indicate if the primary sequence should be
+     *                     kept in the returned structures
+     * @throws IOException if the specified file cannot be read
+     */
+    public RNASecondaryStructureRecordReader(RNASecondaryStructureReader reader,
+	    String fileName, BasePairValidator validator, boolean keepSequence)
+	    throws IOException {
+	this(reader, openChannel(fileName), fileName, validator, keepSequence);
+    }
+
+    /**
+     * Read the structures contained in the bytes read from a channel. If the
+     * channel is the channel of a large file, the file is mapped into memory
+     * from the current position of the channel. The channel is closed by
+     * {@link #close()}.
+     * 
+     * @param reader       the reader used for each record
+     * @param channel      the channel to read
+     * @param sourceName   the name of the source of the bytes, e.g., the
+     *                     name of the file they come from
+     * @param validator    the validator of the base pairs, or null if the
+     *                     base pairs should not be checked
+     * @param keepSequence flag to indicate if the primary sequence should be
+     *                     kept in the returned structures
+     * @throws IOException if the channel cannot be read
+     */
+    public RNASecondaryStructureRecordReader(RNASecondaryStructureReader reader,
+	    ReadableByteChannel channel, String sourceName,
+	    BasePairValidator validator, boolean keepSequence)
+	    throws IOException {
+	this(reader, channel, sourceName, validator, keepSequence,
+		RNASecondaryStructureReader.MAPPING_THRESHOLD, WINDOW_SIZE);
+    }
+
+    /*
+     * Read the structures contained in the bytes read from a channel,
+     * mapping the file of the channel into memory if at least the given
+     * number of bytes remain to be read, with windows of the given size.
+     */
+    RNASecondaryStructureRecordReader(RNASecondaryStructureReader reader,
+	    ReadableByteChannel channel, String sourceName,
+	    BasePairValidator validator, boolean keepSequence,
+	    long mappingThreshold, int windowSize) throws IOException {
+	this.sourceName = sourceName;
+	this.reader = reader;
+	this.validator = validator;
+	this.keepSequence = keepSequence;
+	this.channel = channel;
+	long size = -1;
+	long start = 0;
+	if (channel instanceof FileChannel)
+	    try {
+		size = ((FileChannel) channel).size();
+		start = ((FileChannel) channel).position();
+	    } catch (IOException e) {
+		channel.close();
+		throw e;
+	    }
+	if (size - start >= mappingThreshold) {
+	    // the windows are mapped when the first bytes are requested
+	    this.fileChannel = (FileChannel) channel;
+	    this.buffer = ByteBuffer.allocate(0);
+	} else {
+	    this.fileChannel = null;
+	    this.buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+	    this.buffer.flip();
+	}
+	this.fileSize = size;
+	this.windowStart = start;
+	this.windowSize = windowSize;
+	this.endOfInput = false;
+	this.recordNumber = 0;
+	this.recordName = null;
+	this.recordLine = 0;
+	this.line = 1;
+	try {
+	    this.kind = detectKind();
+	} catch (IOException e) {
+	    this.channel.close();
+	    throw e;
+	}
+    }
+
+    /*
+     * Open the channel of a file, decompressing it or extracting it from an
+     * archive if needed.
+     */
+    private static ReadableByteChannel openChannel(String fileName)
+	    throws IOException {
+	if (RNAInputFiles.isCompressed(fileName))
+	    return Channels.newChannel(RNAInputFiles.open(fileName));
+	return FileChannel.open(Paths.get(fileName));
+    }
+
+    /**
+     * @return true if the file contains a sequence of records, false if it
+     *         contains a single structure
+     */
+    public boolean isMultiRecord() {
+	return this.kind != SINGLE;
+    }
+
+    /**
+     * @return true if there is another record to read
+     * @throws IOException if the file cannot be read
+     */
+    public boolean hasNext() throws IOException {
+	if (this.kind == SINGLE)
+	    return this.recordNumber == 0;
+	return available(0);
+    }
+
+    /**
+     * Read the next record. If the record contains an error the exception is
+     * thrown, but the reader is positioned on the following record anyway.
+     * 
+     * @return the secondary structure in the next record
+     * @throws IOException                 if the file cannot be read
+     * @throws NoSuchElementException      if there are no more records
+     * @throws RNAInputFileParserException if the record contains lexical or
+     *                                     syntax errors in the definition of
+     *                                     the secondary structure or a base
+     *                                     pair not allowed by the validator
+     */
+    public RNASecondaryStructure next() throws IOException {
+	if (!hasNext())
+	    throw new NoSuchElementException("No more records in file "
+		    + this.sourceName);
+	this.recordNumber++;
+	this.recordLine = this.line;
+	if (this.kind == SINGLE) {
+	    // the whole file is one structure
+	    while (!this.endOfInput)
+		fill();
+	    this.recordName = null;
+	    return this.reader.read(this.buffer, this.sourceName,
+		    this.validator, this.keepSequence);
+	}
+	int end = recordEnd();
+	ByteBuffer record = this.buffer.duplicate();
+	record.limit(this.buffer.position() + end);
+	String header = null;
+	if (this.kind == FASTA) {
+	    // the header line is not part of the structure
+	    int bodyStart = nextLine(0);
+	    if (bodyStart < 0 || bodyStart > end)
+		bodyStart = end;
+	    header = string(1, bodyStart).trim();
+	    String[] words = header.split("\\s+", 2);
+	    this.recordName = words[0].isEmpty() ? String.valueOf(
+		    this.recordNumber) : words[0];
+	    record.position(this.buffer.position() + bodyStart);
+	} else
+	    this.recordName = String.valueOf(this.recordNumber);
+	try {
+	    RNASecondaryStructure s = this.reader.read(record,
+		    this.sourceName + "#" + this.recordName, this.validator,
+		    this.keepSequence);
+	    if (header != null)
+		s.description = header;
+	    return s;
+	} finally {
+	    // move to the next record in any case
+	    consume(end);
+	}
+    }
+
+    /**
+     * @return the number of records read so far
+     */
+    public int getRecordNumber() {
+	return this.recordNumber;
+    }
+
+    /**
+     * @return the name of the last record read: the first word of the header
+     *         line for FASTA-like files, the number of the record for
+     *         concatenated CT files or if the header line contains no name,
+     *         null for files containing a single structure
+     */
+    public String getRecordName() {
+	return this.recordName;
+    }
+
+    /**
+     * @return the line of the file at which the last record read starts
+     */
+    public int getRecordLine() {
+	return this.recordLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+	this.channel.close();
+    }
+
+    /*
+     * Determine the kind of the file from its first records. For a
+     * multi-record file, the blank lines and the comments before the first
+     * record are skipped.
+     */
+    private int detectKind() throws IOException {
+	// find the first line that is not blank and is not a comment
+	int first = 0;
+	int lines = 0;
+	while (first >= 0 && available(first) && isBlankOrComment(first)) {
+	    first = nextLine(first);
+	    lines++;
+	}
+	if (first < 0 || !available(first))
+	    return SINGLE;
+	int kind;
+	if (this.buffer.get(this.buffer.position() + first) == '>')
+	    kind = FASTA;
+	else if (isCtHeader(first)) {
+	    // the file is concatenated only if a second CT header follows
+	    int next = nextLine(first);
+	    while (next >= 0 && available(next) && !isCtHeader(next))
+		next = nextLine(next);
+	    if (next < 0 || !available(next))
+		return SINGLE;
+	    kind = CT;
+	} else
+	    return SINGLE;
+	this.buffer.position(this.buffer.position() + first);
+	this.line += lines;
+	return kind;
+    }
+
+    /*
+     * Determine if the line starting at the given offset from the position
+     * of the buffer starts a record.
+     */
+    private boolean isRecordStart(int offset) throws IOException {
+	if (this.kind == FASTA)
+	    return this.buffer.get(this.buffer.position() + offset) == '>';
+	return isCtHeader(offset);
+    }
+
+    /*
+     * Return the offset of the end of the record starting at the position of
+     * the buffer, i.e., of the start of the next record or of the end of the
+     * input.
+     */
+    private int recordEnd() throws IOException {
+	int offset = nextLine(0);
+	while (offset >= 0 && available(offset)) {
+	    if (isRecordStart(offset))
+		return offset;
+	    offset = nextLine(offset);
+	}
+	// the record extends to the end of the input, that is all buffered
+	return this.buffer.remaining();
+    }
+
+    /*
+     * Determine if the line starting at the given offset is blank or a
+     * comment.
+     */
+    private boolean isBlankOrComment(int offset) throws IOException {
+	while (available(offset)) {
+	    byte c = this.buffer.get(this.buffer.position() + offset);
+	    if (c == '\n')
+		return true;
+	    if (c != ' ' && c != '\t' && c != '\r')
+		return c == '#';
+	    offset++;
+	}
+	return true;
+    }
+
+    /*
+     * Determine if the line starting at the given offset is a CT header
+     * line: an index, i.e., the length of the structure, followed by
+     * something containing a keyword and ending with a newline.
+     */
+    private boolean isCtHeader(int offset) throws IOException {
+	int i = offset;
+	while (available(i) && isBlank(byteAt(i)))
+	    i++;
+	if (!available(i) || byteAt(i) < '1' || byteAt(i) > '9')
+	    return false;
+	while (available(i) && byteAt(i) >= '0' && byteAt(i) <= '9')
+	    i++;
+	if (!available(i) || !isBlank(byteAt(i)))
+	    return false;
+	// look for a keyword before the end of the line
+	while (available(i)) {
+	    byte c = byteAt(i);
+	    if (c == '\n')
+		return false;
+	    for (byte[] keyword : KEYWORDS)
+		if (c == keyword[0] && matches(i, keyword))
+		    return nextLine(i) >= 0;
+	    i++;
+	}
+	return false;
+    }
+
+    private boolean matches(int offset, byte[] keyword) throws IOException {
+	for (int k = 0; k < keyword.length; k++)
+	    if (!available(offset + k) || byteAt(offset + k) != keyword[k])
+		return false;
+	return true;
+    }
+
+    /*
+     * Return the offset of the start of the line following the one
+     * containing the given offset, or -1 if that line is the last one.
+     */
+    private int nextLine(int offset) throws IOException {
+	while (available(offset)) {
+	    // scan the bytes available without checking them one by one
+	    int start = this.buffer.position();
+	    int limit = this.buffer.limit();
+	    for (int i = start + offset; i < limit; i++)
+		if (this.buffer.get(i) == '\n')
+		    return i - start + 1;
+	    offset = limit - start;
+	}
+	return -1;
+    }
+
+    /*
+     * Move the position of the buffer forward, counting the lines skipped.
+     */
+    private void consume(int length) {
+	int start = this.buffer.position();
+	for (int i = start; i < start + length; i++)
+	    if (this.buffer.get(i) == '\n')
+		this.line++;
+	this.buffer.position(start + length);
+    }
+
+    private String string(int from, int to) {
+	byte[] bytes = new byte[to - from];
+	for (int i = from; i < to; i++)
+	    bytes[i - from] = byteAt(i);
+	return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte byteAt(int offset) {
+	return this.buffer.get(this.buffer.position() + offset);
+    }
+
+    /*
+     * Determine if the byte at the given offset from the position of the
+     * buffer is available, reading more input if needed. Returns false if
+     * the input ends before it.
+     */
+    private boolean available(int offset) throws IOException {
+	while (this.buffer.position() + offset >= this.buffer.limit()) {
+	    if (this.endOfInput)
+		return false;
+	    fill();
+	}
+	return true;
+    }
+
+    /*
+     * Read more input, keeping the bytes not yet consumed and enlarging the
+     * buffer if they fill it. For a mapped file, map a new window starting
+     * at the position of the buffer.
+     */
+    private void fill() throws IOException {
+	if (this.fileChannel != null) {
+	    map();
+	    return;
+	}
+	this.buffer.compact();
+	if (!this.buffer.hasRemaining()) {
+	    ByteBuffer larger = ByteBuffer
+		    .allocate(2 * this.buffer.capacity());
+	    this.buffer.flip();
+	    larger.put(this.buffer);
+	    this.buffer = larger;
+	}
+	if (this.channel.read(this.buffer) < 0)
+	    this.endOfInput = true;
+	this.buffer.flip();
+    }
+
+    /*
+     * Map the window of the file starting at the position of the buffer,
+     * large enough to contain at least twice the bytes not yet consumed.
+     */
+    private void map() throws IOException {
+	long start = this.windowStart + this.buffer.position();
+	long pending = this.buffer.remaining();
+	long size = Math.min(this.fileSize - start,
+		Math.min(Integer.MAX_VALUE, Math.max(this.windowSize,
+			2 * pending)));
+	if (size <= pending && start + size < this.fileSize)
+	    throw new IOException("Record at line " + this.line + " of file "
+		    + this.sourceName + " is too large");
+	this.buffer = this.fileChannel.map(FileChannel.MapMode.READ_ONLY,
+		start, size);
+	this.windowStart = start;
+	if (start + size == this.fileSize)
+	    this.endOfInput = true;
+    }
+
+    private static boolean isBlank(byte c) {
+	return c == ' ' || c == '\t';
+    }
+
+    private static byte[] ascii(String s) {
+	return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
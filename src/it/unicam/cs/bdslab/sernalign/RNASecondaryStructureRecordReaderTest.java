@@ -0,0 +1,165 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the class RNASecondaryStructureRecordReader
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class RNASecondaryStructureRecordReaderTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void testFastaRecords() throws IOException {
+	try (RNASecondaryStructureRecordReader r = RNASecondaryStructureFileReader
+		.openRecords("test/multi-records.fa", null, true)) {
+	    assertTrue(r.isMultiRecord());
+	    RNASecondaryStructure s1 = r.next();
+	    assertEquals("first", r.getRecordName());
+	    assertEquals(2, r.getRecordLine());
+	    assertEquals("first A first structure", s1.getDescription());
+	    assertEquals("GGGAAACCC", s1.getSequence());
+	    assertEquals(3, s1.getNumberOfBonds());
+	    assertThrows(RNAInputFileParserException.class, () -> r.next());
+	    assertEquals("second", r.getRecordName());
+	    RNASecondaryStructure s3 = r.next();
+	    assertEquals("third", r.getRecordName());
+	    assertEquals(8, s3.getSize());
+	    assertEquals(2, s3.getNumberOfBonds());
+	    assertFalse(r.hasNext());
+	}
+    }
+
+    @Test
+    void testSingleRecord() throws IOException {
+	try (RNASecondaryStructureRecordReader r = RNASecondaryStructureFileReader
+		.openRecords("test/seq1.aas.txt", null, false)) {
+	    assertFalse(r.isMultiRecord());
+	    RNASecondaryStructure s = r.next();
+	    assertEquals(null, r.getRecordName());
+	    assertEquals(5, s.getSize());
+	    assertFalse(r.hasNext());
+	}
+    }
+
+    @Test
+    void testMappedWindows() throws IOException {
+	String fileName = "test/multi-records.fa";
+	List<String> expected;
+	try (RNASecondaryStructureRecordReader r = RNASecondaryStructureFileReader
+		.openRecords(fileName, null, true)) {
+	    expected = readAll(r);
+	}
+	assertEquals(3, expected.size());
+	/*
+	 * the file is mapped with windows of any size: the small ones are
+	 * grown because a record does not fit, the others are remapped when a
+	 * record straddles two of them
+	 */
+	long size = Files.size(Paths.get(fileName));
+	for (int window = 1; window <= size + 1; window++)
+	    try (RNASecondaryStructureRecordReader r = new RNASecondaryStructureRecordReader(
+		    new RNASecondaryStructureReader(),
+		    FileChannel.open(Paths.get(fileName)), fileName, null,
+		    true, 0, window)) {
+		assertTrue(r.isMultiRecord());
+		assertEquals(expected, readAll(r), "Window of " + window);
+	    }
+    }
+
+    @Test
+    void testMappedSingleRecord() throws IOException {
+	// a structure larger than the mapping threshold
+	long threshold = RNASecondaryStructureReader.MAPPING_THRESHOLD;
+	StringBuilder sequence = new StringBuilder();
+	StringBuilder structure = new StringBuilder();
+	while (sequence.length() < threshold) {
+	    sequence.append("GGGAAACCC");
+	    structure.append("(((...)))");
+	}
+	Path file = this.folder.resolve("large.db");
+	Files.write(file, (sequence + "\n" + structure + "\n")
+		.getBytes(StandardCharsets.US_ASCII));
+	String fileName = file.toString();
+	RNASecondaryStructure s = new RNASecondaryStructureReader()
+		.read(fileName, null, true);
+	assertEquals(sequence.length(), s.getSize());
+	assertEquals(sequence.length() / 3, s.getNumberOfBonds());
+	assertEquals(sequence.toString(), s.getSequence());
+	// the record reader maps it with growing windows
+	try (RNASecondaryStructureRecordReader r = new RNASecondaryStructureRecordReader(
+		new RNASecondaryStructureReader(),
+		FileChannel.open(file), fileName, null, true, threshold,
+		1 << 10)) {
+	    assertFalse(r.isMultiRecord());
+	    RNASecondaryStructure t = r.next();
+	    assertEquals(s.getBonds(), t.getBonds());
+	    assertEquals(s.getSequence(), t.getSequence());
+	    assertFalse(r.hasNext());
+	}
+    }
+
+    /*
+     * Read all the records, describing each one with its name, its first
+     * line and its content or error message.
+     */
+    private static List<String> readAll(RNASecondaryStructureRecordReader r)
+	    throws IOException {
+	List<String> records = new ArrayList<String>();
+	while (r.hasNext()) {
+	    String content;
+	    try {
+		RNASecondaryStructure s = r.next();
+		content = s.getDescription() + " " + s.getSequence() + " "
+			+ s.getSize() + " " + s.getBonds();
+	    } catch (RNAInputFileParserException e) {
+		content = e.getMessage();
+	    }
+	    records.add(r.getRecordName() + " " + r.getRecordLine() + " "
+		    + content);
+	}
+	return records;
+    }
+
+}
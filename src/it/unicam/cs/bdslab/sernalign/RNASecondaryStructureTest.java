@@ -22,10 +22,14 @@
  */
 package it.unicam.cs.bdslab.sernalign;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
@@ -54,4 +58,119 @@ class RNASecondaryStructureTest {
 
     }
 
+    @Test
+    void testCrossingStatistics() throws IOException {
+	RNASecondaryStructure s1 = RNASecondaryStructureFileReader
+		.readStructure("test/simple-example-1-aas.txt", false);
+	assertEquals(2, s1.getNumberOfCrossingPairs());
+	assertEquals(1, s1.getPseudoknotOrder());
+	RNASecondaryStructure s4 = RNASecondaryStructureFileReader
+		.readStructure("test/CRW_5S_A_C_22.db", false);
+	assertEquals(0, s4.getNumberOfCrossingPairs());
+	assertEquals(0, s4.getPseudoknotOrder());
+    }
+
+    @Test
+    void testAddBondUsedPosition() {
+	RNASecondaryStructure s = new RNASecondaryStructure();
+	s.addBond(new WeakBond(3, 8));
+	RNAInputFileParserException e1 = assertThrows(
+		RNAInputFileParserException.class,
+		() -> s.addBond(new WeakBond(8, 10)));
+	assertEquals("Weak Bond left index 8 is equal to bond (3, 8) right index",
+		e1.getMessage());
+	RNAInputFileParserException e2 = assertThrows(
+		RNAInputFileParserException.class,
+		() -> s.addBond(new WeakBond(1, 3)));
+	assertEquals("Weak Bond right index 3 is equal to bond (3, 8) left index",
+		e2.getMessage());
+	assertEquals(1, s.getBonds().size());
+	assertEquals(8, s.getSize());
+    }
+
+    @Test
+    void testAddBonds() {
+	RNASecondaryStructure s = new RNASecondaryStructure();
+	s.addBond(new WeakBond(1, 10));
+	assertThrows(RNAInputFileParserException.class,
+		() -> s.addBonds(Arrays.asList(new WeakBond(2, 5),
+			new WeakBond(5, 9))));
+	// the batch is not added, so its positions are still free
+	s.addBonds(Arrays.asList(new WeakBond(2, 5), new WeakBond(6, 9)));
+	assertEquals(3, s.getBonds().size());
+	assertEquals(10, s.getSize());
+    }
+
+    @Test
+    void testOutOfOrderBonds() {
+	RNASecondaryStructure s = new RNASecondaryStructure();
+	// bonds added out of order before the size is fixed, as when reading
+	// BPSEQ and CT files
+	s.addBond(8, 12);
+	s.addBond(new WeakBond(1, 5));
+	s.addBond(2, 3);
+	s.addBond(new WeakBond(6, 14));
+	assertEquals(14, s.getSize());
+	// the bonds are kept in insertion order until the structure is
+	// finalised
+	assertEquals(8, s.getBondLeft(0));
+	assertEquals(12, s.getBondRight(0));
+	// the sequence fixes a size larger than the bonds
+	s.sequence = PackedNucleotideSequence.valueOf("GGAACCAAGGGCAUCA");
+	s.size = s.sequence.length();
+	s.finalise();
+	assertEquals(Arrays.asList(new WeakBond(2, 3), new WeakBond(1, 5),
+		new WeakBond(8, 12), new WeakBond(6, 14)), s.getBonds());
+	for (int k = 0; k < s.getNumberOfBonds(); k++) {
+	    assertEquals(s.getBonds().get(k).getLeft(), s.getBondLeft(k));
+	    assertEquals(s.getBonds().get(k).getRight(), s.getBondRight(k));
+	}
+	// the columns and the array of pointers are trimmed
+	assertEquals(4, s.lefts.length);
+	assertEquals(4, s.rights.length);
+	assertEquals(17, s.p.length);
+	assertEquals(14, s.p[6]);
+	assertEquals(6, s.p[14]);
+	assertEquals(0, s.p[16]);
+	assertThrows(IndexOutOfBoundsException.class, () -> s.getBondLeft(4));
+	assertThrows(IndexOutOfBoundsException.class,
+		() -> s.getBondRight(-1));
+    }
+
+    @Test
+    void testBpseqOrder() throws IOException {
+	// the bonds of a BPSEQ file are added in the order of their lines
+	RNASecondaryStructure bpseq = RNASecondaryStructureFileReader
+		.readStructure("1 G 6\n2 G 5\n3 A 0\n4 A 8\n5 C 2\n"
+			+ "6 C 1\n7 A 0\n8 U 4\n", "bpseq", null, true);
+	RNASecondaryStructure edbn = RNASecondaryStructureFileReader
+		.readStructure("GGAACCAU\n((.[)).]", "edbn", null, true);
+	assertEquals(edbn.getBonds(), bpseq.getBonds());
+	assertEquals(Arrays.asList(new WeakBond(2, 5), new WeakBond(1, 6),
+		new WeakBond(4, 8)), bpseq.getBonds());
+    }
+
+    @Test
+    void testBondsView() {
+	RNASecondaryStructure s = new RNASecondaryStructure();
+	s.addBond(2, 9);
+	s.addBond(3, 5);
+	List<WeakBond> bonds = s.getBonds();
+	assertEquals(2, bonds.size());
+	assertThrows(UnsupportedOperationException.class,
+		() -> bonds.add(new WeakBond(10, 12)));
+	assertThrows(UnsupportedOperationException.class,
+		() -> bonds.remove(0));
+	assertThrows(UnsupportedOperationException.class,
+		() -> bonds.set(0, new WeakBond(10, 12)));
+	assertThrows(IndexOutOfBoundsException.class, () -> bonds.get(2));
+	// the view follows the bonds added later
+	s.addBond(10, 12);
+	assertEquals(3, bonds.size());
+	assertEquals(new WeakBond(10, 12), bonds.get(2));
+	s.dropBonds();
+	assertEquals(3, s.getNumberOfBonds());
+	assertThrows(IllegalStateException.class, () -> bonds.get(0));
+	assertThrows(IllegalStateException.class, () -> s.getBondLeft(0));
+    }
 }
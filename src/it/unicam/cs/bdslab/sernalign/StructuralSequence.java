@@ -23,7 +23,6 @@
 package it.unicam.cs.bdslab.sernalign;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -44,9 +43,6 @@ public class StructuralSequence {
     // structural sequence
     private int[] structuralSequence;
 
-    private Context head;
-    private Context tail;
-
     /**
      * Construct the structural sequence associated to a given RNA secondary
      * structure.
@@ -55,13 +51,24 @@ public class StructuralSequence {
      */
     public StructuralSequence(RNASecondaryStructure secondaryStructure) {
 	this.secondaryStructure = secondaryStructure;
-	this.head = null;
-	this.tail = null;
 	buildSequence();
     }
 
     /**
-     * @return the original RNA secondary structure
+     * Construct a structural sequence from its values, e.g., to align in
+     * another process a structural sequence received from the process that
+     * built it. The original RNA secondary structure is not available.
+     * 
+     * @param structuralSequence the values of the structural sequence
+     */
+    StructuralSequence(int[] structuralSequence) {
+	this.secondaryStructure = null;
+	this.structuralSequence = structuralSequence;
+    }
+
+    /**
+     * @return the original RNA secondary structure, or null if it is not
+     *         available
      */
     public RNASecondaryStructure getSecondaryStructure() {
 	return this.secondaryStructure;
@@ -113,108 +120,41 @@ public class StructuralSequence {
      * structure. To do so scan the bonds in their natural order and determine
      * for each bond the context on which its left nucleotide is inserted. The
      * context is determined on the sub-structure composed of all the bonds
-     * already scanned.
+     * already scanned: its index is one plus the number of their left and
+     * right nucleotides that precede the current left nucleotide. These
+     * nucleotides are counted with a Fenwick tree over the positions.
      * 
      * If n is the number of bonds in the structure, this method produces the
-     * structural sequence in O(n^2). In a secondary structure of length m the
-     * number of weak bonds is O(m).
+     * structural sequence in O(n log n) using only arrays of primitive
+     * values. In a secondary structure of length m the number of weak bonds
+     * is O(m).
      */
     private void buildSequence() {
-	// Recover the bonds from the structure
-	List<WeakBond> bonds = this.secondaryStructure.getBonds();
-	// Order the bonds, if they are not yet ordered
-	Collections.sort(bonds);
+	// Order the bonds of the structure, if they are not yet ordered
+	this.secondaryStructure.orderBonds();
 	// Create the array for the structural sequence
-	this.structuralSequence = new int[bonds.size()];
-	int i = 0;
-	for (WeakBond b : bonds) {
-	    if (i == 0) {
-		// just insert the first bond in the double linked list and
-		// assign the first position of the sequence
-		this.head = new Context(0, b.getLeft(), null, null);
-		this.tail = new Context(b.getRight(), Integer.MAX_VALUE, null,
-			null);
-		this.head.next = new Context(b.getLeft(), b.getRight(),
-			this.head, this.tail);
-		this.tail.previous = this.head.next;
-		this.structuralSequence[i] = 1;
-	    } else {
-		// find the context and (index) in which the current left
-		// nucleotide is
-		Context scan = this.head;
-		int index = 1;
-		while (true) {
-		    if (contained(b.getLeft(), scan))
-			break;
-		    index++;
-		    scan = scan.next;
-		}
-		// assign the current position of the structural sequence
-		this.structuralSequence[i] = index;
-		// split the context in two
-		split(scan, b.getLeft());
-		// split the tail context in two
-		split(this.tail, b.getRight());
-	    }
-	    i++;
+	int n = this.secondaryStructure.getNumberOfBonds();
+	this.structuralSequence = new int[n];
+	if (n == 0)
+	    return;
+	// the greatest position used by a bond is the last right
+	int m = this.secondaryStructure.getBondRight(n - 1);
+	int[] tree = new int[m + 1];
+	for (int i = 0; i < n; i++) {
+	    int left = this.secondaryStructure.getBondLeft(i);
+	    int right = this.secondaryStructure.getBondRight(i);
+	    // count the nucleotides of the bonds already scanned preceding left
+	    int preceding = 0;
+	    for (int k = left - 1; k > 0; k -= k & -k)
+		preceding += tree[k];
+	    // add the nucleotides of the current bond
+	    for (int k = left; k <= m; k += k & -k)
+		tree[k]++;
+	    for (int k = right; k <= m; k += k & -k)
+		tree[k]++;
+	    // assign the current position of the structural sequence
+	    this.structuralSequence[i] = 1 + preceding;
 	}
-
-    }
-
-    /*
-     * Split a given context by a given position creating a new element of the
-     * double linked list and updating all the references and the positions of
-     * the contexts. Manage the splitting of the head and the tail correctly,
-     * so it can be safely called on any context.
-     */
-    private void split(Context scan, int pos) {
-	if (scan == this.head) {
-	    // splitting the head
-	    Context next = scan.next;
-	    scan.next = new Context(pos, scan.j, scan, next);
-	    scan.j = pos;
-	    next.previous = scan.next;
-	} else {
-	    // splitting the tail or in the middle
-	    Context previous = scan.previous;
-	    previous.next = new Context(scan.i, pos, previous, scan);
-	    scan.i = pos;
-	    scan.previous = previous.next;
-	}
-    }
-
-    /*
-     * Return true if the position belongs to the context.
-     */
-    private boolean contained(int pos, Context scan) {
-	return pos >= scan.i && pos <= scan.j;
-    }
-
-    /*
-     * This class is used to realize a double linked list of intervals
-     * representing contexts. Each interval is composed by the starting
-     * position and the ending position of a context. The first context always
-     * starts at 0 and the last context always ends at Integer.MAX_VALUE.
-     */
-    private static class Context {
-	private int i;
-	private int j;
-	private Context previous;
-	private Context next;
-
-	public Context(int i, int j, Context previous, Context next) {
-	    this.i = i;
-	    this.j = j;
-	    this.previous = previous;
-	    this.next = next;
-	}
-
-	@SuppressWarnings("unused")
-	public Context(int i, int j) {
-	    this.i = i;
-	    this.j = j;
-	}
-
     }
 
 }
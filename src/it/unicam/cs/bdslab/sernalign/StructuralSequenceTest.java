@@ -77,4 +77,18 @@ class StructuralSequenceTest {
 	StructuralSequence seq1 = new StructuralSequence(s1);
 	assertTrue(Arrays.equals(seq, seq1.getStructuralSequence()));
     }
+
+    @Test
+    void testReadStructuralSequence() throws IOException {
+	StructuralSequence seq1 = RNASecondaryStructureFileReader
+		.readStructuralSequence("test/simple-example-1-aas.txt", null);
+	int[] seq = { 1, 3, 1, 1, 5 };
+	assertTrue(Arrays.equals(seq, seq1.getStructuralSequence()));
+	RNASecondaryStructure s1 = seq1.getSecondaryStructure();
+	assertEquals(5, s1.getNumberOfBonds());
+	assertTrue(s1.isPseudoknotted());
+	assertEquals(2, s1.getNumberOfCrossingPairs());
+	assertNull(s1.getSequence());
+	assertThrows(IllegalStateException.class, () -> s1.getBondLeft(0));
+    }
 }
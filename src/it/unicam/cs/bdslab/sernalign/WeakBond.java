@@ -48,6 +48,17 @@ public class WeakBond implements Comparable<WeakBond> {
      */
     public WeakBond(int left, int right) throws RNAInputFileParserException {
 	// index checks
+	checkIndexes(left, right);
+	// checks passed
+	this.left = left;
+	this.right = right;
+    }
+
+    /*
+     * Check that a pair of indexes can identify a weak bond, throwing an
+     * RNAInputFileParserException otherwise.
+     */
+    static void checkIndexes(int left, int right) {
 	if (left < 1)
 	    throw new RNAInputFileParserException(
 		    "Weak Bond: left index: " + left + " less than 1.");
@@ -55,9 +66,6 @@ public class WeakBond implements Comparable<WeakBond> {
 	    throw new RNAInputFileParserException("Weak Bond: left index: "
 		    + left + " greater than or equal to right index: "
 		    + right);
-	// checks passed
-	this.left = left;
-	this.right = right;
     }
 
     /**
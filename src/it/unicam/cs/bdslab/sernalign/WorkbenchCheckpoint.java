@@ -0,0 +1,329 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Checkpoint of a run of the workbench, saved periodically so that an
+ * interrupted run can be resumed instead of being started over.
+ * 
+ * The pairs of structures are compared and written in a fixed order, thus
+ * the completed pairs are always the first ones: a checkpoint records
+ * their number together with the lengths of the comparison output files
+ * when they were written. A checkpoint also records a fingerprint of the
+ * input files, the options that change the output and the table of the
+ * processed structures, to check that a run is resumed on the same data.
+ * 
+ * A checkpoint is saved as a properties file, replacing the previous one
+ * atomically, after forcing the content of the output files to the
+ * storage device.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class WorkbenchCheckpoint {
+
+    /**
+     * Extension added to the name of the comparison output file to obtain
+     * the name of the checkpoint file.
+     */
+    static final String EXTENSION = ".checkpoint";
+
+    private static final String VERSION = "1";
+
+    private final Path file;
+
+    private final Properties properties;
+
+    private final long intervalNano;
+
+    // time of the last save
+    private long lastSaveNano;
+
+    private WorkbenchCheckpoint(Path file, Properties properties,
+	    long intervalMillis) {
+	this.file = file;
+	this.properties = properties;
+	this.intervalNano = intervalMillis * 1000000;
+	this.lastSaveNano = System.nanoTime();
+    }
+
+    /**
+     * Create a new checkpoint of a run.
+     * 
+     * @param fileName       the name of the checkpoint file
+     * @param input          the input folder or archive of the run
+     * @param fingerprint    the fingerprint of the input files (see
+     *                       {@link #fingerprint(List)})
+     * @param options        the description of the options of the run that
+     *                       change the output
+     * @param intervalMillis the minimum interval between two saves, in
+     *                       milliseconds
+     * @return the checkpoint, not yet saved
+     */
+    static WorkbenchCheckpoint create(String fileName, String input,
+	    String fingerprint, String options, long intervalMillis) {
+	Properties properties = new Properties();
+	properties.setProperty("version", VERSION);
+	properties.setProperty("input", input);
+	properties.setProperty("fingerprint", fingerprint);
+	properties.setProperty("options", options);
+	properties.setProperty("structures", "0");
+	properties.setProperty("pairs", "0");
+	return new WorkbenchCheckpoint(Paths.get(fileName), properties,
+		intervalMillis);
+    }
+
+    /**
+     * Load the checkpoint of an interrupted run and check that it belongs to
+     * a run on the same input and with the same options.
+     * 
+     * @param fileName       the name of the checkpoint file
+     * @param input          the input folder or archive of the run
+     * @param fingerprint    the fingerprint of the input files (see
+     *                       {@link #fingerprint(List)})
+     * @param options        the description of the options of the run that
+     *                       change the output
+     * @param intervalMillis the minimum interval between two saves, in
+     *                       milliseconds
+     * @return the checkpoint
+     * @throws IOException if the checkpoint cannot be read, is not valid or
+     *                     belongs to a different run
+     */
+    static WorkbenchCheckpoint load(String fileName, String input,
+	    String fingerprint, String options, long intervalMillis)
+	    throws IOException {
+	Properties properties = new Properties();
+	try (InputStream in = Files.newInputStream(Paths.get(fileName))) {
+	    properties.load(in);
+	} catch (NoSuchFileException e) {
+	    throw new IOException("The checkpoint " + fileName
+		    + " does not exist");
+	}
+	WorkbenchCheckpoint checkpoint = new WorkbenchCheckpoint(
+		Paths.get(fileName), properties, intervalMillis);
+	checkpoint.check("version", VERSION, "the version of the checkpoint");
+	checkpoint.check("input", input, "the input");
+	checkpoint.check("fingerprint", fingerprint,
+		"the input files, that have been changed");
+	checkpoint.check("options", options, "the options");
+	return checkpoint;
+    }
+
+    private void check(String key, String expected, String what)
+	    throws IOException {
+	if (!expected.equals(this.properties.getProperty(key)))
+	    throw new IOException("The checkpoint " + this.file
+		    + " does not match " + what);
+    }
+
+    /**
+     * Compute a fingerprint of a list of files from their names, lengths and
+     * modification times, that changes if a file is added, removed or
+     * modified.
+     * 
+     * @param files the files
+     * @return the fingerprint, as a hexadecimal string
+     */
+    static String fingerprint(List<File> files) {
+	MessageDigest digest;
+	try {
+	    digest = MessageDigest.getInstance("SHA-256");
+	} catch (NoSuchAlgorithmException e) {
+	    // every Java platform supports SHA-256
+	    throw new IllegalStateException(e);
+	}
+	for (File f : files) {
+	    String description = f.getName() + "\t" + f.length() + "\t"
+		    + f.lastModified() + "\n";
+	    digest.update(description.getBytes(StandardCharsets.UTF_8));
+	}
+	StringBuilder s = new StringBuilder();
+	for (byte b : digest.digest())
+	    s.append(String.format("%02x", b));
+	return s.toString();
+    }
+
+    /**
+     * Add a structure to the table of the processed structures.
+     * 
+     * @param name           the name of the structure
+     * @param size           the number of nucleotides
+     * @param bonds          the number of weak bonds
+     * @param processingTime the time taken to build its structural sequence,
+     *                       in nanoseconds
+     */
+    void addStructure(String name, int size, int bonds, long processingTime) {
+	int k = getNumberOfStructures();
+	this.properties.setProperty("structure." + k,
+		size + "," + bonds + "," + processingTime + "," + name);
+	this.properties.setProperty("structures", Integer.toString(k + 1));
+    }
+
+    /**
+     * @return the number of structures in the table
+     */
+    int getNumberOfStructures() {
+	return Integer.parseInt(this.properties.getProperty("structures"));
+    }
+
+    /**
+     * Check that a structure is the one at a given position of the table and
+     * return the time that was taken to build its structural sequence, so
+     * that the resumed run writes the same times.
+     * 
+     * @param k     the position of the structure in the table, from 0
+     * @param name  the name of the structure
+     * @param size  the number of nucleotides
+     * @param bonds the number of weak bonds
+     * @return the time taken to build the structural sequence, in
+     *         nanoseconds
+     * @throws IOException if the structure does not match the table
+     */
+    long getProcessingTime(int k, String name, int size, int bonds)
+	    throws IOException {
+	String entry = this.properties.getProperty("structure." + k);
+	String prefix = size + "," + bonds + ",";
+	if (entry != null && entry.startsWith(prefix)) {
+	    int comma = entry.indexOf(',', prefix.length());
+	    if (comma != -1 && entry.substring(comma + 1).equals(name))
+		return Long.parseLong(
+			entry.substring(prefix.length(), comma));
+	}
+	throw new IOException("The checkpoint " + this.file
+		+ " does not match the structure " + name);
+    }
+
+    /**
+     * Record the length of an output file that is complete.
+     * 
+     * @param fileName the name of the file
+     * @param length   the length of the file, in bytes
+     */
+    void setLength(String fileName, long length) {
+	this.properties.setProperty("length." + fileName,
+		Long.toString(length));
+    }
+
+    /**
+     * Check that an output file recorded as complete has not been changed.
+     * 
+     * @param fileName the name of the file
+     * @throws IOException if the file does not have the recorded length
+     */
+    void checkLength(String fileName) throws IOException {
+	check("length." + fileName,
+		Long.toString(new File(fileName).length()),
+		"the length of the output file " + fileName);
+    }
+
+    /**
+     * @return the number of pairs completed when the checkpoint was saved
+     */
+    long getPairs() {
+	return Long.parseLong(this.properties.getProperty("pairs"));
+    }
+
+    /**
+     * Return the length that an output file had when the checkpoint was
+     * saved.
+     * 
+     * @param fileName the name of the file
+     * @return the length, in bytes
+     * @throws IOException if the length of the file has not been recorded
+     */
+    long getOffset(String fileName) throws IOException {
+	String offset = this.properties.getProperty("offset." + fileName);
+	if (offset == null)
+	    throw new IOException("The checkpoint " + this.file
+		    + " does not contain the output file " + fileName);
+	return Long.parseLong(offset);
+    }
+
+    /**
+     * @return true if the minimum interval between two saves has elapsed
+     *         since the last save
+     */
+    boolean isDue() {
+	return System.nanoTime() - this.lastSaveNano >= this.intervalNano;
+    }
+
+    /**
+     * Save the checkpoint after forcing the output files to the storage
+     * device and recording their lengths.
+     * 
+     * @param pairs     the number of pairs completed, all written in the
+     *                  output files
+     * @param fileNames the names of the output files that are being written
+     * @param outputs   the writers of the output files, in the same order
+     * @throws IOException if an output file or the checkpoint cannot be
+     *                     written
+     */
+    void save(long pairs, String[] fileNames, OutputWriter[] outputs)
+	    throws IOException {
+	for (int k = 0; k < outputs.length; k++) {
+	    outputs[k].sync();
+	    this.properties.setProperty("offset." + fileNames[k],
+		    Long.toString(outputs[k].position()));
+	}
+	this.properties.setProperty("pairs", Long.toString(pairs));
+	Path temporary = this.file
+		.resolveSibling(this.file.getFileName() + ".tmp");
+	try (OutputStream out = Files.newOutputStream(temporary)) {
+	    this.properties.store(out, "SERNAlign workbench checkpoint");
+	}
+	try {
+	    Files.move(temporary, this.file,
+		    StandardCopyOption.REPLACE_EXISTING,
+		    StandardCopyOption.ATOMIC_MOVE);
+	} catch (AtomicMoveNotSupportedException e) {
+	    Files.move(temporary, this.file,
+		    StandardCopyOption.REPLACE_EXISTING);
+	}
+	this.lastSaveNano = System.nanoTime();
+    }
+
+    /**
+     * Delete the checkpoint file, at the end of a completed run.
+     * 
+     * @throws IOException if the file cannot be deleted
+     */
+    void delete() throws IOException {
+	Files.deleteIfExists(this.file);
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the class WorkbenchCheckpoint
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class WorkbenchCheckpointTest {
+
+    @Test
+    void testSaveAndResume() throws IOException {
+	Path dir = Files.createTempDirectory("checkpoint");
+	String output = dir.resolve("c.csv").toString();
+	String checkpointName = output + WorkbenchCheckpoint.EXTENSION;
+	String fingerprint = WorkbenchCheckpoint
+		.fingerprint(Arrays.asList(new File(output)));
+	WorkbenchCheckpoint checkpoint = WorkbenchCheckpoint.create(
+		checkpointName, "in", fingerprint, "o", 1000);
+	checkpoint.addStructure("a.db", 10, 3, 42);
+	checkpoint.addStructure("b.db", 12, 4, 43);
+	OutputWriter w = OutputWriter.open(output);
+	w.append("header").newLine();
+	checkpoint.save(0, new String[] { output }, new OutputWriter[] { w });
+	w.append("row 1").newLine();
+	long offset = w.position();
+	checkpoint.save(1, new String[] { output }, new OutputWriter[] { w });
+	// a partial row written after the last checkpoint
+	w.append("row").close();
+
+	WorkbenchCheckpoint resumed = WorkbenchCheckpoint.load(checkpointName,
+		"in", fingerprint, "o", 1000);
+	assertEquals(1, resumed.getPairs());
+	assertEquals(offset, resumed.getOffset(output));
+	assertEquals(2, resumed.getNumberOfStructures());
+	assertEquals(43, resumed.getProcessingTime(1, "b.db", 12, 4));
+	assertThrows(IOException.class,
+		() -> resumed.getProcessingTime(1, "c.db", 12, 4));
+	OutputWriter.openAt(output, resumed.getOffset(output)).close();
+	assertEquals(offset, new File(output).length());
+
+	assertThrows(IOException.class, () -> WorkbenchCheckpoint
+		.load(checkpointName, "in", fingerprint, "other", 1000));
+	assertThrows(IOException.class, () -> WorkbenchCheckpoint
+		.load(checkpointName, "in", "changed", "o", 1000));
+	resumed.delete();
+	assertThrows(IOException.class, () -> WorkbenchCheckpoint
+		.load(checkpointName, "in", fingerprint, "o", 1000));
+	Files.delete(new File(output).toPath());
+	Files.delete(dir);
+    }
+}
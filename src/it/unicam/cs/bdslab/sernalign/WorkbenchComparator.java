@@ -23,17 +23,12 @@
 package it.unicam.cs.bdslab.sernalign;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 //import javax.swing.JFileChooser;
 //import javax.swing.JOptionPane;
@@ -61,6 +56,15 @@ import org.apache.commons.cli.ParseException;
  */
 public class WorkbenchComparator {
 
+    // capacity of the queues between the stages of the pipeline
+    private static final int STAGE_CAPACITY = 256;
+
+    // default interval between two progress lines, in milliseconds
+    private static final long DEFAULT_PROGRESS_INTERVAL = 10000;
+
+    // default interval between two checkpoints, in milliseconds
+    private static final long DEFAULT_CHECKPOINT_INTERVAL = 60000;
+
     public static void main(String[] args) {
         // Use Apache Commons CLI 1.4
         // create Options object for Command Line Definition
@@ -68,7 +72,8 @@ public class WorkbenchComparator {
 
         // define command line options
         Option o1 = Option.builder("f")
-                .desc("Process the files in the given folder")
+                .desc("Process the files in the given folder or the entries of the given "
+                        + "zip or tar archive, possibly compressed with gzip")
                 .longOpt("input").hasArg().argName("input-folder").build();
         options.addOption(o1);
         Option o2 = Option.builder("o").desc(
@@ -87,18 +92,91 @@ public class WorkbenchComparator {
                 .longOpt("json")
                 .build();
         options.addOption(o5);
+        Option o11 = Option.builder().desc(
+                        "Generate the JSON output in JSON Lines format, one object per line, "
+                                + "in files with extension .jsonl (implies -j)")
+                .longOpt("jsonl").build();
+        options.addOption(o11);
 
         options.addOption(
                 "n",
                 "no-constraints",
                 false,
                 "Do not use constraints on the alignment");
+        Option o6 = Option.builder("c").desc(
+                        "Check the base pairs and skip the structures with pairs not allowed: "
+                                + "Watson-Crick and wobble pairs by default, \"wc\" for only Watson-Crick "
+                                + "pairs or a comma-separated list of allowed pairs, e.g., AU,UA,CG,GC "
+                                + "(disabled by default)")
+                .longOpt("chkpair").hasArg().optionalArg(true)
+                .argName("pairs").build();
+        options.addOption(o6);
+        Option o9 = Option.builder("t").desc(
+                        "Align the pairs of structures with the given number of threads "
+                                + "(1 by default); the output is the same as with one thread, "
+                                + "except for the execution times")
+                .longOpt("threads").hasArg().argName("N").build();
+        options.addOption(o9);
+        Option o10 = Option.builder().desc(
+                        "Print the throughput of the stages of the processing pipeline "
+                                + "(ingest, build, align, write) on the standard error at the end")
+                .longOpt("stats").build();
+        options.addOption(o10);
+        Option o12 = Option.builder("q").desc(
+                        "Do not print the progress of the comparisons")
+                .longOpt("quiet").build();
+        options.addOption(o12);
+        Option o13 = Option.builder().desc(
+                        "Print the progress of the comparisons every given number of seconds "
+                                + "(10 by default)")
+                .longOpt("progress").hasArg().argName("seconds").build();
+        options.addOption(o13);
+        Option o14 = Option.builder().desc(
+                        "Resume an interrupted run from its last checkpoint; the input, the "
+                                + "output files and the options -c, -n, -j, --jsonl, --matrix "
+                                + "and --query must be the same as in the interrupted run")
+                .longOpt("resume").build();
+        options.addOption(o14);
+        Option o15 = Option.builder().desc(
+                        "Save a checkpoint of the run every given number of seconds "
+                                + "(60 by default)")
+                .longOpt("checkpoint").hasArg().argName("seconds").build();
+        options.addOption(o15);
+        Option o16 = Option.builder().desc(
+                        "Compute only shard i of N of the pairs of structures, with about the "
+                                + "same alignment cost, writing the output files with the shard "
+                                + "added to their names, e.g., 1/4 for the first of four shards")
+                .longOpt("shard").hasArg().argName("i/N").build();
+        options.addOption(o16);
+        Option o17 = Option.builder().desc(
+                        "Merge the output files of the N shards computed with option --shard "
+                                + "into the output files, with the same options -f, -o, -j, "
+                                + "--jsonl and --matrix used for the shards")
+                .longOpt("merge").hasArg().argName("N").build();
+        options.addOption(o17);
+        Option o18 = Option.builder().desc(
+                        "Align the pairs of structures with the given number of worker "
+                                + "processes, started with the same Java options, each one "
+                                + "with the number of threads given with option -t; the output "
+                                + "is the same as with one thread, except for the execution times")
+                .longOpt("workers").hasArg().argName("N").build();
+        options.addOption(o18);
+        Option o19 = Option.builder().desc(
+                        "Write also the distances of all the pairs of structures in the given "
+                                + "binary distance matrix file, that can be read with random access "
+                                + "without loading it")
+                .longOpt("matrix").hasArg().argName("file").build();
+        options.addOption(o19);
+        Option o20 = Option.builder().desc(
+                        "Compare each structure of the given file, folder or archive (the "
+                                + "queries) with all the structures of the input given with "
+                                + "option -f (the references), instead of comparing all the "
+                                + "pairs of structures of the input; the queries are not "
+                                + "compared with each other")
+                .longOpt("query").hasArg().argName("query").build();
+        options.addOption(o20);
 
-	/*Option o6 = Option.builder("c").desc(
-		"Check the presence of only standard Watson-Crick and wobble base pairing (disabled by default)")
-		.longOpt("chkpair").build();
-	options.addOption(o6);
-	Option o7 = Option.builder("e")
+	/*Option o7 = Option.builder("e")
 		.desc("Show current values of edit scores used for alignment")
 		.longOpt("showscores").build();
 	options.addOption(o7);
@@ -127,6 +205,132 @@ public class WorkbenchComparator {
             System.exit(1);
         }
         boolean noConstraints = cmd.hasOption("n");
+        // Manage option c
+        BasePairValidator validator = null;
+        if (cmd.hasOption("c")) {
+            String pairs = cmd.getOptionValue("c");
+            try {
+                validator = pairs == null
+                        ? BasePairValidator.WATSON_CRICK_WOBBLE
+                        : BasePairValidator.valueOf(pairs);
+            } catch (IllegalArgumentException e) {
+                System.err.println("ERROR: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        // Manage option t
+        int threads = 1;
+        if (cmd.hasOption("t")) {
+            try {
+                threads = Integer.parseInt(cmd.getOptionValue("t"));
+            } catch (NumberFormatException e) {
+                threads = 0;
+            }
+            if (threads < 1) {
+                System.err.println("ERROR: The number of threads must be a positive integer: "
+                        + cmd.getOptionValue("t"));
+                System.exit(1);
+            }
+        }
+        // Manage option workers
+        int workers = 0;
+        if (cmd.hasOption("workers")) {
+            try {
+                workers = Integer.parseInt(cmd.getOptionValue("workers"));
+            } catch (NumberFormatException e) {
+                workers = 0;
+            }
+            if (workers < 1) {
+                System.err.println("ERROR: The number of workers must be a positive integer: "
+                        + cmd.getOptionValue("workers"));
+                System.exit(1);
+            }
+        }
+        // Manage option progress
+        long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+        if (cmd.hasOption("progress")) {
+            try {
+                progressInterval = Math.round(
+                        Double.parseDouble(cmd.getOptionValue("progress")) * 1000);
+            } catch (NumberFormatException e) {
+                progressInterval = 0;
+            }
+            if (progressInterval <= 0) {
+                System.err.println("ERROR: The progress interval must be a positive number of seconds: "
+                        + cmd.getOptionValue("progress"));
+                System.exit(1);
+            }
+        }
+        boolean quiet = cmd.hasOption("q");
+        // Manage option checkpoint
+        long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+        if (cmd.hasOption("checkpoint")) {
+            try {
+                checkpointInterval = Math.round(
+                        Double.parseDouble(cmd.getOptionValue("checkpoint")) * 1000);
+            } catch (NumberFormatException e) {
+                checkpointInterval = 0;
+            }
+            if (checkpointInterval <= 0) {
+                System.err.println("ERROR: The checkpoint interval must be a positive number of seconds: "
+                        + cmd.getOptionValue("checkpoint"));
+                System.exit(1);
+            }
+        }
+        boolean resume = cmd.hasOption("resume");
+        String matrixName = cmd.getOptionValue("matrix");
+        // Manage option shard
+        int shard = 0;
+        int shards = 0;
+        if (cmd.hasOption("shard")) {
+            String[] values = cmd.getOptionValue("shard").split("/", -1);
+            try {
+                if (values.length == 2) {
+                    shard = Integer.parseInt(values[0]);
+                    shards = Integer.parseInt(values[1]);
+                }
+            } catch (NumberFormatException e) {
+                shards = 0;
+            }
+            if (shards < 1 || shard < 1 || shard > shards) {
+                System.err.println("ERROR: The shard must be given as i/N, with 1 <= i <= N: "
+                        + cmd.getOptionValue("shard"));
+                System.exit(1);
+            }
+        }
+        // Manage option merge
+        int mergeShards = 0;
+        if (cmd.hasOption("merge")) {
+            try {
+                mergeShards = Integer.parseInt(cmd.getOptionValue("merge"));
+            } catch (NumberFormatException e) {
+                mergeShards = 0;
+            }
+            if (mergeShards < 1) {
+                System.err.println("ERROR: The number of shards to merge must be a positive integer: "
+                        + cmd.getOptionValue("merge"));
+                System.exit(1);
+            }
+            if (shards > 0 || resume) {
+                System.err.println("ERROR: Option --merge cannot be used with options --shard and --resume");
+                System.exit(1);
+            }
+        }
+        // Manage option query
+        File queryInput = null;
+        if (cmd.hasOption("query")) {
+            queryInput = new File(cmd.getOptionValue("query"));
+            if (shards > 0 || mergeShards > 0 || workers > 0
+                    || matrixName != null) {
+                System.err.println("ERROR: Option --query cannot be used with options --shard, --merge, --workers and --matrix");
+                System.exit(1);
+            }
+            if (!queryInput.exists()) {
+                System.err.println("ERROR: Query file "
+                        + cmd.getOptionValue("query") + " does not exist");
+                System.exit(1);
+            }
+        }
         // Manage Option h
         if (cmd.hasOption("h")) {
             formatter.printHelp(CommandLineMessages.LAUNCH_COMMAND_WB,
@@ -154,77 +358,179 @@ public class WorkbenchComparator {
 
         // Manage option f
         if (cmd.hasOption("f")) {
-            // Process a folder
+            // Process a folder or an archive
             // Get folder file from command line
             File inputDirectory = new File(cmd.getOptionValue("f"));
-            // Variables for counting execution time
-            long startTimeNano = 0;
-            long elapsedTimeNano = 0;
-            // Maps for holding all the structures to be processed and their
-            // associated
-            // processing time
-            Map<File, StructuralSequence> structures = new HashMap<File, StructuralSequence>();
-            Map<File, Long> structuresProcessingTime = new HashMap<File, Long>();
+            boolean inputArchive = inputDirectory.isFile()
+                    && RNAInputFiles.isArchive(inputDirectory.getName());
+            // List for holding all the structures to be processed
+            List<ProcessedStructure> structures = new ArrayList<ProcessedStructure>();
             // List for holding all the structures files
             List<File> structuresList = new ArrayList<File>();
-            // Set of skipped files
-            Set<File> skippedFiles = new HashSet<File>();
-            int numStructures = 1;
 
             // Process input files
-            if (!inputDirectory.isDirectory()) {
-                System.err.println("ERROR: Input file "
-                        + cmd.getOptionValue("f") + " is not a folder");
-                System.exit(1);
+            if (!inputArchive) {
+                if (!inputDirectory.isDirectory()) {
+                    System.err.println("ERROR: Input file "
+                            + cmd.getOptionValue("f")
+                            + " is not a folder or an archive");
+                    System.exit(1);
+                }
+                structuresList = listFiles(inputDirectory);
             }
-            File[] fs = inputDirectory.listFiles();
-            // Filter only files and put them in the list
-            for (int i = 0; i < fs.length; i++)
-                if (!fs[i].isDirectory())
-                    if (!fs[i].isHidden())
-                        structuresList.add(fs[i]);
-                    else
-                        System.err.println("WARNING: Skipping hidden file "
-                                + fs[i].getName() + " ...");
+            // The queries are a folder, an archive or a single file, that
+            // may contain many structures
+            boolean queryArchive = queryInput != null && queryInput.isFile()
+                    && RNAInputFiles.isArchive(queryInput.getName());
+            List<File> queryList = new ArrayList<File>();
+            if (queryInput != null && !queryArchive)
+                if (queryInput.isDirectory())
+                    queryList = listFiles(queryInput);
                 else
-                    System.err.println("WARNING: Skipping subfolder "
-                            + fs[i].getName() + " ...");
-
-            // Order files to be processed
-            Collections.sort(structuresList);
+                    queryList.add(queryInput);
+            // The default output files of an archive are put in its folder
+            File outputDirectory = inputArchive
+                    ? inputDirectory.getAbsoluteFile().getParentFile()
+                    : inputDirectory;
 
             // Output files creation
-            PrintStream outputStream = null;
-            PrintStream jsonOutputStream = null;
-            PrintStream structuresStream = null;
-            PrintStream jsonStructuresStream = null;
-            String outputStreamName = inputDirectory.getAbsolutePath() + "/"
+            OutputWriter outputStream = null;
+            OutputWriter jsonOutput = null;
+            JsonWriter jsonOutputStream = null;
+            OutputWriter structuresStream = null;
+            JsonWriter jsonStructuresStream = null;
+            boolean jsonLines = cmd.hasOption("jsonl");
+            boolean json = cmd.hasOption("j") || jsonLines;
+            String jsonExtension = jsonLines ? ".jsonl" : ".json";
+            String outputStreamName = outputDirectory.getAbsolutePath() + "/"
                     + "SERNAlignComparisonResults.csv";
-            String structuresStreamName = inputDirectory.getAbsolutePath()
+            String structuresStreamName = outputDirectory.getAbsolutePath()
                     + "/" + "SERNAlignProcessedStructures.csv";
-            String jsonOutputStreamName = inputDirectory.getAbsolutePath() + "/"
-                    + "SERNAlignComparisonResults.json";
-            String jsonStructuresStreamName = inputDirectory.getAbsolutePath()
-                    + "/" + "SERNAlignProcessedStructures.json";
-
-
-            List<String> jsonOutputEntries = new ArrayList<>();
-            List<String> jsonStructuresEntries = new ArrayList<>();
+            String jsonOutputStreamName = outputDirectory.getAbsolutePath() + "/"
+                    + "SERNAlignComparisonResults" + jsonExtension;
+            String jsonStructuresStreamName = outputDirectory.getAbsolutePath()
+                    + "/" + "SERNAlignProcessedStructures" + jsonExtension;
 
             // Manage option "o"
             if (cmd.hasOption("o")) {
                 String[] names = cmd.getOptionValues("o");
                 structuresStreamName = names[0];
                 outputStreamName = names[1];
-                jsonStructuresStreamName = names[0] + ".json";
-                jsonOutputStreamName = names[1] + ".json";
+                jsonStructuresStreamName = names[0] + jsonExtension;
+                jsonOutputStreamName = names[1] + jsonExtension;
+            }
+
+            // Manage option merge
+            if (mergeShards > 0) {
+                try {
+                    WorkbenchShards.merge(structuresStreamName,
+                            outputStreamName,
+                            json ? jsonStructuresStreamName : null,
+                            json ? jsonOutputStreamName : null, jsonLines,
+                            matrixName, mergeShards);
+                } catch (IOException e) {
+                    System.err.println("ERROR: merging the output files of the shards failed ... "
+                            + e.getMessage());
+                    System.exit(3);
+                }
+                return;
+            }
+
+            // The output files of the run and of its shards, with their
+            // checkpoints, are not read as input files if they are put in
+            // the input folder
+            List<String> outputNames = new ArrayList<>();
+            String[] runOutputNames = { outputStreamName,
+                    structuresStreamName, jsonOutputStreamName,
+                    jsonStructuresStreamName, matrixName };
+            for (String name : runOutputNames) {
+                if (name == null)
+                    continue;
+                outputNames.add(name);
+                for (int k = 1; k <= shards; k++)
+                    outputNames.add(WorkbenchShards.fileName(name, k, shards));
+            }
+            outputNames.add(outputStreamName + WorkbenchCheckpoint.EXTENSION);
+            for (int k = 1; k <= shards; k++)
+                outputNames.add(WorkbenchShards.fileName(outputStreamName, k,
+                        shards) + WorkbenchCheckpoint.EXTENSION);
+            // Manage option shard
+            if (shards > 0) {
+                outputStreamName = WorkbenchShards.fileName(outputStreamName,
+                        shard, shards);
+                structuresStreamName = WorkbenchShards.fileName(
+                        structuresStreamName, shard, shards);
+                jsonOutputStreamName = WorkbenchShards.fileName(
+                        jsonOutputStreamName, shard, shards);
+                jsonStructuresStreamName = WorkbenchShards.fileName(
+                        jsonStructuresStreamName, shard, shards);
+                if (matrixName != null)
+                    matrixName = WorkbenchShards.fileName(matrixName, shard,
+                            shards);
             }
 
+            // Checkpoint of the run, identified by the input files and by the
+            // options that change the output
+            String checkpointName = outputStreamName
+                    + WorkbenchCheckpoint.EXTENSION;
+            List<File> inputFiles = new ArrayList<>();
+            if (inputArchive)
+                inputFiles.add(inputDirectory);
+            else
+                for (File f : structuresList)
+                    if (!isOneOf(f, outputNames))
+                        inputFiles.add(f);
+            List<File> queryFiles = new ArrayList<>();
+            if (queryArchive)
+                queryFiles.add(queryInput);
+            else
+                for (File f : queryList)
+                    if (!isOneOf(f, outputNames))
+                        queryFiles.add(f);
+            List<File> runFiles = new ArrayList<>(inputFiles);
+            runFiles.addAll(queryFiles);
+            String runOptions = "constraints=" + !noConstraints
+                    + ",chkpair=" + (cmd.hasOption("c")
+                    ? String.valueOf(cmd.getOptionValue("c"))
+                    : "none")
+                    + ",json=" + (json ? jsonExtension : "none")
+                    + ",shard=" + (shards > 0 ? shard + "/" + shards : "none")
+                    + ",matrix=" + (matrixName != null ? "yes" : "none")
+                    + ",query=" + (queryInput != null
+                    ? queryInput.getAbsolutePath()
+                    : "none");
+            WorkbenchCheckpoint checkpoint = null;
+            if (resume)
+                try {
+                    checkpoint = WorkbenchCheckpoint.load(checkpointName,
+                            inputDirectory.getAbsolutePath(),
+                            WorkbenchCheckpoint.fingerprint(runFiles),
+                            runOptions, checkpointInterval);
+                    // The structures output files are complete
+                    checkpoint.checkLength(structuresStreamName);
+                    if (json)
+                        checkpoint.checkLength(jsonStructuresStreamName);
+                } catch (IOException e) {
+                    System.err.println("ERROR: cannot resume the run ... "
+                            + e.getMessage());
+                    System.exit(1);
+                }
+            else
+                checkpoint = WorkbenchCheckpoint.create(checkpointName,
+                        inputDirectory.getAbsolutePath(),
+                        WorkbenchCheckpoint.fingerprint(runFiles),
+                        runOptions, checkpointInterval);
+
             try {
-                outputStream = new PrintStream(new File(outputStreamName));
-                structuresStream = new PrintStream(
-                        new File(structuresStreamName));
-            } catch (FileNotFoundException e) {
+                if (resume)
+                    // Continue the comparison results from the checkpoint
+                    outputStream = OutputWriter.openAt(outputStreamName,
+                            checkpoint.getOffset(outputStreamName));
+                else {
+                    outputStream = OutputWriter.open(outputStreamName);
+                    structuresStream = OutputWriter.open(structuresStreamName);
+                }
+            } catch (IOException e) {
                 System.err.println("ERROR: creation of output file "
                         + (outputStream == null ? outputStreamName
                         : structuresStreamName)
@@ -232,260 +538,303 @@ public class WorkbenchComparator {
                 System.exit(3);
             }
 
-            // JSON output
+            // JSON output, written while the results are produced
 
-            if (cmd.hasOption("j")) {
+            if (json) {
                 try {
-                    jsonOutputStream = new PrintStream(new File(jsonOutputStreamName));
-                    jsonStructuresStream =
-                            new PrintStream(new File(jsonStructuresStreamName));
-                } catch (FileNotFoundException e) {
+                    if (resume) {
+                        jsonOutput = OutputWriter.openAt(jsonOutputStreamName,
+                                checkpoint.getOffset(jsonOutputStreamName));
+                        jsonOutputStream = JsonWriter.resume(jsonOutput,
+                                jsonLines, checkpoint.getPairs());
+                    } else {
+                        jsonOutput = OutputWriter.open(jsonOutputStreamName);
+                        jsonOutputStream = new JsonWriter(jsonOutput,
+                                jsonLines);
+                        jsonStructuresStream = new JsonWriter(
+                                OutputWriter.open(jsonStructuresStreamName),
+                                jsonLines);
+                    }
+                } catch (IOException e) {
                     System.err.println("ERROR: failed to create JSON output " +
                             "file... " + e.getMessage());
                     System.exit(4);
                 }
             }
 
-            // Write column names on the csv output files
-            structuresStream.println(
-                    "Num,FileName,NumberOfNucleotides,NumberOfWeakBonds,"
-                            + "IsPseudoknotted,TimeToGenerateStructuralSequence[ns]");
-            outputStream.println(
-                    "FileName1,NumberOfNucleotides1,NumberOfWeakBonds1,IsPseudoknotted1,TimeToGenerateStructuralSequence1[ns],"
-                            + "FileName2,NumberOfNucleotides2,NumberOfWeakBonds2,IsPseudoknotted2,TimeToGenerateStructuralSequence2[ns],"
-                            + "MaxNumberOfNucleotides1-2,SERNADistance,TimeToCalculateSERNADistance[ns]");
-
-            // Main Loop
-            ListIterator<File> extIt = structuresList.listIterator();
-            while (extIt.hasNext()) {
-                // Compare the next element with all the subsequent elements
-                int currentExtIndex = extIt.nextIndex();
-                // Process File 1
-                File f1 = extIt.next();
-                // Check if skipped
-                if (skippedFiles.contains(f1))
-                    // skip this file
-                    continue;
+            // The structures are processed by a pipeline of stages connected
+            // by bounded queues: this thread reads and parses the files
+            // (ingest), the build stage builds their structural sequences,
+            // the pairs are aligned (align) and the write stage writes the
+            // results
+            final PipelineStage.Statistics ingest =
+                    new PipelineStage.Statistics("ingest");
+            final PipelineStage<ParsedStructure> build = new PipelineStage<>(
+                    "build", STAGE_CAPACITY, s -> structures.add(s.build()));
 
-                // Retrieve the Structural RNA Tree for the structure 1
-                StructuralSequence art1 = null;
-                // Check if this structure has already been processed
-                if (!structures.containsKey(f1)) {
-                    // Parse the input file f1 for the secondary structure
-                    RNASecondaryStructure secondaryStructure1 = null;
-                    try {
-                        secondaryStructure1 = RNASecondaryStructureFileReader
-                                .readStructure(f1.getPath(), false);
-                    } catch (IOException e) {
-                        System.err.println("WARNING: Skipping file "
-                                + f1.getName() + " ... " + e.getMessage());
-                        // skip this structure
-                        skippedFiles.add(f1);
-                        continue;
-                    } catch (RNAInputFileParserException e) {
-                        System.err.println("WARNING: Skipping file "
-                                + f1.getName() + " ... " + e.getMessage());
-                        // skip this structure
-                        skippedFiles.add(f1);
-                        continue;
-                    }
-                    // Create the Structural RNA Tree and put the object into
-                    // the map
-                    // Build Structural Sequence and measure building time
-                    startTimeNano = System.nanoTime();
-                    art1 = new StructuralSequence(secondaryStructure1);
-                    elapsedTimeNano = System.nanoTime() - startTimeNano;
-                    // Insert Object in maps
-                    structures.put(f1, art1);
-                    structuresProcessingTime.put(f1, elapsedTimeNano);
-                    // Output values in the structures output file
-                    structuresStream.println(numStructures + "," + "\""
-                            + f1.getName() + "\","
-                            + art1.getSecondaryStructure().getSize() + ","
-                            + art1.getSecondaryStructure().getBonds().size()
-                            + ","
-                            + (art1.getSecondaryStructure().isPseudoknotted()
-                            ? "Yes"
-                            : "No")
-                            + "," + elapsedTimeNano);
-                    if (jsonStructuresStream != null) {
-                        String jsonStructEntry = String.format(
-                                "{ \"Num\": %d, \"FileName\": \"%s\", \"NumberOfNucleotides\": %d, \"NumberOfWeakBonds\": %d, " +
-                                        "\"IsPseudoknotted\": \"%s\", \"TimeToGenerateStructuralSequence_ns\": %d }",
-                                numStructures,
-                                f1.getName(),
-                                art1.getSecondaryStructure().getSize(),
-                                art1.getSecondaryStructure().getBonds().size(),
-                                art1.getSecondaryStructure().isPseudoknotted() ? "Yes" : "No",
-                                elapsedTimeNano
-                        );
-                        jsonStructuresEntries.add(jsonStructEntry);
-                    }
-                    numStructures++;
-                } else {
-                    art1 = structures.get(f1);
+            // Read all the structures, in the order of the files and of the
+            // records in each file: the references, i.e., all the structures
+            // of the input if there are no queries, and then the queries
+            try {
+                readInput(inputArchive ? inputDirectory : null, inputFiles,
+                        validator, build, ingest);
+            } catch (IOException e) {
+                System.err.println("ERROR: reading archive "
+                        + cmd.getOptionValue("f") + " failed ... "
+                        + e.getMessage());
+                System.exit(3);
+            }
+            // The build stage adds the structures in the order in which they
+            // are read, thus the references are the first ones
+            final int references = queryInput != null
+                    ? (int) ingest.getItems()
+                    : 0;
+            if (queryInput != null)
+                try {
+                    readInput(queryArchive ? queryInput : null, queryFiles,
+                            validator, build, ingest);
+                } catch (IOException e) {
+                    System.err.println("ERROR: reading archive "
+                            + cmd.getOptionValue("query") + " failed ... "
+                            + e.getMessage());
+                    System.exit(3);
                 }
+            ingest.end();
+            build.await(ingest);
+            // Order the entries of an archive as the files of a folder,
+            // keeping the order of the records in each entry
+            if (inputArchive)
+                Collections.sort(structures.subList(0, references == 0
+                                ? structures.size()
+                                : references),
+                        (s1, s2) -> s1.fileName.compareTo(s2.fileName));
+            if (queryArchive)
+                Collections.sort(structures.subList(references,
+                                structures.size()),
+                        (s1, s2) -> s1.fileName.compareTo(s2.fileName));
+            if (queryInput != null && references == 0) {
+                System.err.println("ERROR: The input "
+                        + cmd.getOptionValue("f")
+                        + " does not contain reference structures");
+                System.exit(1);
+            }
 
-                // Internal Loop - Compare structure 1 with all the subsequent
-                // ones
-                ListIterator<File> intIt = structuresList
-                        .listIterator(currentExtIndex + 1);
-                while (intIt.hasNext()) {
-                    // Process File 2
-                    File f2 = intIt.next();
-                    // Check if skipped
-                    if (skippedFiles.contains(f2))
-                        // skip this file
-                        continue;
-
-                    // Retrieve the Structural Sequence for the structure 2
-                    StructuralSequence art2 = null;
-                    // Check if this structure has already been processed
-                    if (!structures.containsKey(f2)) {
-                        // Parse the input file f2 for the secondary structure
-                        RNASecondaryStructure secondaryStructure2 = null;
-                        try {
-                            secondaryStructure2 = RNASecondaryStructureFileReader
-                                    .readStructure(f2.getPath(), false);
-                        } catch (IOException e) {
-                            System.err.println(
-                                    "WARNING: Skipping file " + f2.getName()
-                                            + " ... " + e.getMessage());
-                            // skip this structure
-                            skippedFiles.add(f2);
-                            continue;
-                        } catch (RNAInputFileParserException e) {
-                            System.err.println(
-                                    "WARNING: Skipping file " + f2.getName()
-                                            + " ... " + e.getMessage());
-                            // skip this structure
-                            skippedFiles.add(f2);
-                            continue;
-                        }
-
-                        // Build Structural RNA Tree and measure building time
-                        startTimeNano = System.nanoTime();
-                        // Create the Structural RNA Tree and put the object
-                        // into the map
-                        art2 = new StructuralSequence(secondaryStructure2);
-                        elapsedTimeNano = System.nanoTime() - startTimeNano;
-                        // Insert Object in maps
-                        structures.put(f2, art2);
-                        structuresProcessingTime.put(f2, elapsedTimeNano);
-                        // Output values in the structures output file
-                        structuresStream.println(numStructures + "," + "\""
-                                + f2.getName() + "\","
-                                + art2.getSecondaryStructure().getSize() + ","
-                                + art2.getSecondaryStructure().getBonds()
-                                .size()
-                                + ","
-                                + (art2.getSecondaryStructure()
-                                .isPseudoknotted() ? "Yes" : "No")
-                                + "," + elapsedTimeNano);
-                        if (jsonStructuresStream != null) {
-                            String jsonStructEntry = String.format(
-                                    "{ \"Num\": %d, \"FileName\": \"%s\", \"NumberOfNucleotides\": %d, \"NumberOfWeakBonds\": %d, " +
-                                            "\"IsPseudoknotted\": \"%s\", \"TimeToGenerateStructuralSequence_ns\": %d }",
-                                    numStructures,
-                                    f1.getName(),
-                                    art1.getSecondaryStructure().getSize(),
-                                    art1.getSecondaryStructure().getBonds().size(),
-                                    art1.getSecondaryStructure().isPseudoknotted() ? "Yes" : "No",
-                                    elapsedTimeNano
-                            );
-                            jsonStructuresEntries.add(jsonStructEntry);
-                        }
+            if (resume)
+                // The structures are the same as in the interrupted run, take
+                // their processing times from the checkpoint so that the
+                // results are written as they would have been
+                try {
+                    if (checkpoint.getNumberOfStructures() != structures.size())
+                        throw new IOException("the checkpoint contains "
+                                + checkpoint.getNumberOfStructures()
+                                + " structures, the input " + structures.size());
+                    for (int k = 0; k < structures.size(); k++) {
+                        ProcessedStructure p = structures.get(k);
+                        RNASecondaryStructure s = p.structuralSequence.getSecondaryStructure();
+                        structures.set(k, new ProcessedStructure(p.fileName,
+                                p.name, p.structuralSequence,
+                                checkpoint.getProcessingTime(k, p.name,
+                                        s.getSize(), s.getNumberOfBonds())));
+                    }
+                } catch (IOException e) {
+                    System.err.println("ERROR: cannot resume the run ... "
+                            + e.getMessage());
+                    System.exit(1);
+                }
+            else
+                // Write column names on the csv output files and output
+                // values in the structures output files, that are complete
+                // before the comparisons start
+                try {
+                    structuresStream.append(
+                            "Num,FileName,NumberOfNucleotides,NumberOfWeakBonds,"
+                                    + "IsPseudoknotted,TimeToGenerateStructuralSequence[ns],"
+                                    + "PseudoknotOrder,NumberOfCrossingPairs,Format")
+                            .newLine();
+                    outputStream.append(
+                            "FileName1,NumberOfNucleotides1,NumberOfWeakBonds1,IsPseudoknotted1,TimeToGenerateStructuralSequence1[ns],"
+                                    + "FileName2,NumberOfNucleotides2,NumberOfWeakBonds2,IsPseudoknotted2,TimeToGenerateStructuralSequence2[ns],"
+                                    + "MaxNumberOfNucleotides1-2,SERNADistance,TimeToCalculateSERNADistance[ns]")
+                            .newLine();
+                    int numStructures = 1;
+                    for (ProcessedStructure p : structures) {
+                        RNASecondaryStructure s = p.structuralSequence.getSecondaryStructure();
+                        structuresStream.appendNumber(numStructures).append(',')
+                                .append(p.csvFields).append(',')
+                                .appendNumber(s.getPseudoknotOrder()).append(',')
+                                .appendNumber(s.getNumberOfCrossingPairs()).append(',')
+                                .append(String.valueOf(s.getFormat())).newLine();
+                        if (jsonStructuresStream != null)
+                            jsonStructuresStream.beginObject()
+                                    .field("Num", numStructures)
+                                    .field("FileName", p.name)
+                                    .field("NumberOfNucleotides", s.getSize())
+                                    .field("NumberOfWeakBonds", s.getNumberOfBonds())
+                                    .field("IsPseudoknotted", s.isPseudoknotted() ? "Yes" : "No")
+                                    .field("TimeToGenerateStructuralSequence_ns", p.processingTime)
+                                    .field("PseudoknotOrder", s.getPseudoknotOrder())
+                                    .field("NumberOfCrossingPairs", s.getNumberOfCrossingPairs())
+                                    .field("Format", s.getFormat())
+                                    .endObject();
+                        checkpoint.addStructure(p.name, s.getSize(),
+                                s.getNumberOfBonds(), p.processingTime);
                         numStructures++;
-                    } else {
-                        art2 = structures.get(f2);
                     }
-
-                    // Compare the two structural RNA Trees t1 and t2 to
-                    // determine the distance
-                    System.out.println("Processing files: " + f1.getName()
-                            + " and " + f2.getName());
-                    startTimeNano = System.nanoTime();
-                    StructuralSequenceAligner a = new StructuralSequenceAligner(art1, art2, !noConstraints);
-                    elapsedTimeNano = System.nanoTime() - startTimeNano;
-
-                    // Write the output file
-                    outputStream.println("\"" + f1.getName() + "\","
-                            + art1.getSecondaryStructure().getSize() + ","
-                            + art1.getSecondaryStructure().getBonds().size()
-                            + ","
-                            + (art1.getSecondaryStructure().isPseudoknotted()
-                            ? "Yes"
-                            : "No")
-                            + ","
-                            + structuresProcessingTime.get(f1).longValue()
-                            + "," + "\"" + f2.getName() + "\","
-                            + art2.getSecondaryStructure().getSize() + ","
-                            + art2.getSecondaryStructure().getBonds().size()
-                            + ","
-                            + (art2.getSecondaryStructure().isPseudoknotted()
-                            ? "Yes"
-                            : "No")
-                            + ","
-                            + structuresProcessingTime.get(f2).longValue()
-                            + ","
-                            + (art1.getSecondaryStructure().getSize() > art2
-                            .getSecondaryStructure().getSize()
-                            ? art1.getSecondaryStructure()
-                            .getSize()
-                            : art2.getSecondaryStructure()
-                            .getSize())
-                            + "," + a.getDistance() + "," + elapsedTimeNano);
-
-                    if (jsonOutputStream != null) {
-                        String jsonEntry = String.format(
-                                "{ \"File1\": \"%s\", \"Size1\": %d, \"Bonds1\": %d, \"Pseudoknotted1\": \"%s\", \"Time1_ns\": %d, " +
-                                        "\"File2\": \"%s\", \"Size2\": %d, \"Bonds2\": %d, \"Pseudoknotted2\": \"%s\", \"Time2_ns\": %d, " +
-                                        "\"MaxSize\": %d, \"Distance\": %d, " +
-                                        "\"AlignmentTime_ns\": %d }",
-                                f1.getName(), art1.getSecondaryStructure().getSize(),
-                                art1.getSecondaryStructure().getBonds().size(),
-                                art1.getSecondaryStructure().isPseudoknotted() ? "Yes" : "No",
-                                structuresProcessingTime.get(f1),
-                                f2.getName(), art2.getSecondaryStructure().getSize(),
-                                art2.getSecondaryStructure().getBonds().size(),
-                                art2.getSecondaryStructure().isPseudoknotted() ? "Yes" : "No",
-                                structuresProcessingTime.get(f2),
-                                Math.max(art1.getSecondaryStructure().getSize(), art2.getSecondaryStructure().getSize()),
-                                a.getDistance(), elapsedTimeNano
-                        );
-                        jsonOutputEntries.add(jsonEntry);
+                    structuresStream.close();
+                    checkpoint.setLength(structuresStreamName,
+                            new File(structuresStreamName).length());
+                    if (jsonStructuresStream != null) {
+                        jsonStructuresStream.close();
+                        checkpoint.setLength(jsonStructuresStreamName,
+                                new File(jsonStructuresStreamName).length());
                     }
-                    // End of Internal Loop
+                } catch (IOException e) {
+                    System.err.println("ERROR: writing output files failed ... "
+                            + e.getMessage());
+                    System.exit(3);
                 }
-                // End of External Loop
-            }
 
-            // Close streams
-            structuresStream.close();
-            outputStream.close();
-            if (jsonStructuresStream != null) {
-                jsonStructuresStream.println("[");
-                for (int i = 0; i < jsonStructuresEntries.size(); i++) {
-                    if (i < jsonStructuresEntries.size() - 1) {
-                        jsonStructuresStream.println(jsonStructuresEntries.get(i) + ",");
-                    } else {
-                        jsonStructuresStream.println(jsonStructuresEntries.get(i));
-                    }
+            // Main Loop - Compare each structure with all the subsequent
+            // ones or, if there are queries, each query with all the
+            // references, possibly in parallel, writing the results in order
+            // and saving periodically a checkpoint with the number of pairs
+            // written: the pairs completed are always the first ones. A shard
+            // compares only its range of pairs.
+            List<StructuralSequence> sequences = new ArrayList<>();
+            for (ProcessedStructure p : structures)
+                sequences.add(p.structuralSequence);
+            long startPair = 0;
+            long endPair = AllPairsAligner.pairs(sequences.size(), references);
+            if (shards > 0) {
+                long[] bounds = AllPairsAligner.shards(sequences, shards);
+                startPair = bounds[shard - 1];
+                endPair = bounds[shard];
+            }
+            final long pairsDone = resume ? checkpoint.getPairs() : 0;
+            if (startPair + pairsDone > endPair) {
+                System.err.println("ERROR: cannot resume the run ... the checkpoint contains "
+                        + pairsDone + " pairs instead of at most " + (endPair - startPair));
+                System.exit(1);
+            }
+            // The distance matrix is created with its final size and
+            // written in place, thus a resumed run only checks it
+            DistanceMatrixWriter matrixWriter = null;
+            if (matrixName != null) {
+                List<String> structureNames = new ArrayList<>();
+                for (ProcessedStructure p : structures)
+                    structureNames.add(p.name);
+                try {
+                    matrixWriter = new DistanceMatrixWriter(matrixName,
+                            structureNames, sequences, startPair, endPair, resume);
+                } catch (IOException e) {
+                    System.err.println((resume ? "ERROR: cannot resume the run ... "
+                            : "ERROR: writing distance matrix file failed ... ")
+                            + e.getMessage());
+                    System.exit(resume ? 1 : 3);
                 }
-                jsonStructuresStream.println("]");
-                jsonStructuresStream.close();
-            }
-            if (jsonOutputStream != null) {
-                jsonOutputStream.println("[");
-                for (int i = 0; i < jsonOutputEntries.size(); i++) {
-                    if (i < jsonOutputEntries.size() - 1) {
-                        jsonOutputStream.println(jsonOutputEntries.get(i) + ",");
-                    } else {
-                        jsonOutputStream.println(jsonOutputEntries.get(i));
-                    }
+            }
+            final DistanceMatrixWriter matrix = matrixWriter;
+            final String[] checkpointFiles = json
+                    ? new String[] { outputStreamName, jsonOutputStreamName }
+                    : new String[] { outputStreamName };
+            final OutputWriter[] checkpointOutputs = json
+                    ? new OutputWriter[] { outputStream, jsonOutput }
+                    : new OutputWriter[] { outputStream };
+            final WorkbenchCheckpoint runCheckpoint = checkpoint;
+            try {
+                if (!resume)
+                    runCheckpoint.save(0, checkpointFiles, checkpointOutputs);
+            } catch (IOException e) {
+                System.err.println("ERROR: writing checkpoint file failed ... "
+                        + e.getMessage());
+                System.exit(3);
+            }
+            // the progress counts the cells of the alignment matrices: the
+            // sum of the products of the sizes of the pairs
+            long startCells = AllPairsAligner.cells(sequences, references,
+                    startPair);
+            final ProgressReporter progress = quiet ? null
+                    : new ProgressReporter(System.out, endPair - startPair,
+                    AllPairsAligner.cells(sequences, references, endPair) - startCells,
+                    pairsDone,
+                    AllPairsAligner.cells(sequences, references, startPair + pairsDone)
+                            - startCells,
+                    progressInterval);
+            final OutputWriter csvStream = outputStream;
+            final JsonWriter jsonStream = jsonOutputStream;
+            final PipelineStage.Statistics align =
+                    new PipelineStage.Statistics("align");
+            final AtomicLong pairsWritten = new AtomicLong(pairsDone);
+            final PipelineStage<Comparison> write = new PipelineStage<>(
+                    "write", STAGE_CAPACITY, c -> {
+                        writeComparison(structures.get(c.i),
+                                structures.get(c.j), c.distance, c.time,
+                                csvStream, jsonStream);
+                        if (matrix != null)
+                            matrix.put(c.i, c.j, c.distance);
+                        long pairs = pairsWritten.incrementAndGet();
+                        if (runCheckpoint.isDue()) {
+                            if (matrix != null)
+                                matrix.force();
+                            runCheckpoint.save(pairs, checkpointFiles,
+                                    checkpointOutputs);
+                        }
+                    });
+            AllPairsAligner.ResultConsumer consumer = (i, j, distance, time) -> {
+                align.count(time);
+                if (progress != null)
+                    progress.pairDone((long) sequences.get(i).size()
+                            * sequences.get(j).size());
+                write.put(new Comparison(i, j, distance, time), align);
+            };
+            if (workers > 0)
+                // Distribute the pairs to worker processes
+                try {
+                    new WorkbenchCoordinator(sequences, !noConstraints, workers,
+                            threads).alignAll(consumer, startPair + pairsDone,
+                            endPair);
+                } catch (IOException e) {
+                    System.err.println("ERROR: aligning the pairs with the workers failed ... "
+                            + e.getMessage());
+                    System.exit(3);
                 }
-                jsonOutputStream.println("]");
-                jsonOutputStream.close();
+            else
+                new AllPairsAligner(sequences, references, !noConstraints,
+                        threads)
+                        .alignAll(consumer, startPair + pairsDone, endPair);
+            align.end();
+            try {
+                write.await(align);
+            } catch (RuntimeException e) {
+                if (!(e.getCause() instanceof IOException))
+                    throw e;
+                System.err.println("ERROR: writing output files failed ... "
+                        + e.getCause().getMessage());
+                System.exit(3);
+            }
+            if (progress != null)
+                progress.close();
+
+            if (cmd.hasOption("stats")) {
+                System.err.println(ingest);
+                System.err.println(build.getStatistics());
+                System.err.println(align);
+                System.err.println(write.getStatistics());
+            }
+
+            // Close streams, the run is complete and its checkpoint is no
+            // longer needed
+            try {
+                outputStream.close();
+                if (jsonOutputStream != null)
+                    jsonOutputStream.close();
+                if (matrix != null)
+                    matrix.close();
+                runCheckpoint.delete();
+            } catch (IOException e) {
+                System.err.println("ERROR: writing output files failed ... "
+                        + e.getMessage());
+                System.exit(3);
             }
             return;
         } // End Option f
@@ -500,4 +849,257 @@ public class WorkbenchComparator {
                 true);
     }
 
+    /*
+     * List the files of a folder, in the order of their names, skipping the
+     * hidden files and the subfolders.
+     */
+    private static List<File> listFiles(File folder) {
+        List<File> files = new ArrayList<File>();
+        File[] fs = folder.listFiles();
+        // Filter only files and put them in the list
+        for (int i = 0; i < fs.length; i++)
+            if (!fs[i].isDirectory())
+                if (!fs[i].isHidden())
+                    files.add(fs[i]);
+                else
+                    System.err.println("WARNING: Skipping hidden file "
+                            + fs[i].getName() + " ...");
+            else
+                System.err.println("WARNING: Skipping subfolder "
+                        + fs[i].getName() + " ...");
+
+        // Order files to be processed
+        Collections.sort(files);
+        return files;
+    }
+
+    /*
+     * Read all the structures of the entries of an archive or, if the
+     * archive is null, of a list of files, passing them to the build stage.
+     * The files that cannot be read are skipped.
+     */
+    private static void readInput(File archive, List<File> files,
+            BasePairValidator validator, PipelineStage<ParsedStructure> build,
+            PipelineStage.Statistics ingest) throws IOException {
+        if (archive != null) {
+            RNAInputFiles.forEachEntry(archive.getPath(), (name, input) -> {
+                String entry = name.substring(name.indexOf(
+                        RNAInputFiles.ENTRY_SEPARATOR)
+                        + RNAInputFiles.ENTRY_SEPARATOR.length());
+                if (entry.substring(entry.lastIndexOf('/') + 1)
+                        .startsWith(".")) {
+                    System.err.println("WARNING: Skipping hidden file "
+                            + entry + " ...");
+                    return;
+                }
+                RNASecondaryStructureRecordReader records;
+                try {
+                    records = RNASecondaryStructureFileReader
+                            .openRecords(Channels.newChannel(input),
+                                    name, validator, false);
+                } catch (IOException e) {
+                    System.err.println("WARNING: Skipping file "
+                            + entry + " ... " + e.getMessage());
+                    return;
+                }
+                readStructures(records, entry, build, ingest);
+            });
+            return;
+        }
+        for (File f : files) {
+            RNASecondaryStructureRecordReader records;
+            try {
+                records = RNASecondaryStructureFileReader
+                        .openRecords(f.getPath(), validator, false);
+            } catch (IOException e) {
+                System.err.println("WARNING: Skipping file "
+                        + f.getName() + " ... " + e.getMessage());
+                continue;
+            }
+            readStructures(records, f.getName(), build, ingest);
+        }
+    }
+
+    /*
+     * Check if a file is one of the files with the given names.
+     */
+    private static boolean isOneOf(File f, List<String> fileNames) {
+        File file = f.getAbsoluteFile();
+        for (String fileName : fileNames)
+            if (fileName != null
+                    && file.equals(new File(fileName).getAbsoluteFile()))
+                return true;
+        return false;
+    }
+
+    /*
+     * Write the result of the comparison of two structures on the csv output
+     * file and, if the JSON output is enabled, on the JSON output file. The
+     * fields describing each structure have been serialised when the
+     * structure was processed.
+     */
+    private static void writeComparison(ProcessedStructure p1,
+            ProcessedStructure p2, int distance, long elapsedTimeNano,
+            OutputWriter outputStream, JsonWriter jsonOutputStream)
+            throws IOException {
+        // Write the output file
+        outputStream.append(p1.csvFields).append(',')
+                .append(p2.csvFields).append(',')
+                .appendNumber(Math.max(p1.size, p2.size)).append(',')
+                .appendNumber(distance).append(',')
+                .appendNumber(elapsedTimeNano).newLine();
+
+        if (jsonOutputStream != null)
+            jsonOutputStream.beginObject()
+                    .fields(p1.jsonFields1)
+                    .fields(p2.jsonFields2)
+                    .field("MaxSize", Math.max(p1.size, p2.size))
+                    .field("Distance", distance)
+                    .field("AlignmentTime_ns", elapsedTimeNano)
+                    .endObject();
+    }
+
+    /*
+     * A structure parsed from an input file, waiting for its structural
+     * sequence to be built.
+     */
+    private static class ParsedStructure {
+        private final String fileName;
+        private final String name;
+        private final RNASecondaryStructure secondaryStructure;
+
+        private ParsedStructure(String fileName, String name,
+                RNASecondaryStructure secondaryStructure) {
+            this.fileName = fileName;
+            this.name = name;
+            this.secondaryStructure = secondaryStructure;
+        }
+
+        /*
+         * Build the structural sequence and measure the building time
+         */
+        private ProcessedStructure build() throws IOException {
+            long startTimeNano = System.nanoTime();
+            StructuralSequence art = new StructuralSequence(
+                    this.secondaryStructure);
+            long elapsedTimeNano = System.nanoTime() - startTimeNano;
+            // Only the metadata of the structure are used from now on
+            this.secondaryStructure.dropBonds();
+            return new ProcessedStructure(this.fileName, this.name, art,
+                    elapsedTimeNano);
+        }
+    }
+
+    /*
+     * The result of the comparison of the structures i and j.
+     */
+    private static class Comparison {
+        private final int i;
+        private final int j;
+        private final int distance;
+        private final long time;
+
+        private Comparison(int i, int j, int distance, long time) {
+            this.i = i;
+            this.j = j;
+            this.distance = distance;
+            this.time = time;
+        }
+    }
+
+    /*
+     * A structure read from an input file, with its structural sequence and
+     * the time taken to build it.
+     */
+    private static class ProcessedStructure {
+        // the name of the file and of the structure
+        private final String fileName;
+        private final String name;
+        private final StructuralSequence structuralSequence;
+        private final long processingTime;
+        private final int size;
+        // the description of the structure in the rows of the comparison
+        // results, as csv values and as JSON fields for the first and the
+        // second structure
+        private final String csvFields;
+        private final String jsonFields1;
+        private final String jsonFields2;
+
+        private ProcessedStructure(String fileName, String name,
+                StructuralSequence structuralSequence, long processingTime)
+                throws IOException {
+            this.fileName = fileName;
+            this.name = name;
+            this.structuralSequence = structuralSequence;
+            this.processingTime = processingTime;
+            RNASecondaryStructure s = structuralSequence.getSecondaryStructure();
+            this.size = s.getSize();
+            String pseudoknotted = s.isPseudoknotted() ? "Yes" : "No";
+            this.csvFields = "\"" + name + "\"," + this.size + ","
+                    + s.getNumberOfBonds() + "," + pseudoknotted + ","
+                    + processingTime;
+            this.jsonFields1 = jsonFields(s, pseudoknotted, "1");
+            this.jsonFields2 = jsonFields(s, pseudoknotted, "2");
+        }
+
+        private String jsonFields(RNASecondaryStructure s,
+                String pseudoknotted, String suffix) throws IOException {
+            StringBuilder fields = new StringBuilder();
+            JsonWriter.fragment(fields).beginObject()
+                    .field("File" + suffix, this.name)
+                    .field("Size" + suffix, this.size)
+                    .field("Bonds" + suffix, s.getNumberOfBonds())
+                    .field("Pseudoknotted" + suffix, pseudoknotted)
+                    .field("Time" + suffix + "_ns", this.processingTime)
+                    .endObject();
+            return fields.toString();
+        }
+    }
+
+    /*
+     * Read all the structures of a file, passing them to the build stage and
+     * skipping the structures that contain errors. The record reader is
+     * closed at the end.
+     */
+    private static void readStructures(
+            RNASecondaryStructureRecordReader records, String fileName,
+            PipelineStage<ParsedStructure> build,
+            PipelineStage.Statistics ingest) {
+        try {
+            while (records.hasNext()) {
+                // Parse the next secondary structure of the file
+                RNASecondaryStructure secondaryStructure = null;
+                long startTimeNano = System.nanoTime();
+                try {
+                    secondaryStructure = records.next();
+                } catch (RNAInputFileParserException e) {
+                    if (records.isMultiRecord())
+                        System.err.println("WARNING: Skipping record "
+                                + fileName + "#" + records.getRecordName()
+                                + " at line " + records.getRecordLine()
+                                + " ... " + e.getMessage());
+                    else
+                        System.err.println("WARNING: Skipping file "
+                                + fileName + " ... " + e.getMessage());
+                    // skip this structure
+                    continue;
+                }
+                String name = records.isMultiRecord()
+                        ? fileName + "#" + records.getRecordName()
+                        : fileName;
+                ingest.count(System.nanoTime() - startTimeNano);
+                build.put(new ParsedStructure(fileName, name,
+                        secondaryStructure), ingest);
+            }
+        } catch (IOException e) {
+            System.err.println("WARNING: Skipping file " + fileName + " ... "
+                    + e.getMessage());
+        } finally {
+            try {
+                records.close();
+            } catch (IOException e) {
+                // nothing to do, the file has been read
+            }
+        }
+    }
 }
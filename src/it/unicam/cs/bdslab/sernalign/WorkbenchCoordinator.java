@@ -0,0 +1,453 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordinator of the alignment of a range of pairs of structural sequences
+ * by worker processes on the same machine, i.e., JVMs with their own heaps
+ * (see {@link WorkbenchWorker}). The coordinator starts the workers, sends
+ * them the sequences and then serves batches of consecutive pairs to the
+ * workers that are idle, so that the workers that get cheap pairs are not
+ * left waiting for the others. The results are passed to a consumer in the
+ * same order as {@link AllPairsAligner} does.
+ * 
+ * The workers connect to the coordinator with TCP on the loopback interface
+ * and authenticate with a random token passed in their environment. If a
+ * worker terminates, its batch is served again to another worker. The
+ * number of batches served and not yet consumed is bounded, as the reorder
+ * buffer of {@link AllPairsAligner}.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class WorkbenchCoordinator {
+
+    /**
+     * First value sent by a worker when it connects.
+     */
+    static final int MAGIC = 0x53524e41;
+
+    /**
+     * Version of the protocol between the coordinator and the workers.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Name of the environment variable containing the token of the workers.
+     */
+    static final String TOKEN_VARIABLE = "SERNALIGN_WORKER_TOKEN";
+
+    // number of batches served and not yet consumed, for each worker
+    private static final int BATCHES_PER_WORKER = 4;
+
+    // bounds of the number of pairs of a batch
+    private static final int MIN_BATCH = 1;
+    private static final int MAX_BATCH = 1024;
+
+    // number of batches that each worker should align, for load balancing
+    private static final int BATCHES_PER_WORKER_TARGET = 16;
+
+    // interval between two checks of the workers still running
+    private static final long POLL_MILLIS = 500;
+
+    // time given to the workers to terminate at the end
+    private static final long TERMINATION_SECONDS = 10;
+
+    /**
+     * Starter of the worker processes.
+     */
+    interface WorkerStarter {
+	/**
+	 * Start a worker process that connects to the coordinator.
+	 * 
+	 * @param port  the port of the coordinator on the loopback interface
+	 * @param token the token that the worker sends to authenticate
+	 * @return the worker process
+	 * @throws IOException if the worker cannot be started
+	 */
+	Process start(int port, long token) throws IOException;
+    }
+
+    private final List<StructuralSequence> sequences;
+
+    private final boolean constraints;
+
+    private final int workers;
+
+    private final int threads;
+
+    private final WorkerStarter starter;
+
+    // state of the batches, guarded by this
+    private long nextPair;
+    private long endPair;
+    private long consumed;
+    private long windowPairs;
+    private int batchSize;
+    private boolean finished;
+    // batches of the workers that have terminated, to serve again
+    private final ArrayDeque<Batch> reassigned = new ArrayDeque<>();
+    // aligned batches not yet consumed, by their first pair
+    private final Map<Long, Batch> aligned = new HashMap<>();
+
+    /**
+     * Create a coordinator of the alignment of the pairs of a list of
+     * sequences.
+     * 
+     * @param sequences   the sequences to align
+     * @param constraints flag to indicate if the alignments should respect
+     *                    structural sequences constraints
+     * @param workers     the number of worker processes
+     * @param threads     the number of threads aligning the pairs in each
+     *                    worker
+     * @throws IllegalArgumentException if the number of workers or of
+     *                                  threads is not positive
+     */
+    WorkbenchCoordinator(List<StructuralSequence> sequences,
+	    boolean constraints, int workers, int threads) {
+	this(sequences, constraints, workers, threads,
+		WorkbenchCoordinator::startWorker);
+    }
+
+    /**
+     * Create a coordinator of the alignment of the pairs of a list of
+     * sequences that starts the workers with a given starter.
+     * 
+     * @param sequences   the sequences to align
+     * @param constraints flag to indicate if the alignments should respect
+     *                    structural sequences constraints
+     * @param workers     the number of worker processes
+     * @param threads     the number of threads aligning the pairs in each
+     *                    worker
+     * @param starter     the starter of the worker processes
+     * @throws IllegalArgumentException if the number of workers or of
+     *                                  threads is not positive
+     */
+    WorkbenchCoordinator(List<StructuralSequence> sequences,
+	    boolean constraints, int workers, int threads,
+	    WorkerStarter starter) {
+	if (workers < 1)
+	    throw new IllegalArgumentException(
+		    "The number of workers must be positive: " + workers);
+	if (threads < 1)
+	    throw new IllegalArgumentException(
+		    "The number of threads must be positive: " + threads);
+	this.sequences = sequences;
+	this.constraints = constraints;
+	this.workers = workers;
+	this.threads = threads;
+	this.starter = starter;
+    }
+
+    /**
+     * Align a range of consecutive pairs with the workers, in the order of
+     * the first sequence and then of the second one, passing the results to
+     * a consumer in the calling thread in the same order, as
+     * {@link AllPairsAligner} does.
+     * 
+     * @param consumer  the consumer of the results
+     * @param firstPair the number of pairs preceding the range
+     * @param endPair   the number of pairs preceding the first pair after
+     *                  the range
+     * @throws IOException              if the workers cannot be started or
+     *                                  all the workers terminate before
+     *                                  aligning all the pairs
+     * @throws IllegalArgumentException if the range is not a valid range of
+     *                                  pairs
+     */
+    void alignAll(AllPairsAligner.ResultConsumer consumer, long firstPair,
+	    long endPair) throws IOException {
+	int n = this.sequences.size();
+	if (firstPair < 0 || firstPair > endPair
+		|| endPair > (long) n * (n - 1) / 2)
+	    throw new IllegalArgumentException(
+		    "Invalid range of pairs: " + firstPair + "-" + endPair);
+	if (firstPair == endPair)
+	    return;
+	long pairs = endPair - firstPair;
+	synchronized (this) {
+	    this.nextPair = firstPair;
+	    this.endPair = endPair;
+	    this.consumed = firstPair;
+	    this.batchSize = (int) Math.max(MIN_BATCH, Math.min(MAX_BATCH,
+		    pairs / ((long) this.workers * BATCHES_PER_WORKER_TARGET)));
+	    this.windowPairs = (long) this.batchSize * this.workers
+		    * BATCHES_PER_WORKER;
+	    this.finished = false;
+	}
+	long token = new SecureRandom().nextLong();
+	List<Process> processes = new ArrayList<>();
+	try (ServerSocket server = new ServerSocket(0, this.workers,
+		InetAddress.getLoopbackAddress())) {
+	    Thread acceptor = new Thread(() -> accept(server, token),
+		    "coordinator");
+	    acceptor.setDaemon(true);
+	    acceptor.start();
+	    for (int k = 0; k < this.workers; k++)
+		processes.add(
+			this.starter.start(server.getLocalPort(), token));
+	    consume(consumer, firstPair, processes);
+	} finally {
+	    synchronized (this) {
+		this.finished = true;
+		notifyAll();
+	    }
+	    // the workers terminate when they are told that there are no more
+	    // batches or when their connection is closed
+	    for (Process p : processes)
+		try {
+		    if (!p.waitFor(TERMINATION_SECONDS, TimeUnit.SECONDS))
+			p.destroyForcibly();
+		} catch (InterruptedException e) {
+		    p.destroyForcibly();
+		    Thread.currentThread().interrupt();
+		}
+	}
+    }
+
+    /*
+     * Start a worker process, with the same Java options and class path of
+     * this process except for the debugging agents.
+     */
+    static Process startWorker(int port, long token) throws IOException {
+	List<String> command = new ArrayList<>();
+	command.add(System.getProperty("java.home") + File.separator + "bin"
+		+ File.separator + "java");
+	for (String option : ManagementFactory.getRuntimeMXBean()
+		.getInputArguments())
+	    if (!option.startsWith("-agentlib")
+		    && !option.startsWith("-javaagent")
+		    && !option.startsWith("-Xrunjdwp")
+		    && !option.startsWith("-Xdebug"))
+		command.add(option);
+	command.add("-cp");
+	command.add(System.getProperty("java.class.path"));
+	command.add(WorkbenchWorker.class.getName());
+	command.add(String.valueOf(port));
+	ProcessBuilder builder = new ProcessBuilder(command);
+	builder.environment().put(TOKEN_VARIABLE, Long.toString(token));
+	builder.redirectOutput(Redirect.INHERIT);
+	builder.redirectError(Redirect.INHERIT);
+	return builder.start();
+    }
+
+    /*
+     * Accept the connections of the workers, serving each one in its own
+     * thread, until the server socket is closed.
+     */
+    private void accept(ServerSocket server, long token) {
+	try {
+	    while (true) {
+		Socket socket = server.accept();
+		Thread t = new Thread(() -> serve(socket, token),
+			"coordinator-" + socket.getPort());
+		t.setDaemon(true);
+		t.start();
+	    }
+	} catch (IOException e) {
+	    // the server socket has been closed
+	}
+    }
+
+    /*
+     * Serve batches to a worker until all the pairs have been aligned. If
+     * the connection fails, e.g., because the worker has terminated, the
+     * batch of the worker is served again to another worker.
+     */
+    private void serve(Socket socket, long token) {
+	Batch batch = null;
+	try (Socket s = socket) {
+	    s.setTcpNoDelay(true);
+	    DataInputStream in = new DataInputStream(
+		    new BufferedInputStream(s.getInputStream()));
+	    DataOutputStream out = new DataOutputStream(
+		    new BufferedOutputStream(s.getOutputStream()));
+	    if (in.readInt() != MAGIC || in.readInt() != VERSION
+		    || in.readLong() != token)
+		// not one of our workers
+		return;
+	    out.writeBoolean(this.constraints);
+	    out.writeInt(this.threads);
+	    out.writeInt(this.sequences.size());
+	    for (StructuralSequence sequence : this.sequences) {
+		int[] values = sequence.getStructuralSequence();
+		out.writeInt(values.length);
+		for (int v : values)
+		    out.writeInt(v);
+	    }
+	    while ((batch = nextBatch()) != null) {
+		out.writeLong(batch.first);
+		out.writeInt(batch.distances.length);
+		out.flush();
+		for (int k = 0; k < batch.distances.length; k++) {
+		    batch.distances[k] = in.readInt();
+		    batch.times[k] = in.readLong();
+		}
+		aligned(batch);
+		batch = null;
+	    }
+	    // no more batches
+	    out.writeLong(-1);
+	    out.writeInt(0);
+	    out.flush();
+	} catch (IOException e) {
+	    if (batch != null) {
+		// the stream ends without a message if the worker has exited
+		String reason = e.getMessage();
+		if (e instanceof EOFException)
+		    reason = "connection closed";
+		else if (reason == null)
+		    reason = e.toString();
+		System.err.println("WARNING: A worker has terminated ... "
+			+ reason + ", its pairs are aligned again");
+		reassign(batch);
+	    }
+	}
+    }
+
+    /*
+     * Return the next batch to serve, waiting while the batches served and
+     * not yet consumed fill the window, or null if all the pairs have been
+     * aligned.
+     */
+    private synchronized Batch nextBatch() {
+	while (true) {
+	    if (this.finished)
+		return null;
+	    if (!this.reassigned.isEmpty())
+		return this.reassigned.remove();
+	    if (this.nextPair < this.endPair
+		    && this.nextPair - this.consumed < this.windowPairs) {
+		int size = (int) Math.min(this.batchSize,
+			this.endPair - this.nextPair);
+		Batch batch = new Batch(this.nextPair, size);
+		this.nextPair += size;
+		return batch;
+	    }
+	    // wait for the window to move or for a batch to serve again
+	    try {
+		wait();
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		return null;
+	    }
+	}
+    }
+
+    private synchronized void aligned(Batch batch) {
+	this.aligned.put(batch.first, batch);
+	notifyAll();
+    }
+
+    private synchronized void reassign(Batch batch) {
+	this.reassigned.add(batch);
+	notifyAll();
+    }
+
+    /*
+     * Pass the results of the batches to the consumer, in order, until all
+     * the pairs have been consumed.
+     */
+    private void consume(AllPairsAligner.ResultConsumer consumer,
+	    long firstPair, List<Process> processes) throws IOException {
+	int n = this.sequences.size();
+	int[] first = AllPairsAligner.pair(n, firstPair);
+	int i = first[0];
+	int j = first[1];
+	while (true) {
+	    Batch batch;
+	    synchronized (this) {
+		while ((batch = this.aligned.remove(this.consumed)) == null) {
+		    if (this.consumed == this.endPair)
+			return;
+		    if (!isAnyAlive(processes))
+			throw new IOException(
+				"All the workers have terminated, "
+					+ (this.endPair - this.consumed)
+					+ " pairs have not been aligned");
+		    try {
+			wait(POLL_MILLIS);
+		    } catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(
+				"Interrupted while waiting for the workers");
+		    }
+		}
+	    }
+	    for (int k = 0; k < batch.distances.length; k++) {
+		consumer.accept(i, j, batch.distances[k], batch.times[k]);
+		if (++j == n) {
+		    i++;
+		    j = i + 1;
+		}
+	    }
+	    synchronized (this) {
+		this.consumed += batch.distances.length;
+		notifyAll();
+	    }
+	}
+    }
+
+    private static boolean isAnyAlive(List<Process> processes) {
+	for (Process p : processes)
+	    if (p.isAlive())
+		return true;
+	return false;
+    }
+
+    /*
+     * A batch of consecutive pairs, starting after a given number of pairs,
+     * with the results of their alignments.
+     */
+    private static class Batch {
+	private final long first;
+	private final int[] distances;
+	private final long[] times;
+
+	private Batch(long first, int size) {
+	    this.first = first;
+	    this.distances = new int[size];
+	    this.times = new long[size];
+	}
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the class WorkbenchCoordinator
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class WorkbenchCoordinatorTest {
+
+    @Test
+    void testWorkers() throws IOException {
+	List<StructuralSequence> sequences = readExamples();
+	int n = sequences.size();
+	long pairs = (long) n * (n - 1) / 2;
+	List<String> expected = new ArrayList<>();
+	new AllPairsAligner(sequences, true, 1)
+		.alignAll((i, j, distance, time) -> expected
+			.add(i + " " + j + " " + distance));
+	// all the pairs and a range starting in the middle of a row
+	List<String> results = new ArrayList<>();
+	WorkbenchCoordinator coordinator = new WorkbenchCoordinator(sequences,
+		true, 2, 1);
+	coordinator.alignAll((i, j, distance, time) -> results
+		.add(i + " " + j + " " + distance), 0, pairs);
+	assertEquals(expected, results);
+	results.clear();
+	coordinator.alignAll((i, j, distance, time) -> results
+		.add(i + " " + j + " " + distance), 1, pairs - 1);
+	assertEquals(expected.subList(1, (int) pairs - 1), results);
+    }
+
+    @Test
+    void testDisconnectedWorker() throws IOException {
+	// enough pairs for batches of more than one pair
+	List<StructuralSequence> sequences = readExamples();
+	sequences.addAll(readExamples());
+	int n = sequences.size();
+	List<String> expected = new ArrayList<>();
+	new AllPairsAligner(sequences, true, 1)
+		.alignAll((i, j, distance, time) -> expected
+			.add(i + " " + j + " " + distance));
+	// the first worker disconnects in the middle of its first batch,
+	// which is served again to the second one
+	int[] started = new int[1];
+	List<String> results = new ArrayList<>();
+	new WorkbenchCoordinator(sequences, true, 2, 1, (port, token) -> {
+	    if (started[0]++ == 0)
+		return disconnectingWorker(port, token);
+	    return WorkbenchCoordinator.startWorker(port, token);
+	}).alignAll((i, j, distance, time) -> results
+		.add(i + " " + j + " " + distance), 0, (long) n * (n - 1) / 2);
+	assertEquals(expected, results);
+    }
+
+    @Test
+    void testAllWorkersTerminated() throws IOException {
+	List<StructuralSequence> sequences = readExamples();
+	int n = sequences.size();
+	long pairs = (long) n * (n - 1) / 2;
+	WorkbenchCoordinator coordinator = new WorkbenchCoordinator(sequences,
+		true, 1, 1, WorkbenchCoordinatorTest::disconnectingWorker);
+	IOException e = assertThrows(IOException.class,
+		() -> coordinator.alignAll((i, j, distance, time) -> {
+		}, 0, pairs));
+	assertEquals("All the workers have terminated, " + pairs
+		+ " pairs have not been aligned", e.getMessage());
+    }
+
+    private static List<StructuralSequence> readExamples()
+	    throws IOException {
+	File[] files = new File("examples").listFiles(
+		(dir, name) -> name.endsWith(".aas") || name.endsWith(".db"));
+	Arrays.sort(files);
+	List<StructuralSequence> sequences = new ArrayList<>();
+	for (File f : files)
+	    sequences.add(RNASecondaryStructureFileReader
+		    .readStructuralSequence(f.getPath(), null));
+	return sequences;
+    }
+
+    /*
+     * Connect to the coordinator as a worker, receive the sequences and the
+     * first batch, send the results of half of its pairs and disconnect.
+     * The returned process has already terminated.
+     */
+    private static Process disconnectingWorker(int port, long token)
+	    throws IOException {
+	try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+		port)) {
+	    DataInputStream in = new DataInputStream(
+		    new BufferedInputStream(socket.getInputStream()));
+	    DataOutputStream out = new DataOutputStream(
+		    new BufferedOutputStream(socket.getOutputStream()));
+	    out.writeInt(WorkbenchCoordinator.MAGIC);
+	    out.writeInt(WorkbenchCoordinator.VERSION);
+	    out.writeLong(token);
+	    out.flush();
+	    in.readBoolean();
+	    in.readInt();
+	    int n = in.readInt();
+	    for (int k = 0; k < n; k++)
+		in.skipBytes(4 * in.readInt());
+	    in.readLong();
+	    int size = in.readInt();
+	    for (int k = 0; k < size / 2; k++) {
+		out.writeInt(-1);
+		out.writeLong(-1);
+	    }
+	    out.flush();
+	}
+	return new TerminatedProcess();
+    }
+
+    private static class TerminatedProcess extends Process {
+	@Override
+	public OutputStream getOutputStream() {
+	    return new ByteArrayOutputStream();
+	}
+
+	@Override
+	public InputStream getInputStream() {
+	    return new ByteArrayInputStream(new byte[0]);
+	}
+
+	@Override
+	public InputStream getErrorStream() {
+	    return new ByteArrayInputStream(new byte[0]);
+	}
+
+	@Override
+	public int waitFor() {
+	    return 0;
+	}
+
+	@Override
+	public int exitValue() {
+	    return 0;
+	}
+
+	@Override
+	public void destroy() {
+	}
+    }
+}
@@ -0,0 +1,347 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Container class for the static methods to name and merge the output files
+ * of a workbench run split in shards, i.e., in ranges of consecutive pairs
+ * of structures computed by independent processes (see
+ * {@link AllPairsAligner#shards(java.util.List, int)}).
+ * 
+ * Each shard writes the descriptions of all the structures and the results
+ * of its pairs in files named as the output files of the whole run, with
+ * the shard added before the extension. Since the shards are consecutive,
+ * the merged output files are the concatenation of the shards in order,
+ * without the repeated headers: they contain the same rows as the output
+ * files of a run that is not split, except for the execution times.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class WorkbenchShards {
+
+    // size of the buffer used to copy the files
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final byte[] JSON_START = ascii("[\n");
+
+    private static final byte[] JSON_END = ascii("\n]\n");
+
+    private static final byte[] JSON_EMPTY_END = ascii("]\n");
+
+    private static final byte[] JSON_SEPARATOR = ascii(",\n");
+
+    /**
+     * Return the name of the output file of a shard, adding the shard before
+     * the extension of the name of the output file of the whole run, e.g.,
+     * "results-shard-2-of-8.csv" for "results.csv".
+     * 
+     * @param fileName the name of the output file of the whole run
+     * @param shard    the shard, from 1
+     * @param shards   the number of shards
+     * @return the name of the output file of the shard
+     */
+    static String fileName(String fileName, int shard, int shards) {
+	String suffix = "-shard-" + shard + "-of-" + shards;
+	int dot = fileName.lastIndexOf('.');
+	if (dot <= fileName.lastIndexOf(File.separatorChar) + 1)
+	    // no extension
+	    return fileName + suffix;
+	return fileName.substring(0, dot) + suffix + fileName.substring(dot);
+    }
+
+    /**
+     * Merge the output files of the shards of a run. The descriptions of the
+     * structures are taken from the first shard; the comparison results are
+     * concatenated in the order of the shards. The files of the shards are
+     * not deleted.
+     * 
+     * @param structuresFileName      the name of the merged csv file of the
+     *                                structures
+     * @param comparisonsFileName     the name of the merged csv file of the
+     *                                comparison results
+     * @param jsonStructuresFileName  the name of the merged JSON file of the
+     *                                structures, or null if there is no JSON
+     *                                output
+     * @param jsonComparisonsFileName the name of the merged JSON file of the
+     *                                comparison results, or null if there is
+     *                                no JSON output
+     * @param jsonLines               flag to indicate if the JSON output is
+     *                                in JSON Lines format instead of a JSON
+     *                                array
+     * @param matrixFileName          the name of the merged distance matrix
+     *                                file, or null if there is no distance
+     *                                matrix output
+     * @param shards                  the number of shards
+     * @throws IOException if the files of a shard are missing or incomplete,
+     *                     e.g., because the shard is still running or has
+     *                     been interrupted, the files of the shards do not
+     *                     belong to the same run or the merged files cannot
+     *                     be written
+     */
+    static void merge(String structuresFileName, String comparisonsFileName,
+	    String jsonStructuresFileName, String jsonComparisonsFileName,
+	    boolean jsonLines, String matrixFileName, int shards)
+	    throws IOException {
+	for (int k = 1; k <= shards; k++) {
+	    String checkpoint = fileName(comparisonsFileName, k, shards)
+		    + WorkbenchCheckpoint.EXTENSION;
+	    if (new File(checkpoint).exists())
+		throw new IOException("Shard " + k + " of " + shards
+			+ " is incomplete, checkpoint " + checkpoint
+			+ " found");
+	}
+	long structures = copy(fileName(structuresFileName, 1, shards),
+		structuresFileName) - 1;
+	long pairs = mergeCsv(comparisonsFileName, shards);
+	if (pairs != structures * (structures - 1) / 2)
+	    throw new IOException("The shards contain " + pairs
+		    + " comparison results instead of "
+		    + structures * (structures - 1) / 2 + " for " + structures
+		    + " structures");
+	if (jsonComparisonsFileName != null) {
+	    copy(fileName(jsonStructuresFileName, 1, shards),
+		    jsonStructuresFileName);
+	    mergeJson(jsonComparisonsFileName, jsonLines, shards);
+	}
+	if (matrixFileName != null)
+	    mergeMatrix(matrixFileName, shards);
+    }
+
+    /*
+     * Copy a file and return the number of its lines.
+     */
+    private static long copy(String source, String target)
+	    throws IOException {
+	try (FileChannel in = openInput(source);
+		FileChannel out = openOutput(target)) {
+	    return copy(in, 0, in.size(), out,
+		    ByteBuffer.allocate(BUFFER_SIZE));
+	}
+    }
+
+    /*
+     * Concatenate the csv files of the shards, keeping only the header of
+     * the first one, and return the number of rows, without the header.
+     */
+    private static long mergeCsv(String fileName, int shards)
+	    throws IOException {
+	ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	String header = null;
+	long rows = 0;
+	try (FileChannel out = openOutput(fileName)) {
+	    for (int k = 1; k <= shards; k++) {
+		String shardFileName = fileName(fileName, k, shards);
+		try (FileChannel in = openInput(shardFileName)) {
+		    String shardHeader = readLine(in, buffer);
+		    if (header == null) {
+			header = shardHeader;
+			out.write(ByteBuffer.wrap(
+				header.getBytes(StandardCharsets.UTF_8)));
+		    } else if (!header.equals(shardHeader))
+			throw new IOException("The header of " + shardFileName
+				+ " is different from the one of shard 1");
+		    rows += copy(in, shardHeader.length(), in.size(), out,
+			    buffer);
+		}
+	    }
+	}
+	return rows;
+    }
+
+    /*
+     * Concatenate the JSON files of the shards, as JSON Lines or as the
+     * elements of a single JSON array.
+     */
+    private static void mergeJson(String fileName, boolean jsonLines,
+	    int shards) throws IOException {
+	ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	boolean empty = true;
+	try (FileChannel out = openOutput(fileName)) {
+	    if (!jsonLines)
+		out.write(ByteBuffer.wrap(JSON_START));
+	    for (int k = 1; k <= shards; k++) {
+		String shardFileName = fileName(fileName, k, shards);
+		try (FileChannel in = openInput(shardFileName)) {
+		    if (jsonLines) {
+			copy(in, 0, in.size(), out, buffer);
+			continue;
+		    }
+		    // copy the elements of the array, between its brackets
+		    long size = in.size();
+		    if (size == JSON_START.length + JSON_EMPTY_END.length
+			    && endsWith(in, JSON_EMPTY_END))
+			continue;
+		    if (size < JSON_START.length + JSON_END.length
+			    || !startsWith(in, JSON_START)
+			    || !endsWith(in, JSON_END))
+			throw new IOException(shardFileName
+				+ " is not a complete JSON array");
+		    if (!empty)
+			out.write(ByteBuffer.wrap(JSON_SEPARATOR));
+		    copy(in, JSON_START.length, size - JSON_END.length, out,
+			    buffer);
+		    empty = false;
+		}
+	    }
+	    if (!jsonLines)
+		out.write(ByteBuffer.wrap(empty ? JSON_EMPTY_END : JSON_END));
+	}
+    }
+
+    /*
+     * Concatenate the distances of the distance matrix files of the shards,
+     * that must contain consecutive ranges of pairs of the same structures,
+     * after a header for the whole range.
+     */
+    private static void mergeMatrix(String fileName, int shards)
+	    throws IOException {
+	DistanceMatrix.Header[] headers = new DistanceMatrix.Header[shards];
+	for (int k = 1; k <= shards; k++) {
+	    String shardFileName = fileName(fileName, k, shards);
+	    try (FileChannel in = openInput(shardFileName)) {
+		DistanceMatrix.Header h = DistanceMatrix.Header.read(in);
+		long first = k == 1 ? 0 : headers[k - 2].getEnd();
+		if (k > 1 && (!h.getNames().equals(headers[0].getNames())
+			|| h.getWidth() != headers[0].getWidth())
+			|| h.getFirst() != first
+			|| in.size() != h.getFileSize())
+		    throw new IOException("The distance matrix "
+			    + shardFileName + " does not follow shard "
+			    + (k - 1) + " or is incomplete");
+		headers[k - 1] = h;
+	    }
+	}
+	int n = headers[0].getNames().size();
+	long pairs = (long) n * (n - 1) / 2;
+	if (headers[shards - 1].getEnd() != pairs)
+	    throw new IOException("The distance matrices of the shards contain "
+		    + headers[shards - 1].getEnd() + " pairs instead of "
+		    + pairs);
+	ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	try (FileChannel out = openOutput(fileName)) {
+	    ByteBuffer header = new DistanceMatrix.Header(
+		    headers[0].getNames(), headers[0].getWidth(), 0, pairs)
+		    .encode();
+	    while (header.hasRemaining())
+		out.write(header);
+	    for (int k = 1; k <= shards; k++)
+		try (FileChannel in = openInput(
+			fileName(fileName, k, shards))) {
+		    copy(in, headers[k - 1].getDataOffset(), in.size(), out,
+			    buffer);
+		}
+	}
+    }
+
+    /*
+     * Copy the bytes of a file between two positions and return the number
+     * of lines copied.
+     */
+    private static long copy(FileChannel in, long from, long to,
+	    FileChannel out, ByteBuffer buffer) throws IOException {
+	long lines = 0;
+	long position = from;
+	while (position < to) {
+	    buffer.clear();
+	    if (to - position < buffer.capacity())
+		buffer.limit((int) (to - position));
+	    int n = in.read(buffer, position);
+	    if (n < 0)
+		throw new IOException("Unexpected end of file");
+	    position += n;
+	    buffer.flip();
+	    for (int i = 0; i < n; i++)
+		if (buffer.get(i) == '\n')
+		    lines++;
+	    while (buffer.hasRemaining())
+		out.write(buffer);
+	}
+	return lines;
+    }
+
+    /*
+     * Read the first line of a file, including its line terminator. The
+     * line must be ASCII, as the headers of the csv files.
+     */
+    private static String readLine(FileChannel in, ByteBuffer buffer)
+	    throws IOException {
+	buffer.clear();
+	in.read(buffer, 0);
+	buffer.flip();
+	for (int i = 0; i < buffer.limit(); i++)
+	    if (buffer.get(i) == '\n')
+		return new String(buffer.array(), 0, i + 1,
+			StandardCharsets.US_ASCII);
+	throw new IOException("Missing header line");
+    }
+
+    private static boolean startsWith(FileChannel in, byte[] bytes)
+	    throws IOException {
+	return matches(in, 0, bytes);
+    }
+
+    private static boolean endsWith(FileChannel in, byte[] bytes)
+	    throws IOException {
+	return matches(in, in.size() - bytes.length, bytes);
+    }
+
+    private static boolean matches(FileChannel in, long position,
+	    byte[] bytes) throws IOException {
+	ByteBuffer b = ByteBuffer.allocate(bytes.length);
+	while (b.hasRemaining())
+	    if (in.read(b, position + b.position()) < 0)
+		return false;
+	return Arrays.equals(b.array(), bytes);
+    }
+
+    private static FileChannel openInput(String fileName) throws IOException {
+	try {
+	    return FileChannel.open(Paths.get(fileName),
+		    StandardOpenOption.READ);
+	} catch (NoSuchFileException e) {
+	    throw new IOException("The output file " + fileName
+		    + " of a shard does not exist");
+	}
+    }
+
+    private static FileChannel openOutput(String fileName)
+	    throws IOException {
+	return FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+		StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static byte[] ascii(String s) {
+	return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the class WorkbenchShards
+ * 
+ * @author Luca Tesei
+ * 
+ */
+class WorkbenchShardsTest {
+
+    @Test
+    void testFileName() {
+	assertEquals("results-shard-2-of-8.csv",
+		WorkbenchShards.fileName("results.csv", 2, 8));
+	assertEquals("results.csv-shard-1-of-3.json",
+		WorkbenchShards.fileName("results.csv.json", 1, 3));
+	assertEquals("results-shard-3-of-3",
+		WorkbenchShards.fileName("results", 3, 3));
+	assertEquals("out" + File.separator + ".results-shard-1-of-2",
+		WorkbenchShards.fileName("out" + File.separator + ".results",
+			1, 2));
+    }
+
+    @Test
+    void testMerge() throws IOException {
+	Path dir = Files.createTempDirectory("shards");
+	String s = dir.resolve("s.csv").toString();
+	String c = dir.resolve("c.csv").toString();
+	String sj = dir.resolve("s.json").toString();
+	String cj = dir.resolve("c.json").toString();
+	// three structures, three pairs: two in the first shard, none in the
+	// second one and one in the third one
+	String[] rows = { "a,b\n", "a,c\n", "", "b,c\n" };
+	String[] objects = { "{ \"p\": 1 },\n{ \"p\": 2 }", "",
+		"{ \"p\": 3 }" };
+	for (int k = 1; k <= 3; k++) {
+	    write(WorkbenchShards.fileName(s, k, 3), "Num\n1\n2\n3\n");
+	    write(WorkbenchShards.fileName(sj, k, 3), "[\n]\n");
+	    String shardRows = k == 1 ? rows[0] + rows[1] : rows[k];
+	    write(WorkbenchShards.fileName(c, k, 3), "F1,F2\n" + shardRows);
+	    String o = objects[k - 1];
+	    write(WorkbenchShards.fileName(cj, k, 3),
+		    o.isEmpty() ? "[\n]\n" : "[\n" + o + "\n]\n");
+	}
+	WorkbenchShards.merge(s, c, sj, cj, false, null, 3);
+	assertEquals("Num\n1\n2\n3\n", read(s));
+	assertEquals("F1,F2\na,b\na,c\nb,c\n", read(c));
+	assertEquals("[\n{ \"p\": 1 },\n{ \"p\": 2 },\n{ \"p\": 3 }\n]\n",
+		read(cj));
+
+	// an incomplete shard
+	write(WorkbenchShards.fileName(cj, 2, 3), "[\n{ \"p\": 3 },\n");
+	assertThrows(IOException.class,
+		() -> WorkbenchShards.merge(s, c, sj, cj, false, null, 3));
+	// a missing pair
+	write(WorkbenchShards.fileName(c, 3, 3), "F1,F2\n");
+	assertThrows(IOException.class,
+		() -> WorkbenchShards.merge(s, c, null, null, false, null, 3));
+	// a running shard
+	write(WorkbenchShards.fileName(c, 3, 3), "F1,F2\n" + rows[3]);
+	String checkpoint = WorkbenchShards.fileName(c, 2, 3)
+		+ WorkbenchCheckpoint.EXTENSION;
+	write(checkpoint, "");
+	assertThrows(IOException.class,
+		() -> WorkbenchShards.merge(s, c, null, null, false, null, 3));
+	Files.delete(new File(checkpoint).toPath());
+	WorkbenchShards.merge(s, c, null, null, false, null, 3);
+	assertEquals("F1,F2\na,b\na,c\nb,c\n", read(c));
+
+	for (File f : dir.toFile().listFiles())
+	    Files.delete(f.toPath());
+	Files.delete(dir);
+    }
+
+    private static void write(String fileName, String content)
+	    throws IOException {
+	Files.write(new File(fileName).toPath(),
+		content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(String fileName) throws IOException {
+	return new String(Files.readAllBytes(new File(fileName).toPath()),
+		StandardCharsets.UTF_8);
+    }
+}
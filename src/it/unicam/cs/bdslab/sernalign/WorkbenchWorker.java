@@ -0,0 +1,117 @@
+/**
+ * SERNAlign - Structural sEquence RNA secondary structure Alignment
+ * 
+ * Copyright (C) 2024 Luca Tesei, Francesca Levi, Michela Quadrini,
+ * Emanuela Merelli - BioShape and Data Science Lab at the University of 
+ * Camerino, Italy - http://www.emanuelamerelli.eu/bigdata/
+ *  
+ * This file is part of SERNAlign.
+ * 
+ * SERNAlign is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ * 
+ * SERNAlign is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with SERNAlign. If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.unicam.cs.bdslab.sernalign;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Worker process of the workbench, started by a
+ * {@link WorkbenchCoordinator} to align the batches of pairs of structural
+ * sequences that it serves. The worker receives the sequences when it
+ * connects and then aligns the batches one at a time, with the number of
+ * threads given by the coordinator, until the coordinator tells it that
+ * there are no more batches or the connection is closed.
+ * 
+ * @author Luca Tesei
+ * 
+ */
+public class WorkbenchWorker {
+
+    /**
+     * Connect to the coordinator listening on the given port of the loopback
+     * interface and align the batches that it serves.
+     * 
+     * @param args the port of the coordinator
+     */
+    public static void main(String[] args) {
+	String token = System.getenv(WorkbenchCoordinator.TOKEN_VARIABLE);
+	if (args.length != 1 || token == null) {
+	    System.err.println("ERROR: The worker is started by the workbench "
+		    + "with option --workers");
+	    System.exit(1);
+	}
+	try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+		Integer.parseInt(args[0]))) {
+	    socket.setTcpNoDelay(true);
+	    work(socket, Long.parseLong(token));
+	} catch (IOException | NumberFormatException e) {
+	    System.err.println("ERROR: worker failed ... " + e.getMessage());
+	    System.exit(3);
+	}
+    }
+
+    /*
+     * Receive the sequences and align the batches served by the coordinator.
+     */
+    private static void work(Socket socket, long token) throws IOException {
+	DataInputStream in = new DataInputStream(
+		new BufferedInputStream(socket.getInputStream()));
+	DataOutputStream out = new DataOutputStream(
+		new BufferedOutputStream(socket.getOutputStream()));
+	out.writeInt(WorkbenchCoordinator.MAGIC);
+	out.writeInt(WorkbenchCoordinator.VERSION);
+	out.writeLong(token);
+	out.flush();
+	boolean constraints = in.readBoolean();
+	int threads = in.readInt();
+	int n = in.readInt();
+	List<StructuralSequence> sequences = new ArrayList<>(n);
+	for (int k = 0; k < n; k++) {
+	    int[] values = new int[in.readInt()];
+	    for (int h = 0; h < values.length; h++)
+		values[h] = in.readInt();
+	    sequences.add(new StructuralSequence(values));
+	}
+	AllPairsAligner aligner = new AllPairsAligner(sequences, constraints,
+		threads);
+	while (true) {
+	    long first = in.readLong();
+	    int size = in.readInt();
+	    if (size == 0)
+		// no more batches
+		return;
+	    try {
+		aligner.alignAll((i, j, distance, time) -> {
+		    try {
+			out.writeInt(distance);
+			out.writeLong(time);
+		    } catch (IOException e) {
+			throw new UncheckedIOException(e);
+		    }
+		}, first, first + size);
+	    } catch (UncheckedIOException e) {
+		throw e.getCause();
+	    }
+	    out.flush();
+	}
+    }
+}